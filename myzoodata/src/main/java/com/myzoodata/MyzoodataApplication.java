@@ -1,9 +1,16 @@
 package com.myzoodata;
 
 import org.springframework.boot.SpringApplication;
-import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.context.annotation.ComponentScan;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.jpa.repository.config.EnableJpaAuditing;
 
-@SpringBootApplication
+import com.myzoodata.startup.EnableStartupAutoConfiguration;
+
+@Configuration
+@ComponentScan
+@EnableStartupAutoConfiguration
+@EnableJpaAuditing
 public class MyzoodataApplication {
 
 	public static void main(String[] args) {
@@ -0,0 +1,50 @@
+package com.myzoodata.admission;
+
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.embedded.FilterRegistrationBean;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.Ordered;
+
+@Configuration
+@ConditionalOnProperty(name = "myzoodata.admission.enabled", matchIfMissing = true)
+@EnableConfigurationProperties(AdmissionProperties.class)
+class AdmissionConfiguration {
+
+	@Bean
+	TokenBuckets tokenBuckets(AdmissionProperties properties) {
+		return new TokenBuckets(properties.getRate(), properties.getBurst(), properties.getMaxClients());
+	}
+
+	@Bean
+	ConcurrencyLimiter concurrencyLimiter(AdmissionProperties properties) {
+		return new ConcurrencyLimiter(properties.getInitialLimit(), properties.getMinLimit(),
+				properties.getMaxLimit(), properties.getWriteShare(), properties.getBulkShare(),
+				TimeUnit.MILLISECONDS.toNanos(properties.getTargetLatency()),
+				TimeUnit.MILLISECONDS.toNanos(properties.getWindow()), System.nanoTime());
+	}
+
+	@Bean
+	AdmissionFilter admissionFilter(AdmissionProperties properties, TokenBuckets tokenBuckets,
+			ConcurrencyLimiter concurrencyLimiter) {
+		return new AdmissionFilter(properties, tokenBuckets, concurrencyLimiter);
+	}
+
+	@Bean
+	FilterRegistrationBean admissionFilterRegistration(AdmissionFilter admissionFilter) {
+		FilterRegistrationBean registration = new FilterRegistrationBean(admissionFilter);
+		registration.addUrlPatterns("/*");
+		// Ahead of everything that does real work, rejections are cheap.
+		registration.setOrder(Ordered.HIGHEST_PRECEDENCE + 10);
+		return registration;
+	}
+
+	@Bean
+	AdmissionMetrics admissionMetrics(AdmissionFilter admissionFilter, ConcurrencyLimiter concurrencyLimiter,
+			TokenBuckets tokenBuckets) {
+		return new AdmissionMetrics(admissionFilter, concurrencyLimiter, tokenBuckets);
+	}
+}
@@ -0,0 +1,193 @@
+package com.myzoodata.admission;
+
+import java.io.IOException;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.util.AntPathMatcher;
+import org.springframework.util.PathMatcher;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+/**
+ * Admission control in front of the whole service. A request first takes a
+ * token from the bucket of its client, identified by the API key header if
+ * the key is a known one or else the remote address, and is answered with
+ * {@code 429 Too Many Requests} if there is none. Then it needs a permit of
+ * the adaptive concurrency limit for its priority class, and is answered
+ * with {@code 503 Service Unavailable} if it does not get one in time. The
+ * latency of the admitted requests adjusts the limit, except for those
+ * streaming attachments, which take as long as the client needs.
+ * <p>
+ * So one client cannot take more than its rate, and all of them together
+ * cannot queue up more work than the service and its database get done.
+ */
+class AdmissionFilter extends OncePerRequestFilter {
+
+	static final String PRIORITY_HEADER = "X-Request-Priority";
+
+	private final String apiKeyHeader;
+
+	private final Set<String> apiKeys;
+
+	private final TokenBuckets buckets;
+
+	private final ConcurrencyLimiter limiter;
+
+	private final long queueTimeoutNanos;
+
+	private final List<String> bulkPaths;
+
+	private final List<String> streamingPaths;
+
+	private final List<String> exemptPaths;
+
+	private final PathMatcher pathMatcher = new AntPathMatcher();
+
+	private final AtomicLong admitted = new AtomicLong();
+
+	private final AtomicLong rateLimited = new AtomicLong();
+
+	private final AtomicLong[] shed = new AtomicLong[Priority.values().length];
+
+	private final AtomicLong queued = new AtomicLong();
+
+	private final AtomicLong queueWaitNanos = new AtomicLong();
+
+	AdmissionFilter(AdmissionProperties properties, TokenBuckets buckets, ConcurrencyLimiter limiter) {
+		this.apiKeyHeader = properties.getApiKeyHeader();
+		this.apiKeys = new HashSet<>(properties.getApiKeys());
+		this.buckets = buckets;
+		this.limiter = limiter;
+		this.queueTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(properties.getQueueTimeout());
+		this.bulkPaths = properties.getBulkPaths();
+		this.streamingPaths = properties.getStreamingPaths();
+		this.exemptPaths = properties.getExemptPaths();
+		for (int i = 0; i < shed.length; i++) {
+			shed[i] = new AtomicLong();
+		}
+	}
+
+	@Override
+	protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+			throws ServletException, IOException {
+		String path = request.getRequestURI().substring(request.getContextPath().length());
+		if (matchesAny(exemptPaths, path)) {
+			chain.doFilter(request, response);
+			return;
+		}
+
+		long wait = buckets.tryAcquire(clientOf(request), System.nanoTime());
+		if (wait > 0) {
+			rateLimited.incrementAndGet();
+			reject(response, HttpStatus.TOO_MANY_REQUESTS.value(), TimeUnit.NANOSECONDS.toSeconds(wait) + 1);
+			return;
+		}
+
+		Priority priority = priorityOf(request, path);
+		long start = System.nanoTime();
+		boolean acquired;
+		if (limiter.tryAcquire(priority)) {
+			acquired = true;
+		} else if (priority == Priority.BULK) {
+			acquired = false;
+		} else {
+			queued.incrementAndGet();
+			try {
+				acquired = limiter.acquire(priority, queueTimeoutNanos);
+			} catch (InterruptedException ex) {
+				Thread.currentThread().interrupt();
+				acquired = false;
+			}
+			start = recordWait(start);
+		}
+		if (!acquired) {
+			shed[priority.ordinal()].incrementAndGet();
+			reject(response, HttpServletResponse.SC_SERVICE_UNAVAILABLE, 1L);
+			return;
+		}
+
+		admitted.incrementAndGet();
+		boolean streaming = matchesAny(streamingPaths, path);
+		try {
+			chain.doFilter(request, response);
+		} finally {
+			if (streaming) {
+				// A slow client downloading a large file says nothing about
+				// the load of the service.
+				limiter.release();
+			} else {
+				long end = System.nanoTime();
+				limiter.release(end - start, end);
+			}
+		}
+	}
+
+	long getAdmittedCount() {
+		return admitted.get();
+	}
+
+	long getRateLimitedCount() {
+		return rateLimited.get();
+	}
+
+	long getShedCount(Priority priority) {
+		return shed[priority.ordinal()].get();
+	}
+
+	long getQueuedCount() {
+		return queued.get();
+	}
+
+	long getQueueWaitNanos() {
+		return queueWaitNanos.get();
+	}
+
+	private String clientOf(HttpServletRequest request) {
+		String apiKey = request.getHeader(apiKeyHeader);
+		return apiKey != null && apiKeys.contains(apiKey) ? "key:" + apiKey : "ip:" + request.getRemoteAddr();
+	}
+
+	/**
+	 * Clients can mark a request as bulk, but not raise its priority.
+	 */
+	private Priority priorityOf(HttpServletRequest request, String path) {
+		if ("bulk".equalsIgnoreCase(request.getHeader(PRIORITY_HEADER)) || matchesAny(bulkPaths, path)) {
+			return Priority.BULK;
+		}
+		String method = request.getMethod();
+		if ("GET".equals(method) || "HEAD".equals(method) || "OPTIONS".equals(method)) {
+			return Priority.READ;
+		}
+		return Priority.WRITE;
+	}
+
+	private boolean matchesAny(List<String> patterns, String path) {
+		for (String pattern : patterns) {
+			if (pathMatcher.match(pattern, path)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private long recordWait(long start) {
+		long now = System.nanoTime();
+		queueWaitNanos.addAndGet(now - start);
+		return now;
+	}
+
+	private static void reject(HttpServletResponse response, int status, long retryAfterSeconds) throws IOException {
+		response.setHeader(HttpHeaders.RETRY_AFTER, Long.toString(retryAfterSeconds));
+		response.sendError(status);
+	}
+}
@@ -0,0 +1,50 @@
+package com.myzoodata.admission;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.boot.actuate.endpoint.PublicMetrics;
+import org.springframework.boot.actuate.metrics.Metric;
+
+/**
+ * Publishes what the admission filter decided and where the concurrency
+ * limit stands.
+ */
+class AdmissionMetrics implements PublicMetrics {
+
+	private final AdmissionFilter filter;
+
+	private final ConcurrencyLimiter limiter;
+
+	private final TokenBuckets buckets;
+
+	AdmissionMetrics(AdmissionFilter filter, ConcurrencyLimiter limiter, TokenBuckets buckets) {
+		this.filter = filter;
+		this.limiter = limiter;
+		this.buckets = buckets;
+	}
+
+	@Override
+	public Collection<Metric<?>> metrics() {
+		List<Metric<?>> metrics = new ArrayList<>();
+		metrics.add(new Metric<Number>("admission.limit", limiter.getLimit()));
+		metrics.add(new Metric<Number>("admission.in-flight", limiter.getInFlight()));
+		metrics.add(new Metric<Number>("admission.waiting", limiter.getWaiting()));
+		metrics.add(new Metric<Number>("admission.latency",
+				TimeUnit.NANOSECONDS.toMillis(limiter.getLatencyNanos())));
+		metrics.add(new Metric<Number>("admission.clients", buckets.size()));
+		metrics.add(new Metric<Number>("admission.admitted", filter.getAdmittedCount()));
+		metrics.add(new Metric<Number>("admission.rate-limited", filter.getRateLimitedCount()));
+		for (Priority priority : Priority.values()) {
+			metrics.add(new Metric<Number>("admission.shed." + priority.name().toLowerCase(Locale.ENGLISH),
+					filter.getShedCount(priority)));
+		}
+		metrics.add(new Metric<Number>("admission.queued", filter.getQueuedCount()));
+		metrics.add(new Metric<Number>("admission.queue.wait",
+				TimeUnit.NANOSECONDS.toMillis(filter.getQueueWaitNanos())));
+		return metrics;
+	}
+}
@@ -0,0 +1,244 @@
+package com.myzoodata.admission;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+@ConfigurationProperties(prefix = "myzoodata.admission")
+public class AdmissionProperties {
+
+	private boolean enabled = true;
+
+	private String apiKeyHeader = "X-API-Key";
+
+	private List<String> apiKeys = new ArrayList<>();
+
+	private double rate = 50.0;
+
+	private int burst = 100;
+
+	private int maxClients = 100000;
+
+	private int initialLimit = 100;
+
+	private int minLimit = 10;
+
+	private int maxLimit = 180;
+
+	private long targetLatency = 500L;
+
+	private long window = 1000L;
+
+	private long queueTimeout = 100L;
+
+	private double writeShare = 0.8;
+
+	private double bulkShare = 0.5;
+
+	private List<String> bulkPaths = new ArrayList<>(Arrays.asList("/search/rebuild", "/animals/*/attachments"));
+
+	private List<String> streamingPaths = new ArrayList<>(
+			Arrays.asList("/attachments/*/content", "/animals/*/attachments"));
+
+	private List<String> exemptPaths = new ArrayList<>(Arrays.asList("/health", "/metrics"));
+
+	/**
+	 * Whether requests are rate limited and shed under load.
+	 */
+	public boolean isEnabled() {
+		return enabled;
+	}
+
+	public void setEnabled(boolean enabled) {
+		this.enabled = enabled;
+	}
+
+	/**
+	 * Header identifying the client. Requests without it, or with a key not
+	 * listed in {@link #getApiKeys()}, are limited by their remote address.
+	 */
+	public String getApiKeyHeader() {
+		return apiKeyHeader;
+	}
+
+	public void setApiKeyHeader(String apiKeyHeader) {
+		this.apiKeyHeader = apiKeyHeader;
+	}
+
+	/**
+	 * API keys of the clients limited on their own. Any other key would let
+	 * a client escape its rate by sending a new one with each request.
+	 */
+	public List<String> getApiKeys() {
+		return apiKeys;
+	}
+
+	public void setApiKeys(List<String> apiKeys) {
+		this.apiKeys = apiKeys;
+	}
+
+	/**
+	 * Requests per second a client can make in the long run.
+	 */
+	public double getRate() {
+		return rate;
+	}
+
+	public void setRate(double rate) {
+		this.rate = rate;
+	}
+
+	/**
+	 * Requests a client can make at once after having been idle.
+	 */
+	public int getBurst() {
+		return burst;
+	}
+
+	public void setBurst(int burst) {
+		this.burst = burst;
+	}
+
+	/**
+	 * Number of clients whose rate is tracked. Beyond it, new clients share
+	 * their rate with each other until idle ones are forgotten.
+	 */
+	public int getMaxClients() {
+		return maxClients;
+	}
+
+	public void setMaxClients(int maxClients) {
+		this.maxClients = maxClients;
+	}
+
+	/**
+	 * Concurrent requests allowed on startup, before any latency has been
+	 * observed.
+	 */
+	public int getInitialLimit() {
+		return initialLimit;
+	}
+
+	public void setInitialLimit(int initialLimit) {
+		this.initialLimit = initialLimit;
+	}
+
+	/**
+	 * Concurrent requests allowed however slow the requests get.
+	 */
+	public int getMinLimit() {
+		return minLimit;
+	}
+
+	public void setMinLimit(int minLimit) {
+		this.minLimit = minLimit;
+	}
+
+	/**
+	 * Most concurrent requests allowed. Should stay below the size of the
+	 * server thread pool, so requests are shed before the pool runs out.
+	 */
+	public int getMaxLimit() {
+		return maxLimit;
+	}
+
+	public void setMaxLimit(int maxLimit) {
+		this.maxLimit = maxLimit;
+	}
+
+	/**
+	 * Average request latency in milliseconds above which the concurrency
+	 * limit is lowered.
+	 */
+	public long getTargetLatency() {
+		return targetLatency;
+	}
+
+	public void setTargetLatency(long targetLatency) {
+		this.targetLatency = targetLatency;
+	}
+
+	/**
+	 * Milliseconds of latency observed before the concurrency limit is
+	 * adjusted.
+	 */
+	public long getWindow() {
+		return window;
+	}
+
+	public void setWindow(long window) {
+		this.window = window;
+	}
+
+	/**
+	 * Milliseconds a read or write request may wait for the concurrency
+	 * limit before it is shed. Bulk requests never wait.
+	 */
+	public long getQueueTimeout() {
+		return queueTimeout;
+	}
+
+	public void setQueueTimeout(long queueTimeout) {
+		this.queueTimeout = queueTimeout;
+	}
+
+	/**
+	 * Share of the concurrency limit writes can take up.
+	 */
+	public double getWriteShare() {
+		return writeShare;
+	}
+
+	public void setWriteShare(double writeShare) {
+		this.writeShare = writeShare;
+	}
+
+	/**
+	 * Share of the concurrency limit bulk requests can take up.
+	 */
+	public double getBulkShare() {
+		return bulkShare;
+	}
+
+	public void setBulkShare(double bulkShare) {
+		this.bulkShare = bulkShare;
+	}
+
+	/**
+	 * Ant patterns of the paths which are bulk requests. Clients can mark
+	 * further requests by sending {@code X-Request-Priority: bulk}.
+	 */
+	public List<String> getBulkPaths() {
+		return bulkPaths;
+	}
+
+	public void setBulkPaths(List<String> bulkPaths) {
+		this.bulkPaths = bulkPaths;
+	}
+
+	/**
+	 * Ant patterns of the paths streaming content, whose latency depends on
+	 * the size and the client's bandwidth. They take part in the concurrency
+	 * limit but their latency does not adjust it.
+	 */
+	public List<String> getStreamingPaths() {
+		return streamingPaths;
+	}
+
+	public void setStreamingPaths(List<String> streamingPaths) {
+		this.streamingPaths = streamingPaths;
+	}
+
+	/**
+	 * Ant patterns of the paths which are never limited.
+	 */
+	public List<String> getExemptPaths() {
+		return exemptPaths;
+	}
+
+	public void setExemptPaths(List<String> exemptPaths) {
+		this.exemptPaths = exemptPaths;
+	}
+}
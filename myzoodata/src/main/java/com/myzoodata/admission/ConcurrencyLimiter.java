@@ -0,0 +1,194 @@
+package com.myzoodata.admission;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Limits the number of requests in progress, adapting the limit to the
+ * observed latency: once per window, the limit is cut by a tenth if the
+ * average latency was above the target, and raised by its square root if
+ * the latency was fine and the limit was actually reached. So the service
+ * takes as much concurrency as it handles without queueing up, which is
+ * less than the thread pool whenever the database is the bottleneck.
+ * <p>
+ * Each priority class can use its share of the limit only, leaving the
+ * rest to the higher classes. Reads and writes which find the limit reached
+ * wait for a permit a short while, bulk requests are rejected right away.
+ * Taking and returning a permit does not block unless a request waits.
+ */
+class ConcurrencyLimiter {
+
+	private static final double BACKOFF = 0.9;
+
+	// Windows with fewer samples tell nothing about the latency.
+	private static final int MIN_SAMPLES = 10;
+
+	private final int minLimit;
+
+	private final int maxLimit;
+
+	private final double[] shares = new double[Priority.values().length];
+
+	private final long targetLatencyNanos;
+
+	private final long windowNanos;
+
+	private volatile int limit;
+
+	private final AtomicInteger inFlight = new AtomicInteger();
+
+	private final AtomicInteger peakInFlight = new AtomicInteger();
+
+	private final AtomicLong windowStart;
+
+	private final AtomicLong sampleCount = new AtomicLong();
+
+	private final AtomicLong sampleNanos = new AtomicLong();
+
+	private volatile long lastLatencyNanos;
+
+	private final Object monitor = new Object();
+
+	// Guarded by monitor, only written there.
+	private volatile int waiting;
+
+	ConcurrencyLimiter(int initialLimit, int minLimit, int maxLimit, double writeShare, double bulkShare,
+			long targetLatencyNanos, long windowNanos, long nowNanos) {
+		if (minLimit < 1 || maxLimit < minLimit) {
+			throw new IllegalArgumentException("The limits must be positive and the minimum at most the maximum.");
+		}
+		this.minLimit = minLimit;
+		this.maxLimit = maxLimit;
+		this.limit = Math.max(minLimit, Math.min(maxLimit, initialLimit));
+		this.shares[Priority.READ.ordinal()] = 1.0;
+		this.shares[Priority.WRITE.ordinal()] = writeShare;
+		this.shares[Priority.BULK.ordinal()] = bulkShare;
+		this.targetLatencyNanos = targetLatencyNanos;
+		this.windowNanos = windowNanos;
+		this.windowStart = new AtomicLong(nowNanos);
+	}
+
+	int getLimit() {
+		return limit;
+	}
+
+	int getInFlight() {
+		return inFlight.get();
+	}
+
+	int getWaiting() {
+		return waiting;
+	}
+
+	/**
+	 * Returns the average latency of the last window.
+	 */
+	long getLatencyNanos() {
+		return lastLatencyNanos;
+	}
+
+	/**
+	 * Takes a permit if the share of the priority class is not used up.
+	 */
+	boolean tryAcquire(Priority priority) {
+		int allowed = Math.max(1, (int) (limit * shares[priority.ordinal()]));
+		while (true) {
+			int current = inFlight.get();
+			if (current >= allowed) {
+				return false;
+			}
+			if (inFlight.compareAndSet(current, current + 1)) {
+				updatePeak(current + 1);
+				return true;
+			}
+		}
+	}
+
+	/**
+	 * Takes a permit, waiting at most the given time for one unless the
+	 * request is a bulk one.
+	 */
+	boolean acquire(Priority priority, long timeoutNanos) throws InterruptedException {
+		if (tryAcquire(priority)) {
+			return true;
+		}
+		if (priority == Priority.BULK || timeoutNanos <= 0) {
+			return false;
+		}
+		long deadline = System.nanoTime() + timeoutNanos;
+		synchronized (monitor) {
+			waiting++;
+			try {
+				while (!tryAcquire(priority)) {
+					long remaining = deadline - System.nanoTime();
+					if (remaining <= 0) {
+						return false;
+					}
+					TimeUnit.NANOSECONDS.timedWait(monitor, remaining);
+				}
+				return true;
+			} finally {
+				waiting--;
+			}
+		}
+	}
+
+	/**
+	 * Returns a permit and records how long the request took.
+	 */
+	void release(long latencyNanos, long nowNanos) {
+		release();
+		sampleCount.incrementAndGet();
+		sampleNanos.addAndGet(latencyNanos);
+		long start = windowStart.get();
+		if (nowNanos - start >= windowNanos && windowStart.compareAndSet(start, nowNanos)) {
+			adjust();
+		}
+	}
+
+	/**
+	 * Returns a permit without recording the latency, for requests whose
+	 * duration depends on the client rather than on the service.
+	 */
+	void release() {
+		inFlight.decrementAndGet();
+		if (waiting > 0) {
+			synchronized (monitor) {
+				monitor.notifyAll();
+			}
+		}
+	}
+
+	private void adjust() {
+		long count = sampleCount.getAndSet(0L);
+		long nanos = sampleNanos.getAndSet(0L);
+		int peak = peakInFlight.getAndSet(inFlight.get());
+		if (count < MIN_SAMPLES) {
+			return;
+		}
+		long latency = nanos / count;
+		lastLatencyNanos = latency;
+		int current = limit;
+		if (latency > targetLatencyNanos) {
+			limit = Math.max(minLimit, (int) (current * BACKOFF));
+		} else if (peak >= current) {
+			limit = Math.min(maxLimit, current + (int) Math.ceil(Math.sqrt(current)));
+		}
+		if (limit > current) {
+			// More room for those waiting.
+			synchronized (monitor) {
+				monitor.notifyAll();
+			}
+		}
+	}
+
+	private void updatePeak(int value) {
+		while (true) {
+			int peak = peakInFlight.get();
+			if (value <= peak || peakInFlight.compareAndSet(peak, value)) {
+				return;
+			}
+		}
+	}
+}
@@ -0,0 +1,10 @@
+package com.myzoodata.admission;
+
+/**
+ * Priority class of a request. Under load, bulk requests are shed first,
+ * then writes, then reads.
+ */
+enum Priority {
+
+	READ, WRITE, BULK
+}
@@ -0,0 +1,130 @@
+package com.myzoodata.admission;
+
+import java.util.Iterator;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Token bucket per client, in the form of the generic cell rate algorithm:
+ * a bucket is a single number, the time at which it would be full again,
+ * so taking a token is one compare-and-set and no thread ever blocks.
+ * <p>
+ * The buckets are spread over stripes by the hash of the client. A stripe
+ * that is full forgets its full buckets, which is the same as not knowing
+ * the client. If none is full, new clients of the stripe share an overflow
+ * bucket until some are.
+ */
+class TokenBuckets {
+
+	private static final int STRIPES = 64;
+
+	private final long intervalNanos;
+
+	private final long toleranceNanos;
+
+	private final int maxPerStripe;
+
+	private final Stripe[] stripes = new Stripe[STRIPES];
+
+	/**
+	 * @param rate tokens added per second
+	 * @param burst tokens a full bucket holds
+	 * @param maxClients number of buckets kept
+	 */
+	TokenBuckets(double rate, int burst, int maxClients) {
+		if (rate <= 0 || burst < 1) {
+			throw new IllegalArgumentException("The rate and the burst must be positive.");
+		}
+		this.intervalNanos = (long) (1000000000L / rate);
+		this.toleranceNanos = intervalNanos * (burst - 1);
+		this.maxPerStripe = Math.max(1, maxClients / STRIPES);
+		for (int i = 0; i < STRIPES; i++) {
+			stripes[i] = new Stripe(System.nanoTime());
+		}
+	}
+
+	/**
+	 * Takes a token from the bucket of a client.
+	 *
+	 * @return zero if there was one, otherwise the nanoseconds until there
+	 * will be
+	 */
+	long tryAcquire(String client, long nowNanos) {
+		AtomicLong bucket = bucketOf(client, nowNanos);
+		while (true) {
+			long full = bucket.get();
+			long start = full - nowNanos > 0 ? full : nowNanos;
+			long wait = start - nowNanos - toleranceNanos;
+			if (wait > 0) {
+				return wait;
+			}
+			if (bucket.compareAndSet(full, start + intervalNanos)) {
+				return 0L;
+			}
+		}
+	}
+
+	/**
+	 * Returns the number of clients being tracked.
+	 */
+	int size() {
+		int size = 0;
+		for (Stripe stripe : stripes) {
+			size += stripe.buckets.size();
+		}
+		return size;
+	}
+
+	private AtomicLong bucketOf(String client, long nowNanos) {
+		int hash = client.hashCode();
+		Stripe stripe = stripes[(hash ^ (hash >>> 16)) & (STRIPES - 1)];
+		AtomicLong bucket = stripe.buckets.get(client);
+		if (bucket != null) {
+			return bucket;
+		}
+		if (stripe.buckets.size() >= maxPerStripe
+				&& !(stripe.evictFull(nowNanos, intervalNanos) && stripe.buckets.size() < maxPerStripe)) {
+			return stripe.overflow;
+		}
+		bucket = new AtomicLong(nowNanos);
+		AtomicLong existing = stripe.buckets.putIfAbsent(client, bucket);
+		return existing != null ? existing : bucket;
+	}
+
+	private static final class Stripe {
+
+		private final ConcurrentHashMap<String, AtomicLong> buckets = new ConcurrentHashMap<>();
+
+		private final AtomicLong overflow;
+
+		private final AtomicLong lastEviction;
+
+		Stripe(long nowNanos) {
+			this.overflow = new AtomicLong(nowNanos);
+			this.lastEviction = new AtomicLong(nowNanos);
+		}
+
+		/**
+		 * Removes the buckets which are full. Runs at most once per token
+		 * interval, so a flood of new clients does not turn every request
+		 * into a scan of the stripe.
+		 *
+		 * @return {@code false} if it did not run
+		 */
+		boolean evictFull(long nowNanos, long intervalNanos) {
+			long last = lastEviction.get();
+			if (nowNanos - last >= intervalNanos && lastEviction.compareAndSet(last, nowNanos)) {
+				// A token taken concurrently from a bucket being removed is
+				// lost, which lets that client make one more request.
+				Iterator<AtomicLong> iterator = buckets.values().iterator();
+				while (iterator.hasNext()) {
+					if (iterator.next().get() - nowNanos <= 0) {
+						iterator.remove();
+					}
+				}
+				return true;
+			}
+			return false;
+		}
+	}
+}
@@ -0,0 +1,24 @@
+package com.myzoodata.attachments;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+@EnableConfigurationProperties(AttachmentProperties.class)
+class AttachmentConfiguration {
+
+	@Bean
+	ContentStore contentStore(AttachmentProperties properties) throws IOException {
+		return new ContentStore(Paths.get(properties.getDirectory()));
+	}
+
+	@Bean
+	ThumbnailGenerator thumbnailGenerator(ContentStore contentStore, AttachmentProperties properties) {
+		return new ThumbnailGenerator(contentStore, properties.getThumbnailSize(), properties.getThumbnailThreads(),
+				properties.getThumbnailQueue());
+	}
+}
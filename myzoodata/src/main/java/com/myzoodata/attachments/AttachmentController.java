@@ -0,0 +1,289 @@
+package com.myzoodata.attachments;
+
+import java.io.IOException;
+import java.io.UnsupportedEncodingException;
+import java.net.URLEncoder;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import javax.servlet.ServletOutputStream;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.eclipse.jetty.server.HttpOutput;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpRange;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.InvalidMediaTypeException;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.util.ClassUtils;
+import org.springframework.util.StringUtils;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.ResponseStatus;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
+
+/**
+ * Uploads and downloads of attachments. Both stream the content, neither
+ * holds a whole file in memory.
+ * <p>
+ * Uploads are the raw request body, named by the {@code name} parameter.
+ * Downloads support single byte ranges, so large files can be resumed and
+ * videos seeked. Contents never change under their id, which makes them
+ * cacheable for good, though only by the browser: they are the household's
+ * own and must not be kept by shared caches.
+ * <p>
+ * The content type is the one the uploader sent, so only raster images and
+ * PDF documents are shown inline. Anything else, HTML or SVG with scripts
+ * in particular, is sent as a download the browser does not render.
+ */
+@RestController
+class AttachmentController {
+
+	private static final String CACHE_CONTROL = "private, max-age=31536000, immutable";
+
+	private static final Set<String> INLINE_CONTENT_TYPES = Collections.unmodifiableSet(new HashSet<>(Arrays.asList(
+			"image/jpeg", "image/png", "image/gif", "image/bmp", "image/webp", "application/pdf")));
+
+	private static final boolean JETTY_PRESENT = ClassUtils.isPresent("org.eclipse.jetty.server.HttpOutput",
+			AttachmentController.class.getClassLoader());
+
+	private final AttachmentService attachmentService;
+
+	@Autowired
+	AttachmentController(AttachmentService attachmentService) {
+		this.attachmentService = attachmentService;
+	}
+
+	@RequestMapping(value = "/animals/{id}/attachments", method = RequestMethod.POST)
+	ResponseEntity<AttachmentInfo> upload(@PathVariable("id") long animalId,
+			@RequestParam(value = "name", required = false) String name, HttpServletRequest request)
+			throws IOException {
+		if (request.getContentLengthLong() > attachmentService.getMaxSize()) {
+			throw new ContentTooLargeException(attachmentService.getMaxSize());
+		}
+		String contentType = request.getContentType() != null
+				? MediaType.parseMediaType(request.getContentType()).toString()
+				: MediaType.APPLICATION_OCTET_STREAM_VALUE;
+		String fileName = StringUtils.hasText(name) ? name.trim() : "attachment";
+
+		AttachmentInfo info = attachmentService.create(animalId, fileName, contentType, request.getInputStream());
+		if (info == null) {
+			return new ResponseEntity<>(HttpStatus.NOT_FOUND);
+		}
+		return ResponseEntity.created(ServletUriComponentsBuilder.fromCurrentContextPath()
+				.path("/attachments/{id}").buildAndExpand(info.getId()).toUri()).body(info);
+	}
+
+	@RequestMapping(value = "/animals/{id}/attachments", method = RequestMethod.GET)
+	ResponseEntity<List<AttachmentInfo>> list(@PathVariable("id") long animalId) {
+		List<AttachmentInfo> result = attachmentService.findByAnimal(animalId);
+		return result != null ? ResponseEntity.ok(result) : new ResponseEntity<List<AttachmentInfo>>(HttpStatus.NOT_FOUND);
+	}
+
+	@RequestMapping(value = "/attachments/{id}", method = RequestMethod.GET)
+	ResponseEntity<AttachmentInfo> attachment(@PathVariable("id") long id) {
+		AttachmentInfo info = attachmentService.find(id);
+		return info != null ? ResponseEntity.ok(info) : new ResponseEntity<AttachmentInfo>(HttpStatus.NOT_FOUND);
+	}
+
+	@RequestMapping(value = "/attachments/{id}", method = RequestMethod.DELETE)
+	ResponseEntity<Void> delete(@PathVariable("id") long id) {
+		return new ResponseEntity<>(attachmentService.delete(id) ? HttpStatus.NO_CONTENT : HttpStatus.NOT_FOUND);
+	}
+
+	@RequestMapping(value = "/attachments/{id}/content", method = { RequestMethod.GET, RequestMethod.HEAD })
+	void content(@PathVariable("id") long id, HttpServletRequest request, HttpServletResponse response)
+			throws IOException {
+		AttachmentInfo info = attachmentService.find(id);
+		if (info == null) {
+			response.sendError(HttpServletResponse.SC_NOT_FOUND);
+			return;
+		}
+		boolean inline = isInline(info.getContentType());
+		response.setHeader(HttpHeaders.CONTENT_DISPOSITION, contentDisposition(info.getFileName(), inline));
+		try {
+			send(request, response, attachmentService.contentOf(info),
+					inline ? info.getContentType() : MediaType.APPLICATION_OCTET_STREAM_VALUE, info.getContentLength(),
+					"\"" + info.getContentHash() + "\"");
+		} catch (NoSuchFileException ex) {
+			// Deleted since it was looked up.
+			attachmentService.evict(id);
+			response.reset();
+			response.sendError(HttpServletResponse.SC_NOT_FOUND);
+		}
+	}
+
+	@RequestMapping(value = "/attachments/{id}/thumbnail", method = { RequestMethod.GET, RequestMethod.HEAD })
+	void thumbnail(@PathVariable("id") long id, HttpServletRequest request, HttpServletResponse response)
+			throws IOException {
+		AttachmentInfo info = attachmentService.find(id);
+		if (info == null || !info.isImage()) {
+			response.sendError(HttpServletResponse.SC_NOT_FOUND);
+			return;
+		}
+		Path file = attachmentService.thumbnailOf(info);
+		if (file == null) {
+			response.setHeader(HttpHeaders.RETRY_AFTER, "1");
+			response.sendError(HttpServletResponse.SC_SERVICE_UNAVAILABLE);
+			return;
+		}
+		send(request, response, file, MediaType.IMAGE_JPEG_VALUE, file.toFile().length(),
+				"\"" + info.getContentHash() + "-" + attachmentService.getThumbnailSize() + "\"");
+	}
+
+	@ExceptionHandler(ContentTooLargeException.class)
+	@ResponseStatus(HttpStatus.PAYLOAD_TOO_LARGE)
+	void tooLarge() {
+	}
+
+	/**
+	 * Sends the whole file or the byte range asked for, unless the client
+	 * has it already.
+	 */
+	private static void send(HttpServletRequest request, HttpServletResponse response, Path file, String contentType,
+			long length, String etag) throws IOException {
+		response.setHeader(HttpHeaders.ETAG, etag);
+		response.setHeader(HttpHeaders.CACHE_CONTROL, CACHE_CONTROL);
+		response.setHeader(HttpHeaders.ACCEPT_RANGES, "bytes");
+		response.setHeader("X-Content-Type-Options", "nosniff");
+		if (matches(request.getHeader(HttpHeaders.IF_NONE_MATCH), etag)) {
+			response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+			return;
+		}
+
+		long start = 0L;
+		long count = length;
+		HttpRange range = requestedRange(request, etag);
+		if (range != null) {
+			start = range.getRangeStart(length);
+			if (start >= length) {
+				response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes */" + length);
+				response.sendError(HttpServletResponse.SC_REQUESTED_RANGE_NOT_SATISFIABLE);
+				return;
+			}
+			long end = range.getRangeEnd(length);
+			count = end - start + 1;
+			response.setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
+			response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes " + start + "-" + end + "/" + length);
+		}
+		// Binary content has no charset, whatever the encoding filter set.
+		response.setCharacterEncoding(null);
+		response.setContentType(contentType);
+		response.setContentLengthLong(count);
+		if ("HEAD".equals(request.getMethod())) {
+			return;
+		}
+		write(response, file, start, count);
+	}
+
+	/**
+	 * Returns the byte range to send, or {@code null} to send the whole
+	 * content. Several ranges are answered with the whole content too, which
+	 * the client has to accept, rather than a multipart response.
+	 */
+	private static HttpRange requestedRange(HttpServletRequest request, String etag) {
+		String header = request.getHeader(HttpHeaders.RANGE);
+		if (header == null) {
+			return null;
+		}
+		String ifRange = request.getHeader(HttpHeaders.IF_RANGE);
+		if (ifRange != null && !ifRange.trim().equals(etag)) {
+			return null;
+		}
+		List<HttpRange> ranges;
+		try {
+			ranges = HttpRange.parseRanges(header);
+		} catch (IllegalArgumentException ex) {
+			// An invalid range header is to be ignored.
+			return null;
+		}
+		return ranges.size() == 1 ? ranges.get(0) : null;
+	}
+
+	private static boolean matches(String ifNoneMatch, String etag) {
+		if (ifNoneMatch == null) {
+			return false;
+		}
+		for (String candidate : StringUtils.commaDelimitedListToStringArray(ifNoneMatch)) {
+			candidate = candidate.trim();
+			if ("*".equals(candidate) || candidate.equals(etag) || candidate.equals("W/" + etag)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Writes a part of a file to the response without copying it through the
+	 * heap. Jetty writes a memory mapped buffer straight to the socket, other
+	 * containers get the file transferred to their output stream.
+	 */
+	private static void write(HttpServletResponse response, Path file, long start, long count) throws IOException {
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+			ServletOutputStream output = response.getOutputStream();
+			if (JETTY_PRESENT && count <= Integer.MAX_VALUE && JettyOutput.send(output, channel, start, count)) {
+				return;
+			}
+			WritableByteChannel target = Channels.newChannel(output);
+			long position = start;
+			long end = start + count;
+			while (position < end) {
+				position += channel.transferTo(position, end - position, target);
+			}
+		}
+	}
+
+	/**
+	 * Returns whether content of the type can be shown by the browser
+	 * without running anything on this origin.
+	 */
+	private static boolean isInline(String contentType) {
+		try {
+			MediaType mediaType = MediaType.parseMediaType(contentType);
+			return INLINE_CONTENT_TYPES.contains(mediaType.getType() + "/" + mediaType.getSubtype());
+		} catch (InvalidMediaTypeException ex) {
+			return false;
+		}
+	}
+
+	private static String contentDisposition(String fileName, boolean inline) {
+		String ascii = fileName.replaceAll("[^\\x20-\\x7e]|[\"\\\\]", "_");
+		try {
+			String encoded = URLEncoder.encode(fileName, "UTF-8").replace("+", "%20");
+			return (inline ? "inline" : "attachment") + "; filename=\"" + ascii + "\"; filename*=UTF-8''" + encoded;
+		} catch (UnsupportedEncodingException ex) {
+			throw new IllegalStateException(ex);
+		}
+	}
+
+	/**
+	 * Kept apart so the controller loads without Jetty.
+	 */
+	private static final class JettyOutput {
+
+		static boolean send(ServletOutputStream output, FileChannel channel, long start, long count)
+				throws IOException {
+			if (!(output instanceof HttpOutput)) {
+				return false;
+			}
+			((HttpOutput) output).sendContent(channel.map(FileChannel.MapMode.READ_ONLY, start, count));
+			return true;
+		}
+	}
+}
@@ -0,0 +1,70 @@
+package com.myzoodata.attachments;
+
+import java.util.Date;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.myzoodata.domain.Attachment;
+
+/**
+ * The metadata of an attachment. Attachments do not change, so this can be
+ * kept in memory for as long as the attachment exists.
+ */
+public class AttachmentInfo {
+
+	private final long id;
+
+	private final long animalId;
+
+	private final String fileName;
+
+	private final String contentType;
+
+	private final long contentLength;
+
+	private final String contentHash;
+
+	private final Date created;
+
+	AttachmentInfo(Attachment attachment, long animalId) {
+		this.id = attachment.getId();
+		this.animalId = animalId;
+		this.fileName = attachment.getFileName();
+		this.contentType = attachment.getContentType();
+		this.contentLength = attachment.getContentLength();
+		this.contentHash = attachment.getContentHash();
+		this.created = attachment.getLastModified();
+	}
+
+	public long getId() {
+		return id;
+	}
+
+	public long getAnimalId() {
+		return animalId;
+	}
+
+	public String getFileName() {
+		return fileName;
+	}
+
+	public String getContentType() {
+		return contentType;
+	}
+
+	public long getContentLength() {
+		return contentLength;
+	}
+
+	public String getContentHash() {
+		return contentHash;
+	}
+
+	public Date getCreated() {
+		return created;
+	}
+
+	@JsonIgnore
+	public boolean isImage() {
+		return ThumbnailGenerator.supports(contentType);
+	}
+}
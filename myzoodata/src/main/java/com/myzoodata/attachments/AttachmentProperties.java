@@ -0,0 +1,87 @@
+package com.myzoodata.attachments;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+@ConfigurationProperties(prefix = "myzoodata.attachments")
+public class AttachmentProperties {
+
+	private String directory = "attachments";
+
+	private long maxSize = 50L * 1024 * 1024;
+
+	private int thumbnailSize = 256;
+
+	private int thumbnailThreads = 2;
+
+	private int thumbnailQueue = 100;
+
+	private int cacheSize = 10000;
+
+	/**
+	 * Directory of the attachment contents and thumbnails, on a local disk.
+	 */
+	public String getDirectory() {
+		return directory;
+	}
+
+	public void setDirectory(String directory) {
+		this.directory = directory;
+	}
+
+	/**
+	 * Largest accepted attachment in bytes.
+	 */
+	public long getMaxSize() {
+		return maxSize;
+	}
+
+	public void setMaxSize(long maxSize) {
+		this.maxSize = maxSize;
+	}
+
+	/**
+	 * Longest side of the thumbnails in pixels.
+	 */
+	public int getThumbnailSize() {
+		return thumbnailSize;
+	}
+
+	public void setThumbnailSize(int thumbnailSize) {
+		this.thumbnailSize = thumbnailSize;
+	}
+
+	/**
+	 * Number of threads generating thumbnails.
+	 */
+	public int getThumbnailThreads() {
+		return thumbnailThreads;
+	}
+
+	public void setThumbnailThreads(int thumbnailThreads) {
+		this.thumbnailThreads = thumbnailThreads;
+	}
+
+	/**
+	 * Number of thumbnails which can wait to be generated. Further ones are
+	 * generated when they are asked for.
+	 */
+	public int getThumbnailQueue() {
+		return thumbnailQueue;
+	}
+
+	public void setThumbnailQueue(int thumbnailQueue) {
+		this.thumbnailQueue = thumbnailQueue;
+	}
+
+	/**
+	 * Number of attachments whose metadata is kept in memory for serving
+	 * downloads.
+	 */
+	public int getCacheSize() {
+		return cacheSize;
+	}
+
+	public void setCacheSize(int cacheSize) {
+		this.cacheSize = cacheSize;
+	}
+}
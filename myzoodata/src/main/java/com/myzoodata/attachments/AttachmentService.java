@@ -0,0 +1,305 @@
+package com.myzoodata.attachments;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.persistence.EntityManagerFactory;
+import javax.persistence.PersistenceUnitUtil;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.myzoodata.domain.Animal;
+import com.myzoodata.domain.Attachment;
+import com.myzoodata.repositories.AnimalRepository;
+import com.myzoodata.repositories.AttachmentRepository;
+import com.myzoodata.sharding.ShardCallback;
+import com.myzoodata.sharding.ShardTemplate;
+
+/**
+ * Stores the attachments of the animals.
+ * <p>
+ * The content is streamed to disk before the database is touched, so no
+ * transaction or connection is held while a client uploads. The row and the
+ * content file are created and deleted under a lock on the content hash,
+ * which keeps a delete from removing a file that a concurrent upload of the
+ * same content has just referenced.
+ * <p>
+ * The metadata of recently used attachments is cached, downloads of them
+ * do not query the database.
+ * <p>
+ * Attachments and animals are looked up on the shard their id belongs to,
+ * so links to attachments work without naming the household. The content
+ * store is shared by the shards.
+ */
+@Service
+public class AttachmentService {
+
+	private static final Log LOGGER = LogFactory.getLog(AttachmentService.class);
+
+	private static final int LOCK_STRIPES = 64;
+
+	private final AttachmentRepository attachments;
+
+	private final AnimalRepository animals;
+
+	private final ContentStore store;
+
+	private final ThumbnailGenerator thumbnails;
+
+	private final ShardTemplate shardTemplate;
+
+	private final PersistenceUnitUtil persistenceUnitUtil;
+
+	private final TransactionTemplate transaction;
+
+	private final TransactionTemplate readTransaction;
+
+	private final long maxSize;
+
+	private final Object[] locks = new Object[LOCK_STRIPES];
+
+	private final Map<Long, AttachmentInfo> cache;
+
+	@Autowired
+	AttachmentService(AttachmentRepository attachments, AnimalRepository animals, ContentStore store,
+			ThumbnailGenerator thumbnails, ShardTemplate shardTemplate, EntityManagerFactory entityManagerFactory,
+			PlatformTransactionManager transactionManager, AttachmentProperties properties) {
+		this.attachments = attachments;
+		this.animals = animals;
+		this.store = store;
+		this.thumbnails = thumbnails;
+		this.shardTemplate = shardTemplate;
+		this.persistenceUnitUtil = entityManagerFactory.getPersistenceUnitUtil();
+		this.transaction = new TransactionTemplate(transactionManager);
+		this.readTransaction = new TransactionTemplate(transactionManager);
+		this.readTransaction.setReadOnly(true);
+		this.maxSize = properties.getMaxSize();
+		for (int i = 0; i < locks.length; i++) {
+			locks[i] = new Object();
+		}
+		final int cacheSize = properties.getCacheSize();
+		this.cache = Collections.synchronizedMap(new LinkedHashMap<Long, AttachmentInfo>(16, 0.75f, true) {
+
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<Long, AttachmentInfo> eldest) {
+				return size() > cacheSize;
+			}
+		});
+	}
+
+	public long getMaxSize() {
+		return maxSize;
+	}
+
+	/**
+	 * Stores a new attachment of an animal.
+	 *
+	 * @return the attachment, or {@code null} if there is no such animal
+	 * @throws ContentTooLargeException if the content exceeds the size limit
+	 */
+	public AttachmentInfo create(final long animalId, final String fileName, final String contentType,
+			InputStream content) throws IOException {
+		boolean exists = inShardOf(animalId, readTransaction, new TransactionCallback<Boolean>() {
+			@Override
+			public Boolean doInTransaction(TransactionStatus status) {
+				return animals.exists(animalId);
+			}
+		});
+		if (!exists) {
+			return null;
+		}
+		final ContentStore.Upload upload = store.receive(content, maxSize);
+		AttachmentInfo info;
+		synchronized (lockOf(upload.getHash())) {
+			store.commit(upload);
+			try {
+				info = inShardOf(animalId, transaction, new TransactionCallback<AttachmentInfo>() {
+					@Override
+					public AttachmentInfo doInTransaction(TransactionStatus status) {
+						Animal animal = animals.findOne(animalId);
+						if (animal == null) {
+							return null;
+						}
+						Attachment attachment = new Attachment();
+						attachment.setAnimal(animal);
+						attachment.setFileName(fileName);
+						attachment.setContentType(contentType);
+						attachment.setContentLength(upload.getLength());
+						attachment.setContentHash(upload.getHash());
+						return new AttachmentInfo(attachments.save(attachment), animalId);
+					}
+				});
+			} catch (RuntimeException ex) {
+				deleteContentIfUnused(upload.getHash());
+				throw ex;
+			}
+			if (info == null) {
+				deleteContentIfUnused(upload.getHash());
+				return null;
+			}
+		}
+		cache.put(info.getId(), info);
+		if (info.isImage()) {
+			thumbnails.request(info.getContentHash());
+		}
+		return info;
+	}
+
+	/**
+	 * Returns an attachment, or {@code null} if there is no such attachment.
+	 */
+	public AttachmentInfo find(final long id) {
+		AttachmentInfo info = cache.get(id);
+		if (info != null) {
+			return info;
+		}
+		info = inShardOf(id, readTransaction, new TransactionCallback<AttachmentInfo>() {
+			@Override
+			public AttachmentInfo doInTransaction(TransactionStatus status) {
+				Attachment attachment = attachments.findOne(id);
+				return attachment != null
+						? new AttachmentInfo(attachment, (Long) persistenceUnitUtil.getIdentifier(attachment.getAnimal()))
+						: null;
+			}
+		});
+		if (info != null) {
+			cache.put(id, info);
+		}
+		return info;
+	}
+
+	/**
+	 * Returns the attachments of an animal, or {@code null} if there is no
+	 * such animal.
+	 */
+	public List<AttachmentInfo> findByAnimal(final long animalId) {
+		return inShardOf(animalId, readTransaction, new TransactionCallback<List<AttachmentInfo>>() {
+			@Override
+			public List<AttachmentInfo> doInTransaction(TransactionStatus status) {
+				if (!animals.exists(animalId)) {
+					return null;
+				}
+				List<AttachmentInfo> result = new ArrayList<>();
+				for (Attachment attachment : attachments.findByAnimalIdOrderByIdAsc(animalId)) {
+					result.add(new AttachmentInfo(attachment, animalId));
+				}
+				return result;
+			}
+		});
+	}
+
+	/**
+	 * Deletes an attachment, and its content unless another attachment has
+	 * the same.
+	 *
+	 * @return {@code false} if there is no such attachment
+	 */
+	public boolean delete(final long id) {
+		AttachmentInfo info = find(id);
+		if (info == null) {
+			return false;
+		}
+		synchronized (lockOf(info.getContentHash())) {
+			boolean deleted = inShardOf(id, transaction, new TransactionCallback<Boolean>() {
+				@Override
+				public Boolean doInTransaction(TransactionStatus status) {
+					Attachment attachment = attachments.findOne(id);
+					if (attachment == null) {
+						return false;
+					}
+					attachments.delete(attachment);
+					return true;
+				}
+			});
+			cache.remove(id);
+			if (deleted) {
+				deleteContentIfUnused(info.getContentHash());
+			}
+			return deleted;
+		}
+	}
+
+	/**
+	 * Returns the file of the content of an attachment.
+	 */
+	public Path contentOf(AttachmentInfo info) {
+		return store.path(info.getContentHash());
+	}
+
+	/**
+	 * Returns the file of the thumbnail of an attachment, or {@code null} if
+	 * it has not been generated yet, in which case it is queued to be.
+	 */
+	public Path thumbnailOf(AttachmentInfo info) {
+		Path file = thumbnails.find(info.getContentHash());
+		if (file == null) {
+			thumbnails.request(info.getContentHash());
+		}
+		return file;
+	}
+
+	public int getThumbnailSize() {
+		return thumbnails.getSize();
+	}
+
+	/**
+	 * Forgets an attachment whose content has turned out to be missing.
+	 */
+	void evict(long id) {
+		cache.remove(id);
+	}
+
+	private void deleteContentIfUnused(String hash) {
+		try {
+			if (!isContentUsed(hash)) {
+				store.delete(hash);
+			}
+		} catch (IOException | RuntimeException ex) {
+			// Only wastes space, the content is not reachable any more.
+			LOGGER.warn("Failed to delete the content " + hash + ".", ex);
+		}
+	}
+
+	private boolean isContentUsed(final String hash) {
+		Map<String, Long> counts = shardTemplate.executeOnAll(new ShardCallback<Long>() {
+			@Override
+			public Long doInShard(String shard) {
+				return attachments.countByContentHash(hash);
+			}
+		});
+		for (Long count : counts.values()) {
+			if (count > 0) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private <T> T inShardOf(long id, final TransactionTemplate template, final TransactionCallback<T> callback) {
+		return shardTemplate.execute(shardTemplate.shardOfId(id), new ShardCallback<T>() {
+			@Override
+			public T doInShard(String shard) {
+				return template.execute(callback);
+			}
+		});
+	}
+
+	private Object lockOf(String hash) {
+		return locks[(hash.hashCode() & Integer.MAX_VALUE) % locks.length];
+	}
+}
@@ -0,0 +1,184 @@
+package com.myzoodata.attachments;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+/**
+ * Content addressed file store. Each content is kept once, in a file named
+ * after its SHA-256 hash, so uploading the same photo again takes no more
+ * space and a content never changes under its name.
+ * <p>
+ * An upload is streamed into a temporary file while its hash is computed
+ * and moved to its final name when committed. Whether a content is still
+ * referenced is up to the caller, as is serializing the commit and delete
+ * of the same hash.
+ */
+class ContentStore {
+
+	private static final int BUFFER_SIZE = 64 * 1024;
+
+	private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+	private final Path root;
+
+	private final Path temporary;
+
+	ContentStore(Path root) throws IOException {
+		this.root = root;
+		this.temporary = root.resolve("tmp");
+		Files.createDirectories(temporary);
+		// Left over by uploads which were interrupted by a shutdown.
+		try (DirectoryStream<Path> files = Files.newDirectoryStream(temporary)) {
+			for (Path file : files) {
+				Files.deleteIfExists(file);
+			}
+		}
+	}
+
+	/**
+	 * Reads a content into a temporary file.
+	 *
+	 * @throws ContentTooLargeException if the content is longer than the
+	 * given number of bytes
+	 */
+	Upload receive(InputStream content, long maxLength) throws IOException {
+		MessageDigest digest = sha256();
+		Path file = Files.createTempFile(temporary, "upload-", ".tmp");
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+			byte[] buffer = new byte[BUFFER_SIZE];
+			long length = 0L;
+			int read;
+			while ((read = content.read(buffer)) != -1) {
+				length += read;
+				if (length > maxLength) {
+					throw new ContentTooLargeException(maxLength);
+				}
+				digest.update(buffer, 0, read);
+				ByteBuffer bytes = ByteBuffer.wrap(buffer, 0, read);
+				while (bytes.hasRemaining()) {
+					channel.write(bytes);
+				}
+			}
+			channel.force(false);
+			return new Upload(file, hex(digest.digest()), length);
+		} catch (IOException | RuntimeException ex) {
+			Files.deleteIfExists(file);
+			throw ex;
+		}
+	}
+
+	/**
+	 * Moves a received content to its final name, or drops it if the same
+	 * content is stored already.
+	 */
+	void commit(Upload upload) throws IOException {
+		Path target = path(upload.getHash());
+		if (Files.exists(target)) {
+			discard(upload);
+			return;
+		}
+		Files.createDirectories(target.getParent());
+		Files.move(upload.file, target, StandardCopyOption.ATOMIC_MOVE);
+	}
+
+	/**
+	 * Deletes a received content which is not going to be committed.
+	 */
+	void discard(Upload upload) throws IOException {
+		Files.deleteIfExists(upload.file);
+	}
+
+	/**
+	 * Deletes a stored content together with its thumbnails.
+	 */
+	void delete(String hash) throws IOException {
+		Files.deleteIfExists(path(hash));
+		Path thumbnails = thumbnailDirectory(hash);
+		if (Files.isDirectory(thumbnails)) {
+			try (DirectoryStream<Path> files = Files.newDirectoryStream(thumbnails, hash + "-*")) {
+				for (Path file : files) {
+					Files.deleteIfExists(file);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Returns the file of a content. Spreads the files into directories by
+	 * the first two bytes of the hash, so none of them grows too large.
+	 */
+	Path path(String hash) {
+		return root.resolve(hash.substring(0, 2)).resolve(hash.substring(2, 4)).resolve(hash);
+	}
+
+	/**
+	 * Returns the file of the thumbnail of a content.
+	 */
+	Path thumbnailPath(String hash, int size) {
+		return thumbnailDirectory(hash).resolve(hash + "-" + size + ".jpg");
+	}
+
+	/**
+	 * Returns the directory for files which are written and then moved into
+	 * the store.
+	 */
+	Path temporaryDirectory() {
+		return temporary;
+	}
+
+	private Path thumbnailDirectory(String hash) {
+		return root.resolve("thumbnails").resolve(hash.substring(0, 2)).resolve(hash.substring(2, 4));
+	}
+
+	private static MessageDigest sha256() {
+		try {
+			return MessageDigest.getInstance("SHA-256");
+		} catch (NoSuchAlgorithmException ex) {
+			throw new IllegalStateException(ex);
+		}
+	}
+
+	private static String hex(byte[] bytes) {
+		char[] chars = new char[bytes.length * 2];
+		for (int i = 0; i < bytes.length; i++) {
+			chars[i * 2] = HEX[(bytes[i] >> 4) & 0xf];
+			chars[i * 2 + 1] = HEX[bytes[i] & 0xf];
+		}
+		return new String(chars);
+	}
+
+	/**
+	 * A content which has been received but not committed yet.
+	 */
+	static final class Upload {
+
+		private final Path file;
+
+		private final String hash;
+
+		private final long length;
+
+		private Upload(Path file, String hash, long length) {
+			this.file = file;
+			this.hash = hash;
+			this.length = length;
+		}
+
+		String getHash() {
+			return hash;
+		}
+
+		long getLength() {
+			return length;
+		}
+	}
+}
@@ -0,0 +1,16 @@
+package com.myzoodata.attachments;
+
+import java.io.IOException;
+
+/**
+ * Thrown when an uploaded content exceeds the size limit. The rest of the
+ * upload has not been read.
+ */
+class ContentTooLargeException extends IOException {
+
+	private static final long serialVersionUID = 1L;
+
+	ContentTooLargeException(long maxLength) {
+		super("The content is larger than " + maxLength + " bytes.");
+	}
+}
@@ -0,0 +1,187 @@
+package com.myzoodata.attachments;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.springframework.beans.factory.DisposableBean;
+
+/**
+ * Generates the thumbnails of image attachments in the background, so
+ * neither the upload nor the first request for the thumbnail waits for the
+ * image to be decoded.
+ * <p>
+ * The queue of waiting images is bounded. An image which does not fit is
+ * not generated until its thumbnail is asked for.
+ */
+class ThumbnailGenerator implements DisposableBean {
+
+	private static final Log LOGGER = LogFactory.getLog(ThumbnailGenerator.class);
+
+	private static final Set<String> CONTENT_TYPES = Collections.unmodifiableSet(new HashSet<>(Arrays.asList(
+			"image/jpeg", "image/png", "image/gif", "image/bmp")));
+
+	// Larger images are not decoded at all, they could take up gigabytes.
+	private static final long MAX_PIXELS = 100L * 1000 * 1000;
+
+	private final ContentStore store;
+
+	private final int size;
+
+	private final ThreadPoolExecutor executor;
+
+	private final Set<String> pending = Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+
+	ThumbnailGenerator(ContentStore store, int size, int threads, int queueCapacity) {
+		this.store = store;
+		this.size = size;
+		this.executor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+				new ArrayBlockingQueue<Runnable>(queueCapacity), new ThreadFactory() {
+
+					private final AtomicInteger count = new AtomicInteger();
+
+					@Override
+					public Thread newThread(Runnable task) {
+						Thread thread = new Thread(task, "thumbnails-" + count.incrementAndGet());
+						thread.setDaemon(true);
+						thread.setPriority(Thread.MIN_PRIORITY);
+						return thread;
+					}
+				});
+	}
+
+	int getSize() {
+		return size;
+	}
+
+	/**
+	 * Returns whether thumbnails can be generated for a content type.
+	 */
+	static boolean supports(String contentType) {
+		return contentType != null && CONTENT_TYPES.contains(contentType.toLowerCase());
+	}
+
+	/**
+	 * Returns the thumbnail of a content, or {@code null} if it has not been
+	 * generated yet.
+	 */
+	Path find(String hash) {
+		Path file = store.thumbnailPath(hash, size);
+		return Files.exists(file) ? file : null;
+	}
+
+	/**
+	 * Queues the thumbnail of a content to be generated, unless it is queued
+	 * already or the queue is full.
+	 */
+	void request(final String hash) {
+		if (!pending.add(hash)) {
+			return;
+		}
+		try {
+			executor.execute(new Runnable() {
+				@Override
+				public void run() {
+					try {
+						Path target = store.thumbnailPath(hash, size);
+						if (!Files.exists(target)) {
+							generate(store.path(hash), target);
+						}
+					} catch (IOException | RuntimeException ex) {
+						LOGGER.warn("Failed to generate the thumbnail of " + hash + ".", ex);
+					} finally {
+						pending.remove(hash);
+					}
+				}
+			});
+		} catch (RejectedExecutionException ex) {
+			pending.remove(hash);
+		}
+	}
+
+	@Override
+	public void destroy() {
+		executor.shutdownNow();
+	}
+
+	/**
+	 * Writes a JPEG thumbnail of an image. Only every n-th pixel is decoded
+	 * where the image is at least twice as large as the thumbnail, which
+	 * keeps both the time and the memory it takes close to what the
+	 * thumbnail needs instead of the whole image.
+	 */
+	void generate(Path source, Path target) throws IOException {
+		BufferedImage image;
+		try (ImageInputStream input = ImageIO.createImageInputStream(source.toFile())) {
+			Iterator<ImageReader> readers = ImageIO.getImageReaders(input);
+			if (!readers.hasNext()) {
+				throw new IOException("Unsupported image format.");
+			}
+			ImageReader reader = readers.next();
+			try {
+				reader.setInput(input, true, true);
+				int width = reader.getWidth(0);
+				int height = reader.getHeight(0);
+				if ((long) width * height > MAX_PIXELS) {
+					throw new IOException("The image of " + width + "x" + height + " pixels is too large.");
+				}
+				ImageReadParam param = reader.getDefaultReadParam();
+				int step = Math.max(1, Math.max(width, height) / (2 * size));
+				param.setSourceSubsampling(step, step, 0, 0);
+				image = reader.read(0, param);
+			} finally {
+				reader.dispose();
+			}
+		}
+
+		double scale = Math.min(1.0, (double) size / Math.max(image.getWidth(), image.getHeight()));
+		int width = Math.max(1, (int) Math.round(image.getWidth() * scale));
+		int height = Math.max(1, (int) Math.round(image.getHeight() * scale));
+		BufferedImage thumbnail = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+		Graphics2D graphics = thumbnail.createGraphics();
+		try {
+			graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+			// JPEG has no transparency.
+			graphics.setColor(Color.WHITE);
+			graphics.fillRect(0, 0, width, height);
+			graphics.drawImage(image, 0, 0, width, height, null);
+		} finally {
+			graphics.dispose();
+		}
+
+		Path file = Files.createTempFile(store.temporaryDirectory(), "thumbnail-", ".tmp");
+		try {
+			if (!ImageIO.write(thumbnail, "jpg", file.toFile())) {
+				throw new IOException("No JPEG writer available.");
+			}
+			Files.createDirectories(target.getParent());
+			Files.move(file, target, StandardCopyOption.ATOMIC_MOVE);
+		} finally {
+			Files.deleteIfExists(file);
+		}
+	}
+}
@@ -0,0 +1,18 @@
+package com.myzoodata.audit;
+
+import java.io.File;
+import java.io.IOException;
+
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+@EnableConfigurationProperties(AuditProperties.class)
+class AuditConfiguration {
+
+	@Bean(destroyMethod = "close")
+	AuditLog auditLog(AuditProperties properties) throws IOException {
+		return AuditLog.open(new File(properties.getDirectory()), properties.getSegmentSize());
+	}
+}
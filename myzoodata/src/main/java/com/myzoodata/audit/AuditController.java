@@ -0,0 +1,42 @@
+package com.myzoodata.audit;
+
+import java.util.List;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+@RestController
+@RequestMapping("/audit")
+class AuditController {
+
+	private static final int MAX_LIMIT = 1000;
+
+	private final AuditService auditService;
+
+	@Autowired
+	AuditController(AuditService auditService) {
+		this.auditService = auditService;
+	}
+
+	/**
+	 * Returns the history of an animal page by page, the records following
+	 * the sequence number {@code after}.
+	 */
+	@RequestMapping(value = "/animals/{id}", method = RequestMethod.GET)
+	AuditHistory animalHistory(@PathVariable("id") long animalId,
+			@RequestParam(value = "after", defaultValue = "0") long after,
+			@RequestParam(value = "limit", defaultValue = "100") int limit) {
+		int pageSize = Math.min(Math.max(1, limit), MAX_LIMIT);
+		// One more tells whether there is a next page.
+		List<AuditRecord> records = auditService.history(animalId, after, pageSize + 1);
+		if (records.size() <= pageSize) {
+			return new AuditHistory(records, null);
+		}
+		records = records.subList(0, pageSize);
+		return new AuditHistory(records, records.get(pageSize - 1).getSequence());
+	}
+}
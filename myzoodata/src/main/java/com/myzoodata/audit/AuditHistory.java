@@ -0,0 +1,29 @@
+package com.myzoodata.audit;
+
+import java.util.List;
+
+/**
+ * A page of the history of an animal.
+ */
+public final class AuditHistory {
+
+	private final List<AuditRecord> records;
+	private final Long next;
+
+	AuditHistory(List<AuditRecord> records, Long next) {
+		this.records = records;
+		this.next = next;
+	}
+
+	public List<AuditRecord> getRecords() {
+		return records;
+	}
+
+	/**
+	 * Returns the cursor of the next page, to be passed as {@code after},
+	 * {@code null} on the last page.
+	 */
+	public Long getNext() {
+		return next;
+	}
+}
@@ -0,0 +1,574 @@
+package com.myzoodata.audit;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileFilter;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import com.myzoodata.domain.EntityChangedEvent;
+
+/**
+ * Append-only log of {@link AuditRecord}s in memory-mapped segment files.
+ * <p>
+ * Each segment is a file of fixed size named after the sequence number of
+ * its first record. A record is stored as its length, the CRC-32 of its
+ * content and the content itself, followed by the next record or zeros.
+ * Opening the log reads all segments, drops a partially written record at
+ * the end and indexes the records by animal.
+ * <p>
+ * Records are appended by a single writer thread. Whatever has been queued
+ * while the previous batch was being forced to disk is written as the next
+ * batch and forced once, so appending does not wait for the disk and a
+ * busy log does not force for every record. Records only show up in
+ * {@link #history} and {@link #replay} once they are on disk. Records still
+ * queued are lost if the process dies.
+ */
+public class AuditLog implements Closeable {
+
+	private static final Log LOGGER = LogFactory.getLog(AuditLog.class);
+
+	private static final String FILE_PREFIX = "audit-";
+
+	private static final String FILE_SUFFIX = ".log";
+
+	// Length and CRC of the content.
+	private static final int HEADER_SIZE = 8;
+
+	// Sequence, timestamp, change, entity id, version, animal id and the
+	// lengths of entity type and state.
+	private static final int FIXED_CONTENT_SIZE = 8 + 8 + 1 + 8 + 8 + 8 + 2 + 4;
+
+	private static final int ANIMAL_ID_OFFSET = HEADER_SIZE + 8 + 8 + 1 + 8 + 8;
+
+	private static final int QUEUE_CAPACITY = 65536;
+
+	private static final int MAX_BATCH_SIZE = 4096;
+
+	private static final EntityChangedEvent.Type[] CHANGES = EntityChangedEvent.Type.values();
+
+	private final File directory;
+	private final int segmentSize;
+	private final boolean readOnly;
+
+	// Guarded by this, so are the positions in the index.
+	private final List<Segment> segments = new ArrayList<>();
+	private final Map<Long, Positions> index = new HashMap<>();
+
+	private final BlockingQueue<Pending> queue = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+	private final Object appendLock = new Object();
+	private final Object flushLock = new Object();
+
+	// Guarded by appendLock.
+	private long appended;
+	private boolean closed;
+
+	// Guarded by flushLock. The records handed to the writer, and the ones
+	// of the last batch which failed.
+	private long written;
+	private long failedFrom;
+	private long failedTo;
+	private boolean writerStopped;
+
+	// Only used by the writer thread once the log is open.
+	private Segment current;
+	private int position;
+	private long nextSequence = 1L;
+	private final CRC32 crc = new CRC32();
+
+	private Thread writer;
+
+	private AuditLog(File directory, int segmentSize, boolean readOnly) {
+		this.directory = directory;
+		this.segmentSize = segmentSize;
+		this.readOnly = readOnly;
+	}
+
+	/**
+	 * Opens the log in the given directory for appending, creating it if
+	 * necessary.
+	 *
+	 * @param segmentSize the size of new segment files in bytes
+	 */
+	public static AuditLog open(File directory, int segmentSize) throws IOException {
+		if (!directory.isDirectory() && !directory.mkdirs()) {
+			throw new IOException("Failed to create the audit log directory " + directory + ".");
+		}
+		AuditLog log = new AuditLog(directory, segmentSize, false);
+		log.load();
+		log.startWriter();
+		return log;
+	}
+
+	/**
+	 * Opens the log in the given directory for reading. The records which
+	 * are appended by someone else afterwards are not seen.
+	 */
+	public static AuditLog openReadOnly(File directory) throws IOException {
+		if (!directory.isDirectory()) {
+			throw new IOException("There is no audit log in " + directory + ".");
+		}
+		AuditLog log = new AuditLog(directory, 0, true);
+		log.load();
+		return log;
+	}
+
+	/**
+	 * Queues a record to be written, waiting only if the queue is full.
+	 *
+	 * @throws IllegalArgumentException if the record is larger than a
+	 * segment
+	 * @throws IllegalStateException if the log is read-only or closed
+	 */
+	public void append(AuditRecord record) {
+		if (readOnly) {
+			throw new IllegalStateException("The audit log is read-only.");
+		}
+		byte[] entityType = record.getEntityType().getBytes(StandardCharsets.UTF_8);
+		byte[] state = record.getState().getBytes(StandardCharsets.UTF_8);
+		if (entityType.length > 0xFFFF
+				|| HEADER_SIZE + FIXED_CONTENT_SIZE + entityType.length + state.length > segmentSize) {
+			throw new IllegalArgumentException("The audit record of " + record.getEntityType() + " "
+					+ record.getEntityId() + " does not fit into a segment.");
+		}
+		Pending pending = new Pending(record, entityType, state);
+		synchronized (appendLock) {
+			if (closed) {
+				throw new IllegalStateException("The audit log is closed.");
+			}
+			try {
+				queue.put(pending);
+			} catch (InterruptedException ex) {
+				Thread.currentThread().interrupt();
+				throw new IllegalStateException("Interrupted while appending to the audit log.", ex);
+			}
+			appended++;
+		}
+	}
+
+	/**
+	 * Waits until the records appended so far are on disk.
+	 *
+	 * @throws IllegalStateException if some of them could not be written
+	 */
+	public void flush() throws InterruptedException {
+		long target;
+		synchronized (appendLock) {
+			target = appended;
+		}
+		synchronized (flushLock) {
+			long start = written;
+			while (written < target && !writerStopped) {
+				flushLock.wait();
+			}
+			if (written < target) {
+				throw new IllegalStateException("The audit log writer has stopped.");
+			}
+			if (failedTo > start && failedFrom < target) {
+				throw new IllegalStateException("Failed to write some of the audit records.");
+			}
+		}
+	}
+
+	/**
+	 * Returns the records of the given animal and of its treatments, oldest
+	 * first.
+	 */
+	public List<AuditRecord> history(long animalId) {
+		return history(animalId, 0L, Integer.MAX_VALUE);
+	}
+
+	/**
+	 * Returns the records of the given animal and of its treatments which
+	 * follow the given sequence number, oldest first.
+	 *
+	 * @param limit the maximum number of records returned
+	 */
+	public List<AuditRecord> history(long animalId, long afterSequence, int limit) {
+		long[] positions;
+		int size;
+		List<Segment> snapshot;
+		synchronized (this) {
+			Positions indexed = index.get(animalId);
+			if (indexed == null) {
+				return new ArrayList<>();
+			}
+			// Only appended to, the positions up to size stay as they are.
+			positions = indexed.values;
+			size = indexed.size;
+			snapshot = new ArrayList<>(segments);
+		}
+		// The positions are in the order of the sequence numbers.
+		int low = 0;
+		int high = size;
+		while (low < high) {
+			int middle = (low + high) >>> 1;
+			if (sequenceAt(snapshot, positions[middle]) <= afterSequence) {
+				low = middle + 1;
+			} else {
+				high = middle;
+			}
+		}
+		int end = (int) Math.min(size, (long) low + limit);
+		List<AuditRecord> records = new ArrayList<>(end - low);
+		for (int i = low; i < end; i++) {
+			long position = positions[i];
+			records.add(decode(snapshot.get((int) (position >>> 32)).buffer, (int) position));
+		}
+		return records;
+	}
+
+	/**
+	 * Hands the records over in the order they were appended, starting with
+	 * the given sequence number.
+	 */
+	public void replay(long fromSequence, RecordHandler handler) throws IOException {
+		List<Segment> snapshot;
+		synchronized (this) {
+			snapshot = new ArrayList<>(segments);
+		}
+		for (int i = 0; i < snapshot.size(); i++) {
+			if (i + 1 < snapshot.size() && snapshot.get(i + 1).firstSequence <= fromSequence) {
+				continue;
+			}
+			Segment segment = snapshot.get(i);
+			int end = segment.end;
+			int offset = 0;
+			while (offset < end) {
+				AuditRecord record = decode(segment.buffer, offset);
+				if (record.getSequence() >= fromSequence) {
+					handler.handle(record);
+				}
+				offset += HEADER_SIZE + segment.buffer.getInt(offset);
+			}
+		}
+	}
+
+	/**
+	 * Writes the queued records and stops the writer.
+	 */
+	@Override
+	public void close() {
+		synchronized (appendLock) {
+			if (closed) {
+				return;
+			}
+			closed = true;
+		}
+		if (writer != null) {
+			try {
+				writer.join();
+			} catch (InterruptedException ex) {
+				Thread.currentThread().interrupt();
+			}
+		}
+	}
+
+	private void load() throws IOException {
+		File[] files = directory.listFiles(new FileFilter() {
+			@Override
+			public boolean accept(File file) {
+				return file.isFile() && file.getName().startsWith(FILE_PREFIX) && file.getName().endsWith(FILE_SUFFIX);
+			}
+		});
+		Arrays.sort(files);
+		for (int i = 0; i < files.length; i++) {
+			Segment segment = map(files[i], firstSequence(files[i]), (int) files[i].length());
+			segments.add(segment);
+			boolean clean = scan(segment, i);
+			if (!clean) {
+				if (i < files.length - 1) {
+					LOGGER.warn("Audit log segment " + files[i] + " is damaged after " + segment.end
+							+ " bytes, the records behind are skipped.");
+				} else if (!readOnly) {
+					LOGGER.warn("Dropping a partially written audit record at the end of " + files[i] + ".");
+					for (int offset = segment.end; offset < segment.buffer.capacity(); offset++) {
+						segment.buffer.put(offset, (byte) 0);
+					}
+				}
+			}
+		}
+		if (!readOnly) {
+			current = segments.isEmpty() ? createSegment(nextSequence) : segments.get(segments.size() - 1);
+			position = current.end;
+		}
+	}
+
+	/**
+	 * Indexes the valid records of a segment.
+	 *
+	 * @return {@code false} if the segment ends with something else than
+	 * zeros
+	 */
+	private boolean scan(Segment segment, int segmentIndex) {
+		ByteBuffer buffer = segment.buffer;
+		int offset = 0;
+		while (offset + HEADER_SIZE <= buffer.capacity()) {
+			int length = buffer.getInt(offset);
+			if (length == 0 && buffer.getInt(offset + 4) == 0) {
+				segment.end = offset;
+				return true;
+			}
+			if (length < FIXED_CONTENT_SIZE || length > buffer.capacity() - offset - HEADER_SIZE
+					|| buffer.getInt(offset + 4) != checksum(buffer, offset + HEADER_SIZE, length)) {
+				segment.end = offset;
+				return false;
+			}
+			nextSequence = buffer.getLong(offset + HEADER_SIZE) + 1;
+			addToIndex(buffer.getLong(offset + ANIMAL_ID_OFFSET), segmentIndex, offset);
+			offset += HEADER_SIZE + length;
+		}
+		segment.end = offset;
+		return true;
+	}
+
+	private void startWriter() {
+		writer = new Thread(new Runnable() {
+			@Override
+			public void run() {
+				try {
+					writeQueued();
+				} finally {
+					// Whatever happened, nobody may wait for it any longer.
+					synchronized (flushLock) {
+						writerStopped = true;
+						flushLock.notifyAll();
+					}
+				}
+			}
+		}, "audit-log-writer");
+		writer.setDaemon(true);
+		writer.start();
+	}
+
+	private void writeQueued() {
+		List<Pending> batch = new ArrayList<>();
+		while (true) {
+			Pending first;
+			try {
+				first = queue.poll(100L, TimeUnit.MILLISECONDS);
+			} catch (InterruptedException ex) {
+				first = null;
+			}
+			if (first == null) {
+				synchronized (appendLock) {
+					if (closed && queue.isEmpty()) {
+						return;
+					}
+				}
+				continue;
+			}
+			batch.add(first);
+			queue.drainTo(batch, MAX_BATCH_SIZE - 1);
+			write(batch);
+			batch.clear();
+		}
+	}
+
+	/**
+	 * Writes a batch of records. Failures are only logged, so the writer
+	 * carries on with the next batch.
+	 */
+	private void write(List<Pending> batch) {
+		long[] animalIds = new long[batch.size()];
+		long[] positions = new long[batch.size()];
+		int count = 0;
+		boolean failed = false;
+		try {
+			for (Pending pending : batch) {
+				int size = HEADER_SIZE + FIXED_CONTENT_SIZE + pending.entityType.length + pending.state.length;
+				if (position + size > current.buffer.capacity()) {
+					current.buffer.force();
+					current.end = position;
+					current = createSegment(nextSequence);
+					position = 0;
+				}
+				encode(current.buffer, position, pending, nextSequence++);
+				animalIds[count] = pending.record.getAnimalId();
+				positions[count] = ((long) current.index << 32) | position;
+				count++;
+				position += size;
+			}
+			current.buffer.force();
+			current.end = position;
+		} catch (Throwable ex) {
+			// Errors too: the mapped segments report failed writes as an
+			// InternalError.
+			failed = true;
+			LOGGER.error("Failed to write " + (batch.size() - count) + " audit record(s).", ex);
+		} finally {
+			synchronized (this) {
+				for (int i = 0; i < count; i++) {
+					addToIndex(animalIds[i], (int) (positions[i] >>> 32), (int) positions[i]);
+				}
+			}
+			synchronized (flushLock) {
+				if (failed) {
+					failedFrom = written;
+					failedTo = written + batch.size();
+				}
+				written += batch.size();
+				flushLock.notifyAll();
+			}
+		}
+	}
+
+	private void encode(ByteBuffer buffer, int offset, Pending pending, long sequence) {
+		AuditRecord record = pending.record;
+		int length = FIXED_CONTENT_SIZE + pending.entityType.length + pending.state.length;
+		ByteBuffer target = buffer.duplicate();
+		target.position(offset + HEADER_SIZE);
+		target.putLong(sequence);
+		target.putLong(record.getTimestamp());
+		target.put((byte) record.getChange().ordinal());
+		target.putLong(record.getEntityId());
+		target.putLong(record.getVersion());
+		target.putLong(record.getAnimalId());
+		target.putShort((short) pending.entityType.length);
+		target.putInt(pending.state.length);
+		target.put(pending.entityType);
+		target.put(pending.state);
+		target.putInt(offset, length);
+		target.putInt(offset + 4, checksum(buffer, offset + HEADER_SIZE, length));
+	}
+
+	private static long sequenceAt(List<Segment> segments, long position) {
+		return segments.get((int) (position >>> 32)).buffer.getLong((int) position + HEADER_SIZE);
+	}
+
+	private static AuditRecord decode(ByteBuffer buffer, int offset) {
+		ByteBuffer source = buffer.duplicate();
+		source.position(offset + HEADER_SIZE);
+		long sequence = source.getLong();
+		long timestamp = source.getLong();
+		EntityChangedEvent.Type change = CHANGES[source.get()];
+		long entityId = source.getLong();
+		long version = source.getLong();
+		long animalId = source.getLong();
+		byte[] entityType = new byte[source.getShort() & 0xFFFF];
+		byte[] state = new byte[source.getInt()];
+		source.get(entityType);
+		source.get(state);
+		return new AuditRecord(sequence, timestamp, change, new String(entityType, StandardCharsets.UTF_8),
+				entityId, version, animalId, new String(state, StandardCharsets.UTF_8));
+	}
+
+	private int checksum(ByteBuffer buffer, int offset, int length) {
+		ByteBuffer content = buffer.duplicate();
+		content.limit(offset + length);
+		content.position(offset);
+		synchronized (crc) {
+			crc.reset();
+			crc.update(content);
+			return (int) crc.getValue();
+		}
+	}
+
+	// Called with the lock held or before the log is shared.
+	private void addToIndex(long animalId, int segmentIndex, int offset) {
+		if (animalId == 0L) {
+			return;
+		}
+		Positions positions = index.get(animalId);
+		if (positions == null) {
+			positions = new Positions();
+			index.put(animalId, positions);
+		}
+		positions.add(((long) segmentIndex << 32) | offset);
+	}
+
+	private Segment createSegment(long firstSequence) throws IOException {
+		File file = new File(directory, String.format("%s%020d%s", FILE_PREFIX, firstSequence, FILE_SUFFIX));
+		Segment segment = map(file, firstSequence, segmentSize);
+		synchronized (this) {
+			segments.add(segment);
+		}
+		return segment;
+	}
+
+	private Segment map(File file, long firstSequence, int size) throws IOException {
+		try (RandomAccessFile raf = new RandomAccessFile(file, readOnly ? "r" : "rw")) {
+			if (!readOnly && raf.length() < size) {
+				raf.setLength(size);
+			}
+			MappedByteBuffer buffer = raf.getChannel().map(
+					readOnly ? FileChannel.MapMode.READ_ONLY : FileChannel.MapMode.READ_WRITE, 0L, size);
+			return new Segment(segments.size(), firstSequence, buffer);
+		}
+	}
+
+	private static long firstSequence(File file) throws IOException {
+		String name = file.getName();
+		try {
+			return Long.parseLong(name.substring(FILE_PREFIX.length(), name.length() - FILE_SUFFIX.length()));
+		} catch (NumberFormatException ex) {
+			throw new IOException("Unexpected audit log segment " + file + ".", ex);
+		}
+	}
+
+	/**
+	 * Receives the records of a {@link AuditLog#replay}.
+	 */
+	public interface RecordHandler {
+
+		void handle(AuditRecord record) throws IOException;
+	}
+
+	private static final class Segment {
+
+		private final int index;
+		private final long firstSequence;
+		private final MappedByteBuffer buffer;
+
+		// The end of the records on disk.
+		private volatile int end;
+
+		Segment(int index, long firstSequence, MappedByteBuffer buffer) {
+			this.index = index;
+			this.firstSequence = firstSequence;
+			this.buffer = buffer;
+		}
+	}
+
+	private static final class Pending {
+
+		private final AuditRecord record;
+		private final byte[] entityType;
+		private final byte[] state;
+
+		Pending(AuditRecord record, byte[] entityType, byte[] state) {
+			this.record = record;
+			this.entityType = entityType;
+			this.state = state;
+		}
+	}
+
+	private static final class Positions {
+
+		private long[] values = new long[4];
+		private int size;
+
+		void add(long position) {
+			if (size == values.length) {
+				values = Arrays.copyOf(values, size * 2);
+			}
+			values[size++] = position;
+		}
+	}
+}
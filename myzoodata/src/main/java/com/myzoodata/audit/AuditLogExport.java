@@ -0,0 +1,73 @@
+package com.myzoodata.audit;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Prints the audit log as JSON, one record per line, in the order the
+ * records were appended. Reads the segments directly, so it works while the
+ * service is down or running, without touching the database:
+ *
+ * <pre>
+ * java -cp myzoodata.jar -Dloader.main=com.myzoodata.audit.AuditLogExport \
+ *     org.springframework.boot.loader.PropertiesLauncher &lt;directory&gt; [--animal=&lt;id&gt;] [--from=&lt;sequence&gt;]
+ * </pre>
+ *
+ * {@code --animal} restricts the output to the history of an animal,
+ * {@code --from} starts the replay at the given sequence number.
+ */
+public final class AuditLogExport {
+
+	private AuditLogExport() {
+	}
+
+	public static void main(String[] args) throws IOException {
+		String directory = null;
+		long animalId = 0L;
+		long fromSequence = 0L;
+		for (String arg : args) {
+			if (arg.startsWith("--animal=")) {
+				animalId = Long.parseLong(arg.substring("--animal=".length()));
+			} else if (arg.startsWith("--from=")) {
+				fromSequence = Long.parseLong(arg.substring("--from=".length()));
+			} else {
+				directory = arg;
+			}
+		}
+		if (directory == null) {
+			System.err.println("Usage: AuditLogExport <directory> [--animal=<id>] [--from=<sequence>]");
+			System.exit(2);
+		}
+
+		final ObjectMapper objectMapper = new ObjectMapper();
+		final Writer out = new BufferedWriter(new OutputStreamWriter(System.out, StandardCharsets.UTF_8));
+		AuditLog log = AuditLog.openReadOnly(new File(directory));
+		try {
+			if (animalId != 0L) {
+				for (AuditRecord record : log.history(animalId)) {
+					if (record.getSequence() >= fromSequence) {
+						out.write(objectMapper.writeValueAsString(record));
+						out.write('\n');
+					}
+				}
+			} else {
+				log.replay(fromSequence, new AuditLog.RecordHandler() {
+					@Override
+					public void handle(AuditRecord record) throws IOException {
+						out.write(objectMapper.writeValueAsString(record));
+						out.write('\n');
+					}
+				});
+			}
+		} finally {
+			log.close();
+			out.flush();
+		}
+	}
+}
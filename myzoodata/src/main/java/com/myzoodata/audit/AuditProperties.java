@@ -0,0 +1,33 @@
+package com.myzoodata.audit;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+@ConfigurationProperties(prefix = "myzoodata.audit")
+public class AuditProperties {
+
+	private String directory = "audit";
+
+	private int segmentSize = 64 * 1024 * 1024;
+
+	/**
+	 * Directory of the audit log segments, on a local disk.
+	 */
+	public String getDirectory() {
+		return directory;
+	}
+
+	public void setDirectory(String directory) {
+		this.directory = directory;
+	}
+
+	/**
+	 * Size of a segment file in bytes.
+	 */
+	public int getSegmentSize() {
+		return segmentSize;
+	}
+
+	public void setSegmentSize(int segmentSize) {
+		this.segmentSize = segmentSize;
+	}
+}
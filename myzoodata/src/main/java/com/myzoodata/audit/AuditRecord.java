@@ -0,0 +1,79 @@
+package com.myzoodata.audit;
+
+import com.fasterxml.jackson.annotation.JsonRawValue;
+import com.myzoodata.domain.EntityChangedEvent;
+
+/**
+ * A change of an entity as it is kept in the {@link AuditLog}.
+ */
+public final class AuditRecord {
+
+	private final long sequence;
+	private final long timestamp;
+	private final EntityChangedEvent.Type change;
+	private final String entityType;
+	private final long entityId;
+	private final long version;
+	private final long animalId;
+	private final String state;
+
+	/**
+	 * Creates a record to be appended, the log assigns the sequence number.
+	 *
+	 * @param animalId the animal the entity belongs to, zero if none
+	 * @param state the state of the entity after the change as JSON
+	 */
+	public AuditRecord(long timestamp, EntityChangedEvent.Type change, String entityType, long entityId,
+			long version, long animalId, String state) {
+		this(0L, timestamp, change, entityType, entityId, version, animalId, state);
+	}
+
+	AuditRecord(long sequence, long timestamp, EntityChangedEvent.Type change, String entityType, long entityId,
+			long version, long animalId, String state) {
+		this.sequence = sequence;
+		this.timestamp = timestamp;
+		this.change = change;
+		this.entityType = entityType;
+		this.entityId = entityId;
+		this.version = version;
+		this.animalId = animalId;
+		this.state = state;
+	}
+
+	AuditRecord withSequence(long sequence) {
+		return new AuditRecord(sequence, timestamp, change, entityType, entityId, version, animalId, state);
+	}
+
+	public long getSequence() {
+		return sequence;
+	}
+
+	public long getTimestamp() {
+		return timestamp;
+	}
+
+	public EntityChangedEvent.Type getChange() {
+		return change;
+	}
+
+	public String getEntityType() {
+		return entityType;
+	}
+
+	public long getEntityId() {
+		return entityId;
+	}
+
+	public long getVersion() {
+		return version;
+	}
+
+	public long getAnimalId() {
+		return animalId;
+	}
+
+	@JsonRawValue
+	public String getState() {
+		return state;
+	}
+}
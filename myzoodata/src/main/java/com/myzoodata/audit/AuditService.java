@@ -0,0 +1,105 @@
+package com.myzoodata.audit;
+
+import java.beans.PropertyDescriptor;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.persistence.EntityManagerFactory;
+import javax.persistence.PersistenceUnitUtil;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.springframework.beans.BeanWrapper;
+import org.springframework.beans.PropertyAccessorFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.myzoodata.domain.AbstractEntity;
+import com.myzoodata.domain.Animal;
+import com.myzoodata.domain.Attachment;
+import com.myzoodata.domain.EntityChangedEvent;
+import com.myzoodata.domain.Treatment;
+
+/**
+ * Writes every committed entity change to the {@link AuditLog}, together
+ * with the state of the entity after the change. References to other
+ * entities are kept as their ids. Changes of animals and treatments are
+ * indexed by the animal.
+ */
+@Service
+public class AuditService {
+
+	private static final Log LOGGER = LogFactory.getLog(AuditService.class);
+
+	private final AuditLog auditLog;
+	private final PersistenceUnitUtil persistenceUnitUtil;
+	private final ObjectMapper objectMapper = new ObjectMapper();
+
+	@Autowired
+	public AuditService(AuditLog auditLog, EntityManagerFactory entityManagerFactory) {
+		this.auditLog = auditLog;
+		this.persistenceUnitUtil = entityManagerFactory.getPersistenceUnitUtil();
+	}
+
+	/**
+	 * Returns a page of the history of an animal, the records following the
+	 * given sequence number.
+	 */
+	public List<AuditRecord> history(long animalId, long afterSequence, int limit) {
+		return auditLog.history(animalId, afterSequence, limit);
+	}
+
+	@TransactionalEventListener(fallbackExecution = true)
+	public void onEntityChanged(EntityChangedEvent event) {
+		AbstractEntity entity = event.getEntity();
+		try {
+			auditLog.append(new AuditRecord(System.currentTimeMillis(), event.getType(),
+					entity.getClass().getSimpleName(), entity.getId(), entity.getVersion(), animalIdOf(entity),
+					snapshot(entity)));
+		} catch (JsonProcessingException | RuntimeException ex) {
+			// The change is committed already, failing the request would not
+			// help anyone.
+			LOGGER.error("Failed to audit the change of " + entity.getClass().getSimpleName() + " "
+					+ entity.getId() + ".", ex);
+		}
+	}
+
+	private long animalIdOf(AbstractEntity entity) {
+		if (entity instanceof Animal) {
+			return entity.getId();
+		}
+		if (entity instanceof Treatment && ((Treatment) entity).getAnimal() != null) {
+			return idOf(((Treatment) entity).getAnimal());
+		}
+		if (entity instanceof Attachment && ((Attachment) entity).getAnimal() != null) {
+			return idOf(((Attachment) entity).getAnimal());
+		}
+		return 0L;
+	}
+
+	private String snapshot(AbstractEntity entity) throws JsonProcessingException {
+		BeanWrapper wrapper = PropertyAccessorFactory.forBeanPropertyAccess(entity);
+		Map<String, Object> state = new LinkedHashMap<>();
+		for (PropertyDescriptor descriptor : wrapper.getPropertyDescriptors()) {
+			String name = descriptor.getName();
+			if ("class".equals(name) || !wrapper.isReadableProperty(name)) {
+				continue;
+			}
+			Object value = wrapper.getPropertyValue(name);
+			state.put(name, value instanceof AbstractEntity ? idOf(value) : value);
+		}
+		return objectMapper.writeValueAsString(state);
+	}
+
+	/**
+	 * Returns the id of an entity without loading it if it is a proxy.
+	 */
+	private long idOf(Object entity) {
+		Object id = persistenceUnitUtil.getIdentifier(entity);
+		return id != null ? (Long) id : 0L;
+	}
+}
@@ -2,12 +2,19 @@ package com.myzoodata.controllers;
 
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
 
 @RestController
 class HomeController {
 
+	private static final String HOME = "Hello World!";
+	private static final String HOME_ETAG = Integer.toHexString(HOME.hashCode());
+
 	@RequestMapping("/")
-	String home() {
-		return "Hello World!";
+	String home(WebRequest request) {
+		if (request.checkNotModified(HOME_ETAG)) {
+			return null;
+		}
+		return HOME;
 	}
-}
\ No newline at end of file
+}
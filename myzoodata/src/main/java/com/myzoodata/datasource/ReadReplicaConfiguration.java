@@ -0,0 +1,86 @@
+package com.myzoodata.datasource;
+
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.sql.DataSource;
+
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceBuilder;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.util.ReflectionUtils;
+
+/**
+ * Replaces the auto-configured data source with a
+ * {@link ReadWriteRoutingDataSource} when at least one replica is
+ * configured under {@code myzoodata.datasource.replicas}, unless the
+ * database is sharded.
+ */
+@Configuration
+@ConditionalOnProperty("myzoodata.datasource.replicas[0].url")
+@ConditionalOnExpression("'${myzoodata.sharding.shards[0].url:}'.isEmpty()")
+@EnableConfigurationProperties(ReadReplicaProperties.class)
+class ReadReplicaConfiguration implements DisposableBean {
+
+	private final List<DataSource> pools = new ArrayList<>();
+
+	@Bean
+	ReadWriteRoutingDataSource readWriteRoutingDataSource(DataSourceProperties primaryProperties,
+			ReadReplicaProperties replicaProperties) {
+		List<DataSource> replicas = new ArrayList<>();
+		for (ReadReplicaProperties.Replica replica : replicaProperties.getReplicas()) {
+			replicas.add(createPool(primaryProperties, replica.getUrl(),
+					replica.getUsername() != null ? replica.getUsername() : primaryProperties.getUsername(),
+					replica.getPassword() != null ? replica.getPassword() : primaryProperties.getPassword()));
+		}
+		DataSource primary = createPool(primaryProperties, primaryProperties.getUrl(),
+				primaryProperties.getUsername(), primaryProperties.getPassword());
+
+		ReadWriteRoutingDataSource dataSource = new ReadWriteRoutingDataSource(primary, replicas);
+		dataSource.setStickyReads(replicaProperties.isStickyReads());
+		dataSource.setHealthCheckIntervalMillis(replicaProperties.getHealthCheckInterval());
+		dataSource.setHealthCheckTimeoutSeconds(replicaProperties.getHealthCheckTimeout());
+		return dataSource;
+	}
+
+	@Bean
+	@Primary
+	DataSource dataSource(ReadWriteRoutingDataSource readWriteRoutingDataSource) {
+		return new LazyConnectionDataSourceProxy(readWriteRoutingDataSource);
+	}
+
+	@Bean
+	ReadReplicaHealthIndicator readReplicaHealthIndicator(ReadWriteRoutingDataSource readWriteRoutingDataSource) {
+		return new ReadReplicaHealthIndicator(readWriteRoutingDataSource);
+	}
+
+	@Override
+	public void destroy() {
+		// The pools are not beans, so nobody else closes them.
+		for (DataSource pool : pools) {
+			Method close = ReflectionUtils.findMethod(pool.getClass(), "close");
+			if (close != null) {
+				ReflectionUtils.invokeMethod(close, pool);
+			}
+		}
+	}
+
+	private DataSource createPool(DataSourceProperties properties, String url, String username, String password) {
+		DataSource pool = DataSourceBuilder.create(properties.getClassLoader())
+				.driverClassName(properties.getDriverClassName())
+				.url(url)
+				.username(username)
+				.password(password)
+				.build();
+		pools.add(pool);
+		return pool;
+	}
+}
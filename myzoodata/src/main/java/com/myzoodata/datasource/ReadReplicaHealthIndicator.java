@@ -0,0 +1,26 @@
+package com.myzoodata.datasource;
+
+import org.springframework.boot.actuate.health.AbstractHealthIndicator;
+import org.springframework.boot.actuate.health.Health;
+
+/**
+ * Reports the replicas as they were found by the last health check. The
+ * service stays up without replicas, so a replica being down only shows
+ * in the details.
+ */
+class ReadReplicaHealthIndicator extends AbstractHealthIndicator {
+
+	private final ReadWriteRoutingDataSource dataSource;
+
+	ReadReplicaHealthIndicator(ReadWriteRoutingDataSource dataSource) {
+		this.dataSource = dataSource;
+	}
+
+	@Override
+	protected void doHealthCheck(Health.Builder builder) {
+		builder.up();
+		for (ReadWriteRoutingDataSource.Replica replica : dataSource.getReplicas()) {
+			builder.withDetail(replica.getName(), replica.isHealthy() ? "UP" : "DOWN");
+		}
+	}
+}
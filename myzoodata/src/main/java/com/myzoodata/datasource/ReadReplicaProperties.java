@@ -0,0 +1,95 @@
+package com.myzoodata.datasource;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+@ConfigurationProperties(prefix = "myzoodata.datasource")
+public class ReadReplicaProperties {
+
+	private final List<Replica> replicas = new ArrayList<>();
+
+	private boolean stickyReads = true;
+
+	private long healthCheckInterval = 5000L;
+
+	private int healthCheckTimeout = 2;
+
+	public List<Replica> getReplicas() {
+		return replicas;
+	}
+
+	/**
+	 * Whether the reads of a request which has already written should go to
+	 * the primary.
+	 */
+	public boolean isStickyReads() {
+		return stickyReads;
+	}
+
+	public void setStickyReads(boolean stickyReads) {
+		this.stickyReads = stickyReads;
+	}
+
+	/**
+	 * Milliseconds between two health checks of the replicas.
+	 */
+	public long getHealthCheckInterval() {
+		return healthCheckInterval;
+	}
+
+	public void setHealthCheckInterval(long healthCheckInterval) {
+		this.healthCheckInterval = healthCheckInterval;
+	}
+
+	/**
+	 * Seconds a replica has to answer a health check in.
+	 */
+	public int getHealthCheckTimeout() {
+		return healthCheckTimeout;
+	}
+
+	public void setHealthCheckTimeout(int healthCheckTimeout) {
+		this.healthCheckTimeout = healthCheckTimeout;
+	}
+
+	public static class Replica {
+
+		private String url;
+
+		private String username;
+
+		private String password;
+
+		public String getUrl() {
+			return url;
+		}
+
+		public void setUrl(String url) {
+			this.url = url;
+		}
+
+		/**
+		 * Login user of the replica, defaults to the one of the primary.
+		 */
+		public String getUsername() {
+			return username;
+		}
+
+		public void setUsername(String username) {
+			this.username = username;
+		}
+
+		/**
+		 * Login password of the replica, defaults to the one of the primary.
+		 */
+		public String getPassword() {
+			return password;
+		}
+
+		public void setPassword(String password) {
+			this.password = password;
+		}
+	}
+}
@@ -0,0 +1,230 @@
+package com.myzoodata.datasource;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.sql.DataSource;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.jdbc.datasource.AbstractDataSource;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+
+/**
+ * Sends the connections of read-only transactions to one of the replicas
+ * and everything else to the primary database.
+ * <p>
+ * The routing decision is made when the connection is requested, so this
+ * data source has to be wrapped into a
+ * {@link org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy}:
+ * the transaction managers ask for a connection before the read-only flag
+ * of the transaction is set.
+ * <p>
+ * Replicas are checked periodically, and a replica which failed to provide
+ * a connection is skipped until its next successful check. Without a
+ * healthy replica, reads go to the primary. If sticky reads are enabled,
+ * the reads of a web request which has already written go to the primary
+ * as well, so the request sees its own writes regardless of replication
+ * lag.
+ */
+public class ReadWriteRoutingDataSource extends AbstractDataSource implements InitializingBean, DisposableBean {
+
+	private static final Log LOGGER = LogFactory.getLog(ReadWriteRoutingDataSource.class);
+
+	private static final String WRITTEN_ATTRIBUTE = ReadWriteRoutingDataSource.class.getName() + ".WRITTEN";
+
+	private final DataSource primary;
+	private final List<Replica> replicas;
+	private final AtomicInteger nextReplica = new AtomicInteger();
+
+	private boolean stickyReads = true;
+	private long healthCheckIntervalMillis = 5000L;
+	private int healthCheckTimeoutSeconds = 2;
+
+	private ScheduledExecutorService healthChecker;
+
+	public ReadWriteRoutingDataSource(DataSource primary, List<DataSource> replicas) {
+		this.primary = primary;
+		List<Replica> list = new ArrayList<>(replicas.size());
+		for (int i = 0; i < replicas.size(); i++) {
+			list.add(new Replica("replica-" + i, replicas.get(i)));
+		}
+		this.replicas = Collections.unmodifiableList(list);
+	}
+
+	public void setStickyReads(boolean stickyReads) {
+		this.stickyReads = stickyReads;
+	}
+
+	/**
+	 * Sets the interval of the replica health checks, a non-positive value
+	 * disables them.
+	 */
+	public void setHealthCheckIntervalMillis(long healthCheckIntervalMillis) {
+		this.healthCheckIntervalMillis = healthCheckIntervalMillis;
+	}
+
+	public void setHealthCheckTimeoutSeconds(int healthCheckTimeoutSeconds) {
+		this.healthCheckTimeoutSeconds = healthCheckTimeoutSeconds;
+	}
+
+	/**
+	 * Returns the name and health of each replica.
+	 */
+	public List<Replica> getReplicas() {
+		return replicas;
+	}
+
+	@Override
+	public void afterPropertiesSet() {
+		if (healthCheckIntervalMillis <= 0 || replicas.isEmpty()) {
+			return;
+		}
+		healthChecker = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+			@Override
+			public Thread newThread(Runnable task) {
+				Thread thread = new Thread(task, "replica-health-check");
+				thread.setDaemon(true);
+				return thread;
+			}
+		});
+		healthChecker.scheduleWithFixedDelay(new Runnable() {
+			@Override
+			public void run() {
+				checkReplicas();
+			}
+		}, healthCheckIntervalMillis, healthCheckIntervalMillis, TimeUnit.MILLISECONDS);
+	}
+
+	@Override
+	public void destroy() {
+		if (healthChecker != null) {
+			healthChecker.shutdownNow();
+		}
+	}
+
+	@Override
+	public Connection getConnection() throws SQLException {
+		Replica replica = selectReplica();
+		if (replica != null) {
+			try {
+				return replica.dataSource.getConnection();
+			} catch (SQLException ex) {
+				replica.markDown(ex);
+			}
+		}
+		return primary.getConnection();
+	}
+
+	@Override
+	public Connection getConnection(String username, String password) throws SQLException {
+		Replica replica = selectReplica();
+		if (replica != null) {
+			try {
+				return replica.dataSource.getConnection(username, password);
+			} catch (SQLException ex) {
+				replica.markDown(ex);
+			}
+		}
+		return primary.getConnection(username, password);
+	}
+
+	/**
+	 * Returns the replica to read from, or {@code null} if the current
+	 * connection has to come from the primary.
+	 */
+	private Replica selectReplica() {
+		if (!TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+			if (stickyReads && TransactionSynchronizationManager.isActualTransactionActive()) {
+				markWritten();
+			}
+			return null;
+		}
+		if (stickyReads && hasWritten()) {
+			return null;
+		}
+
+		int count = replicas.size();
+		int start = nextReplica.getAndIncrement() & Integer.MAX_VALUE;
+		for (int i = 0; i < count; i++) {
+			Replica replica = replicas.get((start + i) % count);
+			if (replica.healthy) {
+				return replica;
+			}
+		}
+		return null;
+	}
+
+	void checkReplicas() {
+		for (Replica replica : replicas) {
+			try (Connection connection = replica.dataSource.getConnection()) {
+				if (connection.isValid(healthCheckTimeoutSeconds)) {
+					replica.markUp();
+				} else {
+					replica.markDown(null);
+				}
+			} catch (SQLException ex) {
+				replica.markDown(ex);
+			}
+		}
+	}
+
+	private static void markWritten() {
+		RequestAttributes attributes = RequestContextHolder.getRequestAttributes();
+		if (attributes != null) {
+			attributes.setAttribute(WRITTEN_ATTRIBUTE, Boolean.TRUE, RequestAttributes.SCOPE_REQUEST);
+		}
+	}
+
+	private static boolean hasWritten() {
+		RequestAttributes attributes = RequestContextHolder.getRequestAttributes();
+		return attributes != null
+				&& attributes.getAttribute(WRITTEN_ATTRIBUTE, RequestAttributes.SCOPE_REQUEST) != null;
+	}
+
+	public static final class Replica {
+
+		private final String name;
+		private final DataSource dataSource;
+		private volatile boolean healthy = true;
+
+		Replica(String name, DataSource dataSource) {
+			this.name = name;
+			this.dataSource = dataSource;
+		}
+
+		public String getName() {
+			return name;
+		}
+
+		public boolean isHealthy() {
+			return healthy;
+		}
+
+		void markUp() {
+			if (!healthy) {
+				LOGGER.info("Read replica " + name + " is available again.");
+				healthy = true;
+			}
+		}
+
+		void markDown(SQLException cause) {
+			if (healthy) {
+				LOGGER.warn("Read replica " + name + " is unavailable, reading from the primary.", cause);
+				healthy = false;
+			}
+		}
+	}
+}
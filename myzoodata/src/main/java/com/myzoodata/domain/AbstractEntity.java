@@ -0,0 +1,90 @@
+package com.myzoodata.domain;
+
+import java.util.Date;
+
+import javax.persistence.Column;
+import javax.persistence.EntityListeners;
+import javax.persistence.GeneratedValue;
+import javax.persistence.GenerationType;
+import javax.persistence.Id;
+import javax.persistence.MappedSuperclass;
+import javax.persistence.PrePersist;
+import javax.persistence.Temporal;
+import javax.persistence.TemporalType;
+import javax.persistence.Version;
+
+import org.hibernate.annotations.FilterDef;
+import org.hibernate.annotations.ParamDef;
+import org.springframework.data.annotation.LastModifiedDate;
+import org.springframework.data.jpa.domain.support.AuditingEntityListener;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+
+/**
+ * Base class of the persistent entities. The version and the last
+ * modification date are what the REST layer derives {@code ETag} and
+ * {@code Last-Modified} headers from. Every change of an entity is
+ * published as an {@link EntityChangedEvent}.
+ * <p>
+ * Each entity belongs to the household it was created for, see
+ * {@link HouseholdContextHolder}. The household is not part of the
+ * representation, clients name it in a header.
+ * <p>
+ * The lazy associations are Hibernate proxies, which have properties of
+ * their own Jackson has to skip when such an entity is rendered.
+ */
+@MappedSuperclass
+@FilterDef(name = AbstractEntity.HOUSEHOLD_FILTER, parameters = @ParamDef(name = "household", type = "string"))
+@JsonIgnoreProperties({ "hibernateLazyInitializer", "handler" })
+@EntityListeners({ AuditingEntityListener.class, EntityChangeListener.class })
+public abstract class AbstractEntity {
+
+	/**
+	 * The Hibernate filter restricting queries to the entities of a
+	 * household, given as the {@code household} parameter.
+	 */
+	public static final String HOUSEHOLD_FILTER = "household";
+
+	@Id
+	@GeneratedValue(strategy = GenerationType.IDENTITY)
+	private Long id;
+
+	@Version
+	private long version;
+
+	@LastModifiedDate
+	@Temporal(TemporalType.TIMESTAMP)
+	private Date lastModified;
+
+	@JsonIgnore
+	@Column(length = 64, updatable = false)
+	private String householdId;
+
+	public Long getId() {
+		return id;
+	}
+
+	public long getVersion() {
+		return version;
+	}
+
+	public Date getLastModified() {
+		return lastModified;
+	}
+
+	/**
+	 * Returns the household the entity belongs to, {@code null} if it was
+	 * created without one.
+	 */
+	public String getHouseholdId() {
+		return householdId;
+	}
+
+	@PrePersist
+	void assignHousehold() {
+		if (householdId == null) {
+			householdId = HouseholdContextHolder.getHousehold();
+		}
+	}
+}
@@ -0,0 +1,83 @@
+package com.myzoodata.domain;
+
+import java.util.Date;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.FetchType;
+import javax.persistence.JoinColumn;
+import javax.persistence.ManyToOne;
+import javax.persistence.Temporal;
+import javax.persistence.TemporalType;
+
+import org.hibernate.annotations.Filter;
+
+@Entity
+@Filter(name = AbstractEntity.HOUSEHOLD_FILTER, condition = "household_id = :household")
+public class Animal extends AbstractEntity {
+
+	@Column(nullable = false)
+	private String name;
+
+	@Column(nullable = false)
+	private String species;
+
+	private String breed;
+
+	private String microchip;
+
+	@Temporal(TemporalType.DATE)
+	private Date birthDate;
+
+	@ManyToOne(fetch = FetchType.LAZY)
+	@JoinColumn(name = "owner_id")
+	private Owner owner;
+
+	public String getName() {
+		return name;
+	}
+
+	public void setName(String name) {
+		this.name = name;
+	}
+
+	public String getSpecies() {
+		return species;
+	}
+
+	public void setSpecies(String species) {
+		this.species = species;
+	}
+
+	public String getBreed() {
+		return breed;
+	}
+
+	public void setBreed(String breed) {
+		this.breed = breed;
+	}
+
+	public String getMicrochip() {
+		return microchip;
+	}
+
+	public void setMicrochip(String microchip) {
+		this.microchip = microchip;
+	}
+
+	public Date getBirthDate() {
+		return birthDate;
+	}
+
+	public void setBirthDate(Date birthDate) {
+		this.birthDate = birthDate;
+	}
+
+	public Owner getOwner() {
+		return owner;
+	}
+
+	public void setOwner(Owner owner) {
+		this.owner = owner;
+	}
+}
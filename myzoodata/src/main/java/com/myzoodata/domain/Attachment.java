@@ -0,0 +1,75 @@
+package com.myzoodata.domain;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.FetchType;
+import javax.persistence.JoinColumn;
+import javax.persistence.ManyToOne;
+
+import org.hibernate.annotations.Filter;
+
+/**
+ * A file attached to an animal, such as a photo or a vet report. Only the
+ * metadata is stored in the database, the content is kept in the
+ * attachment store under its SHA-256 hash. Attachments do not change once
+ * they have been uploaded.
+ */
+@Entity
+@Filter(name = AbstractEntity.HOUSEHOLD_FILTER, condition = "household_id = :household")
+public class Attachment extends AbstractEntity {
+
+	@ManyToOne(fetch = FetchType.LAZY, optional = false)
+	@JoinColumn(name = "animal_id")
+	private Animal animal;
+
+	@Column(nullable = false)
+	private String fileName;
+
+	@Column(nullable = false)
+	private String contentType;
+
+	private long contentLength;
+
+	@Column(nullable = false, length = 64)
+	private String contentHash;
+
+	public Animal getAnimal() {
+		return animal;
+	}
+
+	public void setAnimal(Animal animal) {
+		this.animal = animal;
+	}
+
+	public String getFileName() {
+		return fileName;
+	}
+
+	public void setFileName(String fileName) {
+		this.fileName = fileName;
+	}
+
+	public String getContentType() {
+		return contentType;
+	}
+
+	public void setContentType(String contentType) {
+		this.contentType = contentType;
+	}
+
+	public long getContentLength() {
+		return contentLength;
+	}
+
+	public void setContentLength(long contentLength) {
+		this.contentLength = contentLength;
+	}
+
+	public String getContentHash() {
+		return contentHash;
+	}
+
+	public void setContentHash(String contentHash) {
+		this.contentHash = contentHash;
+	}
+}
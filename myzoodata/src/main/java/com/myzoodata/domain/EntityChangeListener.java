@@ -0,0 +1,43 @@
+package com.myzoodata.domain;
+
+import javax.persistence.PostPersist;
+import javax.persistence.PostRemove;
+import javax.persistence.PostUpdate;
+
+import org.springframework.context.ApplicationEventPublisher;
+
+/**
+ * JPA entity listener turning the lifecycle callbacks into
+ * {@link EntityChangedEvent}s. JPA creates the listener itself, so the
+ * publisher is handed over by {@link EntityChangeListenerRegistrar}.
+ */
+public class EntityChangeListener {
+
+	private static volatile ApplicationEventPublisher publisher;
+
+	static void setPublisher(ApplicationEventPublisher publisher) {
+		EntityChangeListener.publisher = publisher;
+	}
+
+	@PostPersist
+	void created(AbstractEntity entity) {
+		publish(entity, EntityChangedEvent.Type.CREATED);
+	}
+
+	@PostUpdate
+	void updated(AbstractEntity entity) {
+		publish(entity, EntityChangedEvent.Type.UPDATED);
+	}
+
+	@PostRemove
+	void deleted(AbstractEntity entity) {
+		publish(entity, EntityChangedEvent.Type.DELETED);
+	}
+
+	private static void publish(AbstractEntity entity, EntityChangedEvent.Type type) {
+		ApplicationEventPublisher current = publisher;
+		if (current != null) {
+			current.publishEvent(new EntityChangedEvent(entity, type));
+		}
+	}
+}
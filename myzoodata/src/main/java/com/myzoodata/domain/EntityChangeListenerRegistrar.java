@@ -0,0 +1,22 @@
+package com.myzoodata.domain;
+
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.ApplicationEventPublisherAware;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.stereotype.Component;
+
+@Component
+@Lazy(false)
+class EntityChangeListenerRegistrar implements ApplicationEventPublisherAware, DisposableBean {
+
+	@Override
+	public void setApplicationEventPublisher(ApplicationEventPublisher applicationEventPublisher) {
+		EntityChangeListener.setPublisher(applicationEventPublisher);
+	}
+
+	@Override
+	public void destroy() {
+		EntityChangeListener.setPublisher(null);
+	}
+}
@@ -0,0 +1,34 @@
+package com.myzoodata.domain;
+
+import org.springframework.context.ApplicationEvent;
+
+/**
+ * Published when an entity has been inserted, updated or deleted. The event
+ * is published while the change is flushed, so listeners which must only
+ * see committed changes should be {@code @TransactionalEventListener}s.
+ */
+public class EntityChangedEvent extends ApplicationEvent {
+
+	private static final long serialVersionUID = 1L;
+
+	public enum Type {
+		CREATED,
+		UPDATED,
+		DELETED
+	}
+
+	private final Type type;
+
+	public EntityChangedEvent(AbstractEntity entity, Type type) {
+		super(entity);
+		this.type = type;
+	}
+
+	public AbstractEntity getEntity() {
+		return (AbstractEntity) getSource();
+	}
+
+	public Type getType() {
+		return type;
+	}
+}
@@ -0,0 +1,42 @@
+package com.myzoodata.domain;
+
+import org.springframework.core.NamedThreadLocal;
+
+/**
+ * Holds the household the current thread works for. Entities saved by the
+ * thread belong to the household, and the queries of its transactions only
+ * see the entities of the household. Without a household, as in background
+ * jobs and without sharding, nothing is restricted.
+ *
+ * @see AbstractEntity#HOUSEHOLD_FILTER
+ */
+public final class HouseholdContextHolder {
+
+	private static final ThreadLocal<String> HOUSEHOLD = new NamedThreadLocal<>("Current household");
+
+	private HouseholdContextHolder() {
+	}
+
+	/**
+	 * Returns the household of the current thread, or {@code null} if none
+	 * is selected.
+	 */
+	public static String getHousehold() {
+		return HOUSEHOLD.get();
+	}
+
+	/**
+	 * Selects the household of the current thread, {@code null} to clear it.
+	 *
+	 * @return the household which was selected before
+	 */
+	public static String setHousehold(String household) {
+		String previous = HOUSEHOLD.get();
+		if (household != null) {
+			HOUSEHOLD.set(household);
+		} else {
+			HOUSEHOLD.remove();
+		}
+		return previous;
+	}
+}
@@ -0,0 +1,32 @@
+package com.myzoodata.domain;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+
+import org.hibernate.annotations.Filter;
+
+@Entity
+@Filter(name = AbstractEntity.HOUSEHOLD_FILTER, condition = "household_id = :household")
+public class Owner extends AbstractEntity {
+
+	@Column(nullable = false)
+	private String name;
+
+	private String email;
+
+	public String getName() {
+		return name;
+	}
+
+	public void setName(String name) {
+		this.name = name;
+	}
+
+	public String getEmail() {
+		return email;
+	}
+
+	public void setEmail(String email) {
+		this.email = email;
+	}
+}
@@ -0,0 +1,109 @@
+package com.myzoodata.domain;
+
+import java.util.Date;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.EnumType;
+import javax.persistence.Enumerated;
+import javax.persistence.FetchType;
+import javax.persistence.JoinColumn;
+import javax.persistence.ManyToOne;
+import javax.persistence.Temporal;
+import javax.persistence.TemporalType;
+
+import org.hibernate.annotations.Filter;
+
+@Entity
+@Filter(name = AbstractEntity.HOUSEHOLD_FILTER, condition = "household_id = :household")
+public class Treatment extends AbstractEntity {
+
+	@ManyToOne(fetch = FetchType.LAZY, optional = false)
+	@JoinColumn(name = "animal_id")
+	private Animal animal;
+
+	@Enumerated(EnumType.STRING)
+	@Column(nullable = false)
+	private TreatmentType type;
+
+	@Temporal(TemporalType.TIMESTAMP)
+	@Column(nullable = false)
+	private Date dueDate;
+
+	private boolean completed;
+
+	@Column(length = 2000)
+	private String notes;
+
+	@Temporal(TemporalType.TIMESTAMP)
+	private Date notifiedAt;
+
+	public Animal getAnimal() {
+		return animal;
+	}
+
+	public void setAnimal(Animal animal) {
+		this.animal = animal;
+	}
+
+	public TreatmentType getType() {
+		return type;
+	}
+
+	public void setType(TreatmentType type) {
+		this.type = type;
+	}
+
+	public Date getDueDate() {
+		return dueDate;
+	}
+
+	/**
+	 * Sets the due date. Moving the treatment to another date clears its
+	 * notification, so a reminder is sent again.
+	 */
+	public void setDueDate(Date dueDate) {
+		if (this.dueDate != null && (dueDate == null || this.dueDate.getTime() != dueDate.getTime())) {
+			this.notifiedAt = null;
+		}
+		this.dueDate = dueDate;
+	}
+
+	public boolean isCompleted() {
+		return completed;
+	}
+
+	public void setCompleted(boolean completed) {
+		this.completed = completed;
+	}
+
+	public String getNotes() {
+		return notes;
+	}
+
+	public void setNotes(String notes) {
+		this.notes = notes;
+	}
+
+	/**
+	 * Returns when the reminder of the treatment was sent, {@code null} if
+	 * it has not been sent yet.
+	 */
+	public Date getNotifiedAt() {
+		return notifiedAt;
+	}
+
+	/**
+	 * Records that the reminder of the treatment was sent.
+	 */
+	public void markNotified(Date notifiedAt) {
+		this.notifiedAt = notifiedAt;
+	}
+
+	/**
+	 * Takes back the mark of a reminder which could not be delivered.
+	 */
+	public void unmarkNotified() {
+		this.notifiedAt = null;
+	}
+}
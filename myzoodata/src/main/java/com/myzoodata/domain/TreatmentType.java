@@ -0,0 +1,7 @@
+package com.myzoodata.domain;
+
+public enum TreatmentType {
+	FEEDING,
+	VACCINATION,
+	MEDICATION
+}
@@ -0,0 +1,20 @@
+package com.myzoodata.repositories;
+
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.repository.PagingAndSortingRepository;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.myzoodata.domain.Animal;
+
+@Transactional(readOnly = true)
+public interface AnimalRepository extends PagingAndSortingRepository<Animal, Long> {
+
+	Page<Animal> findByOwnerId(@Param("ownerId") Long ownerId, Pageable pageable);
+
+	Page<Animal> findBySpeciesAndBreed(@Param("species") String species, @Param("breed") String breed,
+			Pageable pageable);
+
+	Page<Animal> findBySpecies(@Param("species") String species, Pageable pageable);
+}
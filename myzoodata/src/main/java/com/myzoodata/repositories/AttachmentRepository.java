@@ -0,0 +1,22 @@
+package com.myzoodata.repositories;
+
+import java.util.List;
+
+import org.springframework.data.repository.CrudRepository;
+import org.springframework.data.rest.core.annotation.RepositoryRestResource;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.myzoodata.domain.Attachment;
+
+/**
+ * Not exported, the attachments are served by the attachment controller
+ * together with their content.
+ */
+@RepositoryRestResource(exported = false)
+@Transactional(readOnly = true)
+public interface AttachmentRepository extends CrudRepository<Attachment, Long> {
+
+	List<Attachment> findByAnimalIdOrderByIdAsc(Long animalId);
+
+	long countByContentHash(String contentHash);
+}
@@ -0,0 +1,8 @@
+package com.myzoodata.repositories;
+
+import org.springframework.data.repository.PagingAndSortingRepository;
+
+import com.myzoodata.domain.Owner;
+
+public interface OwnerRepository extends PagingAndSortingRepository<Owner, Long> {
+}
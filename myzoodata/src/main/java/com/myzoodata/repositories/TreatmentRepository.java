@@ -0,0 +1,23 @@
+package com.myzoodata.repositories;
+
+import java.util.Date;
+import java.util.List;
+
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.repository.PagingAndSortingRepository;
+import org.springframework.data.repository.query.Param;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.format.annotation.DateTimeFormat.ISO;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.myzoodata.domain.Treatment;
+
+@Transactional(readOnly = true)
+public interface TreatmentRepository extends PagingAndSortingRepository<Treatment, Long> {
+
+	Page<Treatment> findByCompletedFalseAndDueDateBefore(
+			@Param("date") @DateTimeFormat(iso = ISO.DATE_TIME) Date date, Pageable pageable);
+
+	List<Treatment> findByAnimalIdOrderByDueDateAsc(@Param("animalId") Long animalId);
+}
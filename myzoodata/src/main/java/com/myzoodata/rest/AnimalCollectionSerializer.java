@@ -0,0 +1,34 @@
+package com.myzoodata.rest;
+
+import java.io.IOException;
+import java.util.Date;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.SerializableString;
+import com.fasterxml.jackson.core.io.SerializedString;
+
+/**
+ * Writes the {@code animals} collection.
+ */
+class AnimalCollectionSerializer extends CollectionSerializer {
+
+	private static final SerializableString NAME = new SerializedString("name");
+	private static final SerializableString SPECIES = new SerializedString("species");
+	private static final SerializableString BREED = new SerializedString("breed");
+	private static final SerializableString MICROCHIP = new SerializedString("microchip");
+	private static final SerializableString BIRTH_DATE = new SerializedString("birthDate");
+
+	AnimalCollectionSerializer() {
+		super("animals", "Animal", "animal", true,
+				new String[] { "name", "species", "breed", "microchip", "birthDate" }, "owner");
+	}
+
+	@Override
+	protected void writeProperties(JsonGenerator generator, Object[] row, char[] buffer) throws IOException {
+		writeString(generator, NAME, row[2]);
+		writeString(generator, SPECIES, row[3]);
+		writeString(generator, BREED, row[4]);
+		writeString(generator, MICROCHIP, row[5]);
+		writeDate(generator, BIRTH_DATE, (Date) row[6], buffer);
+	}
+}
@@ -0,0 +1,43 @@
+package com.myzoodata.rest;
+
+import java.util.List;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+/**
+ * Reads the pages of collection resources as rows of scalar columns for a
+ * {@link CollectionSerializer}, no entities are loaded into the persistence
+ * context.
+ */
+@Component
+class CollectionPages {
+
+	@PersistenceContext
+	private EntityManager entityManager;
+
+	/**
+	 * Reads a page. The rows are counted only if the page does not tell how
+	 * many there are, that is, if it is full or past the last row.
+	 */
+	@Transactional(readOnly = true)
+	public Page<Object[]> read(CollectionSerializer serializer, Pageable pageable) {
+		List<Object[]> rows = entityManager.createQuery(serializer.createQuery(pageable.getSort()), Object[].class)
+				.setFirstResult(pageable.getOffset())
+				.setMaxResults(pageable.getPageSize())
+				.getResultList();
+		long total;
+		if (rows.size() < pageable.getPageSize() && (!rows.isEmpty() || pageable.getOffset() == 0)) {
+			total = pageable.getOffset() + rows.size();
+		} else {
+			total = entityManager.createQuery(serializer.createCountQuery(), Long.class).getSingleResult();
+		}
+		return new PageImpl<>(rows, pageable, total);
+	}
+}
@@ -0,0 +1,317 @@
+package com.myzoodata.rest;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Sort;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.SerializableString;
+import com.fasterxml.jackson.core.io.SerializedString;
+import com.fasterxml.jackson.databind.util.StdDateFormat;
+
+/**
+ * Writes a page of a collection resource as the same HAL document Spring
+ * Data REST renders, without going through the reflective bean serializers
+ * and the link builders for every item.
+ * <p>
+ * A page is read as rows of scalar columns, the id and the last
+ * modification first, followed by the properties in the order given to the
+ * constructor. Subclasses write the properties with field names encoded in
+ * advance, and the item links are copied from a {@link LinkTemplate} built
+ * once per base URI.
+ */
+abstract class CollectionSerializer {
+
+	// The Host header is up to the client, so only so many base URIs get a
+	// cached template.
+	private static final int MAX_LINK_TEMPLATES = 16;
+
+	private static final SerializableString EMBEDDED = new SerializedString("_embedded");
+	private static final SerializableString LINKS = new SerializedString("_links");
+	private static final SerializableString HREF = new SerializedString("href");
+	private static final SerializableString PAGE = new SerializedString("page");
+	private static final SerializableString SIZE = new SerializedString("size");
+	private static final SerializableString TOTAL_ELEMENTS = new SerializedString("totalElements");
+	private static final SerializableString TOTAL_PAGES = new SerializedString("totalPages");
+	private static final SerializableString NUMBER = new SerializedString("number");
+	private static final SerializableString LAST_MODIFIED = new SerializedString("lastModified");
+
+	// yyyy-MM-ddTHH:mm:ss.SSS+0000, the format of Jackson's StdDateFormat.
+	private static final int TIMESTAMP_LENGTH = 28;
+
+	private static final long MILLIS_PER_DAY = 86400000L;
+
+	private final String path;
+	private final String entityName;
+	private final List<String> properties;
+	private final boolean searchable;
+	private final String[] rels;
+	private final String[] suffixes;
+	private final SerializableString collectionName;
+	private final ConcurrentMap<String, LinkTemplate> linkTemplates = new ConcurrentHashMap<>();
+
+	/**
+	 * @param path the path of the collection resource, also the name of the
+	 * embedded collection
+	 * @param entityName the name of the entity in queries
+	 * @param itemRel the relation of an item to itself besides {@code self}
+	 * @param searchable whether the repository exports query methods
+	 * @param properties the properties written by {@link #writeProperties}
+	 * @param associations the relations of the associations of an item
+	 */
+	CollectionSerializer(String path, String entityName, String itemRel, boolean searchable, String[] properties,
+			String... associations) {
+		this.path = path;
+		this.entityName = entityName;
+		this.properties = Arrays.asList(properties);
+		this.searchable = searchable;
+		this.rels = new String[associations.length + 2];
+		this.suffixes = new String[rels.length];
+		rels[0] = "self";
+		suffixes[0] = "";
+		rels[1] = itemRel;
+		suffixes[1] = "";
+		for (int i = 0; i < associations.length; i++) {
+			rels[i + 2] = associations[i];
+			suffixes[i + 2] = "/" + associations[i];
+		}
+		this.collectionName = new SerializedString(path);
+	}
+
+	String getPath() {
+		return path;
+	}
+
+	/**
+	 * Returns whether the collection can be sorted by a property.
+	 */
+	boolean isSortable(String property) {
+		return "id".equals(property) || "lastModified".equals(property) || properties.contains(property);
+	}
+
+	/**
+	 * Returns the query reading the rows of a page. Rows with equal sort
+	 * keys are ordered by id, so paging through them is stable.
+	 */
+	String createQuery(Sort sort) {
+		StringBuilder query = new StringBuilder("select e.id, e.lastModified");
+		for (String property : properties) {
+			query.append(", e.").append(property);
+		}
+		query.append(" from ").append(entityName).append(" e order by ");
+		if (sort != null) {
+			for (Sort.Order order : sort) {
+				query.append("e.").append(order.getProperty()).append(order.isAscending() ? " asc, " : " desc, ");
+			}
+		}
+		return query.append("e.id").toString();
+	}
+
+	String createCountQuery() {
+		return "select count(e) from " + entityName + " e";
+	}
+
+	/**
+	 * Writes a page of the collection.
+	 *
+	 * @param baseUri the URI of the REST API, without a trailing slash
+	 */
+	void write(JsonGenerator generator, Page<Object[]> page, String baseUri) throws IOException {
+		LinkTemplate links = getLinkTemplate(baseUri);
+		char[] buffer = new char[Math.max(links.getMaxLength(), TIMESTAMP_LENGTH)];
+
+		generator.writeStartObject();
+		generator.writeFieldName(EMBEDDED);
+		generator.writeStartObject();
+		generator.writeFieldName(collectionName);
+		generator.writeStartArray();
+		for (Object[] row : page) {
+			generator.writeStartObject();
+			writeTimestamp(generator, LAST_MODIFIED, (Date) row[1], buffer);
+			writeProperties(generator, row, buffer);
+			generator.writeFieldName(LINKS);
+			generator.writeRawValue(buffer, 0, links.render((Long) row[0], buffer));
+			generator.writeEndObject();
+		}
+		generator.writeEndArray();
+		generator.writeEndObject();
+
+		writeCollectionLinks(generator, page, baseUri);
+
+		generator.writeFieldName(PAGE);
+		generator.writeStartObject();
+		generator.writeFieldName(SIZE);
+		generator.writeNumber(page.getSize());
+		generator.writeFieldName(TOTAL_ELEMENTS);
+		generator.writeNumber(page.getTotalElements());
+		generator.writeFieldName(TOTAL_PAGES);
+		generator.writeNumber(page.getTotalPages());
+		generator.writeFieldName(NUMBER);
+		generator.writeNumber(page.getNumber());
+		generator.writeEndObject();
+		generator.writeEndObject();
+	}
+
+	/**
+	 * Writes the properties of an item, the row holds them from index 2 on.
+	 *
+	 * @param buffer a buffer for formatting values, at least large enough
+	 * for a timestamp
+	 */
+	protected abstract void writeProperties(JsonGenerator generator, Object[] row, char[] buffer)
+			throws IOException;
+
+	protected static void writeString(JsonGenerator generator, SerializableString name, Object value)
+			throws IOException {
+		generator.writeFieldName(name);
+		if (value == null) {
+			generator.writeNull();
+		} else {
+			generator.writeString(value.toString());
+		}
+	}
+
+	/**
+	 * Writes a timestamp the way Jackson's default date format does.
+	 */
+	protected static void writeTimestamp(JsonGenerator generator, SerializableString name, Date value,
+			char[] buffer) throws IOException {
+		generator.writeFieldName(name);
+		if (value == null) {
+			generator.writeNull();
+		} else if (formatTimestamp(value.getTime(), buffer)) {
+			generator.writeString(buffer, 0, TIMESTAMP_LENGTH);
+		} else {
+			generator.writeString(new StdDateFormat().format(value));
+		}
+	}
+
+	/**
+	 * Writes a date column, which Jackson writes as
+	 * {@link java.sql.Date#toString()}.
+	 */
+	protected static void writeDate(JsonGenerator generator, SerializableString name, Date value, char[] buffer)
+			throws IOException {
+		if (value == null || value instanceof java.sql.Date) {
+			writeString(generator, name, value);
+		} else {
+			writeTimestamp(generator, name, value, buffer);
+		}
+	}
+
+	private void writeCollectionLinks(JsonGenerator generator, Page<Object[]> page, String baseUri)
+			throws IOException {
+		String collectionUri = baseUri + "/" + path;
+		generator.writeFieldName(LINKS);
+		generator.writeStartObject();
+		// The same relations and order as Spring HATEOAS's PagedResourcesAssembler.
+		boolean navigable = page.hasPrevious() || page.hasNext();
+		if (navigable) {
+			writeLink(generator, "first", pageUri(collectionUri, 0, page));
+		}
+		if (page.hasPrevious()) {
+			writeLink(generator, "prev", pageUri(collectionUri, page.getNumber() - 1, page));
+		}
+		writeLink(generator, "self", collectionUri);
+		if (page.hasNext()) {
+			writeLink(generator, "next", pageUri(collectionUri, page.getNumber() + 1, page));
+		}
+		if (navigable) {
+			writeLink(generator, "last", pageUri(collectionUri, Math.max(page.getTotalPages() - 1, 0), page));
+		}
+		writeLink(generator, "profile", baseUri + "/profile/" + path);
+		if (searchable) {
+			writeLink(generator, "search", collectionUri + "/search");
+		}
+		generator.writeEndObject();
+	}
+
+	private static void writeLink(JsonGenerator generator, String rel, String href) throws IOException {
+		generator.writeFieldName(rel);
+		generator.writeStartObject();
+		generator.writeFieldName(HREF);
+		generator.writeString(href);
+		generator.writeEndObject();
+	}
+
+	private static String pageUri(String collectionUri, int number, Page<?> page) {
+		StringBuilder uri = new StringBuilder(collectionUri).append("?page=").append(number)
+				.append("&size=").append(page.getSize());
+		if (page.getSort() != null) {
+			for (Sort.Order order : page.getSort()) {
+				uri.append("&sort=").append(order.getProperty()).append(',')
+						.append(order.getDirection().name().toLowerCase(Locale.ENGLISH));
+			}
+		}
+		return uri.toString();
+	}
+
+	private LinkTemplate getLinkTemplate(String baseUri) {
+		LinkTemplate template = linkTemplates.get(baseUri);
+		if (template == null) {
+			template = new LinkTemplate(baseUri + "/" + path + "/", rels, suffixes);
+			if (linkTemplates.size() < MAX_LINK_TEMPLATES) {
+				linkTemplates.putIfAbsent(baseUri, template);
+			}
+		}
+		return template;
+	}
+
+	/**
+	 * Formats a timestamp in UTC into the buffer, returns {@code false} if
+	 * its year does not have four digits.
+	 */
+	static boolean formatTimestamp(long millis, char[] buffer) {
+		long days = Math.floorDiv(millis, MILLIS_PER_DAY);
+		int millisOfDay = (int) Math.floorMod(millis, MILLIS_PER_DAY);
+
+		// Converts the days since 1970-01-01 to a date of the proleptic
+		// Gregorian calendar, counting eras of 400 years from 0000-03-01.
+		long shifted = days + 719468L;
+		long era = Math.floorDiv(shifted, 146097L);
+		long dayOfEra = shifted - era * 146097L;
+		long yearOfEra = (dayOfEra - dayOfEra / 1460 + dayOfEra / 36524 - dayOfEra / 146096) / 365;
+		long dayOfYear = dayOfEra - (365 * yearOfEra + yearOfEra / 4 - yearOfEra / 100);
+		long shiftedMonth = (5 * dayOfYear + 2) / 153;
+		int day = (int) (dayOfYear - (153 * shiftedMonth + 2) / 5 + 1);
+		int month = (int) (shiftedMonth < 10 ? shiftedMonth + 3 : shiftedMonth - 9);
+		long year = yearOfEra + era * 400 + (month <= 2 ? 1 : 0);
+		if (year < 0 || year > 9999) {
+			return false;
+		}
+
+		appendDigits((int) year, 4, buffer, 0);
+		buffer[4] = '-';
+		appendDigits(month, 2, buffer, 5);
+		buffer[7] = '-';
+		appendDigits(day, 2, buffer, 8);
+		buffer[10] = 'T';
+		appendDigits(millisOfDay / 3600000, 2, buffer, 11);
+		buffer[13] = ':';
+		appendDigits(millisOfDay / 60000 % 60, 2, buffer, 14);
+		buffer[16] = ':';
+		appendDigits(millisOfDay / 1000 % 60, 2, buffer, 17);
+		buffer[19] = '.';
+		appendDigits(millisOfDay % 1000, 3, buffer, 20);
+		buffer[23] = '+';
+		buffer[24] = '0';
+		buffer[25] = '0';
+		buffer[26] = '0';
+		buffer[27] = '0';
+		return true;
+	}
+
+	private static void appendDigits(int value, int length, char[] buffer, int position) {
+		for (int i = position + length - 1; i >= position; i--) {
+			buffer[i] = (char) ('0' + value % 10);
+			value /= 10;
+		}
+	}
+}
@@ -0,0 +1,160 @@
+package com.myzoodata.rest;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.springframework.context.ApplicationContext;
+import org.springframework.data.rest.core.config.RepositoryRestConfiguration;
+import org.springframework.data.rest.core.mapping.ResourceMappings;
+import org.springframework.data.rest.core.mapping.ResourceMetadata;
+import org.springframework.http.HttpHeaders;
+import org.springframework.util.StringUtils;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import com.myzoodata.domain.AbstractEntity;
+
+/**
+ * Answers conditional {@code GET} and {@code HEAD} requests of the exported
+ * repository resources with {@code 304 Not Modified} before the request
+ * reaches Spring Data REST, that is, before any entity is loaded or
+ * rendered.
+ * <p>
+ * Item resources use the same entity tag Spring Data REST sends, so the tag
+ * of a full response can be revalidated here. Collection resources get a
+ * weak entity tag computed from an aggregate query over the version column.
+ */
+class ConditionalGetFilter extends OncePerRequestFilter {
+
+	private final ApplicationContext applicationContext;
+	private final ResourceVersions versions;
+
+	private volatile String basePath;
+	private volatile Map<String, Class<? extends AbstractEntity>> resourceTypes;
+
+	ConditionalGetFilter(ApplicationContext applicationContext, ResourceVersions versions) {
+		this.applicationContext = applicationContext;
+		this.versions = versions;
+	}
+
+	@Override
+	protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+			throws ServletException, IOException {
+		String method = request.getMethod();
+		if (!"GET".equals(method) && !"HEAD".equals(method)) {
+			chain.doFilter(request, response);
+			return;
+		}
+
+		ResourceVersion version = resolveVersion(request);
+		if (version == null) {
+			chain.doFilter(request, response);
+			return;
+		}
+
+		if (isNotModified(request, version)) {
+			response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+			response.setHeader(HttpHeaders.ETAG, version.getEtag());
+			if (version.getLastModified() >= 0) {
+				response.setDateHeader(HttpHeaders.LAST_MODIFIED, version.getLastModified());
+			}
+			return;
+		}
+
+		if (version.getEtag().startsWith("W/")) {
+			// Spring Data REST sends the tags of item resources itself.
+			response.setHeader(HttpHeaders.ETAG, version.getEtag());
+		}
+		chain.doFilter(request, response);
+	}
+
+	private ResourceVersion resolveVersion(HttpServletRequest request) {
+		String path = request.getRequestURI().substring(request.getContextPath().length());
+		String base = getBasePath();
+		if (!path.startsWith(base)) {
+			return null;
+		}
+		String[] segments = StringUtils.tokenizeToStringArray(path.substring(base.length()), "/");
+		if (segments.length == 0 || segments.length > 2) {
+			return null;
+		}
+
+		Class<? extends AbstractEntity> type = getResourceTypes().get(segments[0]);
+		if (type == null) {
+			return null;
+		}
+		if (segments.length == 1) {
+			String variant = request.getQueryString() + ":" + request.getHeader(HttpHeaders.ACCEPT);
+			return versions.ofCollection(type, variant);
+		}
+
+		Long id;
+		try {
+			id = Long.valueOf(segments[1]);
+		} catch (NumberFormatException ex) {
+			return null;
+		}
+		return versions.ofItem(type, id);
+	}
+
+	private static boolean isNotModified(HttpServletRequest request, ResourceVersion version) {
+		String ifNoneMatch = request.getHeader(HttpHeaders.IF_NONE_MATCH);
+		if (ifNoneMatch != null) {
+			String etag = stripWeak(version.getEtag());
+			for (String candidate : StringUtils.commaDelimitedListToStringArray(ifNoneMatch)) {
+				candidate = candidate.trim();
+				if ("*".equals(candidate) || stripWeak(candidate).equals(etag)) {
+					return true;
+				}
+			}
+			return false;
+		}
+
+		if (version.getLastModified() < 0) {
+			return false;
+		}
+		long ifModifiedSince;
+		try {
+			ifModifiedSince = request.getDateHeader(HttpHeaders.IF_MODIFIED_SINCE);
+		} catch (IllegalArgumentException ex) {
+			return false;
+		}
+		// HTTP dates have a resolution of seconds.
+		return ifModifiedSince >= 0 && version.getLastModified() / 1000 <= ifModifiedSince / 1000;
+	}
+
+	private static String stripWeak(String etag) {
+		return etag.startsWith("W/") ? etag.substring(2) : etag;
+	}
+
+	private String getBasePath() {
+		String result = basePath;
+		if (result == null) {
+			result = applicationContext.getBean(RepositoryRestConfiguration.class).getBasePath().getPath();
+			result = StringUtils.trimTrailingCharacter(result, '/');
+			basePath = result;
+		}
+		return result;
+	}
+
+	@SuppressWarnings("unchecked")
+	private Map<String, Class<? extends AbstractEntity>> getResourceTypes() {
+		Map<String, Class<? extends AbstractEntity>> result = resourceTypes;
+		if (result == null) {
+			result = new HashMap<>();
+			for (ResourceMetadata metadata : applicationContext.getBean(ResourceMappings.class)) {
+				if (metadata.isExported() && AbstractEntity.class.isAssignableFrom(metadata.getDomainType())) {
+					String path = StringUtils.trimLeadingCharacter(metadata.getPath().toString(), '/');
+					result.put(path, (Class<? extends AbstractEntity>) metadata.getDomainType());
+				}
+			}
+			resourceTypes = result;
+		}
+		return result;
+	}
+}
@@ -0,0 +1,191 @@
+package com.myzoodata.rest;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.springframework.context.ApplicationContext;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.rest.core.config.RepositoryRestConfiguration;
+import org.springframework.hateoas.MediaTypes;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.InvalidMediaTypeException;
+import org.springframework.http.MediaType;
+import org.springframework.util.StringUtils;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+
+/**
+ * Answers {@code GET} requests of the collection resources with a
+ * {@link CollectionSerializer}, streaming the HAL document straight into
+ * the response instead of rendering it with Spring Data REST.
+ * <p>
+ * Only the plain paged and sorted requests are served here, the document
+ * has the same content as the one of Spring Data REST but is not indented.
+ * Projections, sorting by more than one property and other media types are
+ * left to Spring Data REST.
+ */
+class FastCollectionFilter extends OncePerRequestFilter {
+
+	private final ApplicationContext applicationContext;
+	private final CollectionPages pages;
+	private final Map<String, CollectionSerializer> serializers = new HashMap<>();
+	private final JsonFactory jsonFactory = new JsonFactory().disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+
+	private volatile RepositoryRestConfiguration restConfiguration;
+
+	FastCollectionFilter(ApplicationContext applicationContext, CollectionPages pages,
+			CollectionSerializer... serializers) {
+		this.applicationContext = applicationContext;
+		this.pages = pages;
+		for (CollectionSerializer serializer : serializers) {
+			this.serializers.put(serializer.getPath(), serializer);
+		}
+	}
+
+	@Override
+	protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+			throws ServletException, IOException {
+		if (!"GET".equals(request.getMethod())) {
+			chain.doFilter(request, response);
+			return;
+		}
+
+		RepositoryRestConfiguration configuration = getRestConfiguration();
+		String basePath = StringUtils.trimTrailingCharacter(configuration.getBasePath().getPath(), '/');
+		String path = request.getRequestURI().substring(request.getContextPath().length());
+		CollectionSerializer serializer = path.startsWith(basePath + "/")
+				? serializers.get(path.substring(basePath.length() + 1))
+				: null;
+		MediaType contentType = serializer != null ? negotiateContentType(request) : null;
+		PageRequest pageable = contentType != null ? resolvePageable(request, configuration, serializer) : null;
+		if (pageable == null) {
+			chain.doFilter(request, response);
+			return;
+		}
+
+		Page<Object[]> page = pages.read(serializer, pageable);
+		String baseUri = ServletUriComponentsBuilder.fromServletMapping(request).path(basePath).build()
+				.toUriString();
+
+		response.setContentType(contentType.toString() + ";charset=UTF-8");
+		JsonGenerator generator = jsonFactory.createGenerator(response.getOutputStream(), JsonEncoding.UTF8);
+		try {
+			serializer.write(generator, page, baseUri);
+		} finally {
+			generator.close();
+		}
+	}
+
+	/**
+	 * Returns the media type to answer with, {@code null} if the request
+	 * accepts neither HAL nor plain JSON, or prefers a wildcard subtype.
+	 */
+	private static MediaType negotiateContentType(HttpServletRequest request) {
+		String accept = request.getHeader(HttpHeaders.ACCEPT);
+		if (!StringUtils.hasText(accept)) {
+			return MediaTypes.HAL_JSON;
+		}
+		List<MediaType> acceptable;
+		try {
+			acceptable = MediaType.parseMediaTypes(accept);
+		} catch (InvalidMediaTypeException ex) {
+			return null;
+		}
+		MediaType.sortBySpecificityAndQuality(acceptable);
+		for (MediaType mediaType : acceptable) {
+			// Spring Data REST does not answer application/* with HAL, and
+			// how it chooses is not worth copying.
+			if (mediaType.isWildcardSubtype() && !mediaType.isWildcardType()) {
+				return null;
+			}
+			if (mediaType.includes(MediaTypes.HAL_JSON)) {
+				return MediaTypes.HAL_JSON;
+			}
+			if (mediaType.includes(MediaType.APPLICATION_JSON)) {
+				return MediaType.APPLICATION_JSON;
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Resolves the page like Spring Data REST does, returns {@code null} if
+	 * the request has parameters not handled here.
+	 */
+	private static PageRequest resolvePageable(HttpServletRequest request, RepositoryRestConfiguration configuration,
+			CollectionSerializer serializer) {
+		String pageParam = configuration.getPageParamName();
+		String sizeParam = configuration.getLimitParamName();
+		String sortParam = configuration.getSortParamName();
+		for (String name : request.getParameterMap().keySet()) {
+			if (!name.equals(pageParam) && !name.equals(sizeParam) && !name.equals(sortParam)) {
+				return null;
+			}
+		}
+
+		int page = Math.max(parseInt(request.getParameter(pageParam), 0), 0);
+		int size = parseInt(request.getParameter(sizeParam), configuration.getDefaultPageSize());
+		if (size < 1) {
+			size = configuration.getDefaultPageSize();
+		}
+		size = Math.min(size, configuration.getMaxPageSize());
+		if (page > Integer.MAX_VALUE / size) {
+			return null;
+		}
+
+		String[] sortValues = request.getParameterValues(sortParam);
+		if (sortValues == null) {
+			return new PageRequest(page, size);
+		}
+		if (sortValues.length != 1) {
+			return null;
+		}
+		String[] parts = StringUtils.commaDelimitedListToStringArray(sortValues[0]);
+		if (parts.length < 1 || parts.length > 2 || !serializer.isSortable(parts[0])) {
+			return null;
+		}
+		Sort.Direction direction = Sort.Direction.ASC;
+		if (parts.length == 2) {
+			String name = parts[1].toUpperCase(Locale.ENGLISH);
+			if (!"ASC".equals(name) && !"DESC".equals(name)) {
+				return null;
+			}
+			direction = Sort.Direction.valueOf(name);
+		}
+		return new PageRequest(page, size, direction, parts[0]);
+	}
+
+	private static int parseInt(String value, int defaultValue) {
+		if (value == null) {
+			return defaultValue;
+		}
+		try {
+			return Integer.parseInt(value);
+		} catch (NumberFormatException ex) {
+			return defaultValue;
+		}
+	}
+
+	private RepositoryRestConfiguration getRestConfiguration() {
+		RepositoryRestConfiguration result = restConfiguration;
+		if (result == null) {
+			result = applicationContext.getBean(RepositoryRestConfiguration.class);
+			restConfiguration = result;
+		}
+		return result;
+	}
+}
@@ -0,0 +1,98 @@
+package com.myzoodata.rest;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import com.fasterxml.jackson.core.io.JsonStringEncoder;
+
+/**
+ * The {@code _links} object of an item resource with everything but the id
+ * rendered in advance, so writing the links of an item only copies a few
+ * character arrays and the digits of the id.
+ */
+final class LinkTemplate {
+
+	// Enough for the digits of any long.
+	private static final int MAX_ID_LENGTH = 20;
+
+	private final char[][] segments;
+	private final int maxLength;
+
+	/**
+	 * Creates the template of links whose targets are the item URI
+	 * {@code <prefix><id>} followed by the suffix of the relation.
+	 *
+	 * @param prefix the URI up to the id, for example
+	 * {@code http://localhost/animals/}
+	 * @param rels the relations
+	 * @param suffixes the path appended to the item URI for each relation,
+	 * empty for the item itself
+	 */
+	LinkTemplate(String prefix, String[] rels, String[] suffixes) {
+		String href = new String(JsonStringEncoder.getInstance().quoteAsString(prefix));
+		List<String> parts = new ArrayList<>(rels.length + 1);
+		StringBuilder part = new StringBuilder("{");
+		for (int i = 0; i < rels.length; i++) {
+			if (i > 0) {
+				part.append(',');
+			}
+			part.append('"').append(rels[i]).append("\":{\"href\":\"").append(href);
+			parts.add(part.toString());
+			part = new StringBuilder(suffixes[i]).append("\"}");
+		}
+		parts.add(part.append('}').toString());
+
+		this.segments = new char[parts.size()][];
+		int length = 0;
+		for (int i = 0; i < segments.length; i++) {
+			segments[i] = parts.get(i).toCharArray();
+			length += segments[i].length;
+		}
+		this.maxLength = length + rels.length * MAX_ID_LENGTH;
+	}
+
+	/**
+	 * Returns the number of characters {@link #render} needs at most.
+	 */
+	int getMaxLength() {
+		return maxLength;
+	}
+
+	/**
+	 * Renders the links of an item into the buffer and returns their length.
+	 */
+	int render(long id, char[] buffer) {
+		int position = 0;
+		for (int i = 0; i < segments.length; i++) {
+			if (i > 0) {
+				position = appendLong(id, buffer, position);
+			}
+			char[] segment = segments[i];
+			System.arraycopy(segment, 0, buffer, position, segment.length);
+			position += segment.length;
+		}
+		return position;
+	}
+
+	private static int appendLong(long value, char[] buffer, int position) {
+		if (value < 0) {
+			if (value == Long.MIN_VALUE) {
+				String digits = Long.toString(value);
+				digits.getChars(0, digits.length(), buffer, position);
+				return position + digits.length();
+			}
+			buffer[position++] = '-';
+			value = -value;
+		}
+		int length = 1;
+		for (long rest = value / 10; rest > 0; rest /= 10) {
+			length++;
+		}
+		int end = position + length;
+		for (int i = end - 1; i >= position; i--) {
+			buffer[i] = (char) ('0' + value % 10);
+			value /= 10;
+		}
+		return end;
+	}
+}
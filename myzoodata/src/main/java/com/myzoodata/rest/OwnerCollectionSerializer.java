@@ -0,0 +1,26 @@
+package com.myzoodata.rest;
+
+import java.io.IOException;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.SerializableString;
+import com.fasterxml.jackson.core.io.SerializedString;
+
+/**
+ * Writes the {@code owners} collection.
+ */
+class OwnerCollectionSerializer extends CollectionSerializer {
+
+	private static final SerializableString NAME = new SerializedString("name");
+	private static final SerializableString EMAIL = new SerializedString("email");
+
+	OwnerCollectionSerializer() {
+		super("owners", "Owner", "owner", false, new String[] { "name", "email" });
+	}
+
+	@Override
+	protected void writeProperties(JsonGenerator generator, Object[] row, char[] buffer) throws IOException {
+		writeString(generator, NAME, row[2]);
+		writeString(generator, EMAIL, row[3]);
+	}
+}
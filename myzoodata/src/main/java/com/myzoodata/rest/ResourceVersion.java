@@ -0,0 +1,24 @@
+package com.myzoodata.rest;
+
+/**
+ * The validators of a REST resource: an entity tag and, if known, the time
+ * of the last modification in milliseconds (negative if unknown).
+ */
+final class ResourceVersion {
+
+	private final String etag;
+	private final long lastModified;
+
+	ResourceVersion(String etag, long lastModified) {
+		this.etag = etag;
+		this.lastModified = lastModified;
+	}
+
+	String getEtag() {
+		return etag;
+	}
+
+	long getLastModified() {
+		return lastModified;
+	}
+}
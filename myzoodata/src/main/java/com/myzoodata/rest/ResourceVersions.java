@@ -0,0 +1,75 @@
+package com.myzoodata.rest;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Date;
+import java.util.List;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.util.DigestUtils;
+
+import com.myzoodata.domain.AbstractEntity;
+
+/**
+ * Computes resource validators from the version columns only, so a
+ * conditional request can be answered without loading and rendering the
+ * entities themselves.
+ * <p>
+ * The state of a collection is queried for every request instead of being
+ * kept: bulk updates and other instances change the tables without any
+ * event this service would see.
+ */
+@Component
+class ResourceVersions {
+
+	@PersistenceContext
+	private EntityManager entityManager;
+
+	/**
+	 * Returns the validators of a single entity, or {@code null} if it does
+	 * not exist. The entity tag has the same format as the one Spring Data
+	 * REST derives from the {@code @Version} property.
+	 */
+	@Transactional(readOnly = true)
+	public ResourceVersion ofItem(Class<? extends AbstractEntity> type, Long id) {
+		List<Object[]> rows = entityManager
+				.createQuery("select e.version, e.lastModified from " + entityName(type) + " e where e.id = :id",
+						Object[].class)
+				.setParameter("id", id)
+				.getResultList();
+		if (rows.isEmpty()) {
+			return null;
+		}
+		Object[] row = rows.get(0);
+		return new ResourceVersion("\"" + row[0] + "\"", millis((Date) row[1]));
+	}
+
+	/**
+	 * Returns a weak entity tag for a collection resource. The count, the sum
+	 * of the versions and the latest modification change on every insert,
+	 * update and delete, so together they identify the state of the table;
+	 * {@code variant} distinguishes the pages and representations of it.
+	 */
+	@Transactional(readOnly = true)
+	public ResourceVersion ofCollection(Class<? extends AbstractEntity> type, String variant) {
+		Object[] row = entityManager
+				.createQuery("select count(e), coalesce(sum(e.version), 0), max(e.lastModified) from "
+						+ entityName(type) + " e", Object[].class)
+				.getSingleResult();
+		String state = row[0] + ":" + row[1] + ":" + millis((Date) row[2]) + ":" + variant;
+		String tag = DigestUtils.md5DigestAsHex(state.getBytes(StandardCharsets.UTF_8));
+		// No Last-Modified: deleting a row would not move it forward.
+		return new ResourceVersion("W/\"" + tag + "\"", -1L);
+	}
+
+	private String entityName(Class<?> type) {
+		return entityManager.getMetamodel().entity(type).getName();
+	}
+
+	private static long millis(Date date) {
+		return date != null ? date.getTime() : -1L;
+	}
+}
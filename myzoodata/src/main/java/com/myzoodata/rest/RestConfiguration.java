@@ -0,0 +1,33 @@
+package com.myzoodata.rest;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.embedded.FilterRegistrationBean;
+import org.springframework.context.ApplicationContext;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.Ordered;
+
+@Configuration
+class RestConfiguration {
+
+	@Bean
+	FilterRegistrationBean conditionalGetFilter(ApplicationContext applicationContext, ResourceVersions versions) {
+		FilterRegistrationBean registration = new FilterRegistrationBean(
+				new ConditionalGetFilter(applicationContext, versions));
+		registration.addUrlPatterns("/*");
+		// Ahead of the fast collections, which answer without calling the chain.
+		registration.setOrder(Ordered.LOWEST_PRECEDENCE - 10);
+		return registration;
+	}
+
+	@Bean
+	@ConditionalOnProperty("myzoodata.rest.fast-collections")
+	FilterRegistrationBean fastCollectionFilter(ApplicationContext applicationContext, CollectionPages pages) {
+		FilterRegistrationBean registration = new FilterRegistrationBean(new FastCollectionFilter(applicationContext,
+				pages, new AnimalCollectionSerializer(), new OwnerCollectionSerializer(),
+				new TreatmentCollectionSerializer()));
+		registration.addUrlPatterns("/*");
+		registration.setOrder(Ordered.LOWEST_PRECEDENCE);
+		return registration;
+	}
+}
@@ -0,0 +1,36 @@
+package com.myzoodata.rest;
+
+import java.io.IOException;
+import java.util.Date;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.SerializableString;
+import com.fasterxml.jackson.core.io.SerializedString;
+
+/**
+ * Writes the {@code treatments} collection.
+ */
+class TreatmentCollectionSerializer extends CollectionSerializer {
+
+	private static final SerializableString TYPE = new SerializedString("type");
+	private static final SerializableString DUE_DATE = new SerializedString("dueDate");
+	private static final SerializableString COMPLETED = new SerializedString("completed");
+	private static final SerializableString NOTES = new SerializedString("notes");
+	private static final SerializableString NOTIFIED_AT = new SerializedString("notifiedAt");
+
+	TreatmentCollectionSerializer() {
+		super("treatments", "Treatment", "treatment", true,
+				new String[] { "type", "dueDate", "completed", "notes", "notifiedAt" }, "animal");
+	}
+
+	@Override
+	protected void writeProperties(JsonGenerator generator, Object[] row, char[] buffer) throws IOException {
+		// The enum's name, as Jackson writes it.
+		writeString(generator, TYPE, row[2] != null ? ((Enum<?>) row[2]).name() : null);
+		writeTimestamp(generator, DUE_DATE, (Date) row[3], buffer);
+		generator.writeFieldName(COMPLETED);
+		generator.writeBoolean((Boolean) row[4]);
+		writeString(generator, NOTES, row[5]);
+		writeTimestamp(generator, NOTIFIED_AT, (Date) row[6], buffer);
+	}
+}
@@ -0,0 +1,26 @@
+package com.myzoodata.scheduling;
+
+import java.util.List;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+/**
+ * Writes the reminders to the log, used when there is no other
+ * {@link ReminderHandler}.
+ */
+class LoggingReminderHandler implements ReminderHandler {
+
+	private static final Log LOGGER = LogFactory.getLog(LoggingReminderHandler.class);
+
+	@Override
+	public void remind(List<Reminder> reminders) {
+		LOGGER.info(reminders.size() + " treatment(s) due.");
+		if (LOGGER.isDebugEnabled()) {
+			for (Reminder reminder : reminders) {
+				LOGGER.debug(reminder.getType() + " of animal " + reminder.getAnimalId() + " due at "
+						+ reminder.getDueDate() + " (treatment " + reminder.getTreatmentId() + ").");
+			}
+		}
+	}
+}
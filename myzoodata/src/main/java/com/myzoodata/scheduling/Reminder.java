@@ -0,0 +1,45 @@
+package com.myzoodata.scheduling;
+
+import java.util.Date;
+
+import com.myzoodata.domain.TreatmentType;
+
+/**
+ * A treatment which has fallen due.
+ */
+public final class Reminder {
+
+	private final long treatmentId;
+	private final long animalId;
+	private final TreatmentType type;
+	private final Date dueDate;
+	private final String notes;
+
+	public Reminder(long treatmentId, long animalId, TreatmentType type, Date dueDate, String notes) {
+		this.treatmentId = treatmentId;
+		this.animalId = animalId;
+		this.type = type;
+		this.dueDate = dueDate;
+		this.notes = notes;
+	}
+
+	public long getTreatmentId() {
+		return treatmentId;
+	}
+
+	public long getAnimalId() {
+		return animalId;
+	}
+
+	public TreatmentType getType() {
+		return type;
+	}
+
+	public Date getDueDate() {
+		return dueDate;
+	}
+
+	public String getNotes() {
+		return notes;
+	}
+}
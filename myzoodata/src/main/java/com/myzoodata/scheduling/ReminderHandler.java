@@ -0,0 +1,17 @@
+package com.myzoodata.scheduling;
+
+import java.util.List;
+
+/**
+ * Delivers the reminders of the treatments which have fallen due. Define a
+ * bean of this type to replace the default one, which only logs them.
+ * <p>
+ * The treatments are marked as notified before the handler is called, so
+ * a reminder is not delivered twice even if the service is restarted. If
+ * the handler throws an exception, the marks are taken back and the whole
+ * batch is handed over again later.
+ */
+public interface ReminderHandler {
+
+	void remind(List<Reminder> reminders);
+}
@@ -0,0 +1,35 @@
+package com.myzoodata.scheduling;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+import org.springframework.boot.actuate.endpoint.PublicMetrics;
+import org.springframework.boot.actuate.metrics.Metric;
+
+/**
+ * Publishes how far behind the reminders are and how many are waiting.
+ */
+class ReminderMetrics implements PublicMetrics {
+
+	private final ReminderScheduler scheduler;
+
+	ReminderMetrics(ReminderScheduler scheduler) {
+		this.scheduler = scheduler;
+	}
+
+	@Override
+	public Collection<Metric<?>> metrics() {
+		List<Metric<?>> metrics = new ArrayList<>();
+		metrics.add(new Metric<Number>("reminders.scheduled", scheduler.getScheduledCount()));
+		metrics.add(new Metric<Number>("reminders.window", scheduler.getWindowEndMillis() - System.currentTimeMillis()));
+		metrics.add(new Metric<Number>("reminders.backlog", scheduler.getBacklog()));
+		metrics.add(new Metric<Number>("reminders.backlog.age", scheduler.getBacklogAgeMillis()));
+		metrics.add(new Metric<Number>("reminders.lag", scheduler.getLastLagMillis()));
+		metrics.add(new Metric<Number>("reminders.lag.max", scheduler.getMaxLagMillis()));
+		metrics.add(new Metric<Number>("reminders.dispatched", scheduler.getDispatchedCount()));
+		metrics.add(new Metric<Number>("reminders.skipped", scheduler.getSkippedCount()));
+		metrics.add(new Metric<Number>("reminders.failed", scheduler.getFailedCount()));
+		return metrics;
+	}
+}
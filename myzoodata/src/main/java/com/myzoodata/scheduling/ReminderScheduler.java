@@ -0,0 +1,536 @@
+package com.myzoodata.scheduling;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.persistence.EntityManager;
+import javax.persistence.LockModeType;
+import javax.persistence.PersistenceContext;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.myzoodata.domain.EntityChangedEvent;
+import com.myzoodata.domain.Treatment;
+import com.myzoodata.sharding.ShardCallback;
+import com.myzoodata.sharding.ShardTemplate;
+
+/**
+ * Hands the treatments which fall due over to the {@link ReminderHandler}.
+ * <p>
+ * Instead of asking the database for due treatments every time, the open
+ * treatments of the next {@link SchedulingProperties#getWindow() window}
+ * are read ahead in order of their due date and wait in a
+ * {@link TimingWheel}. Whatever is read last marks the end of the window,
+ * and committed changes of treatments up to there are applied to the wheel
+ * as they happen. Changes committed while the next part of the window is
+ * read are applied once more afterwards, so the reads cannot undo them.
+ * <p>
+ * The wheel is only a schedule: a due treatment is locked and marked as
+ * notified first, which skips it if it has meanwhile been completed, moved
+ * or notified by another instance. Marked treatments are never read again,
+ * so a restart does not send the same reminder twice. The reverse is
+ * possible, a crash between the mark and the handler loses the reminders of
+ * that batch. The marks are changes of the entities like any other, so the
+ * {@link EntityChangedEvent}s tell the rest of the service about them.
+ */
+public class ReminderScheduler implements DisposableBean {
+
+	private static final Log LOGGER = LogFactory.getLog(ReminderScheduler.class);
+
+	private static final String UPCOMING_QUERY = "select t.id, t.dueDate from Treatment t"
+			+ " where t.completed = false and t.notifiedAt is null and t.dueDate < :until"
+			+ " and (t.dueDate > :afterDueDate or (t.dueDate = :afterDueDate and t.id > :afterId))"
+			+ " order by t.dueDate, t.id";
+
+	private static final String CLAIM_QUERY = "select t, t.animal.id from Treatment t"
+			+ " where t.id in :ids and t.completed = false and t.notifiedAt is null and t.dueDate <= :now";
+
+	private static final String NOTIFIED_QUERY = "select t from Treatment t"
+			+ " where t.id in :ids and t.notifiedAt is not null";
+
+	// The order of the upcoming query, for merging the rows of the shards.
+	private static final Comparator<Object[]> DUE_ORDER = new Comparator<Object[]>() {
+		@Override
+		public int compare(Object[] a, Object[] b) {
+			int order = ((Date) a[1]).compareTo((Date) b[1]);
+			return order != 0 ? order : Long.compare((Long) a[0], (Long) b[0]);
+		}
+	};
+
+	@PersistenceContext
+	private EntityManager entityManager;
+
+	// Not read-only: a replica could still miss treatments whose change has
+	// already been applied to the wheel.
+	private final TransactionTemplate transaction;
+
+	private final ShardTemplate shardTemplate;
+
+	private final ReminderHandler handler;
+	private final long windowMillis;
+	private final int capacity;
+	private final int batchSize;
+	private final long retryDelayMillis;
+
+	// Guarded by this.
+	private final TimingWheel<Long> wheel;
+	private final Map<Long, TimingWheel.Entry<Long>> entries = new HashMap<>();
+
+	// Guarded by this. The last treatment read in due date order, every open
+	// treatment up to it is in the wheel.
+	private Date loadedDueDate = new Date(0L);
+	private long loadedId;
+
+	// Guarded by this. Not null while the window is extended.
+	private List<Change> pendingChanges;
+
+	// Only used by the scheduler thread.
+	private long nextLoadMillis;
+
+	private volatile int backlog;
+	private volatile long oldestBacklogDeadline;
+	private volatile long lastLagMillis;
+	private final AtomicLong maxLagMillis = new AtomicLong();
+	private final AtomicLong dispatched = new AtomicLong();
+	private final AtomicLong skipped = new AtomicLong();
+	private final AtomicLong failed = new AtomicLong();
+
+	private ScheduledExecutorService executor;
+
+	public ReminderScheduler(PlatformTransactionManager transactionManager, ShardTemplate shardTemplate,
+			ReminderHandler handler, SchedulingProperties properties) {
+		this.transaction = new TransactionTemplate(transactionManager);
+		this.shardTemplate = shardTemplate;
+		this.handler = handler;
+		this.windowMillis = properties.getWindow();
+		this.capacity = properties.getCapacity();
+		this.batchSize = properties.getBatchSize();
+		this.retryDelayMillis = properties.getRetryDelay();
+		this.wheel = new TimingWheel<>(properties.getTick(), System.currentTimeMillis());
+	}
+
+	@EventListener
+	public void onApplicationReady(ApplicationReadyEvent event) {
+		synchronized (this) {
+			if (executor != null) {
+				return;
+			}
+			executor = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+				@Override
+				public Thread newThread(Runnable task) {
+					Thread thread = new Thread(task, "reminder-scheduler");
+					thread.setDaemon(true);
+					return thread;
+				}
+			});
+		}
+		executor.scheduleWithFixedDelay(new Runnable() {
+			@Override
+			public void run() {
+				try {
+					tick(System.currentTimeMillis());
+				} catch (RuntimeException ex) {
+					LOGGER.error("Failed to dispatch the due treatments.", ex);
+				}
+			}
+		}, 0L, wheel.getTickMillis(), TimeUnit.MILLISECONDS);
+	}
+
+	@Override
+	public void destroy() throws InterruptedException {
+		ScheduledExecutorService executor;
+		synchronized (this) {
+			executor = this.executor;
+		}
+		if (executor != null) {
+			// Let a running batch finish, its treatments are already marked.
+			executor.shutdown();
+			executor.awaitTermination(10L, TimeUnit.SECONDS);
+		}
+	}
+
+	@TransactionalEventListener(fallbackExecution = true)
+	public void onEntityChanged(EntityChangedEvent event) {
+		if (!(event.getEntity() instanceof Treatment)) {
+			return;
+		}
+		Treatment treatment = (Treatment) event.getEntity();
+		boolean open = event.getType() != EntityChangedEvent.Type.DELETED && !treatment.isCompleted()
+				&& treatment.getNotifiedAt() == null;
+		apply(new Change(treatment.getId(), open ? treatment.getDueDate() : null));
+	}
+
+	/**
+	 * Reads ahead if the window runs out and dispatches whatever has fallen
+	 * due.
+	 */
+	void tick(long now) {
+		if (now >= nextLoadMillis) {
+			try {
+				extendWindow(now);
+			} catch (RuntimeException ex) {
+				LOGGER.error("Failed to read the upcoming treatments.", ex);
+				nextLoadMillis = now + retryDelayMillis;
+			}
+		}
+
+		List<TimingWheel.Entry<Long>> due;
+		synchronized (this) {
+			due = wheel.advance(now);
+			for (TimingWheel.Entry<Long> entry : due) {
+				entries.remove(entry.getTask(), entry);
+			}
+		}
+		for (int from = 0; from < due.size(); from += batchSize) {
+			backlog = due.size() - from;
+			oldestBacklogDeadline = due.get(from).getDeadlineMillis();
+			dispatch(due.subList(from, Math.min(from + batchSize, due.size())));
+		}
+		backlog = 0;
+	}
+
+	/**
+	 * Reads the open treatments following the last one read, up to the end
+	 * of the window or until the wheel is full.
+	 */
+	private void extendWindow(long now) {
+		final Date until = new Date(now + windowMillis);
+		Date afterDueDate;
+		long afterId;
+		int room;
+		synchronized (this) {
+			room = capacity - entries.size();
+			if (loadedDueDate.getTime() - now >= windowMillis / 2 || room <= 0) {
+				return;
+			}
+			afterDueDate = loadedDueDate;
+			afterId = loadedId;
+			pendingChanges = new ArrayList<>();
+		}
+
+		try {
+			List<Object[]> rows = new ArrayList<>();
+			boolean complete = false;
+			int limit;
+			while ((limit = Math.min(batchSize, room - rows.size())) > 0) {
+				List<Object[]> page = readUpcoming(until, afterDueDate, afterId, limit);
+				rows.addAll(page);
+				if (page.size() < limit) {
+					complete = true;
+					break;
+				}
+				Object[] last = page.get(page.size() - 1);
+				afterDueDate = (Date) last[1];
+				afterId = (Long) last[0];
+			}
+
+			synchronized (this) {
+				// Moved on first, the rows only count as read up to there.
+				if (complete) {
+					loadedDueDate = until;
+					loadedId = 0L;
+				} else {
+					loadedDueDate = afterDueDate;
+					loadedId = afterId;
+				}
+				for (Object[] row : rows) {
+					schedule((Long) row[0], (Date) row[1]);
+				}
+				for (Change change : pendingChanges) {
+					change.apply();
+				}
+				if (LOGGER.isDebugEnabled()) {
+					LOGGER.debug("Read " + rows.size() + " upcoming treatment(s), " + entries.size()
+							+ " scheduled until " + loadedDueDate + ".");
+				}
+			}
+		} finally {
+			synchronized (this) {
+				pendingChanges = null;
+			}
+		}
+	}
+
+	/**
+	 * Reads the next open treatments of every shard and keeps the first ones
+	 * of them all, so the window moves on in due date order across the
+	 * shards.
+	 */
+	private List<Object[]> readUpcoming(final Date until, final Date afterDueDate, final long afterId,
+			final int limit) {
+		final TransactionCallback<List<Object[]>> query = new TransactionCallback<List<Object[]>>() {
+			@Override
+			public List<Object[]> doInTransaction(TransactionStatus status) {
+				return entityManager.createQuery(UPCOMING_QUERY, Object[].class)
+						.setParameter("until", until)
+						.setParameter("afterDueDate", afterDueDate)
+						.setParameter("afterId", afterId)
+						.setMaxResults(limit)
+						.getResultList();
+			}
+		};
+		final List<Object[]> rows = new ArrayList<>();
+		shardTemplate.forEachShard(new ShardCallback<Void>() {
+			@Override
+			public Void doInShard(String shard) {
+				rows.addAll(transaction.execute(query));
+				return null;
+			}
+		});
+		if (shardTemplate.getShardNames().size() > 1) {
+			Collections.sort(rows, DUE_ORDER);
+			if (rows.size() > limit) {
+				return new ArrayList<>(rows.subList(0, limit));
+			}
+		}
+		return rows;
+	}
+
+	private void dispatch(List<TimingWheel.Entry<Long>> batch) {
+		Map<String, List<TimingWheel.Entry<Long>>> byShard = new LinkedHashMap<>();
+		for (TimingWheel.Entry<Long> entry : batch) {
+			String shard = shardTemplate.shardOfId(entry.getTask());
+			List<TimingWheel.Entry<Long>> group = byShard.get(shard);
+			if (group == null) {
+				group = new ArrayList<>();
+				byShard.put(shard, group);
+			}
+			group.add(entry);
+		}
+		for (Map.Entry<String, List<TimingWheel.Entry<Long>>> group : byShard.entrySet()) {
+			dispatch(group.getKey(), group.getValue());
+		}
+	}
+
+	/**
+	 * Marks the due treatments of a shard as notified and hands them over.
+	 * Treatments which could not be marked or handed over go back into the
+	 * wheel.
+	 */
+	private void dispatch(String shard, List<TimingWheel.Entry<Long>> batch) {
+		final List<Long> ids = new ArrayList<>(batch.size());
+		for (TimingWheel.Entry<Long> entry : batch) {
+			ids.add(entry.getTask());
+		}
+		final Date now = new Date();
+
+		final TransactionCallback<List<Reminder>> claim = new TransactionCallback<List<Reminder>>() {
+			@Override
+			public List<Reminder> doInTransaction(TransactionStatus status) {
+				List<Object[]> rows = entityManager.createQuery(CLAIM_QUERY, Object[].class)
+						.setParameter("ids", ids)
+						.setParameter("now", now)
+						.setLockMode(LockModeType.PESSIMISTIC_WRITE)
+						.getResultList();
+				List<Reminder> claimed = new ArrayList<>(rows.size());
+				for (Object[] row : rows) {
+					Treatment treatment = (Treatment) row[0];
+					treatment.markNotified(now);
+					claimed.add(new Reminder(treatment.getId(), (Long) row[1], treatment.getType(),
+							treatment.getDueDate(), treatment.getNotes()));
+				}
+				return claimed;
+			}
+		};
+		List<Reminder> reminders;
+		try {
+			reminders = shardTemplate.execute(shard, new ShardCallback<List<Reminder>>() {
+				@Override
+				public List<Reminder> doInShard(String shard) {
+					return transaction.execute(claim);
+				}
+			});
+		} catch (RuntimeException ex) {
+			LOGGER.error("Failed to mark " + ids.size() + " due treatment(s) as notified.", ex);
+			retry(ids);
+			return;
+		}
+		skipped.addAndGet(ids.size() - reminders.size());
+		if (reminders.isEmpty()) {
+			return;
+		}
+
+		try {
+			handler.remind(reminders);
+		} catch (RuntimeException ex) {
+			LOGGER.error("Failed to deliver " + reminders.size() + " reminder(s).", ex);
+			failed.addAndGet(reminders.size());
+			unmark(shard, treatmentIds(reminders));
+			return;
+		}
+		dispatched.addAndGet(reminders.size());
+
+		long lag = System.currentTimeMillis() - batch.get(0).getDeadlineMillis();
+		lastLagMillis = lag;
+		long max;
+		while (lag > (max = maxLagMillis.get()) && !maxLagMillis.compareAndSet(max, lag)) {
+			// Retry until the maximum is at least the lag.
+		}
+	}
+
+	private void unmark(String shard, final List<Long> ids) {
+		final TransactionCallback<Void> update = new TransactionCallback<Void>() {
+			@Override
+			public Void doInTransaction(TransactionStatus status) {
+				List<Treatment> treatments = entityManager.createQuery(NOTIFIED_QUERY, Treatment.class)
+						.setParameter("ids", ids)
+						.setLockMode(LockModeType.PESSIMISTIC_WRITE)
+						.getResultList();
+				for (Treatment treatment : treatments) {
+					treatment.unmarkNotified();
+				}
+				return null;
+			}
+		};
+		try {
+			shardTemplate.execute(shard, new ShardCallback<Void>() {
+				@Override
+				public Void doInShard(String shard) {
+					return transaction.execute(update);
+				}
+			});
+		} catch (RuntimeException ex) {
+			// They stay marked and will not be sent.
+			LOGGER.error("Failed to unmark " + ids.size() + " treatment(s), their reminders are lost.", ex);
+			return;
+		}
+		retry(ids);
+	}
+
+	private synchronized void retry(List<Long> ids) {
+		long deadline = System.currentTimeMillis() + retryDelayMillis;
+		for (Long id : ids) {
+			// Unmarking schedules the treatment at its due date again, which
+			// has passed. Only a change moving it further is kept.
+			TimingWheel.Entry<Long> entry = entries.get(id);
+			if (entry == null || entry.getDeadlineMillis() < deadline) {
+				if (entry != null) {
+					entry.cancel();
+				}
+				entries.put(id, wheel.schedule(id, deadline));
+			}
+		}
+	}
+
+	private synchronized void apply(Change change) {
+		change.apply();
+		if (pendingChanges != null) {
+			pendingChanges.add(change);
+		}
+	}
+
+	private void schedule(Long id, Date dueDate) {
+		TimingWheel.Entry<Long> previous = entries.remove(id);
+		if (previous != null) {
+			previous.cancel();
+		}
+		if (dueDate != null && isLoaded(id, dueDate)) {
+			entries.put(id, wheel.schedule(id, dueDate.getTime()));
+		}
+	}
+
+	private boolean isLoaded(long id, Date dueDate) {
+		int order = dueDate.compareTo(loadedDueDate);
+		return order < 0 || (order == 0 && id <= loadedId);
+	}
+
+	private static List<Long> treatmentIds(List<Reminder> reminders) {
+		List<Long> ids = new ArrayList<>(reminders.size());
+		for (Reminder reminder : reminders) {
+			ids.add(reminder.getTreatmentId());
+		}
+		return ids;
+	}
+
+	/**
+	 * Returns the number of upcoming treatments in memory.
+	 */
+	public synchronized int getScheduledCount() {
+		return entries.size();
+	}
+
+	/**
+	 * Returns the time up to which the upcoming treatments are in memory.
+	 */
+	public synchronized long getWindowEndMillis() {
+		return loadedDueDate.getTime();
+	}
+
+	/**
+	 * Returns the number of due treatments waiting to be handed over.
+	 */
+	public int getBacklog() {
+		return backlog;
+	}
+
+	/**
+	 * Returns how long the oldest due treatment has been waiting to be
+	 * handed over, zero without any.
+	 */
+	public long getBacklogAgeMillis() {
+		return backlog > 0 ? Math.max(0L, System.currentTimeMillis() - oldestBacklogDeadline) : 0L;
+	}
+
+	/**
+	 * Returns how late the last batch was handed over, measured from the
+	 * earliest due date in it.
+	 */
+	public long getLastLagMillis() {
+		return lastLagMillis;
+	}
+
+	public long getMaxLagMillis() {
+		return maxLagMillis.get();
+	}
+
+	public long getDispatchedCount() {
+		return dispatched.get();
+	}
+
+	/**
+	 * Returns the number of due treatments which turned out to be completed,
+	 * moved or already notified.
+	 */
+	public long getSkippedCount() {
+		return skipped.get();
+	}
+
+	public long getFailedCount() {
+		return failed.get();
+	}
+
+	private final class Change {
+
+		private final long id;
+		private final Date dueDate;
+
+		Change(long id, Date dueDate) {
+			this.id = id;
+			this.dueDate = dueDate;
+		}
+
+		void apply() {
+			schedule(id, dueDate);
+		}
+	}
+}
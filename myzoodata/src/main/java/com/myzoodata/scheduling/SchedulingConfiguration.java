@@ -0,0 +1,31 @@
+package com.myzoodata.scheduling;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import com.myzoodata.sharding.ShardTemplate;
+
+@Configuration
+@ConditionalOnProperty(name = "myzoodata.scheduling.enabled", matchIfMissing = true)
+@EnableConfigurationProperties(SchedulingProperties.class)
+class SchedulingConfiguration {
+
+	@Autowired(required = false)
+	private ReminderHandler reminderHandler;
+
+	@Bean
+	ReminderScheduler reminderScheduler(PlatformTransactionManager transactionManager, ShardTemplate shardTemplate,
+			SchedulingProperties properties) {
+		return new ReminderScheduler(transactionManager, shardTemplate,
+				reminderHandler != null ? reminderHandler : new LoggingReminderHandler(), properties);
+	}
+
+	@Bean
+	ReminderMetrics reminderMetrics(ReminderScheduler reminderScheduler) {
+		return new ReminderMetrics(reminderScheduler);
+	}
+}
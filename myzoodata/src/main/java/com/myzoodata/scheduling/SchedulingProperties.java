@@ -0,0 +1,89 @@
+package com.myzoodata.scheduling;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+@ConfigurationProperties(prefix = "myzoodata.scheduling")
+public class SchedulingProperties {
+
+	private boolean enabled = true;
+
+	private long tick = 1000L;
+
+	private long window = 3600000L;
+
+	private int capacity = 200000;
+
+	private int batchSize = 500;
+
+	private long retryDelay = 60000L;
+
+	/**
+	 * Whether reminders of due treatments are sent.
+	 */
+	public boolean isEnabled() {
+		return enabled;
+	}
+
+	public void setEnabled(boolean enabled) {
+		this.enabled = enabled;
+	}
+
+	/**
+	 * Milliseconds between two checks for due treatments.
+	 */
+	public long getTick() {
+		return tick;
+	}
+
+	public void setTick(long tick) {
+		this.tick = tick;
+	}
+
+	/**
+	 * Milliseconds of upcoming treatments to keep in memory. Half of it is
+	 * read ahead again whenever the rest is about to run out.
+	 */
+	public long getWindow() {
+		return window;
+	}
+
+	public void setWindow(long window) {
+		this.window = window;
+	}
+
+	/**
+	 * Maximum number of upcoming treatments in memory. The window is cut
+	 * short when it holds more.
+	 */
+	public int getCapacity() {
+		return capacity;
+	}
+
+	public void setCapacity(int capacity) {
+		this.capacity = capacity;
+	}
+
+	/**
+	 * Maximum number of reminders handed over at once, also the page size of
+	 * the reads.
+	 */
+	public int getBatchSize() {
+		return batchSize;
+	}
+
+	public void setBatchSize(int batchSize) {
+		this.batchSize = batchSize;
+	}
+
+	/**
+	 * Milliseconds to wait before retrying after the database or the
+	 * reminder handler failed.
+	 */
+	public long getRetryDelay() {
+		return retryDelay;
+	}
+
+	public void setRetryDelay(long retryDelay) {
+		this.retryDelay = retryDelay;
+	}
+}
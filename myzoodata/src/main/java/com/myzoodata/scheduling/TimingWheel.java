@@ -0,0 +1,290 @@
+package com.myzoodata.scheduling;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Hierarchical timing wheel holding tasks until their deadline.
+ * <p>
+ * Time is divided into ticks. The lowest level has a slot for each of the
+ * next 64 ticks, every further level has 64 slots which are each as long as
+ * the whole level below. A task goes into the lowest level which reaches
+ * its deadline and is moved down a level whenever the level below has gone
+ * round once, so scheduling, cancelling and expiring a task all take
+ * constant time regardless of how many tasks are waiting. Deadlines beyond
+ * the highest level wait in its last slot and are placed again when that
+ * slot comes round.
+ * <p>
+ * A task never expires before its deadline, but up to a tick later. Tasks
+ * which are scheduled with a deadline that has already passed expire on the
+ * next {@link #advance}.
+ * <p>
+ * Not thread-safe.
+ */
+public class TimingWheel<T> {
+
+	private static final int LEVELS = 4;
+
+	private static final int SLOT_BITS = 6;
+
+	private static final int SLOTS = 1 << SLOT_BITS;
+
+	private static final int SLOT_MASK = SLOTS - 1;
+
+	private static final long MAX_DELTA = (1L << (LEVELS * SLOT_BITS)) - 1;
+
+	private final long tickMillis;
+
+	private final Slot<T>[][] slots;
+
+	private final int[] counts = new int[LEVELS];
+
+	// The tasks which were scheduled after their deadline had passed.
+	private final Slot<T> expired = new Slot<>(-1);
+
+	// The next tick to expire.
+	private long currentTick;
+
+	private int size;
+
+	@SuppressWarnings("unchecked")
+	public TimingWheel(long tickMillis, long startMillis) {
+		if (tickMillis <= 0) {
+			throw new IllegalArgumentException("The tick must be positive.");
+		}
+		this.tickMillis = tickMillis;
+		this.slots = new Slot[LEVELS][SLOTS];
+		for (int level = 0; level < LEVELS; level++) {
+			for (int slot = 0; slot < SLOTS; slot++) {
+				slots[level][slot] = new Slot<>(level);
+			}
+		}
+		this.currentTick = startMillis / tickMillis;
+	}
+
+	public long getTickMillis() {
+		return tickMillis;
+	}
+
+	/**
+	 * Returns the number of scheduled tasks.
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Schedules a task to expire at the given time.
+	 *
+	 * @return the entry of the task, which can be used to cancel it
+	 */
+	public Entry<T> schedule(T task, long deadlineMillis) {
+		// Rounded up, so the task cannot expire before its deadline.
+		long tick = deadlineMillis / tickMillis + (deadlineMillis % tickMillis > 0 ? 1 : 0);
+		Entry<T> entry = new Entry<>(this, task, deadlineMillis, tick);
+		place(entry);
+		size++;
+		return entry;
+	}
+
+	/**
+	 * Moves the wheel forward to the given time.
+	 *
+	 * @return the entries which expired, earliest deadline first up to the
+	 * precision of a tick
+	 */
+	public List<Entry<T>> advance(long nowMillis) {
+		List<Entry<T>> result = new ArrayList<>();
+		expired.drainTo(result);
+
+		long targetTick = nowMillis / tickMillis;
+		while (currentTick <= targetTick) {
+			if ((currentTick & SLOT_MASK) == 0) {
+				cascade();
+			}
+			Slot<T> slot = slots[0][(int) (currentTick & SLOT_MASK)];
+			counts[0] -= slot.drainTo(result);
+			currentTick++;
+			skipEmptyTicks(targetTick);
+		}
+		size -= result.size();
+		return result;
+	}
+
+	private void place(Entry<T> entry) {
+		long delta = entry.tick - currentTick;
+		if (delta < 0) {
+			expired.add(entry);
+			return;
+		}
+		long tick = delta > MAX_DELTA ? currentTick + MAX_DELTA : entry.tick;
+		delta = tick - currentTick;
+		int level = 0;
+		while (level < LEVELS - 1 && delta >= (1L << ((level + 1) * SLOT_BITS))) {
+			level++;
+		}
+		slots[level][(int) ((tick >>> (level * SLOT_BITS)) & SLOT_MASK)].add(entry);
+		counts[level]++;
+	}
+
+	/**
+	 * Moves the slots of the higher levels which start at the current tick
+	 * down to the lower levels.
+	 */
+	private void cascade() {
+		List<Entry<T>> entries = new ArrayList<>();
+		for (int level = 1; level < LEVELS; level++) {
+			int index = (int) ((currentTick >>> (level * SLOT_BITS)) & SLOT_MASK);
+			counts[level] -= slots[level][index].drainTo(entries);
+			if (index != 0) {
+				break;
+			}
+		}
+		for (Entry<T> entry : entries) {
+			place(entry);
+		}
+	}
+
+	/**
+	 * Jumps over the ticks in which nothing can happen: while the lowest
+	 * levels are empty, the next thing to do is the cascade from the first
+	 * level which is not.
+	 */
+	private void skipEmptyTicks(long targetTick) {
+		int level = 0;
+		while (level < LEVELS && counts[level] == 0) {
+			level++;
+		}
+		if (level == 0) {
+			return;
+		}
+		if (level == LEVELS) {
+			currentTick = Math.max(currentTick, targetTick + 1);
+			return;
+		}
+		long span = 1L << (level * SLOT_BITS);
+		long next = (currentTick + span - 1) & -span;
+		currentTick = Math.min(next, targetTick + 1);
+	}
+
+	/**
+	 * A scheduled task.
+	 */
+	public static final class Entry<T> {
+
+		private final TimingWheel<T> wheel;
+
+		private final T task;
+
+		private final long deadlineMillis;
+
+		private final long tick;
+
+		private Slot<T> slot;
+
+		private Entry<T> previous;
+
+		private Entry<T> next;
+
+		private Entry(TimingWheel<T> wheel, T task, long deadlineMillis, long tick) {
+			this.wheel = wheel;
+			this.task = task;
+			this.deadlineMillis = deadlineMillis;
+			this.tick = tick;
+		}
+
+		public T getTask() {
+			return task;
+		}
+
+		public long getDeadlineMillis() {
+			return deadlineMillis;
+		}
+
+		/**
+		 * Returns whether the task is still waiting in the wheel.
+		 */
+		public boolean isScheduled() {
+			return slot != null;
+		}
+
+		/**
+		 * Removes the task from the wheel.
+		 *
+		 * @return {@code false} if the task had already expired or been
+		 * cancelled
+		 */
+		public boolean cancel() {
+			if (slot == null) {
+				return false;
+			}
+			if (slot.level >= 0) {
+				wheel.counts[slot.level]--;
+			}
+			slot.remove(this);
+			wheel.size--;
+			return true;
+		}
+	}
+
+	/**
+	 * Doubly linked list of the entries in a slot.
+	 */
+	private static final class Slot<T> {
+
+		private final int level;
+
+		private Entry<T> head;
+
+		private Entry<T> tail;
+
+		Slot(int level) {
+			this.level = level;
+		}
+
+		void add(Entry<T> entry) {
+			entry.slot = this;
+			entry.previous = tail;
+			entry.next = null;
+			if (tail == null) {
+				head = entry;
+			} else {
+				tail.next = entry;
+			}
+			tail = entry;
+		}
+
+		void remove(Entry<T> entry) {
+			if (entry.previous == null) {
+				head = entry.next;
+			} else {
+				entry.previous.next = entry.next;
+			}
+			if (entry.next == null) {
+				tail = entry.previous;
+			} else {
+				entry.next.previous = entry.previous;
+			}
+			entry.slot = null;
+			entry.previous = null;
+			entry.next = null;
+		}
+
+		int drainTo(List<Entry<T>> result) {
+			int count = 0;
+			Entry<T> entry = head;
+			while (entry != null) {
+				Entry<T> next = entry.next;
+				entry.slot = null;
+				entry.previous = null;
+				entry.next = null;
+				result.add(entry);
+				count++;
+				entry = next;
+			}
+			head = null;
+			tail = null;
+			return count;
+		}
+	}
+}
@@ -0,0 +1,45 @@
+package com.myzoodata.search;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Splits text into lower case terms at every character which is neither a
+ * letter nor a digit, dropping accents, so that "Bolyhos Úrfi" and
+ * "bolyhos urfi" produce the same terms.
+ */
+final class Analyzer {
+
+	static final int MAX_TERM_LENGTH = 64;
+
+	private Analyzer() {
+	}
+
+	static List<String> terms(String text) {
+		List<String> result = new ArrayList<>();
+		if (text == null || text.isEmpty()) {
+			return result;
+		}
+		String normalized = Normalizer.normalize(text, Normalizer.Form.NFD).toLowerCase(Locale.ROOT);
+		StringBuilder term = new StringBuilder();
+		for (int i = 0; i < normalized.length(); i++) {
+			char c = normalized.charAt(i);
+			if (Character.isLetterOrDigit(c)) {
+				term.append(c);
+			} else if (Character.getType(c) != Character.NON_SPACING_MARK) {
+				addTerm(result, term);
+			}
+		}
+		addTerm(result, term);
+		return result;
+	}
+
+	private static void addTerm(List<String> terms, StringBuilder term) {
+		if (term.length() > 0 && term.length() <= MAX_TERM_LENGTH) {
+			terms.add(term.toString());
+		}
+		term.setLength(0);
+	}
+}
@@ -0,0 +1,14 @@
+package com.myzoodata.search;
+
+/**
+ * Thrown when the search index is asked to be rebuilt while a rebuild is
+ * already running.
+ */
+public class RebuildInProgressException extends IllegalStateException {
+
+	private static final long serialVersionUID = 1L;
+
+	RebuildInProgressException() {
+		super("The search index is already being rebuilt.");
+	}
+}
@@ -0,0 +1,43 @@
+package com.myzoodata.search;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.ResponseStatus;
+import org.springframework.web.bind.annotation.RestController;
+
+@RestController
+@RequestMapping("/search")
+class SearchController {
+
+	private static final int MAX_PAGE_SIZE = 100;
+
+	private final SearchService searchService;
+
+	@Autowired
+	SearchController(SearchService searchService) {
+		this.searchService = searchService;
+	}
+
+	@RequestMapping(method = RequestMethod.GET)
+	SearchResults search(@RequestParam("q") String query,
+			@RequestParam(value = "type", required = false) String type,
+			@RequestParam(value = "page", defaultValue = "0") int page,
+			@RequestParam(value = "size", defaultValue = "20") int size) {
+		return searchService.search(query, type, Math.max(0, page), Math.min(Math.max(1, size), MAX_PAGE_SIZE));
+	}
+
+	@RequestMapping(value = "/rebuild", method = RequestMethod.POST)
+	@ResponseStatus(HttpStatus.ACCEPTED)
+	void rebuild() {
+		searchService.startRebuild();
+	}
+
+	@ExceptionHandler(RebuildInProgressException.class)
+	@ResponseStatus(HttpStatus.CONFLICT)
+	void rebuildRunning() {
+	}
+}
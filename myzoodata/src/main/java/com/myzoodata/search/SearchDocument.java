@@ -0,0 +1,44 @@
+package com.myzoodata.search;
+
+/**
+ * The searchable content of an entity: a title, which is weighted higher
+ * and returned with the hits, and any further text.
+ */
+final class SearchDocument {
+
+	private final String type;
+	private final long id;
+	private final String title;
+	private final String text;
+
+	SearchDocument(String type, long id, String title, String text) {
+		this.type = type;
+		this.id = id;
+		this.title = title;
+		this.text = text;
+	}
+
+	static String key(String type, long id) {
+		return type + ':' + id;
+	}
+
+	String getKey() {
+		return key(type, id);
+	}
+
+	String getType() {
+		return type;
+	}
+
+	long getId() {
+		return id;
+	}
+
+	String getTitle() {
+		return title;
+	}
+
+	String getText() {
+		return text;
+	}
+}
@@ -0,0 +1,77 @@
+package com.myzoodata.search;
+
+import java.util.Locale;
+
+import com.myzoodata.domain.AbstractEntity;
+import com.myzoodata.domain.Animal;
+import com.myzoodata.domain.Owner;
+import com.myzoodata.domain.Treatment;
+
+/**
+ * Maps the entities to the documents of the search index.
+ */
+final class SearchDocuments {
+
+	static final String ANIMAL = "animal";
+	static final String OWNER = "owner";
+	static final String TREATMENT = "treatment";
+
+	private SearchDocuments() {
+	}
+
+	/**
+	 * Returns the index type of an entity, or {@code null} if the entity is
+	 * not searchable.
+	 */
+	static String typeOf(AbstractEntity entity) {
+		if (entity instanceof Animal) {
+			return ANIMAL;
+		}
+		if (entity instanceof Owner) {
+			return OWNER;
+		}
+		if (entity instanceof Treatment) {
+			return TREATMENT;
+		}
+		return null;
+	}
+
+	static SearchDocument of(AbstractEntity entity) {
+		if (entity instanceof Animal) {
+			Animal animal = (Animal) entity;
+			return animal(animal.getId(), animal.getName(), animal.getSpecies(), animal.getBreed(),
+					animal.getMicrochip());
+		}
+		if (entity instanceof Owner) {
+			Owner owner = (Owner) entity;
+			return owner(owner.getId(), owner.getName(), owner.getEmail());
+		}
+		if (entity instanceof Treatment) {
+			Treatment treatment = (Treatment) entity;
+			return treatment(treatment.getId(), treatment.getType().name(), treatment.getNotes());
+		}
+		return null;
+	}
+
+	static SearchDocument animal(long id, String name, String species, String breed, String microchip) {
+		return new SearchDocument(ANIMAL, id, name, join(species, breed, microchip));
+	}
+
+	static SearchDocument owner(long id, String name, String email) {
+		return new SearchDocument(OWNER, id, name, email);
+	}
+
+	static SearchDocument treatment(long id, String type, String notes) {
+		return new SearchDocument(TREATMENT, id, type.toLowerCase(Locale.ROOT), notes);
+	}
+
+	private static String join(String... parts) {
+		StringBuilder result = new StringBuilder();
+		for (String part : parts) {
+			if (part != null) {
+				result.append(part).append(' ');
+			}
+		}
+		return result.toString();
+	}
+}
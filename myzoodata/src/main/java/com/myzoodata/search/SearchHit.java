@@ -0,0 +1,32 @@
+package com.myzoodata.search;
+
+public final class SearchHit {
+
+	private final String type;
+	private final long id;
+	private final String title;
+	private final float score;
+
+	SearchHit(String type, long id, String title, float score) {
+		this.type = type;
+		this.id = id;
+		this.title = title;
+		this.score = score;
+	}
+
+	public String getType() {
+		return type;
+	}
+
+	public long getId() {
+		return id;
+	}
+
+	public String getTitle() {
+		return title;
+	}
+
+	public float getScore() {
+		return score;
+	}
+}
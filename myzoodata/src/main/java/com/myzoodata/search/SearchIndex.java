@@ -0,0 +1,606 @@
+package com.myzoodata.search;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * In-memory inverted index ranking documents with BM25.
+ * <p>
+ * Besides exact terms, a query term matches the terms it is a prefix of,
+ * the terms containing it (for at least three characters, through a
+ * trigram index) and the words within one typo of it (for at least four
+ * letters, through an index of the words with one character deleted).
+ * Those matches count less than an exact one. Each kind of match expands
+ * to a bounded number of terms, the ones in the most documents, and the
+ * results tell whether any were left out.
+ * <p>
+ * Documents get ascending internal numbers, so postings are only ever
+ * appended to. Removing or replacing a document leaves its postings behind
+ * until the index is compacted, which happens once there are more removed
+ * documents than live ones.
+ */
+final class SearchIndex {
+
+	private static final int TITLE_WEIGHT = 3;
+	private static final int MAX_EXPANSIONS = 4096;
+	private static final int MIN_COMPACTION_SIZE = 4096;
+
+	private static final float PREFIX_WEIGHT = 0.8f;
+	private static final float SUBSTRING_WEIGHT = 0.6f;
+	private static final float TYPO_WEIGHT = 0.5f;
+
+	private static final float K1 = 1.2f;
+	private static final float B = 0.75f;
+
+	private static final ThreadLocal<Accumulator> ACCUMULATORS = new ThreadLocal<Accumulator>() {
+		@Override
+		protected Accumulator initialValue() {
+			return new Accumulator();
+		}
+	};
+
+	private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+	private final Map<String, Integer> documentsByKey = new HashMap<>();
+	private StoredDocument[] documents = new StoredDocument[1024];
+	// The lengths of the documents by number, -1 once removed. Scoring only
+	// needs these, so it does not have to load the documents themselves.
+	private int[] lengths = new int[1024];
+	private int documentCount;
+	private int liveCount;
+	private long totalLength;
+
+	private final Map<String, Postings> postings = new HashMap<>();
+	private final NavigableSet<String> vocabulary = new TreeSet<>();
+	private final Map<String, List<String>> trigrams = new HashMap<>();
+	private final Map<String, List<String>> deletions = new HashMap<>();
+
+	/**
+	 * Adds a document, replacing the one with the same type and id.
+	 */
+	void put(SearchDocument document) {
+		Map<String, Integer> frequencies = new HashMap<>();
+		for (String term : Analyzer.terms(document.getTitle())) {
+			increment(frequencies, term, TITLE_WEIGHT);
+		}
+		for (String term : Analyzer.terms(document.getText())) {
+			increment(frequencies, term, 1);
+		}
+
+		lock.writeLock().lock();
+		try {
+			removeDocument(document.getKey());
+			int number = documentCount++;
+			if (number == documents.length) {
+				documents = Arrays.copyOf(documents, documents.length * 2);
+				lengths = Arrays.copyOf(lengths, lengths.length * 2);
+			}
+
+			int length = 0;
+			for (Map.Entry<String, Integer> entry : frequencies.entrySet()) {
+				Postings termPostings = postings.get(entry.getKey());
+				if (termPostings == null) {
+					termPostings = new Postings();
+					postings.put(entry.getKey(), termPostings);
+					addToVocabulary(entry.getKey());
+				}
+				termPostings.add(number, entry.getValue());
+				length += entry.getValue();
+			}
+
+			documents[number] = new StoredDocument(document.getType(), document.getId(), document.getTitle(), length);
+			lengths[number] = length;
+			documentsByKey.put(document.getKey(), number);
+			liveCount++;
+			totalLength += length;
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	void remove(String type, long id) {
+		lock.writeLock().lock();
+		try {
+			removeDocument(SearchDocument.key(type, id));
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	int size() {
+		lock.readLock().lock();
+		try {
+			return liveCount;
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	/**
+	 * Returns a page of the documents matching any of the terms of the query,
+	 * optionally restricted to one type. Documents matching more of the
+	 * terms rank higher.
+	 */
+	SearchResults search(String query, String type, int page, int size) {
+		Set<String> queryTerms = new LinkedHashSet<>(Analyzer.terms(query));
+		if (queryTerms.isEmpty()) {
+			return new SearchResults(query, page, size, 0, false, Collections.<SearchHit>emptyList());
+		}
+
+		lock.readLock().lock();
+		Accumulator accumulator = ACCUMULATORS.get();
+		try {
+			accumulator.ensureCapacity(documentCount);
+			float averageLength = liveCount > 0 ? (float) totalLength / liveCount : 1f;
+			boolean truncated = false;
+			for (String queryTerm : queryTerms) {
+				Expansion expansion = expand(queryTerm);
+				float idf = idf(expansion.terms.keySet());
+				for (Map.Entry<Postings, Float> match : expansion.terms.entrySet()) {
+					score(accumulator, match.getKey(), match.getValue() * idf, averageLength);
+				}
+				accumulator.endTerm();
+				truncated |= expansion.truncated;
+			}
+			return collect(accumulator, query, queryTerms.size(), type, page, size, truncated);
+		} finally {
+			accumulator.clear();
+			lock.readLock().unlock();
+		}
+	}
+
+	/**
+	 * Returns the inverse document frequency of all the terms matching a
+	 * query term together. Scoring each match with its own frequency would
+	 * let a rare prefix or typo match outrank a common exact one.
+	 */
+	private float idf(Iterable<Postings> terms) {
+		long frequency = 0;
+		for (Postings termPostings : terms) {
+			frequency += termPostings.size;
+		}
+		// The postings may still count removed documents, so the frequency can
+		// exceed the number of live documents.
+		return (float) Math.log(1 + (Math.max(0, liveCount - frequency) + 0.5) / (frequency + 0.5));
+	}
+
+	private void score(Accumulator accumulator, Postings termPostings, float weight, float averageLength) {
+		int[] numbers = termPostings.documents;
+		int[] frequencies = termPostings.frequencies;
+		float scale = weight * (K1 + 1);
+		float baseNorm = K1 * (1 - B);
+		float lengthNorm = K1 * B / averageLength;
+		for (int i = 0; i < termPostings.size; i++) {
+			int length = lengths[numbers[i]];
+			if (length < 0) {
+				continue;
+			}
+			float tf = frequencies[i];
+			accumulator.offer(numbers[i], scale * tf / (tf + baseNorm + lengthNorm * length));
+		}
+	}
+
+	private SearchResults collect(Accumulator accumulator, String query, int termCount, String type, int page,
+			int size, boolean truncated) {
+		// Computed in long, a far page would overflow.
+		int limit = (int) Math.min((page + 1L) * size, Integer.MAX_VALUE);
+		PriorityQueue<ScoredDocument> top = new PriorityQueue<>(Math.max(1, Math.min(limit, 1024)));
+		float[] scores = accumulator.scores;
+		short[] matched = accumulator.matched;
+		float lowest = Float.NEGATIVE_INFINITY;
+		int total = 0;
+		for (int i = 0; i < accumulator.touchedCount; i++) {
+			int number = accumulator.touched[i];
+			if (type != null && !type.equals(documents[number].type)) {
+				continue;
+			}
+			total++;
+			float score = scores[number] * matched[number] / termCount;
+			if (top.size() < limit) {
+				top.add(new ScoredDocument(number, score));
+				if (top.size() == limit) {
+					lowest = top.peek().score;
+				}
+			} else if (score > lowest) {
+				top.poll();
+				top.add(new ScoredDocument(number, score));
+				lowest = top.peek().score;
+			}
+		}
+
+		ScoredDocument[] ranked = top.toArray(new ScoredDocument[top.size()]);
+		Arrays.sort(ranked, Collections.reverseOrder());
+		List<SearchHit> hits = new ArrayList<>(size);
+		for (int i = (int) Math.min((long) page * size, ranked.length); i < ranked.length; i++) {
+			StoredDocument document = documents[ranked[i].number];
+			hits.add(new SearchHit(document.type, document.id, document.title, ranked[i].score));
+		}
+		return new SearchResults(query, page, size, total, truncated, hits);
+	}
+
+	/**
+	 * Returns the indexed terms matching a query term with their weights.
+	 */
+	private Expansion expand(String queryTerm) {
+		Expansion result = new Expansion();
+		Postings exact = postings.get(queryTerm);
+		if (exact != null) {
+			result.terms.put(exact, 1f);
+		}
+
+		if (queryTerm.length() >= 2) {
+			// The prefixed terms are only known by walking the vocabulary, so
+			// they are taken in order rather than by frequency.
+			int count = 0;
+			for (String term : vocabulary.tailSet(queryTerm, false)) {
+				if (!term.startsWith(queryTerm)) {
+					break;
+				}
+				if (count++ == MAX_EXPANSIONS) {
+					result.truncated = true;
+					break;
+				}
+				result.terms.put(postings.get(term), PREFIX_WEIGHT);
+			}
+		}
+
+		if (queryTerm.length() >= 3) {
+			List<String> candidates = null;
+			for (int i = 0; i + 3 <= queryTerm.length(); i++) {
+				List<String> terms = trigrams.get(queryTerm.substring(i, i + 3));
+				if (terms == null) {
+					candidates = null;
+					break;
+				}
+				if (candidates == null || terms.size() < candidates.size()) {
+					candidates = terms;
+				}
+			}
+			if (candidates != null) {
+				List<Postings> matches = new ArrayList<>();
+				for (String term : candidates) {
+					if (term.contains(queryTerm)) {
+						Postings termPostings = postings.get(term);
+						if (!result.terms.containsKey(termPostings)) {
+							matches.add(termPostings);
+						}
+					}
+				}
+				addMostFrequent(result, matches, SUBSTRING_WEIGHT);
+			}
+		}
+
+		if (queryTerm.length() >= 4) {
+			Set<String> candidates = new LinkedHashSet<>();
+			addAll(candidates, deletions.get(queryTerm));
+			for (int i = 0; i < queryTerm.length(); i++) {
+				String deletion = deleteAt(queryTerm, i);
+				if (postings.containsKey(deletion)) {
+					candidates.add(deletion);
+				}
+				addAll(candidates, deletions.get(deletion));
+			}
+			List<Postings> matches = new ArrayList<>();
+			for (String term : candidates) {
+				if (isOneTypoAway(queryTerm, term)) {
+					Postings termPostings = postings.get(term);
+					if (!result.terms.containsKey(termPostings)) {
+						matches.add(termPostings);
+					}
+				}
+			}
+			addMostFrequent(result, matches, TYPO_WEIGHT);
+		}
+		return result;
+	}
+
+	/**
+	 * Adds the matches to the expansion, only the ones in the most documents
+	 * if there are too many.
+	 */
+	private static void addMostFrequent(Expansion expansion, List<Postings> matches, float weight) {
+		if (matches.size() > MAX_EXPANSIONS) {
+			Collections.sort(matches, new Comparator<Postings>() {
+				@Override
+				public int compare(Postings a, Postings b) {
+					return Integer.compare(b.size, a.size);
+				}
+			});
+			matches = matches.subList(0, MAX_EXPANSIONS);
+			expansion.truncated = true;
+		}
+		for (Postings termPostings : matches) {
+			expansion.terms.put(termPostings, weight);
+		}
+	}
+
+	private void removeDocument(String key) {
+		Integer number = documentsByKey.remove(key);
+		if (number == null) {
+			return;
+		}
+		liveCount--;
+		totalLength -= documents[number].length;
+		documents[number] = null;
+		lengths[number] = -1;
+		if (documentCount >= MIN_COMPACTION_SIZE && documentCount - liveCount > liveCount) {
+			compact();
+		}
+	}
+
+	/**
+	 * Drops the postings of removed documents and renumbers the live ones.
+	 * Renumbering in order keeps every postings list sorted.
+	 */
+	private void compact() {
+		int[] renumbered = new int[documentCount];
+		StoredDocument[] compacted = new StoredDocument[Math.max(1024, liveCount * 2)];
+		int[] compactedLengths = new int[compacted.length];
+		int count = 0;
+		for (int i = 0; i < documentCount; i++) {
+			if (documents[i] != null) {
+				compacted[count] = documents[i];
+				compactedLengths[count] = lengths[i];
+				renumbered[i] = count++;
+			} else {
+				renumbered[i] = -1;
+			}
+		}
+		for (Map.Entry<String, Integer> entry : documentsByKey.entrySet()) {
+			entry.setValue(renumbered[entry.getValue()]);
+		}
+
+		List<String> unusedTerms = new ArrayList<>();
+		for (Map.Entry<String, Postings> entry : postings.entrySet()) {
+			if (entry.getValue().renumber(renumbered) == 0) {
+				unusedTerms.add(entry.getKey());
+			}
+		}
+		if (!unusedTerms.isEmpty()) {
+			for (String term : unusedTerms) {
+				postings.remove(term);
+				vocabulary.remove(term);
+			}
+			trigrams.clear();
+			deletions.clear();
+			for (String term : vocabulary) {
+				addGrams(term);
+			}
+		}
+
+		documents = compacted;
+		lengths = compactedLengths;
+		documentCount = count;
+	}
+
+	private void addToVocabulary(String term) {
+		vocabulary.add(term);
+		addGrams(term);
+	}
+
+	private void addGrams(String term) {
+		for (int i = 0; i + 3 <= term.length(); i++) {
+			addTo(trigrams, term.substring(i, i + 3), term);
+		}
+		// Numbers such as microchip ids are searched by fragments, not with typos.
+		if (term.length() >= 4 && !containsDigit(term)) {
+			for (int i = 0; i < term.length(); i++) {
+				addTo(deletions, deleteAt(term, i), term);
+			}
+		}
+	}
+
+	private static void addTo(Map<String, List<String>> index, String key, String term) {
+		List<String> terms = index.get(key);
+		if (terms == null) {
+			terms = new ArrayList<>(2);
+			index.put(key, terms);
+		} else if (terms.get(terms.size() - 1).equals(term)) {
+			// Repeated gram within the same term.
+			return;
+		}
+		terms.add(term);
+	}
+
+	private static void addAll(Set<String> target, List<String> terms) {
+		if (terms != null) {
+			target.addAll(terms);
+		}
+	}
+
+	private static void increment(Map<String, Integer> frequencies, String term, int weight) {
+		Integer current = frequencies.get(term);
+		frequencies.put(term, current != null ? current + weight : weight);
+	}
+
+	private static boolean containsDigit(String term) {
+		for (int i = 0; i < term.length(); i++) {
+			if (Character.isDigit(term.charAt(i))) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private static String deleteAt(String term, int index) {
+		return term.substring(0, index) + term.substring(index + 1);
+	}
+
+	/**
+	 * Whether the terms differ by one insertion, deletion, substitution or
+	 * transposition of adjacent characters.
+	 */
+	static boolean isOneTypoAway(String a, String b) {
+		int lengthDifference = a.length() - b.length();
+		if (lengthDifference > 1 || lengthDifference < -1) {
+			return false;
+		}
+		String longer = lengthDifference >= 0 ? a : b;
+		String shorter = lengthDifference >= 0 ? b : a;
+		int prefix = 0;
+		while (prefix < shorter.length() && longer.charAt(prefix) == shorter.charAt(prefix)) {
+			prefix++;
+		}
+		if (lengthDifference != 0) {
+			return longer.regionMatches(prefix + 1, shorter, prefix, shorter.length() - prefix);
+		}
+		if (prefix == longer.length()) {
+			return false;
+		}
+		if (longer.regionMatches(prefix + 1, shorter, prefix + 1, shorter.length() - prefix - 1)) {
+			return true;
+		}
+		return prefix + 1 < longer.length()
+				&& longer.charAt(prefix) == shorter.charAt(prefix + 1)
+				&& longer.charAt(prefix + 1) == shorter.charAt(prefix)
+				&& longer.regionMatches(prefix + 2, shorter, prefix + 2, shorter.length() - prefix - 2);
+	}
+
+	private static final class StoredDocument {
+
+		private final String type;
+		private final long id;
+		private final String title;
+		private final int length;
+
+		StoredDocument(String type, long id, String title, int length) {
+			this.type = type;
+			this.id = id;
+			this.title = title;
+			this.length = length;
+		}
+	}
+
+	private static final class Postings {
+
+		private int[] documents = new int[4];
+		private int[] frequencies = new int[4];
+		private int size;
+
+		void add(int document, int frequency) {
+			if (size == documents.length) {
+				documents = Arrays.copyOf(documents, size * 2);
+				frequencies = Arrays.copyOf(frequencies, size * 2);
+			}
+			documents[size] = document;
+			frequencies[size] = frequency;
+			size++;
+		}
+
+		int renumber(int[] renumbered) {
+			int count = 0;
+			for (int i = 0; i < size; i++) {
+				int number = renumbered[documents[i]];
+				if (number >= 0) {
+					documents[count] = number;
+					frequencies[count] = frequencies[i];
+					count++;
+				}
+			}
+			size = count;
+			return count;
+		}
+	}
+
+	/**
+	 * The postings of the indexed terms a query term matches, with their
+	 * weights.
+	 */
+	private static final class Expansion {
+
+		private final Map<Postings, Float> terms = new LinkedHashMap<>();
+		private boolean truncated;
+	}
+
+	private static final class ScoredDocument implements Comparable<ScoredDocument> {
+
+		private final int number;
+		private final float score;
+
+		ScoredDocument(int number, float score) {
+			this.number = number;
+			this.score = score;
+		}
+
+		@Override
+		public int compareTo(ScoredDocument other) {
+			int result = Float.compare(score, other.score);
+			return result != 0 ? result : Integer.compare(other.number, number);
+		}
+	}
+
+	/**
+	 * Per thread scratch space of a query, indexed by document number. A
+	 * document scores with the best match of each query term, and the sum
+	 * over the query terms.
+	 */
+	private static final class Accumulator {
+
+		private float[] scores = new float[0];
+		private float[] termScores = new float[0];
+		private short[] matched = new short[0];
+		private int[] touched = new int[0];
+		private int touchedCount;
+		private int[] termTouched = new int[0];
+		private int termTouchedCount;
+
+		void ensureCapacity(int capacity) {
+			if (scores.length < capacity) {
+				int length = Math.max(capacity, scores.length * 3 / 2);
+				scores = new float[length];
+				termScores = new float[length];
+				matched = new short[length];
+				touched = new int[length];
+				termTouched = new int[length];
+			}
+		}
+
+		void offer(int document, float score) {
+			if (termScores[document] == 0f) {
+				termTouched[termTouchedCount++] = document;
+			}
+			if (score > termScores[document]) {
+				termScores[document] = score;
+			}
+		}
+
+		void endTerm() {
+			for (int i = 0; i < termTouchedCount; i++) {
+				int document = termTouched[i];
+				if (matched[document] == 0) {
+					touched[touchedCount++] = document;
+				}
+				matched[document]++;
+				scores[document] += termScores[document];
+				termScores[document] = 0f;
+			}
+			termTouchedCount = 0;
+		}
+
+		void clear() {
+			for (int i = 0; i < touchedCount; i++) {
+				int document = touched[i];
+				scores[document] = 0f;
+				matched[document] = 0;
+			}
+			for (int i = 0; i < termTouchedCount; i++) {
+				termScores[termTouched[i]] = 0f;
+			}
+			touchedCount = 0;
+			termTouchedCount = 0;
+		}
+	}
+}
@@ -0,0 +1,50 @@
+package com.myzoodata.search;
+
+import java.util.List;
+
+public final class SearchResults {
+
+	private final String query;
+	private final int page;
+	private final int size;
+	private final int total;
+	private final boolean truncated;
+	private final List<SearchHit> hits;
+
+	SearchResults(String query, int page, int size, int total, boolean truncated, List<SearchHit> hits) {
+		this.query = query;
+		this.page = page;
+		this.size = size;
+		this.total = total;
+		this.truncated = truncated;
+		this.hits = hits;
+	}
+
+	public String getQuery() {
+		return query;
+	}
+
+	public int getPage() {
+		return page;
+	}
+
+	public int getSize() {
+		return size;
+	}
+
+	public int getTotal() {
+		return total;
+	}
+
+	/**
+	 * Whether a query term matched more indexed terms than are searched, so
+	 * some matching documents may be missing.
+	 */
+	public boolean isTruncated() {
+		return truncated;
+	}
+
+	public List<SearchHit> getHits() {
+		return hits;
+	}
+}
@@ -0,0 +1,258 @@
+package com.myzoodata.search;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.myzoodata.domain.AbstractEntity;
+import com.myzoodata.domain.EntityChangedEvent;
+import com.myzoodata.sharding.ShardCallback;
+import com.myzoodata.sharding.ShardTemplate;
+
+/**
+ * Keeps the search index in sync with the committed entity changes and
+ * rebuilds it from the database on startup.
+ * <p>
+ * A rebuild fills a new index in the background while the current one keeps
+ * serving queries. Changes committed during the rebuild are applied to
+ * both, and once more to the new index right before it replaces the
+ * current one, so none of them is lost whether or not the rebuild already
+ * read the changed row.
+ */
+@Service
+public class SearchService {
+
+	private static final Log LOGGER = LogFactory.getLog(SearchService.class);
+
+	private static final int BATCH_SIZE = 5000;
+
+	@PersistenceContext
+	private EntityManager entityManager;
+
+	private final TransactionTemplate readTransaction;
+	private final ShardTemplate shardTemplate;
+	private final boolean rebuildOnStartup;
+
+	private volatile SearchIndex index = new SearchIndex();
+
+	// Guarded by this. Not null while a rebuild is running.
+	private List<Change> pendingChanges;
+
+	@Autowired
+	public SearchService(PlatformTransactionManager transactionManager, ShardTemplate shardTemplate,
+			@Value("${myzoodata.search.rebuild-on-startup:true}") boolean rebuildOnStartup) {
+		this.readTransaction = new TransactionTemplate(transactionManager);
+		this.readTransaction.setReadOnly(true);
+		this.shardTemplate = shardTemplate;
+		this.rebuildOnStartup = rebuildOnStartup;
+	}
+
+	public SearchResults search(String query, String type, int page, int size) {
+		return index.search(query, type, page, size);
+	}
+
+	@TransactionalEventListener(fallbackExecution = true)
+	public void onEntityChanged(EntityChangedEvent event) {
+		AbstractEntity entity = event.getEntity();
+		String type = SearchDocuments.typeOf(entity);
+		if (type == null) {
+			return;
+		}
+		SearchDocument document = event.getType() != EntityChangedEvent.Type.DELETED
+				? SearchDocuments.of(entity)
+				: null;
+		apply(new Change(type, entity.getId(), document));
+	}
+
+	@EventListener
+	public void onApplicationReady(ApplicationReadyEvent event) {
+		if (rebuildOnStartup) {
+			startRebuild();
+		}
+	}
+
+	/**
+	 * Replaces the index with one built from the database.
+	 *
+	 * @throws RebuildInProgressException if a rebuild is already running
+	 */
+	public void rebuild() {
+		beginRebuild();
+		build();
+	}
+
+	/**
+	 * Starts to replace the index with one built from the database, in the
+	 * background.
+	 *
+	 * @throws RebuildInProgressException if a rebuild is already running
+	 */
+	public void startRebuild() {
+		beginRebuild();
+		Thread thread = new Thread(new Runnable() {
+			@Override
+			public void run() {
+				try {
+					build();
+				} catch (RuntimeException ex) {
+					LOGGER.error("Failed to build the search index.", ex);
+				}
+			}
+		}, "search-index-rebuild");
+		thread.setDaemon(true);
+		thread.start();
+	}
+
+	synchronized boolean isRebuilding() {
+		return pendingChanges != null;
+	}
+
+	/**
+	 * Starts to collect the changes for the index being rebuilt.
+	 */
+	synchronized void beginRebuild() {
+		if (pendingChanges != null) {
+			throw new RebuildInProgressException();
+		}
+		pendingChanges = new ArrayList<>();
+	}
+
+	/**
+	 * Builds a new index from the database.
+	 */
+	SearchIndex read() {
+		SearchIndex rebuilt = new SearchIndex();
+		load(rebuilt, "Animal", "e.id, e.name, e.species, e.breed, e.microchip", new RowMapper() {
+			@Override
+			public SearchDocument map(Object[] row) {
+				return SearchDocuments.animal((Long) row[0], (String) row[1], (String) row[2],
+						(String) row[3], (String) row[4]);
+			}
+		});
+		load(rebuilt, "Owner", "e.id, e.name, e.email", new RowMapper() {
+			@Override
+			public SearchDocument map(Object[] row) {
+				return SearchDocuments.owner((Long) row[0], (String) row[1], (String) row[2]);
+			}
+		});
+		load(rebuilt, "Treatment", "e.id, e.type, e.notes", new RowMapper() {
+			@Override
+			public SearchDocument map(Object[] row) {
+				return SearchDocuments.treatment((Long) row[0], ((Enum<?>) row[1]).name(), (String) row[2]);
+			}
+		});
+		return rebuilt;
+	}
+
+	/**
+	 * Applies the changes collected during the rebuild to the new index and
+	 * replaces the current one with it.
+	 */
+	synchronized void finishRebuild(SearchIndex rebuilt) {
+		for (Change change : pendingChanges) {
+			change.applyTo(rebuilt);
+		}
+		index = rebuilt;
+		pendingChanges = null;
+	}
+
+	private void build() {
+		long start = System.currentTimeMillis();
+		SearchIndex rebuilt = null;
+		try {
+			rebuilt = read();
+		} finally {
+			if (rebuilt == null) {
+				synchronized (this) {
+					pendingChanges = null;
+				}
+			}
+		}
+		finishRebuild(rebuilt);
+		LOGGER.info("Indexed " + rebuilt.size() + " documents in " + (System.currentTimeMillis() - start)
+				+ " ms.");
+	}
+
+	private synchronized void apply(Change change) {
+		change.applyTo(index);
+		if (pendingChanges != null) {
+			pendingChanges.add(change);
+		}
+	}
+
+	/**
+	 * Reads the columns of an entity, selected with the alias {@code e}, from
+	 * every shard in batches of ascending ids. The id has to be the first
+	 * column.
+	 */
+	private void load(final SearchIndex target, String entity, String columns, final RowMapper mapper) {
+		final String query = "select " + columns + " from " + entity + " e where e.id > :after order by e.id";
+		shardTemplate.forEachShard(new ShardCallback<Void>() {
+			@Override
+			public Void doInShard(String shard) {
+				long after = 0L;
+				while (true) {
+					final long from = after;
+					Long last = readTransaction.execute(new TransactionCallback<Long>() {
+						@Override
+						public Long doInTransaction(TransactionStatus status) {
+							List<Object[]> rows = entityManager.createQuery(query, Object[].class)
+									.setParameter("after", from)
+									.setMaxResults(BATCH_SIZE)
+									.getResultList();
+							for (Object[] row : rows) {
+								target.put(mapper.map(row));
+							}
+							return rows.isEmpty() ? null : (Long) rows.get(rows.size() - 1)[0];
+						}
+					});
+					if (last == null) {
+						return null;
+					}
+					after = last;
+				}
+			}
+		});
+	}
+
+	private interface RowMapper {
+
+		SearchDocument map(Object[] row);
+	}
+
+	private static final class Change {
+
+		private final String type;
+		private final long id;
+		private final SearchDocument document;
+
+		Change(String type, long id, SearchDocument document) {
+			this.type = type;
+			this.id = id;
+			this.document = document;
+		}
+
+		void applyTo(SearchIndex target) {
+			if (document != null) {
+				target.put(document);
+			} else {
+				target.remove(type, id);
+			}
+		}
+	}
+}
@@ -0,0 +1,52 @@
+package com.myzoodata.sharding;
+
+/**
+ * An animal found by an admin query, with the shard it lives on.
+ */
+public class AnimalLocation {
+
+	private final String shard;
+
+	private final long id;
+
+	private final String name;
+
+	private final String species;
+
+	private final String microchip;
+
+	private final Long ownerId;
+
+	AnimalLocation(String shard, long id, String name, String species, String microchip, Long ownerId) {
+		this.shard = shard;
+		this.id = id;
+		this.name = name;
+		this.species = species;
+		this.microchip = microchip;
+		this.ownerId = ownerId;
+	}
+
+	public String getShard() {
+		return shard;
+	}
+
+	public long getId() {
+		return id;
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	public String getSpecies() {
+		return species;
+	}
+
+	public String getMicrochip() {
+		return microchip;
+	}
+
+	public Long getOwnerId() {
+		return ownerId;
+	}
+}
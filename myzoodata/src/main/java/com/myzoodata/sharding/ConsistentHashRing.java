@@ -0,0 +1,96 @@
+package com.myzoodata.sharding;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Maps keys to nodes so that adding or removing a node only moves the keys
+ * of that node. Every node is placed on a ring of 64-bit hashes at a number
+ * of points derived from its name, and a key belongs to the node of the
+ * first point at or after the hash of the key.
+ * <p>
+ * The hash is computed from the UTF-8 bytes, so the mapping is the same on
+ * every instance and across restarts. Immutable and thread-safe.
+ */
+public class ConsistentHashRing<T> {
+
+	private final long[] points;
+
+	private final List<T> owners;
+
+	/**
+	 * @param nodes the nodes, placed on the ring by their {@code toString()}
+	 * @param virtualNodes the number of points of each node
+	 */
+	@SuppressWarnings("unchecked")
+	public ConsistentHashRing(Collection<T> nodes, int virtualNodes) {
+		if (nodes.isEmpty() || virtualNodes < 1) {
+			throw new IllegalArgumentException("The ring needs at least one node and one point per node.");
+		}
+		int size = nodes.size() * virtualNodes;
+		Point<T>[] placed = new Point[size];
+		int index = 0;
+		for (T node : nodes) {
+			for (int i = 0; i < virtualNodes; i++) {
+				placed[index++] = new Point<>(hash(node + "#" + i), node);
+			}
+		}
+		Arrays.sort(placed);
+		this.points = new long[size];
+		List<T> list = new ArrayList<>(size);
+		for (int i = 0; i < size; i++) {
+			points[i] = placed[i].hash;
+			list.add(placed[i].node);
+		}
+		this.owners = list;
+	}
+
+	/**
+	 * Returns the node a key belongs to.
+	 */
+	public T nodeOf(String key) {
+		int index = Arrays.binarySearch(points, hash(key));
+		if (index < 0) {
+			index = -index - 1;
+		}
+		return owners.get(index == points.length ? 0 : index);
+	}
+
+	/**
+	 * 64-bit FNV-1a of the UTF-8 bytes, finished with the MurmurHash3 mixer
+	 * so that similar keys end up far apart on the ring.
+	 */
+	static long hash(String key) {
+		long hash = 0xcbf29ce484222325L;
+		for (byte b : key.getBytes(StandardCharsets.UTF_8)) {
+			hash ^= b & 0xff;
+			hash *= 0x100000001b3L;
+		}
+		hash ^= hash >>> 33;
+		hash *= 0xff51afd7ed558ccdL;
+		hash ^= hash >>> 33;
+		hash *= 0xc4ceb9fe1a85ec53L;
+		hash ^= hash >>> 33;
+		return hash;
+	}
+
+	private static final class Point<T> implements Comparable<Point<T>> {
+
+		private final long hash;
+
+		private final T node;
+
+		Point(long hash, T node) {
+			this.hash = hash;
+			this.node = node;
+		}
+
+		@Override
+		public int compareTo(Point<T> other) {
+			return Long.compare(hash, other.hash);
+		}
+	}
+}
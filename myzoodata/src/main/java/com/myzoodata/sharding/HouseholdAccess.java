@@ -0,0 +1,51 @@
+package com.myzoodata.sharding;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+
+import org.springframework.transaction.annotation.Transactional;
+
+import com.myzoodata.domain.AbstractEntity;
+
+/**
+ * Tells whether an entity belongs to a household, on the shard selected for
+ * the current thread.
+ */
+class HouseholdAccess {
+
+	@PersistenceContext
+	private EntityManager entityManager;
+
+	/**
+	 * Returns whether the entity exists and belongs to the household.
+	 */
+	@Transactional(readOnly = true)
+	public boolean belongsTo(Class<? extends AbstractEntity> type, long id, String household) {
+		return entityManager
+				.createQuery("select count(e) from " + entityName(type)
+						+ " e where e.id = :id and e.householdId = :household", Long.class)
+				.setParameter("id", id)
+				.setParameter("household", household)
+				.getSingleResult() > 0;
+	}
+
+	/**
+	 * Returns the entity, or {@code null} if there is no such entity.
+	 *
+	 * @throws IllegalArgumentException if it belongs to another household
+	 * than the one given
+	 */
+	@Transactional(readOnly = true)
+	public <T extends AbstractEntity> T find(Class<T> type, long id, String household) {
+		T entity = entityManager.find(type, id);
+		if (entity != null && household != null && !household.equals(entity.getHouseholdId())) {
+			throw new IllegalArgumentException(
+					"The " + entityName(type) + " " + id + " belongs to another household.");
+		}
+		return entity;
+	}
+
+	private String entityName(Class<?> type) {
+		return entityManager.getMetamodel().entity(type).getName();
+	}
+}
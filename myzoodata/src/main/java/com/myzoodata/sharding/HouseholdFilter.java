@@ -0,0 +1,147 @@
+package com.myzoodata.sharding;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.springframework.context.ApplicationContext;
+import org.springframework.data.rest.core.config.RepositoryRestConfiguration;
+import org.springframework.data.rest.core.mapping.ResourceMappings;
+import org.springframework.data.rest.core.mapping.ResourceMetadata;
+import org.springframework.util.StringUtils;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import com.myzoodata.domain.AbstractEntity;
+import com.myzoodata.domain.HouseholdContextHolder;
+
+/**
+ * Selects the household and the shard a request works on for the rest of
+ * the request.
+ * <p>
+ * The resources of the repositories, exported or served by controllers of
+ * their own, are rejected without the household header. They go to the
+ * shard of the household, and only see its entities. An item resource, and
+ * everything below it, is not found unless the entity belongs to the
+ * household, which its id tells for the shard before it is looked up.
+ * Requests outside the repositories go to the shard of the household if
+ * the header is sent, else to the default shard.
+ */
+class HouseholdFilter extends OncePerRequestFilter {
+
+	private static final int MAX_LENGTH = 64;
+
+	private final String header;
+
+	private final ShardRoutingDataSource router;
+
+	private final HouseholdAccess access;
+
+	private final ApplicationContext applicationContext;
+
+	private volatile String basePath;
+	private volatile Map<String, Class<? extends AbstractEntity>> repositoryTypes;
+
+	HouseholdFilter(String header, ShardRoutingDataSource router, HouseholdAccess access,
+			ApplicationContext applicationContext) {
+		this.header = header;
+		this.router = router;
+		this.access = access;
+		this.applicationContext = applicationContext;
+	}
+
+	@Override
+	protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+			throws ServletException, IOException {
+		String household = request.getHeader(header);
+		if (household != null) {
+			household = household.trim();
+			if (household.isEmpty() || household.length() > MAX_LENGTH) {
+				response.sendError(HttpServletResponse.SC_BAD_REQUEST, "Invalid " + header + " header.");
+				return;
+			}
+		}
+
+		String[] segments = repositorySegments(request);
+		if (segments == null && household == null) {
+			chain.doFilter(request, response);
+			return;
+		}
+		if (household == null) {
+			response.sendError(HttpServletResponse.SC_BAD_REQUEST, "Missing " + header + " header.");
+			return;
+		}
+
+		String shard = router.shardOfHousehold(household);
+		Long id = segments != null && segments.length > 1 ? parseId(segments[1]) : null;
+		if (id != null && !router.shardOfId(id).equals(shard)) {
+			response.sendError(HttpServletResponse.SC_NOT_FOUND);
+			return;
+		}
+
+		String previousShard = ShardContextHolder.setShard(shard);
+		String previousHousehold = HouseholdContextHolder.setHousehold(household);
+		try {
+			if (id != null && !access.belongsTo(getRepositoryTypes().get(segments[0]), id, household)) {
+				response.sendError(HttpServletResponse.SC_NOT_FOUND);
+				return;
+			}
+			chain.doFilter(request, response);
+		} finally {
+			HouseholdContextHolder.setHousehold(previousHousehold);
+			ShardContextHolder.setShard(previousShard);
+		}
+	}
+
+	/**
+	 * Returns the path segments of a request to a repository resource,
+	 * {@code null} for any other request.
+	 */
+	private String[] repositorySegments(HttpServletRequest request) {
+		String path = request.getRequestURI().substring(request.getContextPath().length());
+		String base = getBasePath();
+		if (!path.startsWith(base)) {
+			return null;
+		}
+		String[] segments = StringUtils.tokenizeToStringArray(path.substring(base.length()), "/");
+		return segments.length > 0 && getRepositoryTypes().containsKey(segments[0]) ? segments : null;
+	}
+
+	private static Long parseId(String segment) {
+		try {
+			return Long.valueOf(segment);
+		} catch (NumberFormatException ex) {
+			return null;
+		}
+	}
+
+	private String getBasePath() {
+		String result = basePath;
+		if (result == null) {
+			result = applicationContext.getBean(RepositoryRestConfiguration.class).getBasePath().getPath();
+			result = StringUtils.trimTrailingCharacter(result, '/');
+			basePath = result;
+		}
+		return result;
+	}
+
+	@SuppressWarnings("unchecked")
+	private Map<String, Class<? extends AbstractEntity>> getRepositoryTypes() {
+		Map<String, Class<? extends AbstractEntity>> result = repositoryTypes;
+		if (result == null) {
+			result = new HashMap<>();
+			for (ResourceMetadata metadata : applicationContext.getBean(ResourceMappings.class)) {
+				if (AbstractEntity.class.isAssignableFrom(metadata.getDomainType())) {
+					String path = StringUtils.trimLeadingCharacter(metadata.getPath().toString(), '/');
+					result.put(path, (Class<? extends AbstractEntity>) metadata.getDomainType());
+				}
+			}
+			repositoryTypes = result;
+		}
+		return result;
+	}
+}
@@ -0,0 +1,42 @@
+package com.myzoodata.sharding;
+
+import java.sql.SQLException;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceException;
+
+import org.hibernate.Session;
+import org.springframework.orm.jpa.vendor.HibernateJpaDialect;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.TransactionException;
+
+import com.myzoodata.domain.AbstractEntity;
+import com.myzoodata.domain.HouseholdContextHolder;
+
+/**
+ * Restricts the queries of each transaction to the household of the thread
+ * which begins it, if there is one. Queries outside of a transaction are
+ * not restricted, which is why the repositories run their query methods in
+ * read-only transactions. Neither are entities looked up by their id, the
+ * {@link HouseholdFilter} checks those.
+ */
+class HouseholdJpaDialect extends HibernateJpaDialect {
+
+	private static final long serialVersionUID = 1L;
+
+	@Override
+	public Object beginTransaction(EntityManager entityManager, TransactionDefinition definition)
+			throws PersistenceException, SQLException, TransactionException {
+		Object transactionData = super.beginTransaction(entityManager, definition);
+		// The entity manager may be open for the whole request, and outlive
+		// a household selected by some of its work.
+		Session session = getSession(entityManager);
+		String household = HouseholdContextHolder.getHousehold();
+		if (household != null) {
+			session.enableFilter(AbstractEntity.HOUSEHOLD_FILTER).setParameter("household", household);
+		} else {
+			session.disableFilter(AbstractEntity.HOUSEHOLD_FILTER);
+		}
+		return transactionData;
+	}
+}
@@ -0,0 +1,56 @@
+package com.myzoodata.sharding;
+
+import java.util.Collections;
+import java.util.Set;
+
+import org.springframework.core.convert.TypeDescriptor;
+import org.springframework.core.convert.converter.ConditionalGenericConverter;
+
+import com.myzoodata.domain.AbstractEntity;
+import com.myzoodata.domain.HouseholdContextHolder;
+
+/**
+ * Resolves the entity ids of the association URIs in request bodies, in
+ * place of the lookup through the repositories. An entity of another shard
+ * would not be found on the shard of the request, and one of another
+ * household must not be linked to, so either is rejected instead, which
+ * Spring Data REST answers with {@code 400 Bad Request}.
+ */
+class HouseholdReferenceConverter implements ConditionalGenericConverter {
+
+	private final ShardRoutingDataSource router;
+
+	private final HouseholdAccess access;
+
+	HouseholdReferenceConverter(ShardRoutingDataSource router, HouseholdAccess access) {
+		this.router = router;
+		this.access = access;
+	}
+
+	@Override
+	public Set<ConvertiblePair> getConvertibleTypes() {
+		return Collections.singleton(new ConvertiblePair(String.class, AbstractEntity.class));
+	}
+
+	@Override
+	public boolean matches(TypeDescriptor sourceType, TypeDescriptor targetType) {
+		return AbstractEntity.class.isAssignableFrom(targetType.getType());
+	}
+
+	@Override
+	public Object convert(Object source, TypeDescriptor sourceType, TypeDescriptor targetType) {
+		if (source == null || ((String) source).isEmpty()) {
+			return null;
+		}
+		long id = Long.parseLong((String) source);
+		String shard = ShardContextHolder.getShard();
+		String shardOfId = router.shardOfId(id);
+		if (!shardOfId.equals(shard != null ? shard : router.getDefaultShard())) {
+			throw new IllegalArgumentException("The entity " + id + " is on the shard " + shardOfId
+					+ ", not on the one of the household.");
+		}
+		@SuppressWarnings("unchecked")
+		Class<? extends AbstractEntity> type = (Class<? extends AbstractEntity>) targetType.getType();
+		return access.find(type, id, HouseholdContextHolder.getHousehold());
+	}
+}
@@ -0,0 +1,27 @@
+package com.myzoodata.sharding;
+
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.core.convert.ConversionFailedException;
+import org.springframework.data.rest.webmvc.RepositoryRestExceptionHandler;
+import org.springframework.data.rest.webmvc.support.ExceptionMessage;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.ControllerAdvice;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+
+/**
+ * Answers the association URIs Spring Data REST fails to resolve, the ones
+ * {@link HouseholdReferenceConverter} rejects in particular, with
+ * {@code 400 Bad Request}. In a JSON document they already are, a
+ * {@code text/uri-list} would otherwise be a server error.
+ */
+@ControllerAdvice(basePackageClasses = RepositoryRestExceptionHandler.class)
+@Order(Ordered.HIGHEST_PRECEDENCE)
+class ReferenceExceptionHandler {
+
+	@ExceptionHandler(ConversionFailedException.class)
+	ResponseEntity<ExceptionMessage> conversionFailed(ConversionFailedException ex) {
+		return new ResponseEntity<>(new ExceptionMessage(ex), HttpStatus.BAD_REQUEST);
+	}
+}
@@ -0,0 +1,39 @@
+package com.myzoodata.sharding;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+@RestController
+@RequestMapping("/admin")
+class ShardAdminController {
+
+	private final ShardAdminService shardAdminService;
+
+	@Autowired
+	ShardAdminController(ShardAdminService shardAdminService) {
+		this.shardAdminService = shardAdminService;
+	}
+
+	@RequestMapping(value = "/shards", method = RequestMethod.GET)
+	List<ShardSummary> shards() {
+		return shardAdminService.summaries();
+	}
+
+	@RequestMapping(value = "/shards/households/{id}", method = RequestMethod.GET)
+	Map<String, String> household(@PathVariable("id") String householdId) {
+		return Collections.singletonMap("shard", shardAdminService.shardOfHousehold(householdId));
+	}
+
+	@RequestMapping(value = "/animals", method = RequestMethod.GET)
+	List<AnimalLocation> animals(@RequestParam("microchip") String microchip) {
+		return shardAdminService.findByMicrochip(microchip);
+	}
+}
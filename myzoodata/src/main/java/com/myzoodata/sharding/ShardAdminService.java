@@ -0,0 +1,94 @@
+package com.myzoodata.sharding;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * The admin queries across households, gathered from all shards.
+ */
+@Service
+public class ShardAdminService {
+
+	private static final String MICROCHIP_QUERY = "select a.id, a.name, a.species, a.microchip, o.id"
+			+ " from Animal a left join a.owner o where a.microchip = :microchip order by a.id";
+
+	@PersistenceContext
+	private EntityManager entityManager;
+
+	private final ShardTemplate shardTemplate;
+
+	private final TransactionTemplate readTransaction;
+
+	@Autowired
+	public ShardAdminService(ShardTemplate shardTemplate, PlatformTransactionManager transactionManager) {
+		this.shardTemplate = shardTemplate;
+		this.readTransaction = new TransactionTemplate(transactionManager);
+		this.readTransaction.setReadOnly(true);
+	}
+
+	/**
+	 * Returns the size of each shard.
+	 */
+	public List<ShardSummary> summaries() {
+		return new ArrayList<>(shardTemplate.executeOnAll(new ShardCallback<ShardSummary>() {
+			@Override
+			public ShardSummary doInShard(final String shard) {
+				return readTransaction.execute(new TransactionCallback<ShardSummary>() {
+					@Override
+					public ShardSummary doInTransaction(TransactionStatus status) {
+						return new ShardSummary(shard, count("Owner"), count("Animal"), count("Treatment"));
+					}
+				});
+			}
+		}).values());
+	}
+
+	/**
+	 * Returns the shard a household lives on.
+	 */
+	public String shardOfHousehold(String householdId) {
+		return shardTemplate.shardOfHousehold(householdId);
+	}
+
+	/**
+	 * Finds the animals with a microchip number in all households.
+	 */
+	public List<AnimalLocation> findByMicrochip(final String microchip) {
+		List<AnimalLocation> result = new ArrayList<>();
+		for (List<AnimalLocation> found : shardTemplate.executeOnAll(new ShardCallback<List<AnimalLocation>>() {
+			@Override
+			public List<AnimalLocation> doInShard(final String shard) {
+				return readTransaction.execute(new TransactionCallback<List<AnimalLocation>>() {
+					@Override
+					public List<AnimalLocation> doInTransaction(TransactionStatus status) {
+						List<AnimalLocation> animals = new ArrayList<>();
+						for (Object[] row : entityManager.createQuery(MICROCHIP_QUERY, Object[].class)
+								.setParameter("microchip", microchip)
+								.getResultList()) {
+							animals.add(new AnimalLocation(shard, (Long) row[0], (String) row[1], (String) row[2],
+									(String) row[3], (Long) row[4]));
+						}
+						return animals;
+					}
+				});
+			}
+		}).values()) {
+			result.addAll(found);
+		}
+		return result;
+	}
+
+	private long count(String entity) {
+		return entityManager.createQuery("select count(e) from " + entity + " e", Long.class).getSingleResult();
+	}
+}
@@ -0,0 +1,14 @@
+package com.myzoodata.sharding;
+
+/**
+ * Work to be done on a shard.
+ *
+ * @see ShardTemplate
+ */
+public interface ShardCallback<T> {
+
+	/**
+	 * Does the work, with the shard selected in the current thread.
+	 */
+	T doInShard(String shard);
+}
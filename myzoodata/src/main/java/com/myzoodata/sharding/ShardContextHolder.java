@@ -0,0 +1,40 @@
+package com.myzoodata.sharding;
+
+import org.springframework.core.NamedThreadLocal;
+
+/**
+ * Holds the shard the current thread works on. Connections of a thread
+ * without a shard come from the default shard.
+ *
+ * @see ShardRoutingDataSource
+ */
+public final class ShardContextHolder {
+
+	private static final ThreadLocal<String> SHARD = new NamedThreadLocal<>("Current shard");
+
+	private ShardContextHolder() {
+	}
+
+	/**
+	 * Returns the shard of the current thread, or {@code null} if none is
+	 * selected.
+	 */
+	public static String getShard() {
+		return SHARD.get();
+	}
+
+	/**
+	 * Selects the shard of the current thread, {@code null} to clear it.
+	 *
+	 * @return the shard which was selected before
+	 */
+	public static String setShard(String shard) {
+		String previous = SHARD.get();
+		if (shard != null) {
+			SHARD.set(shard);
+		} else {
+			SHARD.remove();
+		}
+		return previous;
+	}
+}
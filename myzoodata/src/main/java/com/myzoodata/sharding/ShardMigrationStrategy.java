@@ -0,0 +1,72 @@
+package com.myzoodata.sharding;
+
+import javax.sql.DataSource;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.flywaydb.core.Flyway;
+import org.springframework.boot.autoconfigure.flyway.FlywayMigrationStrategy;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.support.JdbcUtils;
+import org.springframework.jdbc.support.MetaDataAccessException;
+
+/**
+ * Migrates every shard, not only the default one, and makes the tables of
+ * each shard generate ids in the range of the shard.
+ */
+class ShardMigrationStrategy implements FlywayMigrationStrategy {
+
+	private static final Log LOGGER = LogFactory.getLog(ShardMigrationStrategy.class);
+
+	// The tables with generated ids. New entity tables have to be added.
+	private static final String[] TABLES = { "owner", "animal", "treatment", "attachment" };
+
+	private final ShardRoutingDataSource router;
+
+	ShardMigrationStrategy(ShardRoutingDataSource router) {
+		this.router = router;
+	}
+
+	@Override
+	public void migrate(Flyway flyway) {
+		for (String name : router.getShardNames()) {
+			DataSource shard = router.getShard(name);
+			flyway.setDataSource(shard);
+			flyway.migrate();
+			reserveIdRange(name, shard, router.getIdOffset(name));
+		}
+		flyway.setDataSource(router.getShard(router.getDefaultShard()));
+	}
+
+	/**
+	 * Moves the next id of the tables of a shard to the start of its range.
+	 * Runs on every start: MySQL before 8.0 forgets the next id of an empty
+	 * table when it restarts.
+	 */
+	private void reserveIdRange(String name, DataSource shard, long offset) {
+		if (offset == 0L) {
+			return;
+		}
+		String product;
+		try {
+			product = (String) JdbcUtils.extractDatabaseMetaData(shard, "getDatabaseProductName");
+		} catch (MetaDataAccessException ex) {
+			throw new IllegalStateException("Failed to detect the database of shard " + name + ".", ex);
+		}
+		JdbcTemplate jdbcTemplate = new JdbcTemplate(shard);
+		for (String table : TABLES) {
+			Long max = jdbcTemplate.queryForObject("SELECT MAX(id) FROM " + table, Long.class);
+			if (max != null && max > offset) {
+				continue;
+			}
+			if (max != null) {
+				LOGGER.warn("Table " + table + " of shard " + name + " has ids below the range of the shard.");
+			}
+			if ("H2".equals(product)) {
+				jdbcTemplate.execute("ALTER TABLE " + table + " ALTER COLUMN id RESTART WITH " + (offset + 1));
+			} else {
+				jdbcTemplate.execute("ALTER TABLE " + table + " AUTO_INCREMENT = " + (offset + 1));
+			}
+		}
+	}
+}
@@ -0,0 +1,117 @@
+package com.myzoodata.sharding;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.sql.DataSource;
+
+import org.springframework.jdbc.datasource.AbstractDataSource;
+
+/**
+ * Sends the connections of each thread to the shard selected in the
+ * {@link ShardContextHolder}, or to the first shard if none is selected.
+ * <p>
+ * Households are mapped to shards by a {@link ConsistentHashRing}, so
+ * adding a shard only moves the households which fall to the new shard.
+ * Moving their data is not done here.
+ * <p>
+ * Each shard generates ids in its own range of 2^40 ids, starting at its
+ * position in the list times the size of the range, so ids are unique
+ * across the shards and the shard of an entity can be told from its id.
+ * The first shard starts at zero, an existing single database can become
+ * the first shard as it is.
+ * <p>
+ * As with {@link com.myzoodata.datasource.ReadWriteRoutingDataSource}, the
+ * decision is made when the connection is requested, so this data source
+ * should be wrapped into a
+ * {@link org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy}.
+ */
+public class ShardRoutingDataSource extends AbstractDataSource {
+
+	static final int ID_RANGE_BITS = 40;
+
+	private final Map<String, DataSource> shards;
+
+	private final List<String> names;
+
+	private final ConsistentHashRing<String> ring;
+
+	public ShardRoutingDataSource(Map<String, DataSource> shards, int virtualNodes) {
+		this.shards = Collections.unmodifiableMap(new LinkedHashMap<>(shards));
+		this.names = Collections.unmodifiableList(new ArrayList<>(shards.keySet()));
+		this.ring = new ConsistentHashRing<>(names, virtualNodes);
+	}
+
+	/**
+	 * Returns the names of the shards in the order of their id ranges.
+	 */
+	public List<String> getShardNames() {
+		return names;
+	}
+
+	/**
+	 * Returns the shard connections go to when none is selected.
+	 */
+	public String getDefaultShard() {
+		return names.get(0);
+	}
+
+	/**
+	 * Returns the data source of a shard.
+	 *
+	 * @throws IllegalArgumentException if there is no such shard
+	 */
+	public DataSource getShard(String name) {
+		DataSource shard = shards.get(name);
+		if (shard == null) {
+			throw new IllegalArgumentException("Unknown shard " + name + ".");
+		}
+		return shard;
+	}
+
+	/**
+	 * Returns the shard a household lives on.
+	 */
+	public String shardOfHousehold(String householdId) {
+		return ring.nodeOf(householdId);
+	}
+
+	/**
+	 * Returns the shard an entity with the given id was created on.
+	 */
+	public String shardOfId(long id) {
+		long index = id >>> ID_RANGE_BITS;
+		return index < names.size() ? names.get((int) index) : getDefaultShard();
+	}
+
+	/**
+	 * Returns the id after which the ids of a shard start.
+	 */
+	public long getIdOffset(String name) {
+		int index = names.indexOf(name);
+		if (index < 0) {
+			throw new IllegalArgumentException("Unknown shard " + name + ".");
+		}
+		return (long) index << ID_RANGE_BITS;
+	}
+
+	@Override
+	public Connection getConnection() throws SQLException {
+		return currentShard().getConnection();
+	}
+
+	@Override
+	public Connection getConnection(String username, String password) throws SQLException {
+		return currentShard().getConnection(username, password);
+	}
+
+	private DataSource currentShard() {
+		String name = ShardContextHolder.getShard();
+		return getShard(name != null ? name : getDefaultShard());
+	}
+}
@@ -0,0 +1,38 @@
+package com.myzoodata.sharding;
+
+/**
+ * The size of a shard.
+ */
+public class ShardSummary {
+
+	private final String name;
+
+	private final long owners;
+
+	private final long animals;
+
+	private final long treatments;
+
+	ShardSummary(String name, long owners, long animals, long treatments) {
+		this.name = name;
+		this.owners = owners;
+		this.animals = animals;
+		this.treatments = treatments;
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	public long getOwners() {
+		return owners;
+	}
+
+	public long getAnimals() {
+		return animals;
+	}
+
+	public long getTreatments() {
+		return treatments;
+	}
+}
@@ -0,0 +1,172 @@
+package com.myzoodata.sharding;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import com.myzoodata.domain.HouseholdContextHolder;
+
+/**
+ * Runs work on a given shard or on all of them, for what is not tied to a
+ * single household: the background jobs which read everything and the
+ * admin queries across households.
+ * <p>
+ * Without sharding, there is a single shard named {@value #DEFAULT_SHARD}
+ * and the work simply runs.
+ * <p>
+ * The shard applies to the connections requested by the work, a
+ * transaction which is already running keeps its connection. So the work
+ * should start its own transactions. Work on all shards runs without the
+ * household of the calling thread, it is not the household's.
+ */
+@Component
+public class ShardTemplate implements DisposableBean {
+
+	public static final String DEFAULT_SHARD = "default";
+
+	private ShardRoutingDataSource router;
+
+	// Guarded by this. Created on the first scatter-gather.
+	private ExecutorService executor;
+
+	@Autowired(required = false)
+	public void setRouter(ShardRoutingDataSource router) {
+		this.router = router;
+	}
+
+	/**
+	 * Returns the names of the shards.
+	 */
+	public List<String> getShardNames() {
+		return router != null ? router.getShardNames() : Collections.singletonList(DEFAULT_SHARD);
+	}
+
+	/**
+	 * Returns the shard a household lives on.
+	 */
+	public String shardOfHousehold(String householdId) {
+		return router != null ? router.shardOfHousehold(householdId) : DEFAULT_SHARD;
+	}
+
+	/**
+	 * Returns the shard an entity with the given id was created on.
+	 */
+	public String shardOfId(long id) {
+		return router != null ? router.shardOfId(id) : DEFAULT_SHARD;
+	}
+
+	/**
+	 * Runs work on a shard in the current thread.
+	 */
+	public <T> T execute(String shard, ShardCallback<T> callback) {
+		if (router == null) {
+			return callback.doInShard(shard);
+		}
+		String previous = ShardContextHolder.setShard(shard);
+		try {
+			return callback.doInShard(shard);
+		} finally {
+			ShardContextHolder.setShard(previous);
+		}
+	}
+
+	/**
+	 * Runs work on each shard in turn, in the current thread.
+	 */
+	public void forEachShard(ShardCallback<?> callback) {
+		String household = HouseholdContextHolder.setHousehold(null);
+		try {
+			for (String shard : getShardNames()) {
+				execute(shard, callback);
+			}
+		} finally {
+			HouseholdContextHolder.setHousehold(household);
+		}
+	}
+
+	/**
+	 * Runs work on all shards in parallel and waits for all of them.
+	 *
+	 * @return the result of each shard by its name, in the order of the
+	 * shards
+	 */
+	public <T> Map<String, T> executeOnAll(final ShardCallback<T> callback) {
+		List<String> shards = getShardNames();
+		Map<String, T> results = new LinkedHashMap<>();
+		if (shards.size() == 1) {
+			String household = HouseholdContextHolder.setHousehold(null);
+			try {
+				results.put(shards.get(0), execute(shards.get(0), callback));
+			} finally {
+				HouseholdContextHolder.setHousehold(household);
+			}
+			return results;
+		}
+
+		List<Future<T>> futures = new ArrayList<>(shards.size());
+		ExecutorService executor = executor();
+		for (final String shard : shards) {
+			futures.add(executor.submit(new Callable<T>() {
+				@Override
+				public T call() {
+					return execute(shard, callback);
+				}
+			}));
+		}
+		try {
+			for (int i = 0; i < shards.size(); i++) {
+				results.put(shards.get(i), futures.get(i).get());
+			}
+		} catch (InterruptedException ex) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("Interrupted while waiting for the shards.", ex);
+		} catch (ExecutionException ex) {
+			if (ex.getCause() instanceof RuntimeException) {
+				throw (RuntimeException) ex.getCause();
+			}
+			throw new IllegalStateException("Failed to run on all shards.", ex.getCause());
+		} finally {
+			for (Future<T> future : futures) {
+				future.cancel(true);
+			}
+		}
+		return results;
+	}
+
+	@Override
+	public synchronized void destroy() {
+		if (executor != null) {
+			executor.shutdownNow();
+		}
+	}
+
+	private synchronized ExecutorService executor() {
+		if (executor == null) {
+			executor = Executors.newFixedThreadPool(getShardNames().size(), new ThreadFactory() {
+
+				private final AtomicInteger count = new AtomicInteger();
+
+				@Override
+				public Thread newThread(Runnable task) {
+					Thread thread = new Thread(task, "shards-" + count.incrementAndGet());
+					thread.setDaemon(true);
+					return thread;
+				}
+			});
+		}
+		return executor;
+	}
+}
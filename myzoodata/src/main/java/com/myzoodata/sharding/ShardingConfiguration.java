@@ -0,0 +1,155 @@
+package com.myzoodata.sharding;
+
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.sql.DataSource;
+
+import org.springframework.beans.BeansException;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.flyway.FlywayMigrationStrategy;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceBuilder;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.embedded.FilterRegistrationBean;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.ApplicationContext;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.core.Ordered;
+import org.springframework.core.convert.support.ConfigurableConversionService;
+import org.springframework.data.rest.webmvc.config.RepositoryRestConfigurer;
+import org.springframework.data.rest.webmvc.config.RepositoryRestConfigurerAdapter;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.orm.jpa.AbstractEntityManagerFactoryBean;
+import org.springframework.util.ReflectionUtils;
+
+/**
+ * Replaces the auto-configured data source with a
+ * {@link ShardRoutingDataSource} when at least one shard is configured
+ * under {@code myzoodata.sharding.shards}. The read replicas are not used
+ * then.
+ * <p>
+ * The requests work for the household named in their header, see
+ * {@link HouseholdFilter}, and the transactions of such a request only see
+ * the entities of the household.
+ */
+@Configuration
+@ConditionalOnProperty("myzoodata.sharding.shards[0].url")
+@EnableConfigurationProperties(ShardingProperties.class)
+class ShardingConfiguration implements DisposableBean {
+
+	private final List<DataSource> pools = new ArrayList<>();
+
+	@Bean
+	ShardRoutingDataSource shardRoutingDataSource(DataSourceProperties primaryProperties,
+			ShardingProperties shardingProperties) {
+		Map<String, DataSource> shards = new LinkedHashMap<>();
+		List<ShardingProperties.Shard> configured = shardingProperties.getShards();
+		for (int i = 0; i < configured.size(); i++) {
+			ShardingProperties.Shard shard = configured.get(i);
+			String name = shard.getName() != null ? shard.getName() : "shard-" + i;
+			if (shards.containsKey(name)) {
+				throw new IllegalStateException("Duplicate shard name " + name + ".");
+			}
+			shards.put(name, createPool(primaryProperties, shard.getUrl(),
+					shard.getUsername() != null ? shard.getUsername() : primaryProperties.getUsername(),
+					shard.getPassword() != null ? shard.getPassword() : primaryProperties.getPassword()));
+		}
+		return new ShardRoutingDataSource(shards, shardingProperties.getVirtualNodes());
+	}
+
+	@Bean
+	@Primary
+	DataSource dataSource(ShardRoutingDataSource shardRoutingDataSource) {
+		return new LazyConnectionDataSourceProxy(shardRoutingDataSource);
+	}
+
+	@Bean
+	FlywayMigrationStrategy shardMigrationStrategy(ShardRoutingDataSource shardRoutingDataSource) {
+		return new ShardMigrationStrategy(shardRoutingDataSource);
+	}
+
+	@Bean
+	static BeanPostProcessor householdJpaDialectPostProcessor() {
+		return new BeanPostProcessor() {
+
+			@Override
+			public Object postProcessBeforeInitialization(Object bean, String beanName) throws BeansException {
+				if (bean instanceof AbstractEntityManagerFactoryBean) {
+					// Before the vendor adapter's dialect would be taken.
+					((AbstractEntityManagerFactoryBean) bean).setJpaDialect(new HouseholdJpaDialect());
+				}
+				return bean;
+			}
+
+			@Override
+			public Object postProcessAfterInitialization(Object bean, String beanName) throws BeansException {
+				return bean;
+			}
+		};
+	}
+
+	@Bean
+	HouseholdAccess householdAccess() {
+		return new HouseholdAccess();
+	}
+
+	@Bean
+	RepositoryRestConfigurer householdReferences(ShardRoutingDataSource shardRoutingDataSource,
+			HouseholdAccess householdAccess) {
+		final HouseholdReferenceConverter converter = new HouseholdReferenceConverter(shardRoutingDataSource,
+				householdAccess);
+		return new RepositoryRestConfigurerAdapter() {
+			@Override
+			public void configureConversionService(ConfigurableConversionService conversionService) {
+				conversionService.addConverter(converter);
+			}
+		};
+	}
+
+	@Bean
+	ReferenceExceptionHandler referenceExceptionHandler() {
+		return new ReferenceExceptionHandler();
+	}
+
+	@Bean
+	FilterRegistrationBean householdFilter(ShardRoutingDataSource shardRoutingDataSource,
+			ShardingProperties shardingProperties, HouseholdAccess householdAccess,
+			ApplicationContext applicationContext) {
+		FilterRegistrationBean registration = new FilterRegistrationBean(new HouseholdFilter(
+				shardingProperties.getHouseholdHeader(), shardRoutingDataSource, householdAccess,
+				applicationContext));
+		registration.addUrlPatterns("/*");
+		// Ahead of anything that could touch the database.
+		registration.setOrder(Ordered.HIGHEST_PRECEDENCE + 20);
+		return registration;
+	}
+
+	@Override
+	public void destroy() {
+		// The pools are not beans, so nobody else closes them.
+		for (DataSource pool : pools) {
+			Method close = ReflectionUtils.findMethod(pool.getClass(), "close");
+			if (close != null) {
+				ReflectionUtils.invokeMethod(close, pool);
+			}
+		}
+	}
+
+	private DataSource createPool(DataSourceProperties properties, String url, String username, String password) {
+		DataSource pool = DataSourceBuilder.create(properties.getClassLoader())
+				.driverClassName(properties.getDriverClassName())
+				.url(url)
+				.username(username)
+				.password(password)
+				.build();
+		pools.add(pool);
+		return pool;
+	}
+}
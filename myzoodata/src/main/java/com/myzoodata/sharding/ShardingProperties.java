@@ -0,0 +1,101 @@
+package com.myzoodata.sharding;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+@ConfigurationProperties(prefix = "myzoodata.sharding")
+public class ShardingProperties {
+
+	private final List<Shard> shards = new ArrayList<>();
+
+	private String householdHeader = "X-Household-Id";
+
+	private int virtualNodes = 160;
+
+	/**
+	 * The shard databases. Each shard is given a range of ids by its
+	 * position in the list, so shards may only be added at the end.
+	 */
+	public List<Shard> getShards() {
+		return shards;
+	}
+
+	/**
+	 * Header carrying the household a request acts for.
+	 */
+	public String getHouseholdHeader() {
+		return householdHeader;
+	}
+
+	public void setHouseholdHeader(String householdHeader) {
+		this.householdHeader = householdHeader;
+	}
+
+	/**
+	 * Points of each shard on the hash ring. More points spread the
+	 * households more evenly.
+	 */
+	public int getVirtualNodes() {
+		return virtualNodes;
+	}
+
+	public void setVirtualNodes(int virtualNodes) {
+		this.virtualNodes = virtualNodes;
+	}
+
+	public static class Shard {
+
+		private String name;
+
+		private String url;
+
+		private String username;
+
+		private String password;
+
+		/**
+		 * Name of the shard, by default {@code shard-} and its position.
+		 * Households are placed on the ring by it, so it must not change.
+		 */
+		public String getName() {
+			return name;
+		}
+
+		public void setName(String name) {
+			this.name = name;
+		}
+
+		public String getUrl() {
+			return url;
+		}
+
+		public void setUrl(String url) {
+			this.url = url;
+		}
+
+		/**
+		 * User of the shard, by default the one of the primary data source.
+		 */
+		public String getUsername() {
+			return username;
+		}
+
+		public void setUsername(String username) {
+			this.username = username;
+		}
+
+		/**
+		 * Password of the shard, by default the one of the primary data
+		 * source.
+		 */
+		public String getPassword() {
+			return password;
+		}
+
+		public void setPassword(String password) {
+			this.password = password;
+		}
+	}
+}
@@ -0,0 +1,50 @@
+package com.myzoodata.startup;
+
+/**
+ * The time it took to create and initialize a single bean. The total time
+ * includes the creation of the beans it depends on, the self time does not.
+ */
+public final class BeanTiming {
+
+	private final String name;
+	private final String type;
+	private final String declaredBy;
+	private final long totalNanos;
+	private final long selfNanos;
+
+	BeanTiming(String name, String type, String declaredBy, long totalNanos, long selfNanos) {
+		this.name = name;
+		this.type = type;
+		this.declaredBy = declaredBy;
+		this.totalNanos = totalNanos;
+		this.selfNanos = selfNanos;
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	public String getType() {
+		return type;
+	}
+
+	/**
+	 * Returns the name of the configuration bean whose {@code @Bean} method
+	 * defined this bean, or {@code null} if it was defined otherwise.
+	 */
+	public String getDeclaredBy() {
+		return declaredBy;
+	}
+
+	public double getTotalMillis() {
+		return totalNanos / 1e6;
+	}
+
+	public double getSelfMillis() {
+		return selfNanos / 1e6;
+	}
+
+	long getSelfNanos() {
+		return selfNanos;
+	}
+}
@@ -0,0 +1,32 @@
+package com.myzoodata.startup;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+import org.springframework.boot.autoconfigure.AutoConfigurationPackage;
+import org.springframework.boot.autoconfigure.EnableAutoConfiguration;
+import org.springframework.context.annotation.Import;
+
+/**
+ * Variant of {@link EnableAutoConfiguration} which only applies the
+ * auto-configuration classes listed in the
+ * {@code myzoodata.startup.auto-configurations} property, if that property
+ * is set. Without the property it behaves exactly like
+ * {@code EnableAutoConfiguration}.
+ *
+ * @see StartupAutoConfigurationImportSelector
+ */
+@Target(ElementType.TYPE)
+@Retention(RetentionPolicy.RUNTIME)
+@Documented
+@AutoConfigurationPackage
+@Import(StartupAutoConfigurationImportSelector.class)
+public @interface EnableStartupAutoConfiguration {
+
+	Class<?>[] exclude() default {};
+
+	String[] excludeName() default {};
+}
@@ -0,0 +1,98 @@
+package com.myzoodata.startup;
+
+import java.lang.reflect.Method;
+
+import javax.servlet.Filter;
+
+import org.springframework.beans.BeansException;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.beans.factory.annotation.AnnotatedBeanDefinition;
+import org.springframework.beans.factory.config.BeanDefinition;
+import org.springframework.beans.factory.config.BeanFactoryPostProcessor;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.beans.factory.config.ConfigurableListableBeanFactory;
+import org.springframework.boot.context.embedded.ServletContextInitializer;
+import org.springframework.context.ApplicationListener;
+import org.springframework.context.Lifecycle;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.annotation.AnnotationUtils;
+import org.springframework.core.type.MethodMetadata;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.util.ReflectionUtils;
+
+/**
+ * Marks the application's own beans lazy, so they are only created when
+ * first needed. Beans which have to run without anyone asking for them are
+ * left alone: listeners, lifecycle beans, filters, post processors and beans
+ * with {@code @Scheduled} or {@code @EventListener} methods, as well as
+ * every bean explicitly annotated with {@code @Lazy}.
+ */
+class LazyInitializationBeanFactoryPostProcessor implements BeanFactoryPostProcessor {
+
+	private static final String APPLICATION_PACKAGE = "com.myzoodata.";
+
+	private static final Class<?>[] EAGER_TYPES = {
+			ApplicationListener.class,
+			Lifecycle.class,
+			SmartInitializingSingleton.class,
+			Filter.class,
+			ServletContextInitializer.class,
+			BeanPostProcessor.class,
+			BeanFactoryPostProcessor.class
+	};
+
+	@Override
+	public void postProcessBeanFactory(ConfigurableListableBeanFactory beanFactory) throws BeansException {
+		for (String name : beanFactory.getBeanDefinitionNames()) {
+			BeanDefinition definition = beanFactory.getBeanDefinition(name);
+			if (definition.isAbstract() || !definition.isSingleton() || definition.isLazyInit()) {
+				continue;
+			}
+			if (!isApplicationBean(definition) || isExplicitlyLazyOrEager(definition)) {
+				continue;
+			}
+			Class<?> type = beanFactory.getType(name);
+			if (type == null || mustBeEager(type)) {
+				continue;
+			}
+			definition.setLazyInit(true);
+		}
+	}
+
+	private static boolean isApplicationBean(BeanDefinition definition) {
+		if (definition.getRole() != BeanDefinition.ROLE_APPLICATION || !(definition instanceof AnnotatedBeanDefinition)) {
+			return false;
+		}
+		AnnotatedBeanDefinition annotated = (AnnotatedBeanDefinition) definition;
+		MethodMetadata factoryMethod = annotated.getFactoryMethodMetadata();
+		String declaringClass = factoryMethod != null
+				? factoryMethod.getDeclaringClassName()
+				: annotated.getMetadata().getClassName();
+		return declaringClass != null && declaringClass.startsWith(APPLICATION_PACKAGE);
+	}
+
+	private static boolean isExplicitlyLazyOrEager(BeanDefinition definition) {
+		AnnotatedBeanDefinition annotated = (AnnotatedBeanDefinition) definition;
+		MethodMetadata factoryMethod = annotated.getFactoryMethodMetadata();
+		if (factoryMethod != null) {
+			return factoryMethod.isAnnotated(Lazy.class.getName());
+		}
+		return annotated.getMetadata().hasAnnotation(Lazy.class.getName());
+	}
+
+	private static boolean mustBeEager(Class<?> type) {
+		for (Class<?> eagerType : EAGER_TYPES) {
+			if (eagerType.isAssignableFrom(type)) {
+				return true;
+			}
+		}
+		for (Method method : ReflectionUtils.getUniqueDeclaredMethods(type)) {
+			if (method.isAnnotationPresent(Scheduled.class)
+					|| AnnotationUtils.findAnnotation(method, EventListener.class) != null) {
+				return true;
+			}
+		}
+		return false;
+	}
+}
@@ -0,0 +1,48 @@
+package com.myzoodata.startup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.springframework.boot.autoconfigure.EnableAutoConfigurationImportSelector;
+import org.springframework.core.annotation.AnnotationAttributes;
+import org.springframework.core.type.AnnotationMetadata;
+import org.springframework.util.StringUtils;
+
+/**
+ * Restricts the candidate auto-configurations to the comma separated list
+ * of class names in {@code myzoodata.startup.auto-configurations}. Every
+ * auto-configuration is still subject to its own conditions.
+ */
+class StartupAutoConfigurationImportSelector extends EnableAutoConfigurationImportSelector {
+
+	static final String AUTO_CONFIGURATIONS_PROPERTY = "myzoodata.startup.auto-configurations";
+
+	private static final Log LOGGER = LogFactory.getLog(StartupAutoConfigurationImportSelector.class);
+
+	@Override
+	protected Class<?> getAnnotationClass() {
+		return EnableStartupAutoConfiguration.class;
+	}
+
+	@Override
+	protected List<String> getCandidateConfigurations(AnnotationMetadata metadata, AnnotationAttributes attributes) {
+		List<String> candidates = super.getCandidateConfigurations(metadata, attributes);
+		String selection = getEnvironment().getProperty(AUTO_CONFIGURATIONS_PROPERTY);
+		if (!StringUtils.hasText(selection)) {
+			return candidates;
+		}
+
+		Set<String> selected = StringUtils.commaDelimitedListToSet(StringUtils.trimAllWhitespace(selection));
+		List<String> result = new ArrayList<>(selected.size());
+		for (String candidate : candidates) {
+			if (selected.contains(candidate)) {
+				result.add(candidate);
+			}
+		}
+		LOGGER.info("Applying " + result.size() + " of " + candidates.size() + " auto-configurations.");
+		return result;
+	}
+}
@@ -0,0 +1,32 @@
+package com.myzoodata.startup;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+class StartupConfiguration {
+
+	@Bean
+	static StartupTimeline startupTimeline() {
+		return new StartupTimeline();
+	}
+
+	@Bean
+	@ConditionalOnProperty("myzoodata.startup.lazy-init")
+	static LazyInitializationBeanFactoryPostProcessor lazyInitializationBeanFactoryPostProcessor() {
+		return new LazyInitializationBeanFactoryPostProcessor();
+	}
+
+	@Bean
+	StartupTimelineLogger startupTimelineLogger(StartupTimeline timeline,
+			@Value("${myzoodata.startup.log-limit:10}") int limit) {
+		return new StartupTimelineLogger(timeline, limit);
+	}
+
+	@Bean
+	StartupEndpoint startupEndpoint(StartupTimeline timeline, StartupTimelineLogger logger) {
+		return new StartupEndpoint(timeline, logger);
+	}
+}
@@ -0,0 +1,33 @@
+package com.myzoodata.startup;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.springframework.boot.actuate.endpoint.AbstractEndpoint;
+
+/**
+ * Exposes the {@link StartupTimeline} at {@code /startup}.
+ */
+class StartupEndpoint extends AbstractEndpoint<Map<String, Object>> {
+
+	private final StartupTimeline timeline;
+	private final StartupTimelineLogger logger;
+
+	StartupEndpoint(StartupTimeline timeline, StartupTimelineLogger logger) {
+		super("startup");
+		this.timeline = timeline;
+		this.logger = logger;
+	}
+
+	@Override
+	public Map<String, Object> invoke() {
+		List<BeanTiming> beans = timeline.getBeans();
+		Map<String, Object> result = new LinkedHashMap<>();
+		result.put("startupMillis", logger.getStartupMillis());
+		result.put("beanCount", beans.size());
+		result.put("autoConfigurations", timeline.getAutoConfigurations());
+		result.put("beans", beans);
+		return result;
+	}
+}
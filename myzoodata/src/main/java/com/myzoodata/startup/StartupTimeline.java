@@ -0,0 +1,210 @@
+package com.myzoodata.startup;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+import org.springframework.beans.BeansException;
+import org.springframework.beans.factory.BeanFactory;
+import org.springframework.beans.factory.BeanFactoryAware;
+import org.springframework.beans.factory.NoSuchBeanDefinitionException;
+import org.springframework.beans.factory.config.ConfigurableListableBeanFactory;
+import org.springframework.beans.factory.config.InstantiationAwareBeanPostProcessorAdapter;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationListener;
+import org.springframework.core.Ordered;
+import org.springframework.core.PriorityOrdered;
+import org.springframework.util.ClassUtils;
+
+/**
+ * Records how long the creation of each bean takes, from just before its
+ * instantiation until it is fully initialized. Beans are created
+ * recursively, so the time of a bean's dependencies is subtracted to get
+ * the time spent in the bean itself.
+ * <p>
+ * Recording stops once the application is ready, the timeline is frozen
+ * then. Beans created later, prototypes and lazy beans, are not recorded,
+ * so the timeline does not grow for the lifetime of the process.
+ */
+public class StartupTimeline extends InstantiationAwareBeanPostProcessorAdapter
+		implements BeanFactoryAware, PriorityOrdered, ApplicationListener<ApplicationReadyEvent> {
+
+	private static final String AUTO_CONFIGURATION_SUFFIX = "AutoConfiguration";
+
+	private final ThreadLocal<Deque<Frame>> frames = new ThreadLocal<Deque<Frame>>() {
+		@Override
+		protected Deque<Frame> initialValue() {
+			return new ArrayDeque<>();
+		}
+	};
+
+	private final ConcurrentLinkedQueue<BeanTiming> timings = new ConcurrentLinkedQueue<>();
+
+	private volatile boolean frozen;
+
+	private volatile List<BeanTiming> frozenBeans;
+
+	private volatile Map<String, Double> frozenAutoConfigurations;
+
+	private ConfigurableListableBeanFactory beanFactory;
+
+	@Override
+	public void setBeanFactory(BeanFactory beanFactory) {
+		this.beanFactory = (ConfigurableListableBeanFactory) beanFactory;
+	}
+
+	@Override
+	public int getOrder() {
+		return Ordered.HIGHEST_PRECEDENCE;
+	}
+
+	@Override
+	public Object postProcessBeforeInstantiation(Class<?> beanClass, String beanName) throws BeansException {
+		if (!frozen) {
+			frames.get().push(new Frame(beanName, beanClass, System.nanoTime()));
+		}
+		return null;
+	}
+
+	@Override
+	public Object postProcessAfterInitialization(Object bean, String beanName) throws BeansException {
+		if (frozen) {
+			// Drops what a creation running across the freeze left behind.
+			frames.remove();
+			return bean;
+		}
+		Deque<Frame> stack = frames.get();
+		// Objects created by factory beans and beans whose creation failed
+		// have no matching frame on the top of the stack.
+		if (!containsFrame(stack, beanName)) {
+			return bean;
+		}
+		Frame frame;
+		do {
+			frame = stack.pop();
+		} while (!frame.beanName.equals(beanName));
+
+		long total = System.nanoTime() - frame.start;
+		Frame parent = stack.peek();
+		if (parent != null) {
+			parent.childNanos += total;
+		}
+		timings.add(new BeanTiming(beanName, ClassUtils.getUserClass(frame.beanClass).getName(),
+				getDeclaringBean(beanName), total, total - frame.childNanos));
+		return bean;
+	}
+
+	/**
+	 * Stops recording and keeps the timeline as it is.
+	 */
+	@Override
+	public void onApplicationEvent(ApplicationReadyEvent event) {
+		if (frozen) {
+			return;
+		}
+		frozen = true;
+		frozenBeans = Collections.unmodifiableList(sortBeans());
+		frozenAutoConfigurations = Collections.unmodifiableMap(sumAutoConfigurations());
+		timings.clear();
+	}
+
+	/**
+	 * Returns the recorded beans, the slowest one first.
+	 */
+	public List<BeanTiming> getBeans() {
+		List<BeanTiming> beans = frozenBeans;
+		return beans != null ? beans : sortBeans();
+	}
+
+	/**
+	 * Returns the time attributed to each auto-configuration in milliseconds,
+	 * the slowest one first: the time of the configuration classes themselves
+	 * and of the beans declared by them.
+	 */
+	public Map<String, Double> getAutoConfigurations() {
+		Map<String, Double> autoConfigurations = frozenAutoConfigurations;
+		return autoConfigurations != null ? autoConfigurations : sumAutoConfigurations();
+	}
+
+	private List<BeanTiming> sortBeans() {
+		List<BeanTiming> result = new ArrayList<>(timings);
+		Collections.sort(result, new Comparator<BeanTiming>() {
+			@Override
+			public int compare(BeanTiming o1, BeanTiming o2) {
+				return Long.compare(o2.getSelfNanos(), o1.getSelfNanos());
+			}
+		});
+		return result;
+	}
+
+	private Map<String, Double> sumAutoConfigurations() {
+		Map<String, Long> nanos = new HashMap<>();
+		for (BeanTiming timing : timings) {
+			String autoConfiguration = getAutoConfiguration(timing);
+			if (autoConfiguration != null) {
+				Long current = nanos.get(autoConfiguration);
+				nanos.put(autoConfiguration, (current != null ? current : 0L) + timing.getSelfNanos());
+			}
+		}
+
+		List<Map.Entry<String, Long>> entries = new ArrayList<>(nanos.entrySet());
+		Collections.sort(entries, new Comparator<Map.Entry<String, Long>>() {
+			@Override
+			public int compare(Map.Entry<String, Long> o1, Map.Entry<String, Long> o2) {
+				return Long.compare(o2.getValue(), o1.getValue());
+			}
+		});
+		Map<String, Double> result = new LinkedHashMap<>();
+		for (Map.Entry<String, Long> entry : entries) {
+			result.put(entry.getKey(), entry.getValue() / 1e6);
+		}
+		return result;
+	}
+
+	private static String getAutoConfiguration(BeanTiming timing) {
+		String candidate = timing.getDeclaredBy() != null ? timing.getDeclaredBy() : timing.getType();
+		int nested = candidate.indexOf('$');
+		String outer = nested >= 0 ? candidate.substring(0, nested) : candidate;
+		return outer.endsWith(AUTO_CONFIGURATION_SUFFIX) ? outer : null;
+	}
+
+	private String getDeclaringBean(String beanName) {
+		try {
+			return beanFactory.getMergedBeanDefinition(beanName).getFactoryBeanName();
+		} catch (NoSuchBeanDefinitionException ex) {
+			return null;
+		}
+	}
+
+	private static boolean containsFrame(Deque<Frame> stack, String beanName) {
+		Iterator<Frame> iterator = stack.iterator();
+		while (iterator.hasNext()) {
+			if (iterator.next().beanName.equals(beanName)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private static final class Frame {
+
+		private final String beanName;
+		private final Class<?> beanClass;
+		private final long start;
+		private long childNanos;
+
+		Frame(String beanName, Class<?> beanClass, long start) {
+			this.beanName = beanName;
+			this.beanClass = beanClass;
+			this.start = start;
+		}
+	}
+}
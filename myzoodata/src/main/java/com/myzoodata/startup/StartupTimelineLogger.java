@@ -0,0 +1,68 @@
+package com.myzoodata.startup;
+
+import java.lang.management.ManagementFactory;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationListener;
+
+/**
+ * Logs the slowest beans and auto-configurations once the application is
+ * ready to serve requests.
+ */
+class StartupTimelineLogger implements ApplicationListener<ApplicationReadyEvent> {
+
+	private static final Log LOGGER = LogFactory.getLog(StartupTimelineLogger.class);
+
+	private final StartupTimeline timeline;
+	private final int limit;
+
+	private volatile long startupMillis = -1L;
+
+	StartupTimelineLogger(StartupTimeline timeline, int limit) {
+		this.timeline = timeline;
+		this.limit = limit;
+	}
+
+	/**
+	 * Returns the milliseconds between the start of the JVM and the
+	 * application being ready, or -1 if it is not ready yet.
+	 */
+	long getStartupMillis() {
+		return startupMillis;
+	}
+
+	@Override
+	public void onApplicationEvent(ApplicationReadyEvent event) {
+		if (startupMillis >= 0) {
+			return;
+		}
+		startupMillis = System.currentTimeMillis() - ManagementFactory.getRuntimeMXBean().getStartTime();
+		if (!LOGGER.isInfoEnabled()) {
+			return;
+		}
+
+		List<BeanTiming> beans = timeline.getBeans();
+		StringBuilder message = new StringBuilder(1024);
+		message.append("Ready ").append(startupMillis).append(" ms after JVM start, ")
+				.append(beans.size()).append(" beans recorded.");
+
+		message.append(System.lineSeparator()).append("Slowest auto-configurations:");
+		Iterator<Map.Entry<String, Double>> autoConfigurations = timeline.getAutoConfigurations().entrySet().iterator();
+		for (int i = 0; i < limit && autoConfigurations.hasNext(); i++) {
+			Map.Entry<String, Double> entry = autoConfigurations.next();
+			message.append(String.format("%n  %8.1f ms  %s", entry.getValue(), entry.getKey()));
+		}
+
+		message.append(System.lineSeparator()).append("Slowest beans:");
+		for (int i = 0; i < limit && i < beans.size(); i++) {
+			BeanTiming bean = beans.get(i);
+			message.append(String.format("%n  %8.1f ms  %s (%s)", bean.getSelfMillis(), bean.getName(), bean.getType()));
+		}
+		LOGGER.info(message);
+	}
+}
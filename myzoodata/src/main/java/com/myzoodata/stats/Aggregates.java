@@ -0,0 +1,228 @@
+package com.myzoodata.stats;
+
+import java.util.Calendar;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+/**
+ * The counters behind the {@link Statistics}, together with what each
+ * entity contributed to them, so a change can take back the old
+ * contribution before adding the new one.
+ * <p>
+ * Open vaccinations are counted as upcoming until their due date passes.
+ * Their due dates are kept sorted, and moving the ones which have passed
+ * over to the overdue count touches each of them only once.
+ * <p>
+ * Not thread-safe.
+ */
+class Aggregates {
+
+	private static final int MAX_AGE = 20;
+
+	private final Map<Long, AnimalFacts> animals = new HashMap<>();
+	private final Set<Long> owners = new HashSet<>();
+	private final Map<String, SpeciesCount> species = new HashMap<>();
+	private final Map<Integer, Long> birthYears = new HashMap<>();
+	private final Map<Long, Integer> animalsPerOwner = new HashMap<>();
+
+	// Open vaccinations by id, the value is the due date.
+	private final Map<Long, Long> vaccinations = new HashMap<>();
+	// Number of open vaccinations by due date, for those not overdue yet.
+	private final TreeMap<Long, Integer> upcoming = new TreeMap<>();
+	private long overdueBefore = Long.MIN_VALUE;
+	private long overdue;
+
+	/**
+	 * Sets the contribution of an animal.
+	 *
+	 * @param birthDate the birth date, {@code null} if unknown
+	 * @param ownerId the id of the owner, zero without owner
+	 */
+	void putAnimal(long id, String speciesName, Date birthDate, long ownerId) {
+		removeAnimal(id);
+		SpeciesCount count = species.get(speciesName);
+		if (count == null) {
+			count = new SpeciesCount(speciesName);
+			species.put(speciesName, count);
+		}
+		count.value++;
+		AnimalFacts facts = new AnimalFacts(count, birthYear(birthDate), ownerId);
+		animals.put(id, facts);
+		add(birthYears, facts.birthYear, 1L);
+		if (ownerId != 0L) {
+			Integer owned = animalsPerOwner.get(ownerId);
+			animalsPerOwner.put(ownerId, owned == null ? 1 : owned + 1);
+		}
+	}
+
+	void removeAnimal(long id) {
+		AnimalFacts facts = animals.remove(id);
+		if (facts == null) {
+			return;
+		}
+		if (--facts.species.value == 0) {
+			species.remove(facts.species.name);
+		}
+		add(birthYears, facts.birthYear, -1L);
+		if (facts.ownerId != 0L) {
+			int owned = animalsPerOwner.get(facts.ownerId) - 1;
+			if (owned == 0) {
+				animalsPerOwner.remove(facts.ownerId);
+			} else {
+				animalsPerOwner.put(facts.ownerId, owned);
+			}
+		}
+	}
+
+	void putOwner(long id) {
+		owners.add(id);
+	}
+
+	void removeOwner(long id) {
+		owners.remove(id);
+	}
+
+	/**
+	 * Sets the due date of an open vaccination.
+	 */
+	void putVaccination(long id, long dueMillis) {
+		removeVaccination(id);
+		vaccinations.put(id, dueMillis);
+		if (dueMillis < overdueBefore) {
+			overdue++;
+		} else {
+			Integer count = upcoming.get(dueMillis);
+			upcoming.put(dueMillis, count == null ? 1 : count + 1);
+		}
+	}
+
+	/**
+	 * Removes a vaccination which has been completed or deleted, or is no
+	 * vaccination anymore.
+	 */
+	void removeVaccination(long id) {
+		Long dueMillis = vaccinations.remove(id);
+		if (dueMillis == null) {
+			return;
+		}
+		if (dueMillis < overdueBefore) {
+			overdue--;
+		} else {
+			int count = upcoming.get(dueMillis) - 1;
+			if (count == 0) {
+				upcoming.remove(dueMillis);
+			} else {
+				upcoming.put(dueMillis, count);
+			}
+		}
+	}
+
+	/**
+	 * Counts the vaccinations due before the given time as overdue.
+	 */
+	void advance(long nowMillis) {
+		if (nowMillis <= overdueBefore) {
+			return;
+		}
+		SortedMap<Long, Integer> passed = upcoming.headMap(nowMillis);
+		for (Integer count : passed.values()) {
+			overdue += count;
+		}
+		passed.clear();
+		overdueBefore = nowMillis;
+	}
+
+	/**
+	 * Returns when the next upcoming vaccination becomes overdue,
+	 * {@link Long#MAX_VALUE} if there is none.
+	 */
+	long nextDueMillis() {
+		return upcoming.isEmpty() ? Long.MAX_VALUE : upcoming.firstKey();
+	}
+
+	int animalsOf(long ownerId) {
+		Integer owned = animalsPerOwner.get(ownerId);
+		return owned != null ? owned : 0;
+	}
+
+	/**
+	 * Returns the statistics, with the ages as of the year of the given time.
+	 *
+	 * @param reconciled when the counters were last checked against the
+	 * database
+	 */
+	Statistics snapshot(long nowMillis, Date reconciled) {
+		Map<String, Long> speciesCounts = new TreeMap<>();
+		for (SpeciesCount count : species.values()) {
+			speciesCounts.put(count.name, count.value);
+		}
+
+		Calendar calendar = Calendar.getInstance();
+		calendar.setTimeInMillis(nowMillis);
+		int currentYear = calendar.get(Calendar.YEAR);
+		long[] ageCounts = new long[MAX_AGE + 2];
+		for (Map.Entry<Integer, Long> entry : birthYears.entrySet()) {
+			int index = entry.getKey() == 0
+					? MAX_AGE + 1
+					: Math.min(MAX_AGE, Math.max(0, currentYear - entry.getKey()));
+			ageCounts[index] += entry.getValue();
+		}
+		Map<String, Long> ages = new LinkedHashMap<>();
+		for (int age = 0; age < MAX_AGE; age++) {
+			ages.put(Integer.toString(age), ageCounts[age]);
+		}
+		ages.put(MAX_AGE + "+", ageCounts[MAX_AGE]);
+		ages.put("unknown", ageCounts[MAX_AGE + 1]);
+
+		return new Statistics(animals.size(), owners.size(), animalsPerOwner.size(), speciesCounts, ages,
+				overdue, vaccinations.size() - overdue, reconciled);
+	}
+
+	private static int birthYear(Date birthDate) {
+		if (birthDate == null) {
+			return 0;
+		}
+		Calendar calendar = Calendar.getInstance();
+		calendar.setTime(birthDate);
+		return calendar.get(Calendar.YEAR);
+	}
+
+	private static void add(Map<Integer, Long> counts, int key, long delta) {
+		Long count = counts.get(key);
+		long value = (count != null ? count : 0L) + delta;
+		if (value == 0L) {
+			counts.remove(key);
+		} else {
+			counts.put(key, value);
+		}
+	}
+
+	private static final class SpeciesCount {
+
+		private final String name;
+		private long value;
+
+		SpeciesCount(String name) {
+			this.name = name;
+		}
+	}
+
+	private static final class AnimalFacts {
+
+		private final SpeciesCount species;
+		private final int birthYear;
+		private final long ownerId;
+
+		AnimalFacts(SpeciesCount species, int birthYear, long ownerId) {
+			this.species = species;
+			this.birthYear = birthYear;
+			this.ownerId = ownerId;
+		}
+	}
+}
@@ -0,0 +1,20 @@
+package com.myzoodata.stats;
+
+public final class OwnerStatistics {
+
+	private final long owner;
+	private final long animals;
+
+	OwnerStatistics(long owner, long animals) {
+		this.owner = owner;
+		this.animals = animals;
+	}
+
+	public long getOwner() {
+		return owner;
+	}
+
+	public long getAnimals() {
+		return animals;
+	}
+}
@@ -0,0 +1,84 @@
+package com.myzoodata.stats;
+
+import java.util.Collections;
+import java.util.Date;
+import java.util.Map;
+
+/**
+ * The dashboard figures at a point in time.
+ */
+public final class Statistics {
+
+	private final long animals;
+	private final long owners;
+	private final long ownersWithAnimals;
+	private final Map<String, Long> species;
+	private final Map<String, Long> ages;
+	private final long overdueVaccinations;
+	private final long upcomingVaccinations;
+	private final Date reconciled;
+
+	Statistics(long animals, long owners, long ownersWithAnimals, Map<String, Long> species, Map<String, Long> ages,
+			long overdueVaccinations, long upcomingVaccinations, Date reconciled) {
+		this.animals = animals;
+		this.owners = owners;
+		this.ownersWithAnimals = ownersWithAnimals;
+		this.species = Collections.unmodifiableMap(species);
+		this.ages = Collections.unmodifiableMap(ages);
+		this.overdueVaccinations = overdueVaccinations;
+		this.upcomingVaccinations = upcomingVaccinations;
+		this.reconciled = reconciled;
+	}
+
+	public long getAnimals() {
+		return animals;
+	}
+
+	public long getOwners() {
+		return owners;
+	}
+
+	public long getOwnersWithAnimals() {
+		return ownersWithAnimals;
+	}
+
+	/**
+	 * Returns the number of animals by species.
+	 */
+	public Map<String, Long> getSpecies() {
+		return species;
+	}
+
+	/**
+	 * Returns the number of animals by age in years, counted by year of
+	 * birth.
+	 */
+	public Map<String, Long> getAges() {
+		return ages;
+	}
+
+	public long getOverdueVaccinations() {
+		return overdueVaccinations;
+	}
+
+	public long getUpcomingVaccinations() {
+		return upcomingVaccinations;
+	}
+
+	/**
+	 * Returns when the figures were last checked against the database.
+	 */
+	public Date getReconciled() {
+		return reconciled;
+	}
+
+	/**
+	 * Returns whether the other statistics have the same figures.
+	 */
+	boolean sameFiguresAs(Statistics other) {
+		return animals == other.animals && owners == other.owners && ownersWithAnimals == other.ownersWithAnimals
+				&& species.equals(other.species) && ages.equals(other.ages)
+				&& overdueVaccinations == other.overdueVaccinations
+				&& upcomingVaccinations == other.upcomingVaccinations;
+	}
+}
@@ -0,0 +1,37 @@
+package com.myzoodata.stats;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.bind.annotation.ResponseStatus;
+import org.springframework.web.bind.annotation.RestController;
+
+@RestController
+@RequestMapping("/stats")
+class StatisticsController {
+
+	private final StatisticsService statisticsService;
+
+	@Autowired
+	StatisticsController(StatisticsService statisticsService) {
+		this.statisticsService = statisticsService;
+	}
+
+	@RequestMapping(method = RequestMethod.GET)
+	Statistics statistics() {
+		return statisticsService.getStatistics();
+	}
+
+	@RequestMapping(value = "/owners/{id}", method = RequestMethod.GET)
+	OwnerStatistics owner(@PathVariable("id") long ownerId) {
+		return statisticsService.getOwnerStatistics(ownerId);
+	}
+
+	@ExceptionHandler(IllegalStateException.class)
+	@ResponseStatus(HttpStatus.SERVICE_UNAVAILABLE)
+	void notComputedYet() {
+	}
+}
@@ -0,0 +1,343 @@
+package com.myzoodata.stats;
+
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import javax.persistence.PersistenceContext;
+import javax.persistence.PersistenceUnitUtil;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.myzoodata.domain.AbstractEntity;
+import com.myzoodata.domain.Animal;
+import com.myzoodata.domain.EntityChangedEvent;
+import com.myzoodata.domain.Owner;
+import com.myzoodata.domain.Treatment;
+import com.myzoodata.domain.TreatmentType;
+import com.myzoodata.sharding.ShardCallback;
+import com.myzoodata.sharding.ShardTemplate;
+
+/**
+ * Keeps the dashboard statistics up to date with the committed entity
+ * changes, so asking for them does not query the database.
+ * <p>
+ * The counters are computed from the database on startup and then
+ * periodically again, correcting whatever drift the incremental updates
+ * may have caused. As with the search index, the changes committed while
+ * the database is read are applied once more to the new counters before
+ * they replace the current ones.
+ */
+@Service
+public class StatisticsService implements DisposableBean {
+
+	private static final Log LOGGER = LogFactory.getLog(StatisticsService.class);
+
+	private static final int BATCH_SIZE = 5000;
+
+	private static final String ANIMAL_QUERY = "select a.id, a.species, a.birthDate, o.id"
+			+ " from Animal a left join a.owner o where a.id > :after order by a.id";
+
+	private static final String OWNER_QUERY = "select o.id from Owner o where o.id > :after order by o.id";
+
+	private static final String VACCINATION_QUERY = "select t.id, t.dueDate from Treatment t"
+			+ " where t.type = com.myzoodata.domain.TreatmentType.VACCINATION and t.completed = false"
+			+ " and t.id > :after order by t.id";
+
+	@PersistenceContext
+	private EntityManager entityManager;
+
+	private final PersistenceUnitUtil persistenceUnitUtil;
+
+	// Not read-only: a replica could still miss changes which have already
+	// been applied to the counters.
+	private final TransactionTemplate transaction;
+
+	private final ShardTemplate shardTemplate;
+
+	private final long reconcileIntervalMillis;
+
+	// Guarded by this. Null until computed for the first time.
+	private Aggregates aggregates;
+	private Date reconciled;
+
+	// Guarded by this. Not null while the counters are being recomputed.
+	private List<Change> pendingChanges;
+
+	// Guarded by this. The statistics stay the same until a change or the
+	// next due date of a vaccination.
+	private Statistics statistics;
+	private long statisticsValidUntil;
+
+	private ScheduledExecutorService executor;
+
+	@Autowired
+	public StatisticsService(EntityManagerFactory entityManagerFactory, PlatformTransactionManager transactionManager,
+			ShardTemplate shardTemplate,
+			@Value("${myzoodata.stats.reconcile-interval:600000}") long reconcileIntervalMillis) {
+		this.persistenceUnitUtil = entityManagerFactory.getPersistenceUnitUtil();
+		this.transaction = new TransactionTemplate(transactionManager);
+		this.shardTemplate = shardTemplate;
+		this.reconcileIntervalMillis = reconcileIntervalMillis;
+	}
+
+	/**
+	 * Returns the current statistics.
+	 *
+	 * @throws IllegalStateException if they have not been computed yet
+	 */
+	public synchronized Statistics getStatistics() {
+		if (aggregates == null) {
+			throw new IllegalStateException("The statistics have not been computed yet.");
+		}
+		long now = System.currentTimeMillis();
+		if (statistics == null || now >= statisticsValidUntil) {
+			aggregates.advance(now);
+			statistics = aggregates.snapshot(now, reconciled);
+			statisticsValidUntil = Math.min(aggregates.nextDueMillis(), startOfNextYear(now));
+		}
+		return statistics;
+	}
+
+	/**
+	 * Returns the statistics of an owner.
+	 *
+	 * @throws IllegalStateException if they have not been computed yet
+	 */
+	public synchronized OwnerStatistics getOwnerStatistics(long ownerId) {
+		if (aggregates == null) {
+			throw new IllegalStateException("The statistics have not been computed yet.");
+		}
+		return new OwnerStatistics(ownerId, aggregates.animalsOf(ownerId));
+	}
+
+	@TransactionalEventListener(fallbackExecution = true)
+	public void onEntityChanged(EntityChangedEvent event) {
+		AbstractEntity entity = event.getEntity();
+		final long id = entity.getId();
+		final boolean deleted = event.getType() == EntityChangedEvent.Type.DELETED;
+		if (entity instanceof Animal) {
+			Animal animal = (Animal) entity;
+			final String species = animal.getSpecies();
+			final Date birthDate = animal.getBirthDate();
+			final long ownerId = animal.getOwner() != null
+					? (Long) persistenceUnitUtil.getIdentifier(animal.getOwner())
+					: 0L;
+			apply(new Change() {
+				@Override
+				public void applyTo(Aggregates target) {
+					if (deleted) {
+						target.removeAnimal(id);
+					} else {
+						target.putAnimal(id, species, birthDate, ownerId);
+					}
+				}
+			});
+		} else if (entity instanceof Owner) {
+			apply(new Change() {
+				@Override
+				public void applyTo(Aggregates target) {
+					if (deleted) {
+						target.removeOwner(id);
+					} else {
+						target.putOwner(id);
+					}
+				}
+			});
+		} else if (entity instanceof Treatment) {
+			Treatment treatment = (Treatment) entity;
+			final boolean open = !deleted && treatment.getType() == TreatmentType.VACCINATION
+					&& !treatment.isCompleted();
+			final long dueMillis = treatment.getDueDate().getTime();
+			apply(new Change() {
+				@Override
+				public void applyTo(Aggregates target) {
+					if (open) {
+						target.putVaccination(id, dueMillis);
+					} else {
+						target.removeVaccination(id);
+					}
+				}
+			});
+		}
+	}
+
+	@EventListener
+	public void onApplicationReady(ApplicationReadyEvent event) {
+		synchronized (this) {
+			if (executor != null) {
+				return;
+			}
+			executor = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+				@Override
+				public Thread newThread(Runnable task) {
+					Thread thread = new Thread(task, "statistics-reconciliation");
+					thread.setDaemon(true);
+					return thread;
+				}
+			});
+		}
+		executor.scheduleWithFixedDelay(new Runnable() {
+			@Override
+			public void run() {
+				try {
+					reconcile();
+				} catch (RuntimeException ex) {
+					LOGGER.error("Failed to compute the statistics.", ex);
+				}
+			}
+		}, 0L, reconcileIntervalMillis, TimeUnit.MILLISECONDS);
+	}
+
+	@Override
+	public synchronized void destroy() {
+		if (executor != null) {
+			executor.shutdownNow();
+		}
+	}
+
+	/**
+	 * Recomputes the counters from the database and replaces the current
+	 * ones.
+	 */
+	void reconcile() {
+		synchronized (this) {
+			pendingChanges = new ArrayList<>();
+		}
+		try {
+			long start = System.currentTimeMillis();
+			final Aggregates rebuilt = new Aggregates();
+			load(ANIMAL_QUERY, Object[].class, new RowHandler<Object[]>() {
+				@Override
+				public long handle(Object[] row) {
+					long id = (Long) row[0];
+					rebuilt.putAnimal(id, (String) row[1], (Date) row[2], row[3] != null ? (Long) row[3] : 0L);
+					return id;
+				}
+			});
+			load(OWNER_QUERY, Long.class, new RowHandler<Long>() {
+				@Override
+				public long handle(Long id) {
+					rebuilt.putOwner(id);
+					return id;
+				}
+			});
+			load(VACCINATION_QUERY, Object[].class, new RowHandler<Object[]>() {
+				@Override
+				public long handle(Object[] row) {
+					long id = (Long) row[0];
+					rebuilt.putVaccination(id, ((Date) row[1]).getTime());
+					return id;
+				}
+			});
+
+			synchronized (this) {
+				for (Change change : pendingChanges) {
+					change.applyTo(rebuilt);
+				}
+				long now = System.currentTimeMillis();
+				if (aggregates != null) {
+					aggregates.advance(now);
+					rebuilt.advance(now);
+					if (!aggregates.snapshot(now, null).sameFiguresAs(rebuilt.snapshot(now, null))) {
+						LOGGER.warn("Corrected drifted statistics.");
+					}
+				}
+				aggregates = rebuilt;
+				reconciled = new Date(now);
+				statistics = null;
+			}
+			if (LOGGER.isDebugEnabled()) {
+				LOGGER.debug("Computed the statistics in " + (System.currentTimeMillis() - start) + " ms.");
+			}
+		} finally {
+			synchronized (this) {
+				pendingChanges = null;
+			}
+		}
+	}
+
+	private synchronized void apply(Change change) {
+		if (aggregates != null) {
+			change.applyTo(aggregates);
+			statistics = null;
+		}
+		if (pendingChanges != null) {
+			pendingChanges.add(change);
+		}
+	}
+
+	/**
+	 * Runs a query on every shard in batches of ascending ids, the query has
+	 * to select the rows after the id given as {@code after}.
+	 */
+	private <T> void load(final String query, final Class<T> type, final RowHandler<T> handler) {
+		shardTemplate.forEachShard(new ShardCallback<Void>() {
+			@Override
+			public Void doInShard(String shard) {
+				long after = 0L;
+				while (true) {
+					final long from = after;
+					Long last = transaction.execute(new TransactionCallback<Long>() {
+						@Override
+						public Long doInTransaction(TransactionStatus status) {
+							List<T> rows = entityManager.createQuery(query, type)
+									.setParameter("after", from)
+									.setMaxResults(BATCH_SIZE)
+									.getResultList();
+							Long id = null;
+							for (T row : rows) {
+								id = handler.handle(row);
+							}
+							return id;
+						}
+					});
+					if (last == null) {
+						return null;
+					}
+					after = last;
+				}
+			}
+		});
+	}
+
+	private static long startOfNextYear(long nowMillis) {
+		Calendar calendar = Calendar.getInstance();
+		calendar.setTimeInMillis(nowMillis);
+		calendar.set(calendar.get(Calendar.YEAR) + 1, Calendar.JANUARY, 1, 0, 0, 0);
+		calendar.set(Calendar.MILLISECOND, 0);
+		return calendar.getTimeInMillis();
+	}
+
+	private interface Change {
+
+		void applyTo(Aggregates target);
+	}
+
+	private interface RowHandler<T> {
+
+		/**
+		 * Handles a row and returns its id.
+		 */
+		long handle(T row);
+	}
+}
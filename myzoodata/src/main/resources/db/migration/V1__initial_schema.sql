@@ -0,0 +1,55 @@
+-- Initial schema. Keep the statements portable between MySQL and H2, the
+-- tests run the same migrations against an in-memory H2 database.
+
+CREATE TABLE owner (
+    id BIGINT NOT NULL AUTO_INCREMENT,
+    version BIGINT NOT NULL,
+    last_modified DATETIME,
+    name VARCHAR(255) NOT NULL,
+    email VARCHAR(255),
+    PRIMARY KEY (id)
+);
+
+CREATE TABLE animal (
+    id BIGINT NOT NULL AUTO_INCREMENT,
+    version BIGINT NOT NULL,
+    last_modified DATETIME,
+    name VARCHAR(255) NOT NULL,
+    species VARCHAR(255) NOT NULL,
+    breed VARCHAR(255),
+    microchip VARCHAR(255),
+    birth_date DATE,
+    owner_id BIGINT,
+    PRIMARY KEY (id)
+);
+
+CREATE TABLE treatment (
+    id BIGINT NOT NULL AUTO_INCREMENT,
+    version BIGINT NOT NULL,
+    last_modified DATETIME,
+    animal_id BIGINT NOT NULL,
+    type VARCHAR(255) NOT NULL,
+    due_date DATETIME NOT NULL,
+    completed BIT NOT NULL,
+    notes VARCHAR(2000),
+    PRIMARY KEY (id)
+);
+
+-- The indexes are created before the foreign keys so that the keys use
+-- them instead of getting an index of their own.
+
+-- Animals of an owner, listed by name. Also serves the foreign key.
+CREATE INDEX idx_animal_owner ON animal (owner_id, name);
+
+-- Animals of a species, optionally narrowed down to a breed.
+CREATE INDEX idx_animal_species ON animal (species, breed);
+
+-- Open treatments due before a given time. Covers the animal id so the
+-- reminder scan does not have to visit the rows.
+CREATE INDEX idx_treatment_due ON treatment (completed, due_date, animal_id);
+
+-- Treatments of an animal in due date order. Also serves the foreign key.
+CREATE INDEX idx_treatment_animal ON treatment (animal_id, due_date);
+
+ALTER TABLE animal ADD CONSTRAINT fk_animal_owner FOREIGN KEY (owner_id) REFERENCES owner (id);
+ALTER TABLE treatment ADD CONSTRAINT fk_treatment_animal FOREIGN KEY (animal_id) REFERENCES animal (id);
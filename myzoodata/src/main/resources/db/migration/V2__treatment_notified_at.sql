@@ -0,0 +1,8 @@
+-- Remembers which treatments the reminder has been sent for, so reminders
+-- are not sent twice across restarts.
+
+ALTER TABLE treatment ADD COLUMN notified_at DATETIME;
+
+-- Treatments which were already due before the reminders existed are not
+-- reminded of anymore.
+UPDATE treatment SET notified_at = due_date WHERE completed = FALSE AND due_date < CURRENT_TIMESTAMP;
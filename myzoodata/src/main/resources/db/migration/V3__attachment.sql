@@ -0,0 +1,22 @@
+-- Metadata of the attached files, the content itself is in the local
+-- attachment store.
+
+CREATE TABLE attachment (
+    id BIGINT NOT NULL AUTO_INCREMENT,
+    version BIGINT NOT NULL,
+    last_modified DATETIME,
+    animal_id BIGINT NOT NULL,
+    file_name VARCHAR(255) NOT NULL,
+    content_type VARCHAR(255) NOT NULL,
+    content_length BIGINT NOT NULL,
+    content_hash VARCHAR(64) NOT NULL,
+    PRIMARY KEY (id)
+);
+
+-- Attachments of an animal. Also serves the foreign key.
+CREATE INDEX idx_attachment_animal ON attachment (animal_id);
+
+-- Whether some other attachment still has the same content.
+CREATE INDEX idx_attachment_hash ON attachment (content_hash);
+
+ALTER TABLE attachment ADD CONSTRAINT fk_attachment_animal FOREIGN KEY (animal_id) REFERENCES animal (id);
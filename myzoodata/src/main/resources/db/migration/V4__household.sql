@@ -0,0 +1,14 @@
+-- The household a row belongs to, see HouseholdContextHolder. Rows written
+-- before the households existed have none and are not listed to any
+-- household until they are assigned one.
+
+ALTER TABLE owner ADD COLUMN household_id VARCHAR(64);
+ALTER TABLE animal ADD COLUMN household_id VARCHAR(64);
+ALTER TABLE treatment ADD COLUMN household_id VARCHAR(64);
+ALTER TABLE attachment ADD COLUMN household_id VARCHAR(64);
+
+-- The collection pages of a household. The attachments are only read by
+-- their id and their animal.
+CREATE INDEX idx_owner_household ON owner (household_id, id);
+CREATE INDEX idx_animal_household ON animal (household_id, id);
+CREATE INDEX idx_treatment_household ON treatment (household_id, id);
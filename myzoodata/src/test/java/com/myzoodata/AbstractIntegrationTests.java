@@ -0,0 +1,59 @@
+package com.myzoodata;
+
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.embedded.FilterRegistrationBean;
+import org.springframework.boot.test.SpringApplicationConfiguration;
+import org.springframework.boot.test.TestRestTemplate;
+import org.springframework.boot.test.WebIntegrationTest;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.Ordered;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+import org.springframework.web.client.RestTemplate;
+
+/**
+ * Base class of the tests running the whole service on a random port with
+ * the {@code test} profile, that is, against an in-memory database and
+ * with the files in a temporary directory. The subclasses share one
+ * context, as long as they do not change its configuration.
+ */
+@RunWith(SpringJUnit4ClassRunner.class)
+@SpringApplicationConfiguration(classes = { MyzoodataApplication.class,
+		AbstractIntegrationTests.ProbeConfiguration.class }, initializers = TemporaryDirectoriesInitializer.class)
+@WebIntegrationTest(randomPort = true)
+@ActiveProfiles("test")
+public abstract class AbstractIntegrationTests {
+
+	protected final RestTemplate restTemplate = new TestRestTemplate();
+
+	@Autowired
+	protected RequestProbe requestProbe;
+
+	@Value("${local.server.port}")
+	private int port;
+
+	protected String url(String path) {
+		return "http://localhost:" + port + path;
+	}
+
+	@Configuration
+	static class ProbeConfiguration {
+
+		@Bean
+		RequestProbe requestProbe() {
+			return new RequestProbe();
+		}
+
+		@Bean
+		FilterRegistrationBean requestProbeRegistration(RequestProbe requestProbe) {
+			FilterRegistrationBean registration = new FilterRegistrationBean(requestProbe);
+			registration.addUrlPatterns("/*");
+			// Around all the other filters, they are part of the request.
+			registration.setOrder(Ordered.HIGHEST_PRECEDENCE);
+			return registration;
+		}
+	}
+}
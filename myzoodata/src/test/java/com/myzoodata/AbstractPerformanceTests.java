@@ -0,0 +1,181 @@
+package com.myzoodata;
+
+import static org.hamcrest.Matchers.lessThanOrEqualTo;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.junit.Before;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+
+import com.myzoodata.domain.Animal;
+import com.myzoodata.domain.Owner;
+import com.myzoodata.domain.Treatment;
+import com.myzoodata.domain.TreatmentType;
+import com.myzoodata.repositories.AnimalRepository;
+import com.myzoodata.repositories.OwnerRepository;
+import com.myzoodata.repositories.TreatmentRepository;
+
+/**
+ * Base class of the budgets of the REST flows, measured on the server: the
+ * statements per request catch N+1 queries, the allocated bytes catch
+ * regressions of the rendering. Each request is warmed up first, the
+ * budgets apply to the median of the following runs and are about half as
+ * much again as what was measured when they were set.
+ * <p>
+ * The latency depends on the machine, so it is only logged, unless the
+ * {@value #LATENCY_PROPERTY} system property is {@code true}.
+ */
+public abstract class AbstractPerformanceTests extends AbstractIntegrationTests {
+
+	public static final String LATENCY_PROPERTY = "myzoodata.performance.latency";
+
+	private static final Log LOGGER = LogFactory.getLog(AbstractPerformanceTests.class);
+
+	protected static final int ANIMALS = 100;
+
+	private static final int WARMUP_RUNS = 20;
+
+	private static final int MEASURED_RUNS = 21;
+
+	private static final AtomicLong REQUESTS = new AtomicLong();
+
+	// The contexts share the database, so the data is created once.
+	protected static Long ownerId;
+	protected static Long animalId;
+
+	@Autowired
+	private OwnerRepository ownerRepository;
+
+	@Autowired
+	private AnimalRepository animalRepository;
+
+	@Autowired
+	private TreatmentRepository treatmentRepository;
+
+	@Before
+	public void createData() throws InterruptedException {
+		synchronized (AbstractPerformanceTests.class) {
+			if (ownerId != null) {
+				return;
+			}
+			Owner owner = new Owner();
+			owner.setName("Budget Owner");
+			owner.setEmail("budget@example.org");
+			owner = ownerRepository.save(owner);
+			Calendar due = Calendar.getInstance();
+			due.add(Calendar.YEAR, 1);
+			for (int i = 0; i < ANIMALS; i++) {
+				Animal animal = new Animal();
+				animal.setName("Budget animal " + i);
+				animal.setSpecies(i % 2 == 0 ? "dog" : "cat");
+				animal.setBreed("mixed");
+				animal.setMicrochip(Long.toString(900000000000000L + i));
+				animal.setOwner(owner);
+				animal = animalRepository.save(animal);
+				Treatment treatment = new Treatment();
+				treatment.setAnimal(animal);
+				treatment.setType(TreatmentType.VACCINATION);
+				treatment.setDueDate(due.getTime());
+				treatmentRepository.save(treatment);
+				animalId = animal.getId();
+			}
+			ownerId = owner.getId();
+		}
+		awaitStatistics();
+	}
+
+	/**
+	 * Runs a request repeatedly and returns the highest statement count with
+	 * the median allocation and latency of the measured runs.
+	 */
+	protected Result measure(HttpMethod method, String path, Object body) throws InterruptedException {
+		List<Long> allocatedBytes = new ArrayList<>();
+		List<Long> nanos = new ArrayList<>();
+		int statements = 0;
+		String responseBody = null;
+		for (int i = 0; i < WARMUP_RUNS + MEASURED_RUNS; i++) {
+			String id = Long.toString(REQUESTS.incrementAndGet());
+			HttpHeaders headers = new HttpHeaders();
+			headers.set(RequestProbe.HEADER, id);
+			if (body != null) {
+				headers.setContentType(MediaType.APPLICATION_JSON);
+			}
+			ResponseEntity<String> response = restTemplate.exchange(url(path), method,
+					new HttpEntity<>(body, headers), String.class);
+			assertTrue(method + " " + path + " answered " + response.getStatusCode(),
+					response.getStatusCode().is2xxSuccessful());
+			RequestProbe.Measurement measurement = requestProbe.take(id);
+			if (i >= WARMUP_RUNS) {
+				statements = Math.max(statements, measurement.getStatements());
+				allocatedBytes.add(measurement.getAllocatedBytes());
+				nanos.add(measurement.getNanos());
+			}
+			responseBody = response.getBody();
+		}
+		return new Result(method + " " + path, statements, median(allocatedBytes),
+				TimeUnit.NANOSECONDS.toMillis(median(nanos)), responseBody);
+	}
+
+	protected static void assertBudget(Result result, int maxStatements, long maxAllocatedBytes, long maxMillis) {
+		LOGGER.info(String.format("%s: %d of %d statements, %d of %d bytes allocated (%.0f%%), %d of %d ms",
+				result.request, result.statements, maxStatements, result.allocatedBytes, maxAllocatedBytes,
+				100.0 * result.allocatedBytes / maxAllocatedBytes, result.millis, maxMillis));
+		assertThat("Statements of " + result.request, result.statements, lessThanOrEqualTo(maxStatements));
+		assertThat("Allocated bytes of " + result.request, result.allocatedBytes,
+				lessThanOrEqualTo(maxAllocatedBytes));
+		if (Boolean.getBoolean(LATENCY_PROPERTY)) {
+			assertThat("Milliseconds of " + result.request, result.millis, lessThanOrEqualTo(maxMillis));
+		}
+	}
+
+	private static long median(List<Long> values) {
+		Collections.sort(values);
+		return values.get(values.size() / 2);
+	}
+
+	/**
+	 * Waits until the statistics have been computed after the start.
+	 */
+	private void awaitStatistics() throws InterruptedException {
+		for (int i = 0; i < 100; i++) {
+			if (restTemplate.getForEntity(url("/stats"), String.class).getStatusCode() == HttpStatus.OK) {
+				return;
+			}
+			Thread.sleep(100L);
+		}
+		throw new IllegalStateException("The statistics have not been computed.");
+	}
+
+	protected static final class Result {
+
+		final String request;
+		final int statements;
+		final long allocatedBytes;
+		final long millis;
+		// Of the last response.
+		final String body;
+
+		Result(String request, int statements, long allocatedBytes, long millis, String body) {
+			this.request = request;
+			this.statements = statements;
+			this.allocatedBytes = allocatedBytes;
+			this.millis = millis;
+			this.body = body;
+		}
+	}
+}
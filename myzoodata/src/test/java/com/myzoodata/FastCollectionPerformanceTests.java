@@ -0,0 +1,41 @@
+package com.myzoodata;
+
+import static org.junit.Assert.assertFalse;
+
+import org.junit.Test;
+import org.springframework.http.HttpMethod;
+import org.springframework.test.context.TestPropertySource;
+
+/**
+ * Budgets of the collection flows served by the fast collections.
+ */
+@TestPropertySource(properties = "myzoodata.rest.fast-collections=true")
+public class FastCollectionPerformanceTests extends AbstractPerformanceTests {
+
+	@Test
+	public void listAnimals() throws InterruptedException {
+		assertBudget(measureFast("/animals?size=" + ANIMALS), 3, 170000L, 250L);
+	}
+
+	@Test
+	public void listAnimalsSorted() throws InterruptedException {
+		assertBudget(measureFast("/animals?size=" + ANIMALS + "&sort=name,desc"), 3, 170000L, 250L);
+	}
+
+	@Test
+	public void listTreatments() throws InterruptedException {
+		assertBudget(measureFast("/treatments?size=" + ANIMALS), 3, 165000L, 250L);
+	}
+
+	@Test
+	public void listOwners() throws InterruptedException {
+		assertBudget(measureFast("/owners?size=" + ANIMALS), 2, 80000L, 250L);
+	}
+
+	private Result measureFast(String path) throws InterruptedException {
+		Result result = measure(HttpMethod.GET, path, null);
+		// Spring Data REST would have indented the document.
+		assertFalse(path + " was not served by the fast collections", result.body.contains("\n"));
+		return result;
+	}
+}
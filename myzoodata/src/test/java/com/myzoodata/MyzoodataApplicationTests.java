@@ -1,20 +1,182 @@
 package com.myzoodata;
 
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.not;
+import static org.hamcrest.Matchers.notNullValue;
+import static org.hamcrest.Matchers.nullValue;
+import static org.junit.Assert.assertThat;
+
+import java.net.URI;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+
 import org.junit.Test;
-import org.junit.runner.RunWith;
-import org.springframework.boot.test.SpringApplicationConfiguration;
-import org.springframework.boot.test.WebIntegrationTest;
-import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
-import org.springframework.test.context.web.WebAppConfiguration;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.myzoodata.audit.AuditLog;
+
+public class MyzoodataApplicationTests extends AbstractIntegrationTests {
+
+	@PersistenceContext
+	private EntityManager entityManager;
+
+	@Autowired
+	private PlatformTransactionManager transactionManager;
+
+	@Autowired
+	private AuditLog auditLog;
+
+	@Test
+	public void isHealthy() {
+		ResponseEntity<Map> response = restTemplate.getForEntity(url("/health"), Map.class);
+		assertThat(response.getStatusCode(), equalTo(HttpStatus.OK));
+		assertThat(response.getBody().get("status"), equalTo((Object) "UP"));
+	}
+
+	@Test
+	public void createsAndReadsAnimals() {
+		Map<String, Object> owner = new HashMap<>();
+		owner.put("name", "Kate");
+		URI ownerUri = restTemplate.postForLocation(url("/owners"), owner);
+		assertThat(ownerUri, notNullValue());
+
+		Map<String, Object> animal = new HashMap<>();
+		animal.put("name", "Rex");
+		animal.put("species", "dog");
+		animal.put("birthDate", "2015-03-04");
+		animal.put("owner", ownerUri.toString());
+		URI animalUri = restTemplate.postForLocation(url("/animals"), animal);
+		assertThat(animalUri, notNullValue());
+
+		Map<?, ?> read = restTemplate.getForObject(animalUri, Map.class);
+		assertThat(read.get("name"), equalTo((Object) "Rex"));
+		assertThat(read.get("birthDate"), equalTo((Object) "2015-03-04"));
+	}
+
+	@Test
+	public void revalidatesCollections() {
+		ResponseEntity<String> first = restTemplate.getForEntity(url("/owners"), String.class);
+		String etag = first.getHeaders().getETag();
+		assertThat(etag, notNullValue());
+		assertThat(getIfNoneMatch("/owners", etag).getStatusCode(), equalTo(HttpStatus.NOT_MODIFIED));
 
-@RunWith(SpringJUnit4ClassRunner.class)
-@SpringApplicationConfiguration(classes = MyzoodataApplication.class)
-@WebIntegrationTest
-public class MyzoodataApplicationTests {
+		Map<String, Object> owner = new HashMap<>();
+		owner.put("name", "New Owner");
+		restTemplate.postForLocation(url("/owners"), owner);
+		ResponseEntity<String> changed = getIfNoneMatch("/owners", etag);
+		assertThat(changed.getStatusCode(), equalTo(HttpStatus.OK));
+		assertThat(changed.getHeaders().getETag(), not(equalTo(etag)));
+	}
 
 	@Test
-	public void contextLoads() {
-		assert true;
+	public void revalidatesCollectionsAfterBulkUpdates() {
+		Map<String, Object> owner = new HashMap<>();
+		owner.put("name", "Bulk Owner");
+		URI ownerUri = restTemplate.postForLocation(url("/owners"), owner);
+		Map<String, Object> animal = new HashMap<>();
+		animal.put("name", "Bulk animal");
+		animal.put("species", "dog");
+		animal.put("owner", ownerUri.toString());
+		URI animalUri = restTemplate.postForLocation(url("/animals"), animal);
+		Map<String, Object> treatment = new HashMap<>();
+		treatment.put("type", "VACCINATION");
+		treatment.put("dueDate", "2030-01-01");
+		treatment.put("animal", animalUri.toString());
+		URI treatmentUri = restTemplate.postForLocation(url("/treatments"), treatment);
+		final Long treatmentId = Long.valueOf(treatmentUri.getPath().substring("/treatments/".length()));
+
+		String etag = restTemplate.getForEntity(url("/treatments"), String.class).getHeaders().getETag();
+		assertThat(getIfNoneMatch("/treatments", etag).getStatusCode(), equalTo(HttpStatus.NOT_MODIFIED));
+
+		// As another instance or a migration could run it, it does not pass
+		// through the entity listeners.
+		new TransactionTemplate(transactionManager).execute(new TransactionCallback<Integer>() {
+			@Override
+			public Integer doInTransaction(TransactionStatus status) {
+				return entityManager.createQuery("update Treatment t set t.notifiedAt = :now,"
+						+ " t.lastModified = :now, t.version = t.version + 1 where t.id in :ids")
+						.setParameter("ids", Collections.singletonList(treatmentId))
+						.setParameter("now", new Date())
+						.executeUpdate();
+			}
+		});
+		ResponseEntity<String> changed = getIfNoneMatch("/treatments", etag);
+		assertThat(changed.getStatusCode(), equalTo(HttpStatus.OK));
+		assertThat(changed.getHeaders().getETag(), not(equalTo(etag)));
 	}
 
+	@Test
+	public void pagesHistoryOfAnimal() throws InterruptedException {
+		Map<String, Object> owner = new HashMap<>();
+		owner.put("name", "Audited Owner");
+		URI ownerUri = restTemplate.postForLocation(url("/owners"), owner);
+		Map<String, Object> animal = new HashMap<>();
+		animal.put("name", "Audited animal");
+		animal.put("species", "dog");
+		animal.put("owner", ownerUri.toString());
+		URI animalUri = restTemplate.postForLocation(url("/animals"), animal);
+		for (int i = 1; i <= 4; i++) {
+			animal.put("name", "Audited animal " + i);
+			restTemplate.put(animalUri, animal);
+		}
+		auditLog.flush();
+
+		String history = url("/audit" + animalUri.getPath());
+		Map<?, ?> first = restTemplate.getForObject(history + "?limit=3", Map.class);
+		assertThat(((List<?>) first.get("records")).size(), equalTo(3));
+		assertThat(first.get("next"), notNullValue());
+		Map<?, ?> second = restTemplate.getForObject(history + "?limit=3&after=" + first.get("next"), Map.class);
+		List<?> records = (List<?>) second.get("records");
+		assertThat(records.size(), equalTo(2));
+		Map<?, ?> state = (Map<?, ?>) ((Map<?, ?>) records.get(1)).get("state");
+		assertThat(state.get("name"), equalTo((Object) "Audited animal 4"));
+		assertThat(second.get("next"), nullValue());
+	}
+
+	@Test
+	public void readsLazyAssociations() {
+		Map<String, Object> owner = new HashMap<>();
+		owner.put("name", "Lazy Owner");
+		URI ownerUri = restTemplate.postForLocation(url("/owners"), owner);
+		Map<String, Object> animal = new HashMap<>();
+		animal.put("name", "Lazy animal");
+		animal.put("species", "cat");
+		animal.put("owner", ownerUri.toString());
+		URI animalUri = restTemplate.postForLocation(url("/animals"), animal);
+		Map<String, Object> treatment = new HashMap<>();
+		treatment.put("type", "VACCINATION");
+		treatment.put("dueDate", "2030-01-01");
+		treatment.put("animal", animalUri.toString());
+		URI treatmentUri = restTemplate.postForLocation(url("/treatments"), treatment);
+		assertThat(treatmentUri, notNullValue());
+
+		// The associations are Hibernate proxies until they are rendered.
+		ResponseEntity<Map> readOwner = restTemplate.getForEntity(animalUri + "/owner", Map.class);
+		assertThat(readOwner.getStatusCode(), equalTo(HttpStatus.OK));
+		assertThat(readOwner.getBody().get("name"), equalTo((Object) "Lazy Owner"));
+		ResponseEntity<Map> readAnimal = restTemplate.getForEntity(treatmentUri + "/animal", Map.class);
+		assertThat(readAnimal.getStatusCode(), equalTo(HttpStatus.OK));
+		assertThat(readAnimal.getBody().get("name"), equalTo((Object) "Lazy animal"));
+	}
+
+	private ResponseEntity<String> getIfNoneMatch(String path, String etag) {
+		HttpHeaders headers = new HttpHeaders();
+		headers.setIfNoneMatch(etag);
+		return restTemplate.exchange(url(path), HttpMethod.GET, new HttpEntity<Void>(headers), String.class);
+	}
 }
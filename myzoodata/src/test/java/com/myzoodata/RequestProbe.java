@@ -0,0 +1,119 @@
+package com.myzoodata;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.hibernate.EmptyInterceptor;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+/**
+ * Measures requests on the thread serving them: the statements Hibernate
+ * prepares, the bytes allocated and the time taken. Only the requests
+ * carrying the {@link #HEADER} header are measured, its value identifies
+ * the measurement.
+ */
+public class RequestProbe extends OncePerRequestFilter {
+
+	public static final String HEADER = "X-Request-Probe";
+
+	private static final ThreadLocal<int[]> STATEMENTS = new ThreadLocal<>();
+
+	private final com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory
+			.getThreadMXBean();
+
+	private final ConcurrentMap<String, Measurement> measurements = new ConcurrentHashMap<>();
+
+	@Override
+	protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+			throws ServletException, IOException {
+		String id = request.getHeader(HEADER);
+		if (id == null) {
+			chain.doFilter(request, response);
+			return;
+		}
+
+		int[] statements = new int[1];
+		STATEMENTS.set(statements);
+		long threadId = Thread.currentThread().getId();
+		long allocated = threads.getThreadAllocatedBytes(threadId);
+		long start = System.nanoTime();
+		try {
+			chain.doFilter(request, response);
+		} finally {
+			long nanos = System.nanoTime() - start;
+			allocated = threads.getThreadAllocatedBytes(threadId) - allocated;
+			STATEMENTS.remove();
+			measurements.put(id, new Measurement(statements[0], allocated, nanos));
+		}
+	}
+
+	/**
+	 * Returns the measurement of a request. The client may have its response
+	 * before the filter is done, so this waits for it a while.
+	 *
+	 * @throws IllegalStateException if the request has not been measured
+	 */
+	public Measurement take(String id) throws InterruptedException {
+		long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+		while (true) {
+			Measurement measurement = measurements.remove(id);
+			if (measurement != null) {
+				return measurement;
+			}
+			if (System.nanoTime() > deadline) {
+				throw new IllegalStateException("The request " + id + " has not been measured.");
+			}
+			Thread.sleep(1L);
+		}
+	}
+
+	/**
+	 * Counts the statements prepared for a measured request, registered as
+	 * the Hibernate interceptor of the test profile.
+	 */
+	@SuppressWarnings("serial")
+	public static class StatementCounter extends EmptyInterceptor {
+
+		@Override
+		public String onPrepareStatement(String sql) {
+			int[] statements = STATEMENTS.get();
+			if (statements != null) {
+				statements[0]++;
+			}
+			return sql;
+		}
+	}
+
+	public static final class Measurement {
+
+		private final int statements;
+		private final long allocatedBytes;
+		private final long nanos;
+
+		Measurement(int statements, long allocatedBytes, long nanos) {
+			this.statements = statements;
+			this.allocatedBytes = allocatedBytes;
+			this.nanos = nanos;
+		}
+
+		public int getStatements() {
+			return statements;
+		}
+
+		public long getAllocatedBytes() {
+			return allocatedBytes;
+		}
+
+		public long getNanos() {
+			return nanos;
+		}
+	}
+}
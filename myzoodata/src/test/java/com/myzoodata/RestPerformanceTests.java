@@ -0,0 +1,69 @@
+package com.myzoodata;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.Test;
+import org.springframework.http.HttpMethod;
+
+/**
+ * Budgets of the main REST flows as Spring Data REST serves them.
+ */
+public class RestPerformanceTests extends AbstractPerformanceTests {
+
+	@Test
+	public void listAnimals() throws InterruptedException {
+		assertBudget(measure(HttpMethod.GET, "/animals?size=" + ANIMALS, null), 3, 21000000L, 250L);
+	}
+
+	@Test
+	public void listTreatments() throws InterruptedException {
+		assertBudget(measure(HttpMethod.GET, "/treatments?size=" + ANIMALS, null), 3, 21000000L, 250L);
+	}
+
+	@Test
+	public void listAnimalsOfOwner() throws InterruptedException {
+		assertBudget(measure(HttpMethod.GET,
+				"/animals/search/findByOwnerId?ownerId=" + ownerId + "&size=" + ANIMALS, null), 2, 21000000L, 250L);
+	}
+
+	@Test
+	public void readAnimal() throws InterruptedException {
+		assertBudget(measure(HttpMethod.GET, "/animals/" + animalId, null), 2, 1500000L, 100L);
+	}
+
+	@Test
+	public void readOwnerOfAnimal() throws InterruptedException {
+		assertBudget(measure(HttpMethod.GET, "/animals/" + animalId + "/owner", null), 2, 1400000L, 100L);
+	}
+
+	@Test
+	public void createAnimal() throws InterruptedException {
+		Map<String, Object> animal = new HashMap<>();
+		animal.put("name", "Created animal");
+		animal.put("species", "cat");
+		animal.put("owner", "/owners/" + ownerId);
+		assertBudget(measure(HttpMethod.POST, "/animals", animal), 2, 1600000L, 150L);
+	}
+
+	@Test
+	public void updateAnimal() throws InterruptedException {
+		// PUT, the JDK's HTTP client does not know PATCH.
+		Map<String, Object> animal = new HashMap<>();
+		animal.put("name", "Updated animal");
+		animal.put("species", "dog");
+		animal.put("breed", "beagle");
+		animal.put("owner", "/owners/" + ownerId);
+		assertBudget(measure(HttpMethod.PUT, "/animals/" + animalId, animal), 3, 1900000L, 150L);
+	}
+
+	@Test
+	public void search() throws InterruptedException {
+		assertBudget(measure(HttpMethod.GET, "/search?q=budget&size=100", null), 0, 400000L, 50L);
+	}
+
+	@Test
+	public void statistics() throws InterruptedException {
+		assertBudget(measure(HttpMethod.GET, "/stats", null), 0, 400000L, 50L);
+	}
+}
@@ -0,0 +1,72 @@
+package com.myzoodata;
+
+import static org.hamcrest.Matchers.containsString;
+import static org.junit.Assert.assertThat;
+
+import org.flywaydb.core.Flyway;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.SimpleDriverDataSource;
+
+/**
+ * Runs the migrations against an in-memory H2 database and checks with
+ * {@code EXPLAIN} that the main access paths are served by the indexes.
+ */
+public class SchemaIndexTests {
+
+	private static JdbcTemplate jdbc;
+
+	@BeforeClass
+	public static void migrate() {
+		SimpleDriverDataSource dataSource = new SimpleDriverDataSource(new org.h2.Driver(),
+				"jdbc:h2:mem:schema-index-tests;DB_CLOSE_DELAY=-1", "sa", "");
+		Flyway flyway = new Flyway();
+		flyway.setDataSource(dataSource);
+		flyway.migrate();
+		jdbc = new JdbcTemplate(dataSource);
+	}
+
+	@Test
+	public void animalsByOwnerUseOwnerIndex() {
+		assertThat(explain("SELECT id, name FROM animal WHERE owner_id = 1 ORDER BY name"),
+				containsString("IDX_ANIMAL_OWNER"));
+	}
+
+	@Test
+	public void animalsBySpeciesUseSpeciesIndex() {
+		assertThat(explain("SELECT id FROM animal WHERE species = 'dog' AND breed = 'beagle'"),
+				containsString("IDX_ANIMAL_SPECIES"));
+	}
+
+	@Test
+	public void dueTreatmentsUseDueIndex() {
+		assertThat(explain("SELECT id, animal_id, due_date FROM treatment"
+				+ " WHERE completed = FALSE AND due_date < '2016-01-01 00:00:00'"),
+				containsString("IDX_TREATMENT_DUE"));
+	}
+
+	@Test
+	public void upcomingTreatmentsUseDueIndex() {
+		assertThat(explain("SELECT id, due_date FROM treatment WHERE completed = FALSE AND notified_at IS NULL"
+				+ " AND due_date >= '2016-01-01 00:00:00' AND due_date < '2016-01-01 01:00:00'"
+				+ " ORDER BY due_date, id"),
+				containsString("IDX_TREATMENT_DUE"));
+	}
+
+	@Test
+	public void treatmentsOfAnimalUseAnimalIndex() {
+		assertThat(explain("SELECT id FROM treatment WHERE animal_id = 1 ORDER BY due_date"),
+				containsString("IDX_TREATMENT_ANIMAL"));
+	}
+
+	@Test
+	public void ownersOfHouseholdUseHouseholdIndex() {
+		assertThat(explain("SELECT id, name FROM owner WHERE household_id = 'a' ORDER BY id"),
+				containsString("IDX_OWNER_HOUSEHOLD"));
+	}
+
+	private static String explain(String sql) {
+		return jdbc.queryForObject("EXPLAIN " + sql, String.class);
+	}
+}
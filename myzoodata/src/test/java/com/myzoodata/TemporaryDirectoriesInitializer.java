@@ -0,0 +1,43 @@
+package com.myzoodata;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.springframework.context.ApplicationContextInitializer;
+import org.springframework.context.ApplicationListener;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.context.event.ContextClosedEvent;
+import org.springframework.core.env.MapPropertySource;
+import org.springframework.util.FileSystemUtils;
+
+/**
+ * Points the audit log and the attachment store of a test context to a
+ * temporary directory, which is deleted when the context is closed.
+ */
+public class TemporaryDirectoriesInitializer
+		implements ApplicationContextInitializer<ConfigurableApplicationContext> {
+
+	@Override
+	public void initialize(ConfigurableApplicationContext applicationContext) {
+		final File directory;
+		try {
+			directory = Files.createTempDirectory("myzoodata-tests").toFile();
+		} catch (IOException ex) {
+			throw new IllegalStateException("Failed to create the temporary directory.", ex);
+		}
+		Map<String, Object> properties = new HashMap<>();
+		properties.put("myzoodata.audit.directory", new File(directory, "audit").getPath());
+		properties.put("myzoodata.attachments.directory", new File(directory, "attachments").getPath());
+		applicationContext.getEnvironment().getPropertySources()
+				.addFirst(new MapPropertySource("temporaryDirectories", properties));
+		applicationContext.addApplicationListener(new ApplicationListener<ContextClosedEvent>() {
+			@Override
+			public void onApplicationEvent(ContextClosedEvent event) {
+				FileSystemUtils.deleteRecursively(directory);
+			}
+		});
+	}
+}
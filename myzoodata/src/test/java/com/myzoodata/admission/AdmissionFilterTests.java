@@ -0,0 +1,100 @@
+package com.myzoodata.admission;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.UUID;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.ServletRequest;
+import javax.servlet.ServletResponse;
+
+import org.junit.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+public class AdmissionFilterTests {
+
+	private static final long MILLI = 1000000L;
+
+	private final AdmissionProperties properties = new AdmissionProperties();
+
+	@Test
+	public void rotatingUnknownKeysDoesNotBypassLimit() throws Exception {
+		properties.setApiKeys(Collections.singletonList("known"));
+		AdmissionFilter filter = createFilter(0.001, 3);
+		for (int i = 0; i < 3; i++) {
+			assertEquals(HttpStatus.OK.value(), filter(filter, "10.0.0.1", UUID.randomUUID().toString()));
+		}
+		assertEquals(HttpStatus.TOO_MANY_REQUESTS.value(),
+				filter(filter, "10.0.0.1", UUID.randomUUID().toString()));
+		assertEquals(1L, filter.getRateLimitedCount());
+	}
+
+	@Test
+	public void knownKeysHaveOwnBuckets() throws Exception {
+		properties.setApiKeys(Collections.singletonList("known"));
+		AdmissionFilter filter = createFilter(0.001, 1);
+		assertEquals(HttpStatus.OK.value(), filter(filter, "10.0.0.1", null));
+		assertEquals(HttpStatus.OK.value(), filter(filter, "10.0.0.1", "known"));
+		assertEquals(HttpStatus.TOO_MANY_REQUESTS.value(), filter(filter, "10.0.0.1", "known"));
+		assertEquals(HttpStatus.TOO_MANY_REQUESTS.value(), filter(filter, "10.0.0.1", "unknown"));
+	}
+
+	@Test
+	public void streamingRequestsDoNotLowerLimit() throws Exception {
+		ConcurrencyLimiter limiter = new ConcurrencyLimiter(50, 1, 100, 1.0, 1.0, 0L, 20 * MILLI,
+				System.nanoTime());
+		AdmissionFilter filter = new AdmissionFilter(properties, new TokenBuckets(1000000.0, 1000, 1000), limiter);
+		for (int i = 0; i < 100; i++) {
+			filterSlowly(filter, "/attachments/1/content");
+		}
+		assertEquals(50, limiter.getLimit());
+		assertEquals(0, limiter.getInFlight());
+
+		for (int i = 0; i < 100; i++) {
+			filterSlowly(filter, "/animals/1");
+		}
+		assertTrue(limiter.getLimit() < 50);
+		assertEquals(0, limiter.getInFlight());
+	}
+
+	private AdmissionFilter createFilter(double rate, int burst) {
+		ConcurrencyLimiter limiter = new ConcurrencyLimiter(10, 1, 100, 1.0, 1.0, 100 * MILLI, 1000 * MILLI,
+				System.nanoTime());
+		return new AdmissionFilter(properties, new TokenBuckets(rate, burst, 1000), limiter);
+	}
+
+	private int filter(AdmissionFilter filter, String remoteAddress, String apiKey)
+			throws IOException, ServletException {
+		MockHttpServletRequest request = new MockHttpServletRequest("GET", "/animals");
+		request.setRemoteAddr(remoteAddress);
+		if (apiKey != null) {
+			request.addHeader(properties.getApiKeyHeader(), apiKey);
+		}
+		MockHttpServletResponse response = new MockHttpServletResponse();
+		filter.doFilter(request, response, new MockFilterChain());
+		return response.getStatus();
+	}
+
+	private static void filterSlowly(AdmissionFilter filter, String path) throws IOException, ServletException {
+		MockHttpServletResponse response = new MockHttpServletResponse();
+		filter.doFilter(new MockHttpServletRequest("GET", path), response, new FilterChain() {
+
+			@Override
+			public void doFilter(ServletRequest request, ServletResponse response) {
+				try {
+					Thread.sleep(1L);
+				} catch (InterruptedException ex) {
+					Thread.currentThread().interrupt();
+				}
+			}
+		});
+		assertEquals(HttpStatus.OK.value(), response.getStatus());
+	}
+}
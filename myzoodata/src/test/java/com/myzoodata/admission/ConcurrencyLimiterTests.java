@@ -0,0 +1,106 @@
+package com.myzoodata.admission;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.junit.Test;
+
+public class ConcurrencyLimiterTests {
+
+	private static final long MILLI = 1000000L;
+
+	@Test
+	public void sharesOfPriorityClasses() {
+		ConcurrencyLimiter limiter = new ConcurrencyLimiter(10, 1, 100, 0.8, 0.5, 100 * MILLI, 1000 * MILLI, 0L);
+		for (int i = 0; i < 5; i++) {
+			assertTrue(limiter.tryAcquire(Priority.BULK));
+		}
+		assertFalse(limiter.tryAcquire(Priority.BULK));
+		for (int i = 0; i < 3; i++) {
+			assertTrue(limiter.tryAcquire(Priority.WRITE));
+		}
+		assertFalse(limiter.tryAcquire(Priority.WRITE));
+		assertTrue(limiter.tryAcquire(Priority.READ));
+		assertTrue(limiter.tryAcquire(Priority.READ));
+		assertFalse(limiter.tryAcquire(Priority.READ));
+		assertEquals(10, limiter.getInFlight());
+	}
+
+	@Test
+	public void slowRequestsLowerLimit() {
+		ConcurrencyLimiter limiter = new ConcurrencyLimiter(100, 10, 200, 1.0, 1.0, 100 * MILLI, 1000 * MILLI, 0L);
+		long now = 0L;
+		for (int window = 1; window <= 3; window++) {
+			for (int i = 0; i < 20; i++) {
+				assertTrue(limiter.tryAcquire(Priority.READ));
+				now += 60 * MILLI;
+				limiter.release(500 * MILLI, now);
+			}
+		}
+		assertEquals(72, limiter.getLimit());
+		assertEquals(500 * MILLI, limiter.getLatencyNanos());
+	}
+
+	@Test
+	public void fastRequestsAtLimitRaiseLimit() {
+		ConcurrencyLimiter limiter = new ConcurrencyLimiter(4, 1, 200, 1.0, 1.0, 100 * MILLI, 1000 * MILLI, 0L);
+		long now = 0L;
+		for (int i = 0; i < 20; i++) {
+			while (limiter.tryAcquire(Priority.READ)) {
+				// fill up to the limit
+			}
+			now += 100 * MILLI;
+			for (int j = limiter.getInFlight(); j > 0; j--) {
+				limiter.release(10 * MILLI, now);
+			}
+		}
+		assertTrue(limiter.getLimit() > 4);
+	}
+
+	@Test
+	public void fastRequestsBelowLimitKeepLimit() {
+		ConcurrencyLimiter limiter = new ConcurrencyLimiter(50, 1, 200, 1.0, 1.0, 100 * MILLI, 1000 * MILLI, 0L);
+		long now = 0L;
+		for (int i = 0; i < 100; i++) {
+			assertTrue(limiter.tryAcquire(Priority.READ));
+			now += 100 * MILLI;
+			limiter.release(10 * MILLI, now);
+		}
+		assertEquals(50, limiter.getLimit());
+	}
+
+	@Test
+	public void waitingRequestGetsReleasedPermit() throws Exception {
+		final ConcurrencyLimiter limiter = new ConcurrencyLimiter(1, 1, 1, 1.0, 1.0, 100 * MILLI, 1000 * MILLI, 0L);
+		assertTrue(limiter.tryAcquire(Priority.READ));
+		assertFalse(limiter.acquire(Priority.BULK, TimeUnit.SECONDS.toNanos(1)));
+
+		final CountDownLatch started = new CountDownLatch(1);
+		final AtomicBoolean acquired = new AtomicBoolean();
+		Thread waiter = new Thread(new Runnable() {
+			@Override
+			public void run() {
+				started.countDown();
+				try {
+					acquired.set(limiter.acquire(Priority.READ, TimeUnit.SECONDS.toNanos(10)));
+				} catch (InterruptedException ex) {
+					Thread.currentThread().interrupt();
+				}
+			}
+		});
+		waiter.start();
+		started.await();
+		while (limiter.getWaiting() == 0) {
+			Thread.sleep(1L);
+		}
+		limiter.release(MILLI, MILLI);
+		waiter.join(5000L);
+		assertTrue(acquired.get());
+		assertEquals(1, limiter.getInFlight());
+	}
+}
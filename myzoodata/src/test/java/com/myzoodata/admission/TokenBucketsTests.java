@@ -0,0 +1,68 @@
+package com.myzoodata.admission;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+public class TokenBucketsTests {
+
+	private static final long SECOND = 1000000000L;
+
+	@Test
+	public void burstThenRate() {
+		TokenBuckets buckets = new TokenBuckets(10.0, 5, 1000);
+		long now = 1000 * SECOND;
+		for (int i = 0; i < 5; i++) {
+			assertEquals(0L, buckets.tryAcquire("a", now));
+		}
+		long wait = buckets.tryAcquire("a", now);
+		assertEquals(SECOND / 10, wait);
+
+		assertEquals(0L, buckets.tryAcquire("a", now + wait));
+		assertTrue(buckets.tryAcquire("a", now + wait) > 0);
+	}
+
+	@Test
+	public void clientsHaveOwnBuckets() {
+		TokenBuckets buckets = new TokenBuckets(1.0, 1, 1000);
+		long now = 1000 * SECOND;
+		assertEquals(0L, buckets.tryAcquire("a", now));
+		assertTrue(buckets.tryAcquire("a", now) > 0);
+		assertEquals(0L, buckets.tryAcquire("b", now));
+		assertEquals(2, buckets.size());
+	}
+
+	@Test
+	public void fullBucketsForgotten() {
+		// One client per stripe.
+		TokenBuckets buckets = new TokenBuckets(1.0, 1, 64);
+		long now = System.nanoTime();
+		for (int i = 0; i < 1000; i++) {
+			buckets.tryAcquire("client-" + i, now);
+		}
+		assertTrue(buckets.size() <= 64);
+
+		// Once the buckets are full again, new clients take their place.
+		now += 2 * SECOND;
+		for (int i = 1000; i < 2000; i++) {
+			buckets.tryAcquire("client-" + i, now);
+		}
+		assertTrue(buckets.size() <= 64);
+		assertEquals(0L, buckets.tryAcquire("client-1999", now + 2 * SECOND));
+	}
+
+	@Test
+	public void newClientsShareOverflow() {
+		TokenBuckets buckets = new TokenBuckets(1.0, 1, 64);
+		long now = System.nanoTime();
+		int allowed = 0;
+		for (int i = 0; i < 1000; i++) {
+			if (buckets.tryAcquire("client-" + i, now) == 0L) {
+				allowed++;
+			}
+		}
+		// A bucket for each stripe plus an overflow bucket for each.
+		assertTrue(allowed <= 128);
+	}
+}
@@ -0,0 +1,86 @@
+package com.myzoodata.attachments;
+
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.notNullValue;
+import static org.hamcrest.Matchers.startsWith;
+import static org.junit.Assert.assertThat;
+
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+
+import com.myzoodata.AbstractIntegrationTests;
+
+public class AttachmentControllerTests extends AbstractIntegrationTests {
+
+	private URI animalUri;
+
+	@Before
+	public void createAnimal() {
+		Map<String, Object> owner = new HashMap<>();
+		owner.put("name", "Attachment Owner");
+		URI ownerUri = restTemplate.postForLocation(url("/owners"), owner);
+		Map<String, Object> animal = new HashMap<>();
+		animal.put("name", "Attachment animal");
+		animal.put("species", "cat");
+		animal.put("owner", ownerUri.toString());
+		animalUri = restTemplate.postForLocation(url("/animals"), animal);
+		assertThat(animalUri, notNullValue());
+	}
+
+	@Test
+	public void downloadsHtmlAsOctetStream() {
+		ResponseEntity<byte[]> download = uploadAndDownload("page.html", MediaType.TEXT_HTML,
+				"<html><script>alert(document.cookie)</script></html>");
+		HttpHeaders headers = download.getHeaders();
+		assertThat(headers.getContentType(), equalTo(MediaType.APPLICATION_OCTET_STREAM));
+		assertThat(headers.getFirst(HttpHeaders.CONTENT_DISPOSITION), startsWith("attachment; "));
+		assertThat(headers.getFirst("X-Content-Type-Options"), equalTo("nosniff"));
+	}
+
+	@Test
+	public void downloadsSvgAsOctetStream() {
+		ResponseEntity<byte[]> download = uploadAndDownload("image.svg", MediaType.valueOf("image/svg+xml"),
+				"<svg xmlns=\"http://www.w3.org/2000/svg\" onload=\"alert(1)\"/>");
+		HttpHeaders headers = download.getHeaders();
+		assertThat(headers.getContentType(), equalTo(MediaType.APPLICATION_OCTET_STREAM));
+		assertThat(headers.getFirst(HttpHeaders.CONTENT_DISPOSITION), startsWith("attachment; "));
+	}
+
+	@Test
+	public void showsPdfInline() {
+		ResponseEntity<byte[]> download = uploadAndDownload("report.pdf", MediaType.valueOf("application/pdf"),
+				"%PDF-1.4");
+		HttpHeaders headers = download.getHeaders();
+		assertThat(headers.getContentType(), equalTo(MediaType.valueOf("application/pdf")));
+		assertThat(headers.getFirst(HttpHeaders.CONTENT_DISPOSITION), startsWith("inline; "));
+		assertThat(headers.getFirst("X-Content-Type-Options"), equalTo("nosniff"));
+	}
+
+	@Test
+	public void cachesOnlyInBrowser() {
+		ResponseEntity<byte[]> download = uploadAndDownload("photo.png", MediaType.IMAGE_PNG, "not really a png");
+		assertThat(download.getHeaders().getCacheControl(), equalTo("private, max-age=31536000, immutable"));
+	}
+
+	private ResponseEntity<byte[]> uploadAndDownload(String name, MediaType contentType, String content) {
+		HttpHeaders headers = new HttpHeaders();
+		headers.setContentType(contentType);
+		URI attachmentUri = restTemplate.postForLocation(animalUri + "/attachments?name=" + name,
+				new HttpEntity<>(content.getBytes(StandardCharsets.UTF_8), headers));
+		assertThat(attachmentUri, notNullValue());
+		ResponseEntity<byte[]> download = restTemplate.getForEntity(attachmentUri + "/content", byte[].class);
+		assertThat(download.getStatusCode(), equalTo(HttpStatus.OK));
+		assertThat(new String(download.getBody(), StandardCharsets.UTF_8), equalTo(content));
+		return download;
+	}
+}
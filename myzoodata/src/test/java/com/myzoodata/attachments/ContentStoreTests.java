@@ -0,0 +1,100 @@
+package com.myzoodata.attachments;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import javax.imageio.ImageIO;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class ContentStoreTests {
+
+	private static final String HELLO_HASH = "2cf24dba5fb0a30e26e83b2ac5b9e29e1b161e5c1fa7425e73043362938b9824";
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	private ContentStore store;
+
+	@Before
+	public void setUp() throws Exception {
+		store = new ContentStore(folder.getRoot().toPath());
+	}
+
+	@Test
+	public void storedUnderHash() throws Exception {
+		ContentStore.Upload upload = store.receive(stream("hello"), 100);
+		assertEquals(HELLO_HASH, upload.getHash());
+		assertEquals(5L, upload.getLength());
+
+		store.commit(upload);
+		Path file = store.path(HELLO_HASH);
+		assertArrayEquals("hello".getBytes(StandardCharsets.UTF_8), Files.readAllBytes(file));
+		assertTrue(file.startsWith(folder.getRoot().toPath().resolve("2c").resolve("f2")));
+		assertEquals(0, store.temporaryDirectory().toFile().list().length);
+	}
+
+	@Test
+	public void sameContentStoredOnce() throws Exception {
+		store.commit(store.receive(stream("hello"), 100));
+		store.commit(store.receive(stream("hello"), 100));
+
+		assertEquals(1, store.path(HELLO_HASH).getParent().toFile().list().length);
+		assertEquals(0, store.temporaryDirectory().toFile().list().length);
+	}
+
+	@Test
+	public void tooLargeContentRejected() throws Exception {
+		try {
+			store.receive(stream("hello"), 4);
+			fail();
+		} catch (ContentTooLargeException ex) {
+			// expected
+		}
+		assertEquals(0, store.temporaryDirectory().toFile().list().length);
+	}
+
+	@Test
+	public void deleteRemovesThumbnails() throws Exception {
+		ContentStore.Upload upload = store.receive(new ByteArrayInputStream(png(1000, 500)), 1000000);
+		store.commit(upload);
+		ThumbnailGenerator generator = new ThumbnailGenerator(store, 100, 1, 1);
+		try {
+			Path thumbnail = store.thumbnailPath(upload.getHash(), 100);
+			generator.generate(store.path(upload.getHash()), thumbnail);
+
+			BufferedImage image = ImageIO.read(thumbnail.toFile());
+			assertEquals(100, image.getWidth());
+			assertEquals(50, image.getHeight());
+
+			store.delete(upload.getHash());
+			assertFalse(Files.exists(store.path(upload.getHash())));
+			assertFalse(Files.exists(thumbnail));
+		} finally {
+			generator.destroy();
+		}
+	}
+
+	private static ByteArrayInputStream stream(String content) {
+		return new ByteArrayInputStream(content.getBytes(StandardCharsets.UTF_8));
+	}
+
+	private static byte[] png(int width, int height) throws Exception {
+		ByteArrayOutputStream output = new ByteArrayOutputStream();
+		ImageIO.write(new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB), "png", output);
+		return output.toByteArray();
+	}
+}
@@ -0,0 +1,173 @@
+package com.myzoodata.audit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.myzoodata.domain.EntityChangedEvent;
+
+public class AuditLogTests {
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	private AuditLog log;
+
+	@After
+	public void tearDown() {
+		if (log != null) {
+			log.close();
+		}
+	}
+
+	@Test
+	public void historyOfAnimal() throws Exception {
+		log = AuditLog.open(folder.getRoot(), 4096);
+		log.append(record("Animal", 1L, 1L, "{\"name\":\"Rex\"}"));
+		log.append(record("Owner", 1L, 0L, "{\"name\":\"Kate\"}"));
+		log.append(record("Animal", 2L, 2L, "{\"name\":\"Bolyhos\"}"));
+		log.append(record("Treatment", 5L, 1L, "{\"type\":\"VACCINATION\"}"));
+		log.flush();
+
+		List<AuditRecord> history = log.history(1L);
+		assertEquals(2, history.size());
+		assertEquals("Animal", history.get(0).getEntityType());
+		assertEquals("{\"name\":\"Rex\"}", history.get(0).getState());
+		assertEquals(1L, history.get(0).getSequence());
+		assertEquals("Treatment", history.get(1).getEntityType());
+		assertEquals(4L, history.get(1).getSequence());
+		assertTrue(log.history(3L).isEmpty());
+	}
+
+	@Test
+	public void historyPagesBySequence() throws Exception {
+		log = AuditLog.open(folder.getRoot(), 4096);
+		for (long i = 1; i <= 10; i++) {
+			log.append(record("Animal", 1L, 1L, "{\"version\":" + i + "}"));
+			log.append(record("Animal", 2L, 2L, "{}"));
+		}
+		log.flush();
+
+		List<AuditRecord> first = log.history(1L, 0L, 4);
+		assertEquals(4, first.size());
+		assertEquals(1L, first.get(0).getSequence());
+		assertEquals(7L, first.get(3).getSequence());
+		List<AuditRecord> second = log.history(1L, 7L, 4);
+		assertEquals(9L, second.get(0).getSequence());
+		assertEquals("{\"version\":5}", second.get(0).getState());
+		assertEquals(2, log.history(1L, 16L, 4).size());
+		assertEquals(1, log.history(1L, 18L, 4).size());
+		assertTrue(log.history(1L, 19L, 4).isEmpty());
+	}
+
+	@Test
+	public void failedWriteFailsFlushAndWriterCarriesOn() throws Exception {
+		File directory = new File(folder.getRoot(), "audit");
+		log = AuditLog.open(directory, 256);
+		// The next segment cannot be created.
+		for (File file : directory.listFiles()) {
+			assertTrue(file.delete());
+		}
+		assertTrue(directory.delete());
+		for (long i = 1; i <= 5; i++) {
+			log.append(record("Animal", i, 1L, "{}"));
+		}
+		try {
+			log.flush();
+			fail("The records do not fit into the first segment.");
+		} catch (IllegalStateException ex) {
+			// Expected.
+		}
+
+		assertTrue(directory.mkdirs());
+		log.append(record("Animal", 6L, 1L, "{}"));
+		log.flush();
+		List<AuditRecord> history = log.history(1L);
+		assertEquals(6L, history.get(history.size() - 1).getEntityId());
+	}
+
+	@Test
+	public void reopenedLogContinues() throws Exception {
+		log = AuditLog.open(folder.getRoot(), 4096);
+		log.append(record("Animal", 1L, 1L, "{}"));
+		log.append(record("Animal", 1L, 1L, "{}"));
+		log.close();
+
+		log = AuditLog.open(folder.getRoot(), 4096);
+		log.append(record("Animal", 1L, 1L, "{}"));
+		log.flush();
+		assertEquals(3L, log.history(1L).get(2).getSequence());
+	}
+
+	@Test
+	public void replayAcrossSegments() throws Exception {
+		log = AuditLog.open(folder.getRoot(), 256);
+		for (long i = 1; i <= 20; i++) {
+			log.append(record("Animal", i, i, "{\"name\":\"animal " + i + "\"}"));
+		}
+		log.close();
+		assertTrue(folder.getRoot().listFiles().length > 1);
+
+		log = AuditLog.openReadOnly(folder.getRoot());
+		final List<Long> sequences = new ArrayList<>();
+		log.replay(15L, new AuditLog.RecordHandler() {
+			@Override
+			public void handle(AuditRecord record) {
+				sequences.add(record.getSequence());
+			}
+		});
+		assertEquals(6, sequences.size());
+		assertEquals(15L, (long) sequences.get(0));
+		assertEquals(20L, (long) sequences.get(5));
+		assertEquals(20L, log.history(20L).get(0).getEntityId());
+	}
+
+	@Test
+	public void partiallyWrittenRecordIsDropped() throws Exception {
+		log = AuditLog.open(folder.getRoot(), 4096);
+		log.append(record("Animal", 1L, 1L, "{\"name\":\"Rex\"}"));
+		log.append(record("Animal", 1L, 1L, "{\"name\":\"Rex II\"}"));
+		log.close();
+
+		File segment = folder.getRoot().listFiles()[0];
+		try (RandomAccessFile file = new RandomAccessFile(segment, "rw")) {
+			int second = 8 + file.readInt();
+			file.seek(second + 30);
+			file.write(0x7f);
+		}
+
+		log = AuditLog.open(folder.getRoot(), 4096);
+		assertEquals(1, log.history(1L).size());
+		log.append(record("Animal", 1L, 1L, "{\"name\":\"Rex III\"}"));
+		log.close();
+
+		log = AuditLog.openReadOnly(folder.getRoot());
+		List<AuditRecord> history = log.history(1L);
+		assertEquals(2, history.size());
+		assertEquals("{\"name\":\"Rex III\"}", history.get(1).getState());
+		assertEquals(2L, history.get(1).getSequence());
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void readOnlyLogRejectsAppend() throws IOException {
+		AuditLog.open(folder.getRoot(), 4096).close();
+		log = AuditLog.openReadOnly(folder.getRoot());
+		log.append(record("Animal", 1L, 1L, "{}"));
+	}
+
+	private static AuditRecord record(String entityType, long entityId, long animalId, String state) {
+		return new AuditRecord(System.currentTimeMillis(), EntityChangedEvent.Type.UPDATED, entityType, entityId,
+				0L, animalId, state);
+	}
+}
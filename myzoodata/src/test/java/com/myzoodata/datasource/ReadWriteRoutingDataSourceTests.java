@@ -0,0 +1,156 @@
+package com.myzoodata.datasource;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.Arrays;
+
+import javax.sql.DataSource;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.AbstractDataSource;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.jdbc.datasource.SimpleDriverDataSource;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+/**
+ * Routes between two in-memory H2 databases, each of which knows whether it
+ * is the primary or the replica.
+ */
+public class ReadWriteRoutingDataSourceTests {
+
+	private final DataSource primary = database("primary");
+	private final DataSource replica = database("replica");
+
+	private ReadWriteRoutingDataSource routingDataSource;
+	private JdbcTemplate jdbc;
+	private TransactionTemplate writeTransaction;
+	private TransactionTemplate readTransaction;
+
+	@Before
+	public void setUp() {
+		route(replica);
+	}
+
+	private void route(DataSource replica) {
+		routingDataSource = new ReadWriteRoutingDataSource(primary, Arrays.asList(replica));
+		routingDataSource.setHealthCheckIntervalMillis(0);
+		routingDataSource.afterPropertiesSet();
+
+		DataSource dataSource = new LazyConnectionDataSourceProxy(routingDataSource);
+		jdbc = new JdbcTemplate(dataSource);
+		writeTransaction = new TransactionTemplate(new DataSourceTransactionManager(dataSource));
+		readTransaction = new TransactionTemplate(new DataSourceTransactionManager(dataSource));
+		readTransaction.setReadOnly(true);
+	}
+
+	@After
+	public void tearDown() {
+		RequestContextHolder.resetRequestAttributes();
+		routingDataSource.destroy();
+	}
+
+	@Test
+	public void readOnlyTransactionUsesReplica() {
+		assertEquals("replica", currentDatabase(readTransaction));
+	}
+
+	@Test
+	public void readWriteTransactionUsesPrimary() {
+		assertEquals("primary", currentDatabase(writeTransaction));
+	}
+
+	@Test
+	public void readsWithoutTransactionUsePrimary() {
+		assertEquals("primary", jdbc.queryForObject("SELECT name FROM marker", String.class));
+	}
+
+	@Test
+	public void readsAfterWriteInSameRequestUsePrimary() {
+		RequestContextHolder.setRequestAttributes(new ServletRequestAttributes(new MockHttpServletRequest()));
+		assertEquals("replica", currentDatabase(readTransaction));
+		assertEquals("primary", currentDatabase(writeTransaction));
+		assertEquals("primary", currentDatabase(readTransaction));
+
+		RequestContextHolder.setRequestAttributes(new ServletRequestAttributes(new MockHttpServletRequest()));
+		assertEquals("replica", currentDatabase(readTransaction));
+	}
+
+	@Test
+	public void readsAfterWriteUseReplicaIfNotSticky() {
+		routingDataSource.setStickyReads(false);
+		RequestContextHolder.setRequestAttributes(new ServletRequestAttributes(new MockHttpServletRequest()));
+		currentDatabase(writeTransaction);
+		assertEquals("replica", currentDatabase(readTransaction));
+	}
+
+	@Test
+	public void unavailableReplicaFallsBackToPrimary() {
+		FailingDataSource failing = new FailingDataSource(replica);
+		route(failing);
+
+		failing.failing = true;
+		assertEquals("primary", currentDatabase(readTransaction));
+		assertFalse(routingDataSource.getReplicas().get(0).isHealthy());
+
+		failing.failing = false;
+		assertEquals("primary", currentDatabase(readTransaction));
+		routingDataSource.checkReplicas();
+		assertTrue(routingDataSource.getReplicas().get(0).isHealthy());
+		assertEquals("replica", currentDatabase(readTransaction));
+	}
+
+	private String currentDatabase(TransactionTemplate transaction) {
+		return transaction.execute(new TransactionCallback<String>() {
+			@Override
+			public String doInTransaction(TransactionStatus status) {
+				return jdbc.queryForObject("SELECT name FROM marker", String.class);
+			}
+		});
+	}
+
+	private static DataSource database(String name) {
+		DataSource dataSource = new SimpleDriverDataSource(new org.h2.Driver(),
+				"jdbc:h2:mem:routing-" + name + ";DB_CLOSE_DELAY=-1", "sa", "");
+		JdbcTemplate jdbc = new JdbcTemplate(dataSource);
+		jdbc.execute("CREATE TABLE IF NOT EXISTS marker (name VARCHAR(16))");
+		jdbc.execute("DELETE FROM marker");
+		jdbc.update("INSERT INTO marker (name) VALUES (?)", name);
+		return dataSource;
+	}
+
+	private static final class FailingDataSource extends AbstractDataSource {
+
+		private final DataSource target;
+		private volatile boolean failing;
+
+		FailingDataSource(DataSource target) {
+			this.target = target;
+		}
+
+		@Override
+		public Connection getConnection() throws SQLException {
+			if (failing) {
+				throw new SQLException("Replica is down");
+			}
+			return target.getConnection();
+		}
+
+		@Override
+		public Connection getConnection(String username, String password) throws SQLException {
+			return getConnection();
+		}
+	}
+}
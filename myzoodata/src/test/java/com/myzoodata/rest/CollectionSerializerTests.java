@@ -0,0 +1,239 @@
+package com.myzoodata.rest;
+
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.lessThan;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Random;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.hateoas.Link;
+import org.springframework.hateoas.PagedResources;
+import org.springframework.hateoas.Resource;
+import org.springframework.hateoas.core.EvoInflectorRelProvider;
+import org.springframework.hateoas.hal.Jackson2HalModule;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.util.UriComponentsBuilder;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.util.StdDateFormat;
+import com.myzoodata.domain.AbstractEntity;
+import com.myzoodata.domain.Animal;
+
+/**
+ * Checks the fast collection serializer against the way Spring Data REST
+ * renders a page, the generic HAL serialization with links built for every
+ * item, and compares the two on pages of 1000 animals.
+ */
+public class CollectionSerializerTests {
+
+	private static final Log LOGGER = LogFactory.getLog(CollectionSerializerTests.class);
+
+	private static final String BASE_URI = "http://localhost:8100";
+
+	private static final int PAGE_SIZE = 1000;
+
+	private final ObjectMapper halMapper = new ObjectMapper();
+
+	private final JsonFactory jsonFactory = new JsonFactory();
+
+	private final AnimalCollectionSerializer serializer = new AnimalCollectionSerializer();
+
+	private final List<Animal> animals = new ArrayList<>();
+
+	private final List<Object[]> rows = new ArrayList<>();
+
+	@Before
+	public void createAnimals() {
+		halMapper.registerModule(new Jackson2HalModule());
+		halMapper.setHandlerInstantiator(
+				new Jackson2HalModule.HalHandlerInstantiator(new EvoInflectorRelProvider(), null, null));
+		halMapper.addMixIn(Animal.class, RestProperties.class);
+		halMapper.enable(SerializationFeature.INDENT_OUTPUT);
+		halMapper.disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+
+		Random random = new Random(42);
+		for (int i = 0; i < PAGE_SIZE; i++) {
+			Animal animal = new Animal();
+			ReflectionTestUtils.setField(animal, "id", 1000L + i);
+			ReflectionTestUtils.setField(animal, "lastModified",
+					new java.sql.Timestamp(1400000000000L + random.nextInt(Integer.MAX_VALUE) * 100L));
+			animal.setName("Animal \"" + i + "\" é");
+			animal.setSpecies(i % 2 == 0 ? "dog" : "cat");
+			animal.setBreed(i % 3 == 0 ? null : "breed " + i);
+			animal.setMicrochip(i % 5 == 0 ? null : Long.toString(900000000000000L + i));
+			animal.setBirthDate(i % 7 == 0 ? null : java.sql.Date.valueOf("2010-01-01"));
+			animals.add(animal);
+			rows.add(new Object[] { animal.getId(), animal.getLastModified(), animal.getName(), animal.getSpecies(),
+					animal.getBreed(), animal.getMicrochip(), animal.getBirthDate() });
+		}
+	}
+
+	@Test
+	public void formatsTimestampsLikeJackson() {
+		StdDateFormat format = new StdDateFormat();
+		char[] buffer = new char[28];
+		Random random = new Random(7);
+		for (int i = 0; i < 10000; i++) {
+			long millis = Math.abs(random.nextLong() % 253402300800000L);
+			assertTrue(CollectionSerializer.formatTimestamp(millis, buffer));
+			assertThat(new String(buffer), equalTo(format.format(new Date(millis))));
+		}
+		assertTrue(CollectionSerializer.formatTimestamp(-1L, buffer));
+		assertThat(new String(buffer), equalTo("1969-12-31T23:59:59.999+0000"));
+	}
+
+	@Test
+	public void writesSameDocumentAsHalSerialization() throws IOException {
+		for (int number = 0; number < 3; number++) {
+			ByteArrayOutputStream expected = new ByteArrayOutputStream();
+			ByteArrayOutputStream actual = new ByteArrayOutputStream();
+			int size = number == 0 ? PAGE_SIZE : 300;
+			writeWithHalMapper(expected, number, size);
+			writeWithSerializer(actual, number, size);
+			assertThat(halMapper.readTree(actual.toByteArray()), equalTo(halMapper.readTree(expected.toByteArray())));
+		}
+	}
+
+	@Test
+	public void allocatesLessThanHalSerialization() throws IOException {
+		java.lang.management.ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+		assumeTrue(threads instanceof com.sun.management.ThreadMXBean);
+		com.sun.management.ThreadMXBean allocations = (com.sun.management.ThreadMXBean) threads;
+		assumeTrue(allocations.isThreadAllocatedMemorySupported() && allocations.isThreadAllocatedMemoryEnabled());
+
+		CountingOutputStream halOutput = new CountingOutputStream();
+		CountingOutputStream fastOutput = new CountingOutputStream();
+		for (int i = 0; i < 50; i++) {
+			writeWithHalMapper(halOutput, 0, PAGE_SIZE);
+			writeWithSerializer(fastOutput, 0, PAGE_SIZE);
+		}
+
+		Measurement hal = new Measurement(allocations, halOutput);
+		for (int i = 0; i < 100; i++) {
+			writeWithHalMapper(halOutput, 0, PAGE_SIZE);
+		}
+		hal.stop();
+		Measurement fast = new Measurement(allocations, fastOutput);
+		for (int i = 0; i < 100; i++) {
+			writeWithSerializer(fastOutput, 0, PAGE_SIZE);
+		}
+		fast.stop();
+
+		LOGGER.info("HAL serialization: " + hal + ", fast collection serializer: " + fast);
+		assertThat(fast.allocated * 4, lessThan(hal.allocated));
+	}
+
+	private void writeWithHalMapper(OutputStream output, int number, int size) throws IOException {
+		List<Resource<Animal>> content = new ArrayList<>();
+		for (Animal animal : animals.subList(number * size, Math.min((number + 1) * size, PAGE_SIZE))) {
+			String uri = UriComponentsBuilder.fromHttpUrl(BASE_URI).pathSegment("animals", animal.getId().toString())
+					.build().toUriString();
+			content.add(new Resource<>(animal, new Link(uri), new Link(uri, "animal"),
+					new Link(uri + "/owner", "owner")));
+		}
+		List<Link> links = new ArrayList<>();
+		if (size < PAGE_SIZE) {
+			links.add(new Link(BASE_URI + "/animals?page=0&size=" + size, "first"));
+			if (number > 0) {
+				links.add(new Link(BASE_URI + "/animals?page=" + (number - 1) + "&size=" + size, "prev"));
+			}
+		}
+		links.add(new Link(BASE_URI + "/animals"));
+		int totalPages = (PAGE_SIZE + size - 1) / size;
+		if (number + 1 < totalPages) {
+			links.add(new Link(BASE_URI + "/animals?page=" + (number + 1) + "&size=" + size, "next"));
+		}
+		if (size < PAGE_SIZE) {
+			links.add(new Link(BASE_URI + "/animals?page=" + (totalPages - 1) + "&size=" + size, "last"));
+		}
+		links.add(new Link(BASE_URI + "/profile/animals", "profile"));
+		links.add(new Link(BASE_URI + "/animals/search", "search"));
+		halMapper.writeValue(output,
+				new PagedResources<>(content, new PagedResources.PageMetadata(size, number, PAGE_SIZE), links));
+	}
+
+	private void writeWithSerializer(OutputStream output, int number, int size) throws IOException {
+		Page<Object[]> page = new PageImpl<>(rows.subList(number * size, Math.min((number + 1) * size, PAGE_SIZE)),
+				new PageRequest(number, size), PAGE_SIZE);
+		JsonGenerator generator = jsonFactory.createGenerator(output, JsonEncoding.UTF8);
+		serializer.write(generator, page, BASE_URI);
+		generator.close();
+	}
+
+	/**
+	 * The properties Spring Data REST renders: neither the id, the version
+	 * nor the associations.
+	 */
+	@JsonIgnoreProperties({ "id", "version", "owner" })
+	private abstract static class RestProperties extends AbstractEntity {
+	}
+
+	private static class CountingOutputStream extends OutputStream {
+
+		long count;
+
+		@Override
+		public void write(int b) {
+			count++;
+		}
+
+		@Override
+		public void write(byte[] b, int off, int len) {
+			count += len;
+		}
+	}
+
+	private static class Measurement {
+
+		private final com.sun.management.ThreadMXBean allocations;
+		private final CountingOutputStream output;
+		private final long startBytes;
+		private final long startAllocated;
+		private final long startNanos;
+
+		long allocated;
+		long bytes;
+		long nanos;
+
+		Measurement(com.sun.management.ThreadMXBean allocations, CountingOutputStream output) {
+			this.allocations = allocations;
+			this.output = output;
+			this.startBytes = output.count;
+			this.startNanos = System.nanoTime();
+			this.startAllocated = allocations.getThreadAllocatedBytes(Thread.currentThread().getId());
+		}
+
+		void stop() {
+			allocated = allocations.getThreadAllocatedBytes(Thread.currentThread().getId()) - startAllocated;
+			nanos = System.nanoTime() - startNanos;
+			bytes = output.count - startBytes;
+		}
+
+		@Override
+		public String toString() {
+			return String.format("%.1f MB/s, %d bytes allocated per page, %d bytes written per page",
+					bytes * 1000.0 / nanos, allocated / 100, bytes / 100);
+		}
+	}
+}
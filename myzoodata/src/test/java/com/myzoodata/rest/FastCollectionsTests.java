@@ -0,0 +1,335 @@
+package com.myzoodata.rest;
+
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.not;
+import static org.hamcrest.Matchers.startsWith;
+import static org.junit.Assert.assertThat;
+
+import java.io.IOException;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.servlet.Filter;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.embedded.FilterRegistrationBean;
+import org.springframework.core.annotation.AnnotationAwareOrderComparator;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.web.context.WebApplicationContext;
+import org.springframework.web.util.NestedServletException;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.myzoodata.AbstractIntegrationTests;
+import com.myzoodata.sharding.ShardRoutingDataSource;
+
+/**
+ * Runs the service with fast collections on two in-memory shards, and
+ * compares each answer with the one of Spring Data REST for the same
+ * request, served by the same context through all the other filters.
+ */
+@TestPropertySource(properties = { "myzoodata.rest.fast-collections=true",
+		"myzoodata.sharding.shards[0].url=jdbc:h2:mem:fast-shard-0;DB_CLOSE_DELAY=-1",
+		"myzoodata.sharding.shards[1].url=jdbc:h2:mem:fast-shard-1;DB_CLOSE_DELAY=-1" })
+public class FastCollectionsTests extends AbstractIntegrationTests {
+
+	private static final String HEADER = "X-Household-Id";
+
+	private static final String HAL = "application/hal+json";
+
+	private static final String[] COLLECTIONS = { "/animals", "/owners", "/treatments" };
+
+	@Autowired
+	private WebApplicationContext webApplicationContext;
+
+	@Autowired
+	private List<FilterRegistrationBean> filterRegistrations;
+
+	@Autowired
+	private ShardRoutingDataSource router;
+
+	private final ObjectMapper objectMapper = new ObjectMapper();
+
+	private MockMvc springDataRest;
+
+	@Before
+	public void setUp() {
+		List<FilterRegistrationBean> registrations = new ArrayList<>(filterRegistrations);
+		AnnotationAwareOrderComparator.sort(registrations);
+		List<Filter> filters = new ArrayList<>();
+		for (FilterRegistrationBean registration : registrations) {
+			Filter filter = (Filter) ReflectionTestUtils.invokeMethod(registration, "getFilter");
+			if (!(filter instanceof FastCollectionFilter)) {
+				filters.add(filter);
+			}
+		}
+		springDataRest = MockMvcBuilders.webAppContextSetup(webApplicationContext)
+				.addFilters(filters.toArray(new Filter[filters.size()]))
+				.build();
+	}
+
+	@Test
+	public void servesPagesLikeSpringDataRest() throws Exception {
+		String household = createHousehold("shard-0", 0);
+		for (String collection : COLLECTIONS) {
+			assertFast(collection, household);
+			assertFast(collection + "?page=1&size=2", household);
+			assertFast(collection + "?page=5&size=2", household);
+			assertFast(collection + "?size=1", household);
+			assertFast(collection + "?sort=id,desc", household);
+		}
+		assertFast("/animals?sort=name", household);
+		assertFast("/animals?sort=name,DESC&size=2", household);
+		assertFast("/owners?sort=name,asc", household);
+		assertFast("/treatments?sort=dueDate,desc", household);
+	}
+
+	@Test
+	public void resolvesBadPagesLikeSpringDataRest() throws Exception {
+		String household = createHousehold("shard-0", 1);
+		for (String collection : COLLECTIONS) {
+			assertFast(collection + "?page=-1", household);
+			assertFast(collection + "?page=first", household);
+			assertFast(collection + "?size=0", household);
+			assertFast(collection + "?size=-5", household);
+			assertFast(collection + "?size=many", household);
+			assertFast(collection + "?size=100000", household);
+			assertFast(collection + "?page=&size=", household);
+		}
+		assertFallback("/animals?page=2147483647&size=2", household);
+	}
+
+	@Test
+	public void leavesOtherRequestsToSpringDataRest() throws Exception {
+		String household = createHousehold("shard-1", 0);
+		assertFallback("/animals?projection=summary", household);
+		assertFallback("/animals?sort=name&sort=species", household);
+		assertFallback("/animals?sort=owner", household);
+		assertFallback("/animals?sort=name,sideways", household);
+		assertFallback("/owners?name=Owner", household);
+		assertFallback("/treatments?sort=", household);
+	}
+
+	@Test
+	public void negotiatesLikeSpringDataRest() throws Exception {
+		String household = createHousehold("shard-1", 1);
+		for (String collection : COLLECTIONS) {
+			assertFast(collection, household, "application/json");
+			assertFast(collection, household, "application/hal+json");
+			assertFast(collection, household, "*/*");
+			assertFast(collection, household, "application/json;q=0.5, application/hal+json");
+			assertFast(collection, household, "text/html;q=0.9, application/json;q=0.8");
+		}
+		assertFallback("/animals", household, "application/*");
+		assertFallback("/animals", household, "application/*+json");
+		assertFallback("/animals", household, "application/x-spring-data-compact+json");
+		assertFallback("/animals", household, "text/uri-list");
+
+		ResponseEntity<String> json = exchange("/animals", household, "application/json", null);
+		assertThat(json.getHeaders().getContentType().isCompatibleWith(MediaType.APPLICATION_JSON), equalTo(true));
+		ResponseEntity<String> hal = exchange("/animals", household, "*/*", null);
+		assertThat(hal.getHeaders().getContentType().getSubtype(), equalTo("hal+json"));
+	}
+
+	@Test
+	public void linksToTheBaseUriOfTheRequest() throws Exception {
+		String household = createHousehold("shard-0", 2);
+		JsonNode page = assertFast("/animals?page=0&size=2", household);
+		assertThat(page.path("_links").path("self").path("href").asText(), startsWith(url("/animals")));
+		assertThat(page.path("_embedded").path("animals").path(0).path("_links").path("self").path("href").asText(),
+				startsWith(url("/animals/")));
+
+		Map<String, String> forwarded = new HashMap<>();
+		forwarded.put("X-Forwarded-Host", "zoo.example.org");
+		forwarded.put("X-Forwarded-Proto", "https");
+		JsonNode proxied = assertSame("/owners?size=2", household, HAL, forwarded, true);
+		assertThat(proxied.path("_links").path("self").path("href").asText(),
+				startsWith("https://zoo.example.org/owners"));
+	}
+
+	@Test
+	public void revalidatesFastCollections() throws Exception {
+		String household = createHousehold("shard-1", 2);
+		ResponseEntity<String> first = exchange("/animals", household, null, null);
+		String etag = first.getHeaders().getETag();
+		assertThat(etag, not(equalTo(null)));
+		Map<String, String> ifNoneMatch = new HashMap<>();
+		ifNoneMatch.put(HttpHeaders.IF_NONE_MATCH, etag);
+		assertThat(exchange("/animals", household, null, ifNoneMatch).getStatusCode(),
+				equalTo(HttpStatus.NOT_MODIFIED));
+
+		createAnimal("Latecomer", createOwner("Late Owner", household), household);
+		ResponseEntity<String> changed = exchange("/animals", household, null, ifNoneMatch);
+		assertThat(changed.getStatusCode(), equalTo(HttpStatus.OK));
+		assertThat(changed.getHeaders().getETag(), not(equalTo(etag)));
+		assertThat(changed.getBody(), containsString("Latecomer"));
+	}
+
+	@Test
+	public void servesOnlyTheHouseholdOfTheRequest() throws Exception {
+		String household = createHousehold("shard-0", 3);
+		String neighbour = householdOn("shard-0", 4);
+		createAnimal("Neighbour animal", createOwner("Neighbour Owner", neighbour), neighbour);
+		String remote = householdOn("shard-1", 3);
+		createAnimal("Remote animal", createOwner("Remote Owner", remote), remote);
+
+		for (String collection : COLLECTIONS) {
+			String body = assertFast(collection + "?size=1000", household).toString();
+			assertThat(body, containsString(household));
+			assertThat(body, not(containsString("Neighbour")));
+			assertThat(body, not(containsString("Remote")));
+		}
+		assertThat(exchange("/animals", null, null, null).getStatusCode(), equalTo(HttpStatus.BAD_REQUEST));
+	}
+
+	/**
+	 * Creates owners, animals and treatments of a new household on a shard,
+	 * named after the household.
+	 */
+	private String createHousehold(String shard, int index) {
+		String household = householdOn(shard, index);
+		for (int i = 0; i < 3; i++) {
+			URI ownerUri = createOwner("Owner " + i + " of " + household, household);
+			URI animalUri = createAnimal("Animal " + (3 - i) + " of " + household, ownerUri, household);
+			Map<String, Object> treatment = new HashMap<>();
+			treatment.put("type", i % 2 == 0 ? "VACCINATION" : "MEDICATION");
+			treatment.put("dueDate", "2030-0" + (i + 1) + "-01");
+			treatment.put("notes", "Treatment " + i + " of " + household);
+			treatment.put("animal", animalUri.toString());
+			post("/treatments", treatment, household);
+		}
+		return household;
+	}
+
+	/**
+	 * Returns the {@code index}th household living on a shard, see
+	 * {@code HouseholdRoutingTests}.
+	 */
+	private String householdOn(String shard, int index) {
+		for (int i = 0;; i++) {
+			String household = "fast-household-" + i;
+			if (router.shardOfHousehold(household).equals(shard) && index-- == 0) {
+				return household;
+			}
+		}
+	}
+
+	private URI createOwner(String name, String household) {
+		Map<String, Object> owner = new HashMap<>();
+		owner.put("name", name);
+		return post("/owners", owner, household);
+	}
+
+	private URI createAnimal(String name, URI ownerUri, String household) {
+		Map<String, Object> animal = new HashMap<>();
+		animal.put("name", name);
+		animal.put("species", "cat");
+		animal.put("owner", ownerUri.toString());
+		return post("/animals", animal, household);
+	}
+
+	private URI post(String path, Object body, String household) {
+		HttpHeaders headers = new HttpHeaders();
+		headers.set(HEADER, household);
+		headers.setContentType(MediaType.APPLICATION_JSON);
+		ResponseEntity<String> created = restTemplate.exchange(url(path), HttpMethod.POST,
+				new HttpEntity<>(body, headers), String.class);
+		assertThat(created.getStatusCode(), equalTo(HttpStatus.CREATED));
+		return created.getHeaders().getLocation();
+	}
+
+	private JsonNode assertFast(String path, String household) throws Exception {
+		return assertFast(path, household, HAL);
+	}
+
+	private JsonNode assertFast(String path, String household, String accept) throws Exception {
+		return assertSame(path, household, accept, null, true);
+	}
+
+	private JsonNode assertFallback(String path, String household) throws Exception {
+		return assertFallback(path, household, HAL);
+	}
+
+	private JsonNode assertFallback(String path, String household, String accept) throws Exception {
+		return assertSame(path, household, accept, null, false);
+	}
+
+	/**
+	 * Asserts that the service answers like Spring Data REST and tells the
+	 * fast collections apart by their missing indentation.
+	 */
+	private JsonNode assertSame(String path, String household, String accept, Map<String, String> extraHeaders,
+			boolean fast) throws Exception {
+		ResponseEntity<String> actual = exchange(path, household, accept, extraHeaders);
+		MockHttpServletRequestBuilder request = MockMvcRequestBuilders.get(URI.create(url(path)))
+				.header(HEADER, household)
+				.header(HttpHeaders.ACCEPT, accept);
+		if (extraHeaders != null) {
+			for (Map.Entry<String, String> header : extraHeaders.entrySet()) {
+				request.header(header.getKey(), header.getValue());
+			}
+		}
+		MockHttpServletResponse expected;
+		try {
+			expected = springDataRest.perform(request).andReturn().getResponse();
+		} catch (NestedServletException ex) {
+			// MockMvc has no error page, only the status can be compared.
+			assertThat(path, actual.getStatusCode(), equalTo(HttpStatus.INTERNAL_SERVER_ERROR));
+			assertThat(path, fast, equalTo(false));
+			return null;
+		}
+
+		assertThat(path, actual.getStatusCode().value(), equalTo(expected.getStatus()));
+		// Not acceptable, answered by the error page of the server.
+		if (expected.getContentType() == null) {
+			assertThat(path, fast, equalTo(false));
+			return null;
+		}
+		assertThat(path, actual.getStatusCode(), equalTo(HttpStatus.OK));
+		MediaType expectedType = MediaType.parseMediaType(expected.getContentType());
+		MediaType actualType = actual.getHeaders().getContentType();
+		assertThat(path, actualType.getType() + "/" + actualType.getSubtype(),
+				equalTo(expectedType.getType() + "/" + expectedType.getSubtype()));
+		JsonNode actualBody = parse(actual.getBody());
+		assertThat(path, actualBody, equalTo(parse(expected.getContentAsString())));
+		assertThat(path + " served by the fast collections", !actual.getBody().contains("\n"), equalTo(fast));
+		return actualBody;
+	}
+
+	private ResponseEntity<String> exchange(String path, String household, String accept,
+			Map<String, String> extraHeaders) {
+		HttpHeaders headers = new HttpHeaders();
+		if (household != null) {
+			headers.set(HEADER, household);
+		}
+		if (accept != null) {
+			headers.set(HttpHeaders.ACCEPT, accept);
+		}
+		if (extraHeaders != null) {
+			headers.setAll(extraHeaders);
+		}
+		return restTemplate.exchange(url(path), HttpMethod.GET, new HttpEntity<Void>(headers), String.class);
+	}
+
+	private JsonNode parse(String json) throws IOException {
+		return objectMapper.readTree(json);
+	}
+}
@@ -0,0 +1,228 @@
+package com.myzoodata.scheduling;
+
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.not;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationContext;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.myzoodata.AbstractIntegrationTests;
+import com.myzoodata.audit.AuditLog;
+import com.myzoodata.audit.AuditRecord;
+import com.myzoodata.domain.Animal;
+import com.myzoodata.domain.EntityChangedEvent;
+import com.myzoodata.domain.Owner;
+import com.myzoodata.domain.Treatment;
+import com.myzoodata.domain.TreatmentType;
+import com.myzoodata.repositories.AnimalRepository;
+import com.myzoodata.repositories.OwnerRepository;
+import com.myzoodata.repositories.TreatmentRepository;
+import com.myzoodata.sharding.ShardTemplate;
+
+/**
+ * Ticks schedulers of its own against a database of its own, the one of the
+ * service is switched off.
+ */
+@TestPropertySource(properties = { "spring.datasource.url=jdbc:h2:mem:reminders;DB_CLOSE_DELAY=-1",
+		"myzoodata.scheduling.enabled=false" })
+public class ReminderSchedulerTests extends AbstractIntegrationTests {
+
+	@Autowired
+	private ApplicationContext applicationContext;
+
+	@Autowired
+	private PlatformTransactionManager transactionManager;
+
+	@Autowired
+	private ShardTemplate shardTemplate;
+
+	@Autowired
+	private OwnerRepository owners;
+
+	@Autowired
+	private AnimalRepository animals;
+
+	@Autowired
+	private TreatmentRepository treatments;
+
+	@Autowired
+	private AuditLog auditLog;
+
+	@PersistenceContext
+	private EntityManager entityManager;
+
+	private final RecordingHandler handler = new RecordingHandler();
+
+	private final SchedulingProperties properties = new SchedulingProperties();
+
+	private Animal animal;
+
+	@Before
+	public void setUp() {
+		// Whatever the other tests left open would fall due as well.
+		new TransactionTemplate(transactionManager).execute(new TransactionCallback<Integer>() {
+			@Override
+			public Integer doInTransaction(TransactionStatus status) {
+				return entityManager.createQuery("update Treatment t set t.completed = true").executeUpdate();
+			}
+		});
+		Owner owner = new Owner();
+		owner.setName("Reminded Owner");
+		animal = new Animal();
+		animal.setName("Reminded animal");
+		animal.setSpecies("dog");
+		animal.setOwner(owners.save(owner));
+		animal = animals.save(animal);
+	}
+
+	@Test
+	public void claimsFiresAndMarks() throws InterruptedException {
+		Treatment treatment = createTreatment(-60000L);
+		ReminderScheduler scheduler = createScheduler();
+		scheduler.tick(System.currentTimeMillis());
+
+		assertEquals(Collections.singletonList(treatment.getId()), handler.treatmentIds());
+		Reminder reminder = handler.reminders.get(0);
+		assertEquals(animal.getId().longValue(), reminder.getAnimalId());
+		assertEquals(TreatmentType.VACCINATION, reminder.getType());
+		assertEquals(1L, scheduler.getDispatchedCount());
+		Treatment marked = treatments.findOne(treatment.getId());
+		assertNotNull(marked.getNotifiedAt());
+		assertEquals(treatment.getVersion() + 1, marked.getVersion());
+
+		// The mark is published like any other change.
+		AuditRecord record = lastRecord(treatment);
+		assertEquals(EntityChangedEvent.Type.UPDATED, record.getChange());
+		assertEquals(marked.getVersion(), record.getVersion());
+		assertThat(record.getState(), not(containsString("\"notifiedAt\":null")));
+	}
+
+	@Test
+	public void unmarksOnFailedDelivery() throws InterruptedException {
+		Treatment treatment = createTreatment(-60000L);
+		ReminderScheduler scheduler = createScheduler();
+		handler.failures = 1;
+		scheduler.tick(System.currentTimeMillis());
+
+		assertTrue(handler.reminders.isEmpty());
+		assertEquals(1L, scheduler.getFailedCount());
+		Treatment unmarked = treatments.findOne(treatment.getId());
+		assertNull(unmarked.getNotifiedAt());
+		assertEquals(treatment.getVersion() + 2, unmarked.getVersion());
+		AuditRecord record = lastRecord(treatment);
+		assertEquals(unmarked.getVersion(), record.getVersion());
+		assertThat(record.getState(), containsString("\"notifiedAt\":null"));
+
+		// Retried after the delay, not before.
+		assertEquals(1, scheduler.getScheduledCount());
+		scheduler.tick(System.currentTimeMillis());
+		assertTrue(handler.reminders.isEmpty());
+		scheduler.tick(System.currentTimeMillis() + 2 * properties.getRetryDelay());
+		assertEquals(Collections.singletonList(treatment.getId()), handler.treatmentIds());
+		assertNotNull(treatments.findOne(treatment.getId()).getNotifiedAt());
+	}
+
+	@Test
+	public void refillsWindowWhenWheelIsFull() {
+		Treatment first = createTreatment(-180000L);
+		Treatment second = createTreatment(-120000L);
+		Treatment third = createTreatment(-60000L);
+		properties.setCapacity(2);
+		properties.setBatchSize(1);
+		ReminderScheduler scheduler = createScheduler();
+
+		scheduler.tick(System.currentTimeMillis());
+		assertEquals(Arrays.asList(first.getId(), second.getId()), handler.treatmentIds());
+		assertEquals(second.getDueDate().getTime(), scheduler.getWindowEndMillis());
+
+		scheduler.tick(System.currentTimeMillis());
+		assertEquals(Arrays.asList(first.getId(), second.getId(), third.getId()), handler.treatmentIds());
+		assertTrue(scheduler.getWindowEndMillis() > System.currentTimeMillis());
+		assertEquals(0, scheduler.getScheduledCount());
+	}
+
+	@Test
+	public void restartDoesNotFireTwice() {
+		Treatment treatment = createTreatment(-60000L);
+		createScheduler().tick(System.currentTimeMillis());
+		assertEquals(Collections.singletonList(treatment.getId()), handler.treatmentIds());
+
+		ReminderScheduler restarted = createScheduler();
+		restarted.tick(System.currentTimeMillis());
+		assertEquals(0, restarted.getScheduledCount());
+		assertEquals(Collections.singletonList(treatment.getId()), handler.treatmentIds());
+		assertEquals(0L, restarted.getDispatchedCount());
+	}
+
+	private ReminderScheduler createScheduler() {
+		ReminderScheduler scheduler = new ReminderScheduler(transactionManager, shardTemplate, handler,
+				properties);
+		applicationContext.getAutowireCapableBeanFactory().autowireBean(scheduler);
+		return scheduler;
+	}
+
+	private Treatment createTreatment(long dueInMillis) {
+		Treatment treatment = new Treatment();
+		treatment.setAnimal(animal);
+		treatment.setType(TreatmentType.VACCINATION);
+		treatment.setDueDate(new Date(System.currentTimeMillis() + dueInMillis));
+		return treatments.save(treatment);
+	}
+
+	private AuditRecord lastRecord(Treatment treatment) throws InterruptedException {
+		auditLog.flush();
+		AuditRecord last = null;
+		for (AuditRecord record : auditLog.history(animal.getId())) {
+			if ("Treatment".equals(record.getEntityType()) && record.getEntityId() == treatment.getId()) {
+				last = record;
+			}
+		}
+		assertNotNull(last);
+		return last;
+	}
+
+	private static class RecordingHandler implements ReminderHandler {
+
+		private final List<Reminder> reminders = new ArrayList<>();
+
+		private int failures;
+
+		@Override
+		public void remind(List<Reminder> batch) {
+			if (failures > 0) {
+				failures--;
+				throw new IllegalStateException("Delivery failed.");
+			}
+			reminders.addAll(batch);
+		}
+
+		List<Long> treatmentIds() {
+			List<Long> ids = new ArrayList<>();
+			for (Reminder reminder : reminders) {
+				ids.add(reminder.getTreatmentId());
+			}
+			return ids;
+		}
+	}
+}
@@ -0,0 +1,102 @@
+package com.myzoodata.scheduling;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Before;
+import org.junit.Test;
+
+public class TimingWheelTests {
+
+	private static final long START = 1000000L;
+
+	private TimingWheel<String> wheel;
+
+	@Before
+	public void setUp() {
+		wheel = new TimingWheel<>(10L, START);
+	}
+
+	@Test
+	public void expiresAtDeadlineNotBefore() {
+		wheel.schedule("a", START + 25L);
+		assertTrue(wheel.advance(START + 24L).isEmpty());
+		assertEquals(tasks("a"), tasks(wheel.advance(START + 30L)));
+		assertEquals(0, wheel.size());
+	}
+
+	@Test
+	public void pastDeadlineExpiresOnNextAdvance() {
+		wheel.advance(START + 100L);
+		wheel.schedule("late", START + 50L);
+		assertEquals(tasks("late"), tasks(wheel.advance(START + 100L)));
+	}
+
+	@Test
+	public void expiresInDeadlineOrderAcrossLevels() {
+		wheel.schedule("d", START + 10L * 64 * 64 * 3);
+		wheel.schedule("b", START + 10L * 70);
+		wheel.schedule("c", START + 10L * 64 * 5);
+		wheel.schedule("a", START + 10L);
+		assertEquals(tasks("a", "b", "c", "d"), tasks(wheel.advance(START + 10L * 64 * 64 * 4)));
+	}
+
+	@Test
+	public void cancelledTaskDoesNotExpire() {
+		TimingWheel.Entry<String> entry = wheel.schedule("a", START + 5000L);
+		wheel.schedule("b", START + 5000L);
+		assertTrue(entry.cancel());
+		assertFalse(entry.cancel());
+		assertEquals(1, wheel.size());
+		assertEquals(tasks("b"), tasks(wheel.advance(START + 6000L)));
+	}
+
+	@Test
+	public void deadlineBeyondHighestLevelWaits() {
+		long far = START + 10L * (1L << 24) * 3;
+		wheel.schedule("far", far);
+		assertTrue(wheel.advance(far - 10L).isEmpty());
+		assertEquals(tasks("far"), tasks(wheel.advance(far)));
+	}
+
+	@Test
+	public void matchesSortedDeadlines() {
+		Random random = new Random(42L);
+		List<Long> deadlines = new ArrayList<>();
+		for (int i = 0; i < 10000; i++) {
+			long deadline = START + random.nextInt(10 * 64 * 64 * 64);
+			deadlines.add(deadline);
+			wheel.schedule("t", deadline);
+		}
+		int expired = 0;
+		for (long now = START; expired < deadlines.size(); now += 1 + random.nextInt(5000)) {
+			for (TimingWheel.Entry<String> entry : wheel.advance(now)) {
+				assertTrue(entry.getDeadlineMillis() <= now);
+				assertTrue(entry.getDeadlineMillis() > now - 5010L);
+				expired++;
+			}
+		}
+		assertEquals(0, wheel.size());
+	}
+
+	private static List<String> tasks(String... tasks) {
+		List<String> list = new ArrayList<>();
+		for (String task : tasks) {
+			list.add(task);
+		}
+		return list;
+	}
+
+	private static List<String> tasks(List<TimingWheel.Entry<String>> entries) {
+		List<String> list = new ArrayList<>();
+		for (TimingWheel.Entry<String> entry : entries) {
+			list.add(entry.getTask());
+		}
+		return list;
+	}
+}
@@ -0,0 +1,146 @@
+package com.myzoodata.search;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Before;
+import org.junit.Test;
+
+public class SearchIndexTests {
+
+	private SearchIndex index;
+
+	@Before
+	public void setUp() {
+		index = new SearchIndex();
+		index.put(SearchDocuments.animal(1, "Rex", "dog", "German Shepherd", "985112003456789"));
+		index.put(SearchDocuments.animal(2, "Bolyhos", "cat", "Persian", "985112009999999"));
+		index.put(SearchDocuments.animal(3, "Rexona", "dog", "Beagle", null));
+		index.put(SearchDocuments.owner(1, "Rex Harrison", "rex@example.com"));
+		index.put(SearchDocuments.treatment(1, "VACCINATION", "Rabies booster, mild fever afterwards"));
+	}
+
+	@Test
+	public void exactMatchRanksFirst() {
+		SearchResults results = index.search("rex", "animal", 0, 10);
+		assertEquals(2, results.getTotal());
+		assertEquals(1L, results.getHits().get(0).getId());
+		assertEquals(3L, results.getHits().get(1).getId());
+	}
+
+	@Test
+	public void titleOutweighsText() {
+		index.put(SearchDocuments.animal(4, "Spot", "dog", "Beagle", null));
+		index.put(SearchDocuments.animal(5, "Beagle", "dog", "Mixed", null));
+		assertEquals(5L, index.search("beagle", null, 0, 10).getHits().get(0).getId());
+	}
+
+	@Test
+	public void moreMatchingTermsRankHigher() {
+		SearchResults results = index.search("rex shepherd", null, 0, 10);
+		assertEquals(1L, results.getHits().get(0).getId());
+		assertEquals("animal", results.getHits().get(0).getType());
+	}
+
+	@Test
+	public void fragmentMatchesInsideTerm() {
+		SearchResults results = index.search("0034", null, 0, 10);
+		assertEquals(1, results.getTotal());
+		assertEquals(1L, results.getHits().get(0).getId());
+	}
+
+	@Test
+	public void fragmentMatchesManyTerms() {
+		for (int i = 0; i < 1000; i++) {
+			index.put(SearchDocuments.animal(100 + i, "Chipped", "dog", null, String.format("985%06d45670", i)));
+		}
+		SearchResults results = index.search("4567", null, 0, 10);
+		assertEquals(1001, results.getTotal());
+		assertFalse(results.isTruncated());
+	}
+
+	@Test
+	public void tooManyFragmentMatchesKeepMostFrequentTerms() {
+		for (int i = 0; i < 5000; i++) {
+			index.put(SearchDocuments.animal(100 + i, "Chipped", "dog", null, String.format("985%06d45670", i)));
+		}
+		for (int i = 0; i < 10; i++) {
+			index.put(SearchDocuments.animal(10000 + i, "Litter", "dog", "Lot4567", null));
+		}
+		SearchResults results = index.search("4567", null, 0, 5000);
+		assertTrue(results.isTruncated());
+		assertEquals(10 + 4095, results.getTotal());
+		int litter = 0;
+		for (SearchHit hit : results.getHits()) {
+			if (hit.getId() >= 10000) {
+				litter++;
+			}
+		}
+		assertEquals(10, litter);
+	}
+
+	@Test
+	public void typoIsTolerated() {
+		assertEquals(2L, index.search("bolyohs", null, 0, 10).getHits().get(0).getId());
+		assertEquals(2L, index.search("persain", null, 0, 10).getHits().get(0).getId());
+		assertEquals("treatment", index.search("rabis", null, 0, 10).getHits().get(0).getType());
+	}
+
+	@Test
+	public void accentsAreIgnored() {
+		index.put(SearchDocuments.animal(6, "Úrfi", "cat", null, null));
+		assertEquals(6L, index.search("urfi", null, 0, 10).getHits().get(0).getId());
+	}
+
+	@Test
+	public void removedAndReplacedDocumentsAreNotFound() {
+		index.remove("animal", 2);
+		assertEquals(0, index.search("bolyhos", null, 0, 10).getTotal());
+
+		index.put(SearchDocuments.animal(1, "Max", "dog", null, null));
+		assertEquals(1, index.search("rex", "animal", 0, 10).getTotal());
+		assertEquals(1L, index.search("max", null, 0, 10).getHits().get(0).getId());
+	}
+
+	@Test
+	public void resultsArePaged() {
+		for (long id = 10; id < 35; id++) {
+			index.put(SearchDocuments.animal(id, "Cirmi " + id, "cat", null, null));
+		}
+		SearchResults page = index.search("cirmi", null, 2, 10);
+		assertEquals(25, page.getTotal());
+		assertEquals(5, page.getHits().size());
+	}
+
+	@Test
+	public void farPageIsEmpty() {
+		SearchResults page = index.search("rex", null, Integer.MAX_VALUE, 100);
+		assertEquals(3, page.getTotal());
+		assertTrue(page.getHits().isEmpty());
+	}
+
+	@Test
+	public void compactionKeepsLiveDocuments() {
+		for (int round = 0; round < 3; round++) {
+			for (long id = 100; id < 3000; id++) {
+				index.put(SearchDocuments.animal(id, "Name" + round + "x" + id, "hamster", null, null));
+			}
+		}
+		assertEquals(2900 + 5, index.size());
+		assertEquals(2900, index.search("hamster", null, 0, 1).getTotal());
+		assertEquals(1234L, index.search("name2x1234", null, 0, 1).getHits().get(0).getId());
+		assertEquals(1L, index.search("rex", "animal", 0, 10).getHits().get(0).getId());
+	}
+
+	@Test
+	public void oneTypo() {
+		assertTrue(SearchIndex.isOneTypoAway("bolyhos", "bolyohs"));
+		assertTrue(SearchIndex.isOneTypoAway("bolyhos", "bolyho"));
+		assertTrue(SearchIndex.isOneTypoAway("bolyhos", "bolyhoss"));
+		assertTrue(SearchIndex.isOneTypoAway("bolyhos", "bolxhos"));
+		assertFalse(SearchIndex.isOneTypoAway("bolyhos", "bolyhos"));
+		assertFalse(SearchIndex.isOneTypoAway("bolyhos", "bxlyhxs"));
+		assertFalse(SearchIndex.isOneTypoAway("bolyhos", "bolyh"));
+	}
+}
@@ -0,0 +1,131 @@
+package com.myzoodata.search;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.test.context.TestPropertySource;
+
+import com.myzoodata.AbstractIntegrationTests;
+import com.myzoodata.domain.Animal;
+import com.myzoodata.domain.Owner;
+import com.myzoodata.repositories.AnimalRepository;
+import com.myzoodata.repositories.OwnerRepository;
+
+/**
+ * Rebuilds the index step by step, against a database of its own. The
+ * service does not rebuild it on startup, so no rebuild gets in the way.
+ */
+@TestPropertySource(properties = { "spring.datasource.url=jdbc:h2:mem:search;DB_CLOSE_DELAY=-1",
+		"myzoodata.search.rebuild-on-startup=false" })
+public class SearchServiceTests extends AbstractIntegrationTests {
+
+	@Autowired
+	private SearchService searchService;
+
+	@Autowired
+	private OwnerRepository owners;
+
+	@Autowired
+	private AnimalRepository animals;
+
+	private Owner owner;
+
+	@Before
+	public void setUp() {
+		owner = new Owner();
+		owner.setName("Indexed Owner");
+		owner = owners.save(owner);
+	}
+
+	@After
+	public void awaitRebuild() throws InterruptedException {
+		while (searchService.isRebuilding()) {
+			Thread.sleep(10L);
+		}
+	}
+
+	@Test
+	public void keepsChangesMadeDuringRebuild() {
+		Animal renamed = createAnimal("Vintage");
+		Animal deleted = createAnimal("Goner");
+
+		searchService.beginRebuild();
+		Animal before = createAnimal("Earlybird");
+		SearchIndex rebuilt = searchService.read();
+		// The rebuild has read the rows already, it only learns of these from
+		// the changes.
+		Animal after = createAnimal("Latecomer");
+		renamed.setName("Renovated");
+		animals.save(renamed);
+		animals.delete(deleted);
+		searchService.finishRebuild(rebuilt);
+
+		assertEquals(idsOf(before), idsFound("earlybird"));
+		assertEquals(idsOf(after), idsFound("latecomer"));
+		assertEquals(idsOf(renamed), idsFound("renovated"));
+		assertEquals(idsOf(), idsFound("vintage"));
+		assertEquals(idsOf(), idsFound("goner"));
+	}
+
+	@Test
+	public void rebuildsInBackground() throws InterruptedException {
+		Animal animal = createAnimal("Backgrounder");
+		ResponseEntity<Void> response = restTemplate.postForEntity(url("/search/rebuild"), null, Void.class);
+		assertEquals(HttpStatus.ACCEPTED, response.getStatusCode());
+		awaitRebuild();
+		assertEquals(idsOf(animal), idsFound("backgrounder"));
+	}
+
+	@Test
+	public void rejectsSecondRebuild() {
+		searchService.beginRebuild();
+		try {
+			ResponseEntity<Void> response = restTemplate.postForEntity(url("/search/rebuild"), null, Void.class);
+			assertEquals(HttpStatus.CONFLICT, response.getStatusCode());
+			try {
+				searchService.rebuild();
+				fail();
+			} catch (RebuildInProgressException ex) {
+				assertTrue(searchService.isRebuilding());
+			}
+		} finally {
+			searchService.finishRebuild(new SearchIndex());
+		}
+		assertFalse(searchService.isRebuilding());
+	}
+
+	private Animal createAnimal(String name) {
+		Animal animal = new Animal();
+		animal.setName(name);
+		animal.setSpecies("dog");
+		animal.setOwner(owner);
+		return animals.save(animal);
+	}
+
+	private static List<Long> idsOf(Animal... animals) {
+		List<Long> ids = new ArrayList<>();
+		for (Animal animal : animals) {
+			ids.add(animal.getId());
+		}
+		return ids;
+	}
+
+	private List<Long> idsFound(String query) {
+		List<Long> ids = new ArrayList<>();
+		for (SearchHit hit : searchService.search(query, "animal", 0, 10).getHits()) {
+			ids.add(hit.getId());
+		}
+		return ids;
+	}
+}
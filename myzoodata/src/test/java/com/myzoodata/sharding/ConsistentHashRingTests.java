@@ -0,0 +1,55 @@
+package com.myzoodata.sharding;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.Test;
+
+public class ConsistentHashRingTests {
+
+	private static final int KEYS = 100000;
+
+	@Test
+	public void sameKeySameNode() {
+		ConsistentHashRing<String> ring = new ConsistentHashRing<>(Arrays.asList("a", "b", "c"), 160);
+		ConsistentHashRing<String> other = new ConsistentHashRing<>(Arrays.asList("c", "a", "b"), 160);
+		for (int i = 0; i < 1000; i++) {
+			assertEquals(ring.nodeOf("household-" + i), other.nodeOf("household-" + i));
+		}
+	}
+
+	@Test
+	public void keysSpreadEvenly() {
+		ConsistentHashRing<String> ring = new ConsistentHashRing<>(Arrays.asList("a", "b", "c", "d"), 160);
+		Map<String, Integer> counts = new HashMap<>();
+		for (int i = 0; i < KEYS; i++) {
+			String node = ring.nodeOf("household-" + i);
+			counts.put(node, counts.containsKey(node) ? counts.get(node) + 1 : 1);
+		}
+		assertEquals(4, counts.size());
+		for (int count : counts.values()) {
+			assertTrue(String.valueOf(counts), Math.abs(count - KEYS / 4) < KEYS / 4 / 5);
+		}
+	}
+
+	@Test
+	public void addedNodeOnlyTakesKeys() {
+		ConsistentHashRing<String> before = new ConsistentHashRing<>(Arrays.asList("a", "b", "c"), 160);
+		ConsistentHashRing<String> after = new ConsistentHashRing<>(Arrays.asList("a", "b", "c", "d"), 160);
+		int moved = 0;
+		for (int i = 0; i < KEYS; i++) {
+			String key = "household-" + i;
+			String node = after.nodeOf(key);
+			if (!node.equals(before.nodeOf(key))) {
+				assertEquals("d", node);
+				moved++;
+			}
+		}
+		// About a quarter of the keys go to the new node.
+		assertTrue(String.valueOf(moved), Math.abs(moved - KEYS / 4) < KEYS / 4 / 5);
+	}
+}
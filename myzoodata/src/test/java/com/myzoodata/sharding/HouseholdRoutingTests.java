@@ -0,0 +1,206 @@
+package com.myzoodata.sharding;
+
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.greaterThanOrEqualTo;
+import static org.hamcrest.Matchers.not;
+import static org.junit.Assert.assertThat;
+
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.test.context.TestPropertySource;
+
+import com.myzoodata.AbstractIntegrationTests;
+
+/**
+ * Runs the service on two in-memory shards.
+ */
+@TestPropertySource(properties = {
+		"myzoodata.sharding.shards[0].url=jdbc:h2:mem:household-shard-0;DB_CLOSE_DELAY=-1",
+		"myzoodata.sharding.shards[1].url=jdbc:h2:mem:household-shard-1;DB_CLOSE_DELAY=-1" })
+public class HouseholdRoutingTests extends AbstractIntegrationTests {
+
+	private static final String HEADER = "X-Household-Id";
+
+	@Autowired
+	private ShardRoutingDataSource router;
+
+	@Test
+	public void rejectsRepositoryRequestsWithoutHousehold() {
+		String household = householdOn("shard-1", 0);
+		URI ownerUri = createOwner("Headless Owner", household);
+		Map<String, Object> owner = new HashMap<>();
+		owner.put("name", "Nobody's");
+		assertThat(exchange(HttpMethod.POST, "/owners", owner, null).getStatusCode(),
+				equalTo(HttpStatus.BAD_REQUEST));
+		assertThat(exchange(HttpMethod.GET, "/owners", null, null).getStatusCode(), equalTo(HttpStatus.BAD_REQUEST));
+		assertThat(exchange(HttpMethod.GET, ownerUri.getPath(), null, null).getStatusCode(),
+				equalTo(HttpStatus.BAD_REQUEST));
+		assertThat(exchange(HttpMethod.GET, "/animals/search/findByOwnerId?ownerId=1", null, null).getStatusCode(),
+				equalTo(HttpStatus.BAD_REQUEST));
+		assertThat(exchange(HttpMethod.GET, "/attachments/1", null, null).getStatusCode(),
+				equalTo(HttpStatus.BAD_REQUEST));
+		assertThat(exchange(HttpMethod.GET, "/health", null, null).getStatusCode(), equalTo(HttpStatus.OK));
+	}
+
+	@Test
+	public void routesItemsOfHouseholdByTheirId() {
+		String household = householdOn("shard-1", 0);
+		URI ownerUri = createOwner("Sharded Owner", household);
+		long id = Long.parseLong(ownerUri.getPath().substring("/owners/".length()));
+		assertThat(id, greaterThanOrEqualTo(router.getIdOffset("shard-1")));
+		assertThat(exchange(HttpMethod.GET, ownerUri.getPath(), null, household).getStatusCode(),
+				equalTo(HttpStatus.OK));
+
+		URI animalUri = createAnimal("Sharded animal", ownerUri, household);
+		ResponseEntity<String> animalOwner = exchange(HttpMethod.GET, animalUri.getPath() + "/owner", null,
+				household);
+		assertThat(animalOwner.getStatusCode(), equalTo(HttpStatus.OK));
+		assertThat(animalOwner.getBody(), containsString("Sharded Owner"));
+		assertThat(exchange(HttpMethod.DELETE, animalUri.getPath(), null, household).getStatusCode(),
+				equalTo(HttpStatus.NO_CONTENT));
+		assertThat(exchange(HttpMethod.GET, animalUri.getPath(), null, household).getStatusCode(),
+				equalTo(HttpStatus.NOT_FOUND));
+	}
+
+	@Test
+	public void hidesItemsOfOtherHouseholds() {
+		String household = householdOn("shard-1", 0);
+		URI ownerUri = createOwner("Private Owner", household);
+		URI animalUri = createAnimal("Private animal", ownerUri, household);
+		for (String other : new String[] { householdOn("shard-0", 0), householdOn("shard-1", 1) }) {
+			assertThat(exchange(HttpMethod.GET, ownerUri.getPath(), null, other).getStatusCode(),
+					equalTo(HttpStatus.NOT_FOUND));
+			assertThat(exchange(HttpMethod.GET, animalUri.getPath() + "/owner", null, other).getStatusCode(),
+					equalTo(HttpStatus.NOT_FOUND));
+			Map<String, Object> owner = new HashMap<>();
+			owner.put("name", "Taken over");
+			assertThat(exchange(HttpMethod.PUT, ownerUri.getPath(), owner, other).getStatusCode(),
+					equalTo(HttpStatus.NOT_FOUND));
+			assertThat(exchange(HttpMethod.DELETE, animalUri.getPath(), null, other).getStatusCode(),
+					equalTo(HttpStatus.NOT_FOUND));
+			assertThat(exchange(HttpMethod.GET, animalUri.getPath() + "/attachments", null, other).getStatusCode(),
+					equalTo(HttpStatus.NOT_FOUND));
+		}
+		assertThat(exchange(HttpMethod.GET, animalUri.getPath(), null, household).getBody(),
+				containsString("Private animal"));
+		assertThat(exchange(HttpMethod.GET, ownerUri.getPath(), null, household).getBody(),
+				containsString("Private Owner"));
+	}
+
+	@Test
+	public void listsOnlyEntitiesOfHousehold() {
+		String household = householdOn("shard-1", 2);
+		String neighbour = householdOn("shard-1", 3);
+		URI ownerUri = createOwner("Listed Owner", household);
+		createAnimal("Listed animal", ownerUri, household);
+		URI neighbourUri = createOwner("Neighbour Owner", neighbour);
+		createAnimal("Neighbour animal", neighbourUri, neighbour);
+
+		String owners = exchange(HttpMethod.GET, "/owners?size=1000", null, household).getBody();
+		assertThat(owners, containsString("Listed Owner"));
+		assertThat(owners, not(containsString("Neighbour Owner")));
+		String animals = exchange(HttpMethod.GET, "/animals?size=1000", null, household).getBody();
+		assertThat(animals, containsString("Listed animal"));
+		assertThat(animals, not(containsString("Neighbour animal")));
+		String neighbourAnimals = exchange(HttpMethod.GET,
+				"/animals/search/findByOwnerId?ownerId=" + id(neighbourUri), null, household).getBody();
+		assertThat(neighbourAnimals, not(containsString("Neighbour animal")));
+	}
+
+	@Test
+	public void rejectsAssociationsWithOtherShards() {
+		URI ownerUri = createOwner("Remote Owner", householdOn("shard-1", 0));
+		String household = householdOn("shard-0", 0);
+		ResponseEntity<String> created = exchange(HttpMethod.POST, "/animals",
+				animal("Stray animal", ownerUri), household);
+		assertThat(created.getStatusCode(), equalTo(HttpStatus.BAD_REQUEST));
+
+		URI localOwnerUri = createOwner("Local Owner", household);
+		URI animalUri = createAnimal("Local animal", localOwnerUri, household);
+		assertThat(exchange(HttpMethod.PUT, animalUri.getPath(), animal("Local animal", ownerUri), household)
+				.getStatusCode(), equalTo(HttpStatus.BAD_REQUEST));
+		assertThat(exchange(HttpMethod.GET, animalUri.getPath() + "/owner", null, household).getBody(),
+				containsString("Local Owner"));
+	}
+
+	@Test
+	public void rejectsAssociationsWithOtherHouseholds() {
+		String household = householdOn("shard-1", 4);
+		URI ownerUri = createOwner("Other Owner", householdOn("shard-1", 5));
+		ResponseEntity<String> created = exchange(HttpMethod.POST, "/animals",
+				animal("Adopted animal", ownerUri), household);
+		assertThat(created.getStatusCode(), equalTo(HttpStatus.BAD_REQUEST));
+
+		URI animalUri = createAnimal("Own animal", createOwner("Own Owner", household), household);
+		HttpHeaders headers = new HttpHeaders();
+		headers.set(HEADER, household);
+		headers.setContentType(MediaType.parseMediaType("text/uri-list"));
+		ResponseEntity<String> linked = restTemplate.exchange(url(animalUri.getPath() + "/owner"), HttpMethod.PUT,
+				new HttpEntity<>(ownerUri.toString().getBytes(StandardCharsets.UTF_8), headers), String.class);
+		assertThat(linked.getStatusCode(), equalTo(HttpStatus.BAD_REQUEST));
+		assertThat(exchange(HttpMethod.GET, animalUri.getPath() + "/owner", null, household).getBody(),
+				containsString("Own Owner"));
+	}
+
+	/**
+	 * Returns the {@code index}th household living on a shard.
+	 */
+	private String householdOn(String shard, int index) {
+		for (int i = 0;; i++) {
+			String household = "household-" + i;
+			if (router.shardOfHousehold(household).equals(shard) && index-- == 0) {
+				return household;
+			}
+		}
+	}
+
+	private URI createOwner(String name, String household) {
+		Map<String, Object> owner = new HashMap<>();
+		owner.put("name", name);
+		ResponseEntity<String> created = exchange(HttpMethod.POST, "/owners", owner, household);
+		assertThat(created.getStatusCode(), equalTo(HttpStatus.CREATED));
+		return created.getHeaders().getLocation();
+	}
+
+	private URI createAnimal(String name, URI ownerUri, String household) {
+		ResponseEntity<String> created = exchange(HttpMethod.POST, "/animals", animal(name, ownerUri), household);
+		assertThat(created.getStatusCode(), equalTo(HttpStatus.CREATED));
+		return created.getHeaders().getLocation();
+	}
+
+	private static Map<String, Object> animal(String name, URI ownerUri) {
+		Map<String, Object> animal = new HashMap<>();
+		animal.put("name", name);
+		animal.put("species", "dog");
+		animal.put("owner", ownerUri.toString());
+		return animal;
+	}
+
+	private static long id(URI uri) {
+		String path = uri.getPath();
+		return Long.parseLong(path.substring(path.lastIndexOf('/') + 1));
+	}
+
+	private ResponseEntity<String> exchange(HttpMethod method, String path, Object body, String household) {
+		HttpHeaders headers = new HttpHeaders();
+		if (household != null) {
+			headers.set(HEADER, household);
+		}
+		if (body != null) {
+			headers.set(HttpHeaders.CONTENT_TYPE, "application/json");
+		}
+		return restTemplate.exchange(url(path), method, new HttpEntity<>(body, headers), String.class);
+	}
+}
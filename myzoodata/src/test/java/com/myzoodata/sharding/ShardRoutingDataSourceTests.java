@@ -0,0 +1,133 @@
+package com.myzoodata.sharding;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import javax.sql.DataSource;
+
+import org.flywaydb.core.Flyway;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.SimpleDriverDataSource;
+
+/**
+ * Runs the shards on several in-memory H2 databases.
+ */
+public class ShardRoutingDataSourceTests {
+
+	private static int run;
+
+	private ShardRoutingDataSource router;
+
+	private JdbcTemplate jdbc;
+
+	@Before
+	public void setUp() {
+		run++;
+		Map<String, DataSource> shards = new LinkedHashMap<>();
+		for (String name : new String[] { "east", "west", "north" }) {
+			shards.put(name, new SimpleDriverDataSource(new org.h2.Driver(),
+					"jdbc:h2:mem:shard-" + name + "-" + run + ";DB_CLOSE_DELAY=-1", "sa", ""));
+		}
+		router = new ShardRoutingDataSource(shards, 160);
+		new ShardMigrationStrategy(router).migrate(new Flyway());
+		jdbc = new JdbcTemplate(router);
+	}
+
+	@Test
+	public void householdsStayOnTheirShard() {
+		String first = router.shardOfHousehold("household-1");
+		String other = first;
+		int household = 2;
+		while (other.equals(first)) {
+			other = router.shardOfHousehold("household-" + household++);
+		}
+
+		insertOwner(first, "Kate");
+		insertOwner(other, "Joe");
+
+		assertEquals("Kate", ownerNames(first));
+		assertEquals("Joe", ownerNames(other));
+	}
+
+	@Test
+	public void idsAreUniqueAcrossShards() {
+		long east = insertOwner("east", "Kate");
+		long west = insertOwner("west", "Joe");
+		long north = insertOwner("north", "Ann");
+
+		assertEquals(1L, east);
+		assertEquals((1L << 40) + 1, west);
+		assertEquals((2L << 40) + 1, north);
+		assertEquals("east", router.shardOfId(east));
+		assertEquals("west", router.shardOfId(west));
+		assertEquals("north", router.shardOfId(north));
+	}
+
+	@Test
+	public void migratingAgainKeepsIds() {
+		long before = insertOwner("west", "Joe");
+		new ShardMigrationStrategy(router).migrate(new Flyway());
+		long after = insertOwner("west", "Ann");
+		assertEquals(before + 1, after);
+	}
+
+	@Test
+	public void withoutShardDefaultShard() {
+		jdbc.update("INSERT INTO owner (version, name) VALUES (0, 'Kate')");
+		assertEquals("Kate", ownerNames("east"));
+		assertEquals("", ownerNames("west"));
+	}
+
+	@Test
+	public void scatterGatherCoversAllShards() {
+		insertOwner("east", "Kate");
+		insertOwner("west", "Joe");
+		insertOwner("west", "Ann");
+		ShardTemplate template = new ShardTemplate();
+		template.setRouter(router);
+		try {
+			Map<String, Integer> counts = template.executeOnAll(new ShardCallback<Integer>() {
+				@Override
+				public Integer doInShard(String shard) {
+					assertEquals(shard, ShardContextHolder.getShard());
+					return jdbc.queryForObject("SELECT COUNT(*) FROM owner", Integer.class);
+				}
+			});
+			assertEquals("{east=1, west=2, north=0}", counts.toString());
+		} finally {
+			template.destroy();
+		}
+		assertNotEquals("west", ShardContextHolder.getShard());
+	}
+
+	private long insertOwner(String shard, String name) {
+		String previous = ShardContextHolder.setShard(shard);
+		try {
+			jdbc.update("INSERT INTO owner (version, name) VALUES (0, ?)", name);
+			long id = jdbc.queryForObject("SELECT MAX(id) FROM owner", Long.class);
+			assertTrue(id > 0);
+			return id;
+		} finally {
+			ShardContextHolder.setShard(previous);
+		}
+	}
+
+	private String ownerNames(String shard) {
+		String previous = ShardContextHolder.setShard(shard);
+		try {
+			StringBuilder names = new StringBuilder();
+			for (String name : jdbc.queryForList("SELECT name FROM owner ORDER BY id", String.class)) {
+				names.append(names.length() > 0 ? "," : "").append(name);
+			}
+			return names.toString();
+		} finally {
+			ShardContextHolder.setShard(previous);
+		}
+	}
+}
@@ -0,0 +1,99 @@
+package com.myzoodata.startup;
+
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.greaterThanOrEqualTo;
+import static org.hamcrest.Matchers.not;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+import java.net.URI;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.config.ConfigurableListableBeanFactory;
+import org.springframework.boot.context.embedded.FilterRegistrationBean;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.TestPropertySource;
+
+import com.myzoodata.AbstractIntegrationTests;
+import com.myzoodata.audit.AuditLog;
+import com.myzoodata.scheduling.ReminderScheduler;
+
+/**
+ * Runs the service in the start-up optimized mode, against a database of
+ * its own.
+ */
+@ActiveProfiles({ "test", "fast-startup" })
+@TestPropertySource(properties = "spring.datasource.url=jdbc:h2:mem:fast-startup;DB_CLOSE_DELAY=-1")
+public class FastStartupTests extends AbstractIntegrationTests {
+
+	@Autowired
+	private ConfigurableListableBeanFactory beanFactory;
+
+	@Autowired
+	private AuditLog auditLog;
+
+	@Test
+	public void reportsHealth() {
+		ResponseEntity<Map> response = restTemplate.getForEntity(url("/health"), Map.class);
+		assertThat(response.getStatusCode(), equalTo(HttpStatus.OK));
+		assertThat(response.getBody().get("status"), equalTo((Object) "UP"));
+	}
+
+	@Test
+	public void storesAndReadsEntities() throws InterruptedException {
+		Map<String, Object> owner = new HashMap<>();
+		owner.put("name", "Quick Owner");
+		URI ownerUri = restTemplate.postForLocation(url("/owners"), owner);
+		Map<String, Object> animal = new HashMap<>();
+		animal.put("name", "Quick animal");
+		animal.put("species", "cat");
+		animal.put("owner", ownerUri.toString());
+		URI animalUri = restTemplate.postForLocation(url("/animals"), animal);
+
+		Map<?, ?> read = restTemplate.getForObject(animalUri, Map.class);
+		assertThat(read.get("name"), equalTo((Object) "Quick animal"));
+
+		// Only reaches the audit log if the entity listeners got the publisher.
+		String path = animalUri.getPath();
+		auditLog.flush();
+		assertThat(auditLog.history(Long.parseLong(path.substring(path.lastIndexOf('/') + 1))).size(),
+				greaterThanOrEqualTo(1));
+	}
+
+	@Test
+	public void reportsStartupTimeline() {
+		Map<?, ?> startup = restTemplate.getForObject(url("/startup"), Map.class);
+		assertThat(((Number) startup.get("startupMillis")).longValue(), greaterThanOrEqualTo(0L));
+		assertThat(((Number) startup.get("beanCount")).intValue(), greaterThan(0));
+		assertThat(((List<?>) startup.get("beans")).size(), equalTo(startup.get("beanCount")));
+		assertThat(((Map<?, ?>) startup.get("autoConfigurations")).size(), greaterThan(0));
+	}
+
+	@Test
+	public void keepsBeansWhichRunOnTheirOwnEager() {
+		assertEager("entityChangeListenerRegistrar");
+		for (String name : beanFactory.getBeanNamesForType(FilterRegistrationBean.class)) {
+			assertEager(name);
+		}
+		for (String name : beanFactory.getBeanNamesForType(ReminderScheduler.class)) {
+			assertEager(name);
+		}
+		assertThat(beanFactory.getBeanNamesForType(ReminderScheduler.class).length, not(equalTo(0)));
+
+		// Whereas the application's other beans wait until they are needed.
+		assertTrue(beanFactory.getBeanDefinition("shardAdminService").isLazyInit());
+	}
+
+	private void assertEager(String name) {
+		assertFalse(name, beanFactory.getBeanDefinition(name).isLazyInit());
+		assertTrue(name, beanFactory.containsSingleton(name));
+	}
+}
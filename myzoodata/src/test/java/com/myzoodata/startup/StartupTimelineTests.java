@@ -0,0 +1,38 @@
+package com.myzoodata.startup;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+import org.junit.Test;
+import org.springframework.beans.factory.support.DefaultListableBeanFactory;
+import org.springframework.beans.factory.support.RootBeanDefinition;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.support.GenericApplicationContext;
+
+public class StartupTimelineTests {
+
+	@Test
+	public void stopsRecordingOnceReady() {
+		DefaultListableBeanFactory beanFactory = new DefaultListableBeanFactory();
+		beanFactory.registerBeanDefinition("early", new RootBeanDefinition(Object.class));
+		beanFactory.registerBeanDefinition("late", new RootBeanDefinition(Object.class));
+		StartupTimeline timeline = new StartupTimeline();
+		timeline.setBeanFactory(beanFactory);
+
+		create(timeline, "early");
+		assertEquals(1, timeline.getBeans().size());
+
+		timeline.onApplicationEvent(new ApplicationReadyEvent(new SpringApplication(), new String[0],
+				new GenericApplicationContext()));
+		create(timeline, "late");
+		assertEquals(1, timeline.getBeans().size());
+		assertEquals("early", timeline.getBeans().get(0).getName());
+		assertSame(timeline.getBeans(), timeline.getBeans());
+	}
+
+	private static void create(StartupTimeline timeline, String beanName) {
+		timeline.postProcessBeforeInstantiation(Object.class, beanName);
+		timeline.postProcessAfterInitialization(new Object(), beanName);
+	}
+}
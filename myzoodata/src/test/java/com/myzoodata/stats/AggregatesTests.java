@@ -0,0 +1,107 @@
+package com.myzoodata.stats;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Calendar;
+import java.util.Date;
+
+import org.junit.Before;
+import org.junit.Test;
+
+public class AggregatesTests {
+
+	private static final long NOW = 1500000000000L;
+
+	private Aggregates aggregates;
+
+	@Before
+	public void setUp() {
+		aggregates = new Aggregates();
+	}
+
+	@Test
+	public void updateReplacesContribution() {
+		aggregates.putAnimal(1L, "dog", null, 7L);
+		aggregates.putAnimal(2L, "dog", null, 7L);
+		aggregates.putAnimal(1L, "cat", null, 8L);
+
+		Statistics statistics = aggregates.snapshot(NOW, null);
+		assertEquals(2L, statistics.getAnimals());
+		assertEquals(1L, (long) statistics.getSpecies().get("dog"));
+		assertEquals(1L, (long) statistics.getSpecies().get("cat"));
+		assertEquals(1, aggregates.animalsOf(7L));
+		assertEquals(1, aggregates.animalsOf(8L));
+		assertEquals(2L, statistics.getOwnersWithAnimals());
+	}
+
+	@Test
+	public void removeTakesBackContribution() {
+		aggregates.putAnimal(1L, "dog", null, 7L);
+		aggregates.removeAnimal(1L);
+		aggregates.removeAnimal(1L);
+
+		Statistics statistics = aggregates.snapshot(NOW, null);
+		assertEquals(0L, statistics.getAnimals());
+		assertTrue(statistics.getSpecies().isEmpty());
+		assertEquals(0, aggregates.animalsOf(7L));
+		assertEquals(0L, (long) statistics.getAges().get("unknown"));
+	}
+
+	@Test
+	public void agesByYearOfBirth() {
+		Calendar calendar = Calendar.getInstance();
+		calendar.setTimeInMillis(NOW);
+		int year = calendar.get(Calendar.YEAR);
+		aggregates.putAnimal(1L, "dog", birthDate(year - 3), 0L);
+		aggregates.putAnimal(2L, "cat", birthDate(year - 3), 0L);
+		aggregates.putAnimal(3L, "parrot", birthDate(year - 45), 0L);
+		aggregates.putAnimal(4L, "cat", null, 0L);
+
+		Statistics statistics = aggregates.snapshot(NOW, null);
+		assertEquals(2L, (long) statistics.getAges().get("3"));
+		assertEquals(1L, (long) statistics.getAges().get("20+"));
+		assertEquals(1L, (long) statistics.getAges().get("unknown"));
+		assertEquals(0L, (long) statistics.getAges().get("0"));
+	}
+
+	@Test
+	public void vaccinationsBecomeOverdue() {
+		aggregates.putVaccination(1L, NOW - 1000L);
+		aggregates.putVaccination(2L, NOW + 1000L);
+		aggregates.putVaccination(3L, NOW + 2000L);
+		aggregates.advance(NOW);
+		assertEquals(1L, aggregates.snapshot(NOW, null).getOverdueVaccinations());
+		assertEquals(2L, aggregates.snapshot(NOW, null).getUpcomingVaccinations());
+		assertEquals(NOW + 1000L, aggregates.nextDueMillis());
+
+		aggregates.advance(NOW + 1500L);
+		assertEquals(2L, aggregates.snapshot(NOW, null).getOverdueVaccinations());
+
+		// Completing an overdue one and moving an upcoming one into the past.
+		aggregates.removeVaccination(1L);
+		aggregates.putVaccination(3L, NOW);
+		Statistics statistics = aggregates.snapshot(NOW, null);
+		assertEquals(2L, statistics.getOverdueVaccinations());
+		assertEquals(0L, statistics.getUpcomingVaccinations());
+		assertEquals(Long.MAX_VALUE, aggregates.nextDueMillis());
+	}
+
+	@Test
+	public void sameFigures() {
+		Aggregates other = new Aggregates();
+		aggregates.putAnimal(1L, "dog", null, 7L);
+		other.putAnimal(5L, "dog", null, 9L);
+		assertTrue(aggregates.snapshot(NOW, null).sameFiguresAs(other.snapshot(NOW, new Date())));
+		other.putOwner(9L);
+		assertFalse(aggregates.snapshot(NOW, null).sameFiguresAs(other.snapshot(NOW, null)));
+	}
+
+	private static Date birthDate(int year) {
+		Calendar calendar = Calendar.getInstance();
+		calendar.clear();
+		calendar.set(year, Calendar.JUNE, 15);
+		return calendar.getTime();
+	}
+}